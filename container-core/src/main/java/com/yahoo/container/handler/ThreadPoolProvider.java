@@ -9,15 +9,21 @@ import com.yahoo.container.di.componentgraph.Provider;
 import com.yahoo.container.protect.ProcessTerminator;
 import com.yahoo.jdisc.Metric;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -38,6 +44,14 @@ public class ThreadPoolProvider extends AbstractComponent implements Provider<Ex
     }
 
     public ThreadPoolProvider(ThreadpoolConfig threadpoolConfig, Metric metric, ProcessTerminator processTerminator) {
+        threadpool = new ExecutorServiceWrapper(createExecutor(threadpoolConfig), metric, processTerminator,
+                                                threadpoolConfig.maxThreadExecutionTimeSeconds() * 1000L);
+    }
+
+    private static WorkerTrackingExecutorService createExecutor(ThreadpoolConfig threadpoolConfig) {
+        if (threadpoolConfig.queuetype() == ThreadpoolConfig.Queuetype.WORK_STEALING)
+            return new WorkStealingExecutor(threadpoolConfig.maxthreads());
+
         WorkerCompletionTimingThreadPoolExecutor executor =
                 new WorkerCompletionTimingThreadPoolExecutor(threadpoolConfig.maxthreads(),
                                                              threadpoolConfig.maxthreads(),
@@ -48,8 +62,7 @@ public class ThreadPoolProvider extends AbstractComponent implements Provider<Ex
         // get the dreaded thread locals initialized even if they will never run.
         // That counters what we we want to achieve with the Q that will prefer thread locality.
         executor.prestartAllCoreThreads();
-        threadpool = new ExecutorServiceWrapper(executor, metric, processTerminator,
-                                                threadpoolConfig.maxThreadExecutionTimeSeconds() * 1000L);
+        return executor;
     }
 
     /**
@@ -88,14 +101,14 @@ public class ThreadPoolProvider extends AbstractComponent implements Provider<Ex
      */
     private final static class ExecutorServiceWrapper extends ForwardingExecutorService {
 
-        private final WorkerCompletionTimingThreadPoolExecutor wrapped;
+        private final WorkerTrackingExecutorService wrapped;
         private final Metric metric;
         private final ProcessTerminator processTerminator;
         private final long maxThreadExecutionTimeMillis;
         private final Thread metricReporter;
         private final AtomicBoolean closed = new AtomicBoolean(false);
 
-        private ExecutorServiceWrapper(WorkerCompletionTimingThreadPoolExecutor wrapped,
+        private ExecutorServiceWrapper(WorkerTrackingExecutorService wrapped,
                                        Metric metric, ProcessTerminator processTerminator,
                                        long maxThreadExecutionTimeMillis) {
             this.wrapped = wrapped;
@@ -139,7 +152,7 @@ public class ThreadPoolProvider extends AbstractComponent implements Provider<Ex
                 super.execute(command);
             } catch (RejectedExecutionException e) {
                 metric.add(MetricNames.REJECTED_REQUEST, 1, null);
-                long timeSinceLastReturnedThreadMillis = System.currentTimeMillis() - wrapped.lastThreadAssignmentTimeMillis;
+                long timeSinceLastReturnedThreadMillis = System.currentTimeMillis() - wrapped.lastThreadAssignmentTimeMillis();
                 if (timeSinceLastReturnedThreadMillis > maxThreadExecutionTimeMillis)
                     processTerminator.logAndDie("No worker threads have been available for " +
                                                 timeSinceLastReturnedThreadMillis + " ms. Shutting down.", true);
@@ -158,8 +171,23 @@ public class ThreadPoolProvider extends AbstractComponent implements Provider<Ex
 
     }
 
+    /** An executor service which tracks the number of busy threads and the last time a thread was assigned a task */
+    private interface WorkerTrackingExecutorService extends ExecutorService {
+
+        /** Returns the number of threads in the pool */
+        int getPoolSize();
+
+        /** Returns the number of threads executing a task */
+        int getActiveCount();
+
+        /** Returns the last time a thread started executing a task */
+        long lastThreadAssignmentTimeMillis();
+
+    }
+
     /** A thread pool executor which maintains the last time a worker completed */
-    private final static class WorkerCompletionTimingThreadPoolExecutor extends ThreadPoolExecutor {
+    private final static class WorkerCompletionTimingThreadPoolExecutor extends ThreadPoolExecutor
+            implements WorkerTrackingExecutorService {
 
         volatile long lastThreadAssignmentTimeMillis = System.currentTimeMillis();
         private final AtomicLong startedCount = new AtomicLong(0);
@@ -191,6 +219,111 @@ public class ThreadPoolProvider extends AbstractComponent implements Provider<Ex
         public int getActiveCount() {
             return (int)(startedCount.get() - completedCount.get());
         }
+
+        @Override
+        public long lastThreadAssignmentTimeMillis() { return lastThreadAssignmentTimeMillis; }
+
+    }
+
+    /**
+     * An executor which runs tasks in a work-stealing pool. Tasks submitted from different threads go to different
+     * submission queues, and idle workers steal from the queues of others, such that there is no single queue
+     * which all submitters and workers contend on. Like the synchronous thread pool executor, this rejects tasks
+     * when all threads are busy rather than letting them queue up.
+     */
+    private final static class WorkStealingExecutor extends AbstractExecutorService
+            implements WorkerTrackingExecutorService {
+
+        private final ForkJoinPool pool;
+        private final int maxThreads;
+
+        /** The number of tasks accepted and not yet completed */
+        private final AtomicInteger pendingCount = new AtomicInteger(0);
+        private final AtomicLong startedCount = new AtomicLong(0);
+        private final AtomicLong completedCount = new AtomicLong(0);
+        private volatile long lastThreadAssignmentTimeMillis = System.currentTimeMillis();
+
+        WorkStealingExecutor(int maxThreads) {
+            this.maxThreads = maxThreads;
+            this.pool = new ForkJoinPool(maxThreads, new WorkerThreadFactory("threadpool"), null, true);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (pendingCount.incrementAndGet() > maxThreads) {
+                pendingCount.decrementAndGet();
+                throw new RejectedExecutionException("All " + maxThreads + " threads are busy");
+            }
+            try {
+                pool.execute(() -> run(command));
+            } catch (RuntimeException | Error e) {
+                pendingCount.decrementAndGet();
+                throw e;
+            }
+        }
+
+        private void run(Runnable command) {
+            lastThreadAssignmentTimeMillis = System.currentTimeMillis();
+            startedCount.incrementAndGet();
+            try {
+                command.run();
+            } finally {
+                completedCount.incrementAndGet();
+                pendingCount.decrementAndGet();
+            }
+        }
+
+        @Override
+        public int getPoolSize() { return pool.getPoolSize(); }
+
+        @Override
+        public int getActiveCount() {
+            return (int)(startedCount.get() - completedCount.get());
+        }
+
+        @Override
+        public long lastThreadAssignmentTimeMillis() { return lastThreadAssignmentTimeMillis; }
+
+        @Override
+        public void shutdown() { pool.shutdown(); }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            pool.shutdownNow();
+            return Collections.emptyList(); // tasks of a fork join pool can not be returned as runnables
+        }
+
+        @Override
+        public boolean isShutdown() { return pool.isShutdown(); }
+
+        @Override
+        public boolean isTerminated() { return pool.isTerminated(); }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return pool.awaitTermination(timeout, unit);
+        }
+
+    }
+
+    /** Creates named, non-daemon worker threads, like the threads of the synchronous thread pool executor */
+    private static class WorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        WorkerThreadFactory(String name) {
+            this.namePrefix = name + "-stealing-thread-";
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(namePrefix + threadNumber.getAndIncrement());
+            thread.setDaemon(false);
+            return thread;
+        }
+
     }
 
 }
@@ -4,6 +4,7 @@ package com.yahoo.container.jdisc;
 import com.google.inject.Inject;
 import com.yahoo.jdisc.Metric;
 import com.yahoo.jdisc.Request;
+import com.yahoo.jdisc.ResourceReference;
 import com.yahoo.jdisc.handler.BufferedContentChannel;
 import com.yahoo.jdisc.handler.CompletionHandler;
 import com.yahoo.jdisc.handler.ContentChannel;
@@ -13,6 +14,9 @@ import com.yahoo.log.LogLevel;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
@@ -66,6 +70,16 @@ public abstract class ThreadedHttpRequestHandler extends ThreadedRequestHandler
         return handle(request);
     }
 
+    /**
+     * Override this to implement a handler which does not hold on to a worker thread while it waits for the
+     * response to become available. The response is rendered by the thread which completes the returned stage.
+     * Handlers returning a stage which is not completed on return must pass allowAsyncResponse=true in the
+     * constructor. This default implementation calls handle(request, channel).
+     */
+    public CompletionStage<HttpResponse> handleAsync(HttpRequest request, ContentChannel channel) {
+        return CompletableFuture.completedFuture(handle(request, channel));
+    }
+
     @Override
     public final void handleRequest(Request request, BufferedContentChannel requestContent, ResponseHandler responseHandler) {
         if (log.isLoggable(LogLevel.DEBUG)) {
@@ -73,25 +87,63 @@ public abstract class ThreadedHttpRequestHandler extends ThreadedRequestHandler
         }
         com.yahoo.jdisc.http.HttpRequest jdiscRequest = asHttpRequest(request);
         HttpRequest httpRequest = new HttpRequest(jdiscRequest, new UnsafeContentInputStream(requestContent.toReadable()));
-        LazyContentChannel channel = null;
+        LazyContentChannel channel = new LazyContentChannel(httpRequest, responseHandler, metric, log);
+        long startTime = jdiscRequest.creationTime(TimeUnit.MILLISECONDS);
+        CompletableFuture<HttpResponse> response;
+        try {
+            response = handleAsync(httpRequest, channel).toCompletableFuture();
+        } catch (Exception e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        } catch (Error e) {
+            // To make absolutely sure the VM exits on Error.
+            com.yahoo.protect.Process.logAndDie("java.lang.Error handling request", e);
+            return;
+        }
+
+        if (response.isDone()) {
+            response.whenComplete((httpResponse, failure) -> respond(httpRequest, httpResponse, failure, channel, startTime));
+        } else { // keep the request alive until the response is rendered, after this worker thread is released
+            ResourceReference requestReference = request.refer();
+            response.whenComplete((httpResponse, failure) -> {
+                try (ResourceReference reference = requestReference) {
+                    respond(httpRequest, httpResponse, failure, channel, startTime);
+                }
+            });
+        }
+    }
+
+    private void respond(HttpRequest httpRequest, HttpResponse httpResponse, Throwable failure,
+                         LazyContentChannel channel, long startTime) {
+        if (failure instanceof CompletionException && failure.getCause() != null)
+            failure = failure.getCause();
+        if (failure instanceof Error) {
+            // To make absolutely sure the VM exits on Error.
+            com.yahoo.protect.Process.logAndDie("java.lang.Error handling request", failure);
+            return;
+        }
+        if (failure != null) {
+            fail(failure, channel);
+            return;
+        }
         try {
-            channel = new LazyContentChannel(httpRequest, responseHandler, metric, log);
-            HttpResponse httpResponse = handle(httpRequest, channel);
             channel.setHttpResponse(httpResponse); // may or may not have already been done
-            render(httpRequest, httpResponse, channel, jdiscRequest.creationTime(TimeUnit.MILLISECONDS));
+            render(httpRequest, httpResponse, channel, startTime);
         } catch (Exception e) {
-            metric.add(RENDERING_ERRORS, 1, null);
-            log.log(LogLevel.ERROR, "Uncaught exception handling request", e);
-            if (channel != null) {
-                channel.setHttpResponse(null);
-                channel.close(null);
-            }
+            fail(e, channel);
         } catch (Error e) {
             // To make absolutely sure the VM exits on Error.
             com.yahoo.protect.Process.logAndDie("java.lang.Error handling request", e);
         }
     }
 
+    private void fail(Throwable failure, LazyContentChannel channel) {
+        metric.add(RENDERING_ERRORS, 1, null);
+        log.log(LogLevel.ERROR, "Uncaught exception handling request", failure);
+        channel.setHttpResponse(null);
+        channel.close(null);
+    }
+
     /** Render and return whether the channel was closed */
     private void render(HttpRequest request, HttpResponse httpResponse,
                         LazyContentChannel channel, long startTime) throws IOException {
@@ -3,8 +3,10 @@ package com.yahoo.container.handler;
 
 import static org.junit.Assert.fail;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import com.yahoo.container.protect.ProcessTerminator;
 import org.junit.Ignore;
@@ -17,6 +19,7 @@ import com.yahoo.collections.Tuple2;
 import com.yahoo.jdisc.Metric;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Check threadpool provider accepts tasks and shuts down properly.
@@ -27,7 +30,48 @@ public class ThreadPoolProviderTestCase {
 
     @Test
     public final void testThreadPoolProvider() throws InterruptedException {
-        ThreadpoolConfig config = new ThreadpoolConfig(new ThreadpoolConfig.Builder().maxthreads(1));
+        assertAcceptsTasksAndShutsDown(new ThreadpoolConfig(new ThreadpoolConfig.Builder().maxthreads(1)));
+    }
+
+    @Test
+    public final void testWorkStealingThreadPoolProvider() throws InterruptedException {
+        assertAcceptsTasksAndShutsDown(new ThreadpoolConfig(new ThreadpoolConfig.Builder()
+                                                                    .maxthreads(1)
+                                                                    .queuetype(ThreadpoolConfig.Queuetype.WORK_STEALING)));
+    }
+
+    @Test
+    public void testWorkStealingThreadPoolProviderRejectsTasksWhenAllThreadsAreBusy() throws InterruptedException {
+        ThreadpoolConfig config = new ThreadpoolConfig(new ThreadpoolConfig.Builder()
+                                                               .maxthreads(2)
+                                                               .queuetype(ThreadpoolConfig.Queuetype.WORK_STEALING));
+        ThreadPoolProvider provider = new ThreadPoolProvider(config, Mockito.mock(Metric.class));
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable block = () -> {
+            started.countDown();
+            try { release.await(); } catch (InterruptedException e) {}
+        };
+        provider.get().execute(block);
+        provider.get().execute(block);
+        assertTrue(started.await(60, TimeUnit.SECONDS));
+        assertRejected(provider, new Hang(1));
+
+        release.countDown();
+        FlipIt command = new FlipIt();
+        for (boolean done = false; !done;) {
+            try {
+                provider.get().execute(command);
+                done = true;
+            } catch (RejectedExecutionException e) {
+                // just try again until the blocked tasks have completed
+            }
+        }
+        assertEquals(Boolean.TRUE, command.didItRun.get(5 * 60 * 1000).second);
+        provider.deconstruct();
+    }
+
+    private void assertAcceptsTasksAndShutsDown(ThreadpoolConfig config) throws InterruptedException {
         ThreadPoolProvider provider = new ThreadPoolProvider(config, Mockito.mock(Metric.class));
         Executor exec = provider.get();
         Tuple2<MessageState, Boolean> reply;
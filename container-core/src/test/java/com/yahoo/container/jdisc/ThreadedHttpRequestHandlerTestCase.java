@@ -0,0 +1,122 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.jdisc;
+
+import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.text.Utf8;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class ThreadedHttpRequestHandlerTestCase {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void requireThatWorkerIsReleasedWhileWaitingForAsyncResponse() throws InterruptedException {
+        AsyncHandler handler = new AsyncHandler(executor);
+        try (RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler)) {
+            RequestHandlerTestDriver.MockResponseHandler first = driver.sendRequest("http://localhost/first");
+            RequestHandlerTestDriver.MockResponseHandler second = driver.sendRequest("http://localhost/second");
+
+            // both requests are handled by the single worker before any of them is responded to
+            CompletableFuture<HttpResponse> firstResponse = handler.pending.poll(60, TimeUnit.SECONDS);
+            CompletableFuture<HttpResponse> secondResponse = handler.pending.poll(60, TimeUnit.SECONDS);
+            assertNotNull(firstResponse);
+            assertNotNull(secondResponse);
+
+            secondResponse.complete(new TextResponse(200, "second"));
+            assertEquals("second", second.readAll());
+            assertEquals(200, second.getStatus());
+
+            firstResponse.complete(new TextResponse(200, "first"));
+            assertEquals("first", first.readAll());
+            assertEquals(200, first.getStatus());
+        }
+    }
+
+    @Test
+    public void requireThatFailedAsyncResponseIsRespondedWithError() throws InterruptedException {
+        AsyncHandler handler = new AsyncHandler(executor);
+        try (RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler)) {
+            RequestHandlerTestDriver.MockResponseHandler response = driver.sendRequest("http://localhost/");
+            CompletableFuture<HttpResponse> pending = handler.pending.poll(60, TimeUnit.SECONDS);
+            assertNotNull(pending);
+            pending.completeExceptionally(new IllegalStateException("Expected"));
+            response.readAll();
+            assertEquals(500, response.getStatus());
+        }
+    }
+
+    @Test
+    public void requireThatSynchronousHandlerIsRespondedToDirectly() {
+        ThreadedHttpRequestHandler handler = new ThreadedHttpRequestHandler(executor) {
+
+            @Override
+            public HttpResponse handle(HttpRequest request) {
+                return new TextResponse(200, "sync");
+            }
+
+        };
+        try (RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler)) {
+            RequestHandlerTestDriver.MockResponseHandler response = driver.sendRequest("http://localhost/");
+            assertEquals("sync", response.readAll());
+            assertEquals(200, response.getStatus());
+        }
+    }
+
+    private static class AsyncHandler extends ThreadedHttpRequestHandler {
+
+        final BlockingQueue<CompletableFuture<HttpResponse>> pending = new LinkedBlockingQueue<>();
+
+        AsyncHandler(ExecutorService executor) {
+            super(executor, null, true);
+        }
+
+        @Override
+        public HttpResponse handle(HttpRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletionStage<HttpResponse> handleAsync(HttpRequest request, ContentChannel channel) {
+            CompletableFuture<HttpResponse> response = new CompletableFuture<>();
+            pending.add(response);
+            return response;
+        }
+
+    }
+
+    private static class TextResponse extends HttpResponse {
+
+        private final String text;
+
+        TextResponse(int status, String text) {
+            super(status);
+            this.text = text;
+        }
+
+        @Override
+        public void render(OutputStream output) throws IOException {
+            output.write(Utf8.toBytes(text));
+        }
+
+    }
+
+}
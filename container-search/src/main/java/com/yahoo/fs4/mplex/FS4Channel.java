@@ -100,6 +100,7 @@ public class FS4Channel {
      * <li>Throws a ChannelTimeoutException if timeout occurs before all packets
      * are received. Packets received with the wrong channel id are ignored.
      * </ul>
+     * Packets which have already arrived are received also when the timeout has passed.
      *
      * @param timeout the number of ms to attempt to get packets before throwing an exception
      * @param packetCount the number of packets to receive, or -1 to receive any number up to eol/error
@@ -114,8 +115,8 @@ public class FS4Channel {
         long timeLeft  = timeout;
 
         try {
-            while (timeLeft >= 0) {
-                BasicPacket p = nextPacket(timeLeft);
+            while (true) {
+                BasicPacket p = nextPacket(Math.max(0, timeLeft));
                 if (p == null) throw new ChannelTimeoutException("Timed out");
 
                 if (!isPingChannel && ((Packet)p).getChannel() != getChannelId().intValue()) {
@@ -148,8 +149,8 @@ public class FS4Channel {
             Thread.currentThread().interrupt();
         }
 
-        // default return, we only hit this if we timed out and
-        // did not get the end of the packet stream
+        // default return, we only hit this if the channel was invalid
+        // or we were interrupted before getting the end of the packet stream
         throw new ChannelTimeoutException();
     }
 
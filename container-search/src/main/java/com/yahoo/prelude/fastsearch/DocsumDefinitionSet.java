@@ -4,7 +4,6 @@ package com.yahoo.prelude.fastsearch;
 import com.google.common.collect.ImmutableMap;
 import com.yahoo.slime.BinaryFormat;
 import com.yahoo.data.access.Inspector;
-import com.yahoo.slime.Slime;
 import com.yahoo.data.access.slime.SlimeAdapter;
 import com.yahoo.prelude.ConfigurationException;
 import com.yahoo.container.search.LegacyEmulationConfig;
@@ -87,8 +86,11 @@ public final class DocsumDefinitionSet {
             throw new IllegalArgumentException("Only expecting SchemaLess docsums - summary class:" + summaryClass + " hit:" + hit);
         }
         DocsumDefinition docsumDefinition = getDocsum(summaryClass);
-        Slime value = BinaryFormat.decode(buffer.array(), buffer.arrayOffset()+buffer.position(), buffer.remaining());
-        Inspector docsum = new SlimeAdapter(value.get());
+        int offset = buffer.arrayOffset() + buffer.position();
+        com.yahoo.slime.Inspector value = BinaryFormat.inspect(buffer.array(), offset, buffer.remaining());
+        if ( ! value.valid()) // malformed: decode to get the partial result and error information
+            value = BinaryFormat.decode(buffer.array(), offset, buffer.remaining()).get();
+        Inspector docsum = new SlimeAdapter(value);
         if (docsum.type() != OBJECT) {
             return "Hit " + hit + " failed: " + docsum.asString();
         }
@@ -14,12 +14,14 @@ import com.yahoo.prelude.fastsearch.VespaBackEndSearcher.FillHitsResult;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.dispatch.FillInvoker;
+import com.yahoo.search.dispatch.ResponseMonitor;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.HitGroup;
 
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.yahoo.prelude.fastsearch.VespaBackEndSearcher.hitIterator;
 
@@ -28,7 +30,7 @@ import static com.yahoo.prelude.fastsearch.VespaBackEndSearcher.hitIterator;
  *
  * @author ollivir
  */
-public class FS4FillInvoker extends FillInvoker {
+public class FS4FillInvoker extends FillInvoker implements ResponseMonitor<FS4Channel> {
 
     private final String serverId;
     private final VespaBackEndSearcher searcher;
@@ -37,6 +39,7 @@ public class FS4FillInvoker extends FillInvoker {
     private int expectedFillResults = 0;
     private CacheKey summaryCacheKey = null;
     private DocsumPacketKey[] summaryPacketKeys = null;
+    private final AtomicBoolean responseAvailable = new AtomicBoolean(false);
 
     public FS4FillInvoker(VespaBackEndSearcher searcher, Query query, FS4ResourcePool fs4ResourcePool, String hostname, int port) {
         this.serverId = fs4ResourcePool.getServerId();
@@ -44,6 +47,7 @@ public class FS4FillInvoker extends FillInvoker {
         Backend backend = fs4ResourcePool.getBackend(hostname, port);
         this.channel = backend.openChannel();
         channel.setQuery(query);
+        channel.setResponseMonitor(this);
     }
 
     // fdispatch code path
@@ -52,10 +56,19 @@ public class FS4FillInvoker extends FillInvoker {
         this.searcher = searcher;
         this.channel = backend.openChannel();
         channel.setQuery(query);
+        channel.setResponseMonitor(this);
     }
 
     @Override
     protected void sendFillRequest(Result result, String summaryClass) {
+        responseAvailable.set(false);
+        doSendFillRequest(result, summaryClass);
+        if (expectedFillResults == 0) {
+            signalResponseAvailable();
+        }
+    }
+
+    private void doSendFillRequest(Result result, String summaryClass) {
         summaryCacheKey = null;
         if (searcher.getCacheControl().useCache(channel.getQuery())) {
             summaryCacheKey = fetchCacheKeyFromHits(result.hits(), summaryClass);
@@ -77,10 +90,12 @@ public class FS4FillInvoker extends FillInvoker {
                 try {
                     expectedFillResults = requestSummaries(result, summaryClass);
                 } catch (InvalidChannelException e) {
+                    expectedFillResults = 0;
                     result.hits()
                             .addError(ErrorMessage.createBackendCommunicationError("Invalid channel " + getName() + " (summary fetch)"));
                     return;
                 } catch (IOException e) {
+                    expectedFillResults = 0;
                     result.hits().addError(ErrorMessage.createBackendCommunicationError(
                             "IO error while talking on channel " + getName() + " (summary fetch): " + e.getMessage()));
                     return;
@@ -155,6 +170,18 @@ public class FS4FillInvoker extends FillInvoker {
         }
     }
 
+    /** Called by the channel for each packet: The remaining packets of a response follow the first directly */
+    @Override
+    public void responseAvailable(FS4Channel from) {
+        signalResponseAvailable();
+    }
+
+    private void signalResponseAvailable() {
+        if ( ! responseAvailable.getAndSet(true)) {
+            responseAvailable();
+        }
+    }
+
     @Override
     public void release() {
         if (channel != null) {
@@ -10,6 +10,8 @@ import com.yahoo.search.Result;
  * @author ollivir
  */
 public abstract class FillInvoker extends CloseableInvoker {
+    private ResponseMonitor<FillInvoker> monitor;
+
     /** Retrieve document summaries for the unfilled hits in the given {@link Result} */
     public void fill(Result result, String summaryClass) {
         sendFillRequest(result, summaryClass);
@@ -19,4 +21,19 @@ public abstract class FillInvoker extends CloseableInvoker {
     protected abstract void getFillResults(Result result, String summaryClass);
 
     protected abstract void sendFillRequest(Result result, String summaryClass);
+
+    protected void setMonitor(ResponseMonitor<FillInvoker> monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * Informs the monitor of this, if any, that the response to the fill request can be collected by
+     * {@link #getFillResults} without waiting for more than the remainder of it. Invokers which are used by
+     * {@link InterleavedFillInvoker} must call this once for each fill request, also when no response will arrive.
+     */
+    protected void responseAvailable() {
+        if (monitor != null) {
+            monitor.responseAvailable(this);
+        }
+    }
 }
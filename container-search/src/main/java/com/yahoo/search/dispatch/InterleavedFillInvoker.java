@@ -3,22 +3,30 @@ package com.yahoo.search.dispatch;
 
 import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.search.Result;
+import com.yahoo.search.result.DefaultErrorHit;
+import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * InterleavedFillInvoker uses multiple {@link FillInvoker} objects to interface with content
  * nodes in parallel. Operationally it first sends requests with all contained invokers and then
- * collects the results.
+ * collects the results in the order the content nodes respond. If the query times out, the hits of
+ * the content nodes which have not responded are left unfilled, and a timeout error is added.
  *
  * @author ollivir
  */
-public class InterleavedFillInvoker extends FillInvoker {
+public class InterleavedFillInvoker extends FillInvoker implements ResponseMonitor<FillInvoker> {
     private final Map<Integer, FillInvoker> invokers;
-    private Map<Integer, Result> expectedFillResults = null;
+    private final LinkedBlockingQueue<FillInvoker> availableForProcessing = new LinkedBlockingQueue<>();
+    private Map<FillInvoker, PartialFill> expectedFillResults = null;
 
     public InterleavedFillInvoker(Map<Integer, FillInvoker> invokers) {
         this.invokers = invokers;
@@ -26,22 +34,27 @@ public class InterleavedFillInvoker extends FillInvoker {
 
     @Override
     protected void sendFillRequest(Result result, String summaryClass) {
-        expectedFillResults = new HashMap<>();
-
+        Map<Integer, Result> partialResults = new HashMap<>();
         for (Iterator<Hit> it = result.hits().deepIterator(); it.hasNext();) {
             Hit hit = it.next();
             if (hit instanceof FastHit) {
                 FastHit fhit = (FastHit) hit;
-                Result res = expectedFillResults.computeIfAbsent(fhit.getDistributionKey(), dk -> new Result(result.getQuery()));
+                Result res = partialResults.computeIfAbsent(fhit.getDistributionKey(), dk -> new Result(result.getQuery()));
                 res.hits().add(fhit);
             }
         }
-        expectedFillResults.forEach((distKey, partialResult) -> {
+
+        expectedFillResults = new IdentityHashMap<>();
+        partialResults.forEach((distKey, partialResult) -> {
             FillInvoker invoker = invokers.get(distKey);
             if (invoker != null) {
-                invoker.sendFillRequest(partialResult, summaryClass);
+                expectedFillResults.put(invoker, new PartialFill(distKey, partialResult));
             }
         });
+        expectedFillResults.forEach((invoker, partialFill) -> {
+            invoker.setMonitor(this);
+            invoker.sendFillRequest(partialFill.result, summaryClass);
+        });
     }
 
     @Override
@@ -49,12 +62,41 @@ public class InterleavedFillInvoker extends FillInvoker {
         if (expectedFillResults == null) {
             return;
         }
-        expectedFillResults.forEach((distKey, partialResult) -> {
-            FillInvoker invoker = invokers.get(distKey);
-            if (invoker != null) {
-                invoker.getFillResults(partialResult, summaryClass);
+        try {
+            while ( ! expectedFillResults.isEmpty()) {
+                // Responses which have already arrived are collected even when the query has timed out
+                long timeLeft = result.getQuery().getTimeLeft();
+                FillInvoker invoker = timeLeft > 0 ? availableForProcessing.poll(timeLeft, TimeUnit.MILLISECONDS)
+                                                   : availableForProcessing.poll();
+                if (invoker == null) {
+                    break;
+                }
+                PartialFill partialFill = expectedFillResults.remove(invoker);
+                if (partialFill != null) {
+                    invoker.getFillResults(partialFill.result, summaryClass);
+                    mergeErrors(partialFill.result, result);
+                }
             }
-        });
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while waiting for summary data", e);
+        }
+
+        if ( ! expectedFillResults.isEmpty()) {
+            TreeSet<Integer> missingNodes = new TreeSet<>();
+            expectedFillResults.values().forEach(partialFill -> missingNodes.add(partialFill.distributionKey));
+            result.hits().addError(ErrorMessage.createTimeout("Summary data is incomplete: Timed out waiting for " +
+                                                              "content nodes with distribution-key " + missingNodes));
+        }
+        expectedFillResults = null;
+        result.hits().setSorted(false);
+        result.analyzeHits();
+    }
+
+    private static void mergeErrors(Result partialResult, Result result) {
+        DefaultErrorHit errors = partialResult.hits().removeErrorHit();
+        if (errors != null) {
+            result.hits().add(errors);
+        }
     }
 
     @Override
@@ -64,4 +106,27 @@ public class InterleavedFillInvoker extends FillInvoker {
             invokers.clear();
         }
     }
+
+    @Override
+    public void responseAvailable(FillInvoker from) {
+        availableForProcessing.add(from);
+    }
+
+    @Override
+    protected void setMonitor(ResponseMonitor<FillInvoker> monitor) {
+        // never to be called
+    }
+
+    /** The hits of the result to fill which are located on a single content node */
+    private static class PartialFill {
+
+        final int distributionKey;
+        final Result result;
+
+        PartialFill(int distributionKey, Result result) {
+            this.distributionKey = distributionKey;
+            this.result = result;
+        }
+
+    }
 }
@@ -8,15 +8,24 @@ import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
 import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.DefaultErrorHit;
 import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.result.HitGroup;
+import com.yahoo.search.result.HitOrderer;
+import com.yahoo.search.result.HitSortOrderer;
 import com.yahoo.search.searchchain.Execution;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -29,7 +38,8 @@ import static com.yahoo.container.handler.Coverage.DEGRADED_BY_TIMEOUT;
 /**
  * InterleavedSearchInvoker uses multiple {@link SearchInvoker} objects to interface with content
  * nodes in parallel. Operationally it first sends requests to all contained invokers and then
- * collects the results. The user of this class is responsible for merging the results if needed.
+ * collects the results. The hits of the results are merged such that only the hits which are
+ * within the requested offset and hit count of the query are kept.
  *
  * @author ollivir
  */
@@ -48,6 +58,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     private long deadline = 0;
 
     private Result result = null;
+    private final List<List<Hit>> partialHits = new ArrayList<>();
     private long answeredDocs = 0;
     private long answeredActiveDocs = 0;
     private long answeredSoonActiveDocs = 0;
@@ -55,8 +66,6 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     private int answeredNodes = 0;
     private boolean timedOut = false;
 
-    private boolean trimResult = false;
-
     public InterleavedSearchInvoker(Collection<SearchInvoker> invokers, VespaBackEndSearcher searcher, SearchCluster searchCluster) {
         super(Optional.empty());
         this.invokers = Collections.newSetFromMap(new IdentityHashMap<>());
@@ -81,7 +90,6 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         int originalOffset = query.getOffset();
         query.setHits(query.getHits() + query.getOffset());
         query.setOffset(0);
-        trimResult = originalHits != query.getHits() || originalOffset != query.getOffset();
 
         for (SearchInvoker invoker : invokers) {
             invoker.sendSearchRequest(query, null);
@@ -116,24 +124,68 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         if (result == null) {
             result = new Result(query);
         }
+        mergeHits(execution);
         insertTimeoutErrors();
         result.setCoverage(createCoverage());
-        trimResult(execution);
         Result ret = result;
         result = null;
+        partialHits.clear();
         return ret;
     }
 
-    private void trimResult(Execution execution) {
-        if (trimResult) {
-            if (result.getHitOrderer() != null) {
-                searcher.fill(result, Execution.ATTRIBUTEPREFETCH, execution);
+    /**
+     * Adds the concrete hits within the offset and hit count of the query to the result. The hit list of
+     * each content node is already ordered, so this merges the lists using a heap which holds the current
+     * hit of each list, and stops when enough hits have been found.
+     */
+    private void mergeHits(Execution execution) {
+        int maxHits = query.getOffset() + query.getHits();
+        HitOrderer orderer = result.getHitOrderer();
+        boolean mustCompare = partialHits.stream().filter(hits -> ! hits.isEmpty()).count() > 1;
+        if (orderer != null && mustCompare) {
+            if ( ! (orderer instanceof HitSortOrderer)) {
+                addAllAndTrim(execution);
+                return;
+            }
+            // Sort fields must be fetched before hits from different nodes can be compared
+            Result toFill = new Result(query);
+            partialHits.forEach(hits -> toFill.hits().addAll(hits));
+            searcher.fill(toFill, Execution.ATTRIBUTEPREFETCH, execution);
+            result.mergeWithAfterFill(toFill);
+            DefaultErrorHit fillErrors = toFill.hits().removeErrorHit();
+            if (fillErrors != null) {
+                result.hits().add(fillErrors);
+            }
+        }
+        Comparator<Hit> comparator = (orderer instanceof HitSortOrderer) ? ((HitSortOrderer)orderer).getComparator()
+                                                                         : Comparator.naturalOrder();
+
+        PriorityQueue<HitCursor> heap = new PriorityQueue<>(Math.max(1, partialHits.size()),
+                                                            (a, b) -> comparator.compare(a.current(), b.current()));
+        for (List<Hit> hits : partialHits) {
+            if ( ! hits.isEmpty()) {
+                heap.add(new HitCursor(hits));
+            }
+        }
+        for (int taken = 0; taken < maxHits && ! heap.isEmpty(); ++taken) {
+            HitCursor cursor = heap.poll();
+            Hit hit = cursor.current();
+            if (taken >= query.getOffset()) {
+                result.hits().add(hit);
+            }
+            if (cursor.next()) {
+                heap.add(cursor);
             }
-
-            result.hits().trim(query.getOffset(), query.getHits());
         }
     }
 
+    /** Merges by adding all hits and sorting them, for orderers which are not known to be comparators */
+    private void addAllAndTrim(Execution execution) {
+        partialHits.forEach(hits -> result.hits().addAll(hits));
+        searcher.fill(result, Execution.ATTRIBUTEPREFETCH, execution);
+        result.hits().trim(query.getOffset(), query.getHits());
+    }
+
     private void insertTimeoutErrors() {
         for (SearchInvoker invoker : invokers) {
             Optional<Integer> dk = invoker.distributionKey();
@@ -189,12 +241,19 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         collectCoverage(partialResult.getCoverage(true));
 
         if (result == null) {
-            result = partialResult;
-            return;
+            result = new Result(query);
         }
-
         result.mergeWith(partialResult);
-        result.hits().addAll(partialResult.hits().asUnorderedHits());
+
+        List<Hit> concreteHits = new ArrayList<>(partialResult.hits().getConcreteSizeShallow());
+        for (Hit hit : partialResult.hits().asList()) {
+            if (hit.isAuxiliary() || hit instanceof HitGroup) {
+                result.hits().add(hit);
+            } else {
+                concreteHits.add(hit);
+            }
+        }
+        partialHits.add(concreteHits);
     }
 
     private void collectCoverage(Coverage source) {
@@ -237,6 +296,22 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         }
     }
 
+    /** The position in an ordered list of hits */
+    private static class HitCursor {
+
+        private final List<Hit> hits;
+        private int index = 0;
+
+        HitCursor(List<Hit> hits) {
+            this.hits = hits;
+        }
+
+        Hit current() { return hits.get(index); }
+
+        boolean next() { return ++index < hits.size(); }
+
+    }
+
     @Override
     protected void release() {
         if (!invokers.isEmpty()) {
@@ -0,0 +1,62 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.grouping.vespa;
+
+import com.yahoo.searchlib.expression.ResultNode;
+import com.yahoo.vespa.objects.BufferSerializer;
+import com.yahoo.vespa.objects.Identifiable;
+
+import java.util.Base64;
+
+/**
+ * Decodes continuations that were encoded by {@link BinaryEncoder}.
+ */
+class BinaryDecoder {
+
+    private final BufferSerializer in;
+
+    public BinaryDecoder(String input) {
+        if ( ! isBinary(input)) {
+            throw new IllegalArgumentException("Expected binary continuation, got '" + input + "'.");
+        }
+        this.in = BufferSerializer.wrap(Base64.getUrlDecoder().decode(input.substring(1)));
+    }
+
+    public boolean hasNext() {
+        return in.remaining() > 0;
+    }
+
+    public int next() {
+        int val = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 28) {
+                throw new NumberFormatException("Integer too long.");
+            }
+            int b = in.getByte(null);
+            val |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return (val >>> 1) ^ (-(val & 0x1));
+    }
+
+    /**
+     * Returns the next integer as the number of elements that follow. As every element takes at least one byte, this
+     * is rejected if it is negative or larger than the number of bytes remaining.
+     */
+    public int nextLength() {
+        int len = next();
+        if (len < 0 || len > in.remaining()) {
+            throw new IllegalArgumentException("Expected at most " + in.remaining() + " elements, got " + len + ".");
+        }
+        return len;
+    }
+
+    public ResultNode nextGroupId() {
+        return Identifiable.create(in, ResultNode.class);
+    }
+
+    public static boolean isBinary(String input) {
+        return ! input.isEmpty() && input.charAt(0) == BinaryEncoder.PREFIX;
+    }
+}
@@ -0,0 +1,42 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.grouping.vespa;
+
+import com.yahoo.searchlib.expression.ResultNode;
+import com.yahoo.vespa.objects.BufferSerializer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Encodes continuations in the binary format, which is needed by continuations that contain group ids. Integers are
+ * zigzag encoded using 7 bits per byte, and group ids use their own serialization. The bytes are rendered using URL
+ * safe base64 after a prefix that can not start a continuation encoded by {@link IntegerEncoder}.
+ */
+class BinaryEncoder {
+
+    public static final char PREFIX = '_';
+    public static final int OFFSET_CONTINUATION = 0;
+    public static final int PATH_CONTINUATION = 1;
+    private final BufferSerializer out = new BufferSerializer();
+
+    public void append(int val) {
+        val = ((val << 1) ^ (val >> 31));
+        while ((val & ~0x7F) != 0) {
+            out.putByte(null, (byte)((val & 0x7F) | 0x80));
+            val >>>= 7;
+        }
+        out.putByte(null, (byte)val);
+    }
+
+    public void append(ResultNode groupId) {
+        groupId.serializeWithId(out);
+    }
+
+    @Override
+    public String toString() {
+        ByteBuffer buf = out.getBuf().getByteBuffer();
+        byte[] bytes = Arrays.copyOfRange(buf.array(), buf.arrayOffset(), buf.arrayOffset() + out.position());
+        return PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -48,10 +48,49 @@ final class CompositeContinuation extends EncodableContinuation implements Itera
         }
     }
 
+    @Override
+    public void encode(BinaryEncoder out) {
+        for (EncodableContinuation child : children) {
+            child.encode(out);
+        }
+    }
+
+    @Override
+    public boolean prefersBinaryFormat() {
+        for (EncodableContinuation child : children) {
+            if (child.prefersBinaryFormat()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static CompositeContinuation decode(BinaryDecoder from) {
+        CompositeContinuation ret = new CompositeContinuation();
+        while (from.hasNext()) {
+            int type = from.next();
+            switch (type) {
+            case BinaryEncoder.OFFSET_CONTINUATION:
+                ret.add(OffsetContinuation.decode(from));
+                break;
+            case BinaryEncoder.PATH_CONTINUATION:
+                ret.add(PathContinuation.decode(from));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown continuation type " + type + ".");
+            }
+        }
+        return ret;
+    }
+
     public static CompositeContinuation decode(IntegerDecoder from) {
         CompositeContinuation ret = new CompositeContinuation();
         while (from.hasNext()) {
-            ret.add(OffsetContinuation.decode(from));
+            if (from.skip(IntegerEncoder.PATH_CONTINUATION)) {
+                ret.add(PathContinuation.decode(from));
+            } else {
+                ret.add(OffsetContinuation.decode(from));
+            }
         }
         return ret;
     }
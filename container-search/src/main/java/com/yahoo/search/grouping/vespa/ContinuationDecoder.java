@@ -8,7 +8,21 @@ import com.yahoo.search.grouping.Continuation;
  */
 public class ContinuationDecoder {
 
+    /**
+     * Decodes a continuation from its string representation.
+     *
+     * @param str The string to decode.
+     * @return The decoded continuation.
+     * @throws IllegalArgumentException If the string is not a valid continuation.
+     */
     public static Continuation decode(String str) {
-        return CompositeContinuation.decode(new IntegerDecoder(str));
+        try {
+            if (BinaryDecoder.isBinary(str)) {
+                return CompositeContinuation.decode(new BinaryDecoder(str));
+            }
+            return CompositeContinuation.decode(new IntegerDecoder(str));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Bad continuation '" + str + "'.", e);
+        }
     }
 }
@@ -10,11 +10,29 @@ abstract class EncodableContinuation extends Continuation {
 
     public abstract void encode(IntegerEncoder out);
 
+    public abstract void encode(BinaryEncoder out);
+
+    /**
+     * Returns whether this is rendered in the binary format. Every continuation can be encoded in both formats, but
+     * those without group ids are rendered by {@link IntegerEncoder}, so that their string representation remains the
+     * same, while group ids are more compact in the binary format.
+     *
+     * @return True if this is rendered by {@link BinaryEncoder}.
+     */
+    public boolean prefersBinaryFormat() {
+        return false;
+    }
+
     @Override
     public abstract EncodableContinuation copy();
 
     @Override
     public final String toString() {
+        if (prefersBinaryFormat()) {
+            BinaryEncoder encoder = new BinaryEncoder();
+            encode(encoder);
+            return encoder.toString();
+        }
         IntegerEncoder encoder = new IntegerEncoder();
         encode(encoder);
         return encoder.toString();
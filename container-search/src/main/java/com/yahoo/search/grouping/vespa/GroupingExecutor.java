@@ -29,6 +29,9 @@ import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.searchchain.Execution;
 import com.yahoo.searchlib.aggregation.Grouping;
+import com.yahoo.searchlib.aggregation.GroupingLevel;
+import com.yahoo.searchlib.aggregation.HitsAggregationResult;
+import com.yahoo.searchlib.expression.ResultNode;
 import com.yahoo.vespa.objects.ObjectOperation;
 import com.yahoo.vespa.objects.ObjectPredicate;
 
@@ -85,11 +88,15 @@ public class GroupingExecutor extends Searcher {
         if (groupingMap.isEmpty()) return execution.search(query);
 
         // Perform the necessary passes to execute grouping.
-        Result result = performSearch(query, execution, groupingMap);
+        int firstPass = preparePartialExecution(query, requestContextList, groupingMap);
+        Result result = performSearch(query, execution, groupingMap, firstPass);
 
         // Convert Vespa style results to hits.
         HitConverter hitConverter = new HitConverter(this, query);
         for (RequestContext context : requestContextList) {
+            if (context.idList.isEmpty()) continue; // not part of a partial execution
+
+            finishPartialExecution(context, groupingMap, firstPass);
             RootGroup group = convertResult(context, groupingMap, hitConverter);
             result.hits().add(group);
         }
@@ -189,6 +196,141 @@ public class GroupingExecutor extends Searcher {
         return builder.getRoot();
     }
 
+    /**
+     * Prepares a partial execution if the given requests contain exactly one {@link PathContinuation}. Since that
+     * continuation holds the ids of all the groups that contain the list it pages, those groups are added to the
+     * {@link Grouping} objects that produce the list, and the passes that would have found them are skipped. All other
+     * {@link Grouping} objects are removed from the grouping map, and the result of a partial execution only contains
+     * the paged list and its content.
+     *
+     * @param query       The query being executed.
+     * @param contextList The contexts of all grouping requests.
+     * @param groupingMap The map of all grouping objects.
+     * @return The first pass to perform.
+     */
+    private int preparePartialExecution(Query query, List<RequestContext> contextList,
+                                        Map<Integer, Grouping> groupingMap) {
+        RequestContext partialContext = null;
+        PathContinuation partial = null;
+        for (RequestContext context : contextList) {
+            for (PathContinuation continuation : context.transform.getPathContinuations()) {
+                if (partial != null) return 0; // more than one list is paged
+                partialContext = context;
+                partial = continuation;
+            }
+        }
+        if (partial == null) return 0;
+
+        int firstPass = -1;
+        int pathSize = -1;
+        for (Integer grpId : partialContext.idList) {
+            Grouping grouping = groupingMap.get(grpId);
+            int pass = getPassOfList(grouping, partial.getTag());
+            if (pass < 0) continue;
+            firstPass = pass;
+            // the groups of the first pass are also in the path of a hit list
+            pathSize = isHitList(grouping, partial.getTag()) ? pass : pass - 1;
+            break;
+        }
+        if (firstPass < 0 || pathSize != partial.getPath().size()) {
+            log.log(LogLevel.DEBUG, "Ignoring continuation which does not match its request: " + partial);
+            return 0;
+        }
+
+        for (RequestContext context : contextList) {
+            for (Iterator<Integer> it = context.idList.iterator(); it.hasNext(); ) {
+                Integer grpId = it.next();
+                Grouping grouping = groupingMap.get(grpId);
+                if (context == partialContext && getPassOfList(grouping, partial.getTag()) == firstPass) {
+                    addGroupsOfPath(grouping, partial.getPath(), firstPass);
+                } else {
+                    groupingMap.remove(grpId);
+                    it.remove();
+                }
+            }
+        }
+        partialContext.transform.setPartialExecution(partial);
+        if (query.isTraceable(3)) {
+            query.trace("Grouping of a single list, starting at pass #" + firstPass + ".", 3);
+        }
+        return firstPass;
+    }
+
+    /**
+     * Returns the pass that produces the list with the given tag, that is, the pass that collects the groups of that
+     * list, or the groups whose hit list it is. Returns -1 if the given grouping does not produce the list.
+     */
+    private static int getPassOfList(Grouping grouping, int tag) {
+        if (hasHitList(grouping.getRoot(), tag)) return 0;
+
+        List<GroupingLevel> levels = grouping.getLevels();
+        for (int i = 0; i < levels.size(); ++i) {
+            com.yahoo.searchlib.aggregation.Group prototype = levels.get(i).getGroupPrototype();
+            if (prototype.getTag() == tag || hasHitList(prototype, tag)) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isHitList(Grouping grouping, int tag) {
+        if (hasHitList(grouping.getRoot(), tag)) return true;
+
+        for (GroupingLevel level : grouping.getLevels()) {
+            if (hasHitList(level.getGroupPrototype(), tag)) return true;
+        }
+        return false;
+    }
+
+    private static boolean hasHitList(com.yahoo.searchlib.aggregation.Group group, int tag) {
+        for (com.yahoo.searchlib.aggregation.AggregationResult result : group.getAggregationResults()) {
+            if (result instanceof HitsAggregationResult && result.getTag() == tag) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the groups of the given path that are above the given pass to the given grouping, as if they were
+     * collected by the preceding passes.
+     */
+    private static void addGroupsOfPath(Grouping grouping, List<ResultNode> path, int firstPass) {
+        com.yahoo.searchlib.aggregation.Group parent = grouping.getRoot();
+        for (int i = 0; i < firstPass - 1; ++i) {
+            com.yahoo.searchlib.aggregation.Group child = grouping.getLevels().get(i).getGroupPrototype().clone();
+            child.setId((ResultNode)path.get(i).clone());
+            parent.addChild(child);
+            parent = child;
+        }
+    }
+
+    /**
+     * Removes what was not collected by a partial execution from the results of the given request: The aggregation
+     * results of the groups above the first pass, and the groups of the first pass that are not in the path of the
+     * paged list, which happens when the paged list is a hit list.
+     */
+    private static void finishPartialExecution(RequestContext context, Map<Integer, Grouping> groupingMap,
+                                               int firstPass) {
+        PathContinuation partial = context.transform.getPartialExecution();
+        if (partial == null) return;
+
+        List<ResultNode> path = partial.getPath();
+        for (Integer grpId : context.idList) {
+            com.yahoo.searchlib.aggregation.Group group = groupingMap.get(grpId).getRoot();
+            for (int level = 0; level < firstPass; ++level) {
+                group.getAggregationResults().clear();
+                List<com.yahoo.searchlib.aggregation.Group> children = group.getChildren();
+                if (level < path.size()) {
+                    ResultNode id = path.get(level);
+                    children.removeIf(child -> ! id.equals(child.getId()));
+                }
+                if (children.isEmpty()) break;
+                group = children.get(0);
+            }
+        }
+    }
+
     /**
      * Performs the actual search passes to complete all the given {@link Grouping} requests. This method uses the
      * grouping map argument as both an input and an output variable, as the contained {@link Grouping} objects are
@@ -197,11 +339,12 @@ public class GroupingExecutor extends Searcher {
      * @param query       The query to execute.
      * @param execution   The execution context used to run the queries.
      * @param groupingMap The map of grouping requests to perform.
+     * @param startPass   The first pass to perform, which is 0 unless this is a partial execution.
      * @return The search result to pass back from this searcher.
      */
-    private Result performSearch(Query query, Execution execution, Map<Integer, Grouping> groupingMap) {
+    private Result performSearch(Query query, Execution execution, Map<Integer, Grouping> groupingMap, int startPass) {
         // Determine how many passes to perform.
-        int lastPass = 0;
+        int lastPass = startPass;
         for (Grouping grouping : groupingMap.values()) {
             if ( ! grouping.useSinglePass()) {
                 lastPass = Math.max(lastPass, grouping.getLevels().size());
@@ -213,15 +356,15 @@ public class GroupingExecutor extends Searcher {
         int prePassErrors = query.errors().size();
         Result ret = null;
         Item baseRoot = origRoot;
-        if (lastPass > 0) {
+        if (lastPass > startPass) {
             baseRoot = origRoot.clone();
         }
         if (query.isTraceable(3) && query.getGroupingSessionCache()) {
-            query.trace("Grouping in " + (lastPass + 1) + " passes. SessionId='" + query.getSessionId(false) + "'.", 3);
+            query.trace("Grouping in " + (lastPass - startPass + 1) + " passes. SessionId='" + query.getSessionId(false) + "'.", 3);
         }
-        for (int pass = 0; pass <= lastPass; ++pass) {
-            boolean firstPass = (pass == 0);
-            List<Grouping> passList = getGroupingListForPassN(groupingMap, pass);
+        for (int pass = startPass; pass <= lastPass; ++pass) {
+            boolean firstPass = (pass == startPass);
+            List<Grouping> passList = getGroupingListForPassN(groupingMap, pass, startPass);
             if (passList.isEmpty()) {
                 throw new RuntimeException("No grouping request for pass " + pass + ", bug!");
             }
@@ -296,14 +439,15 @@ public class GroupingExecutor extends Searcher {
      *
      * @param groupingMap The map of all grouping objects.
      * @param pass        The pass about to be performed.
+     * @param startPass   The first pass performed.
      * @return A list of grouping objects.
      */
-    private List<Grouping> getGroupingListForPassN(Map<Integer, Grouping> groupingMap, int pass) {
+    private List<Grouping> getGroupingListForPassN(Map<Integer, Grouping> groupingMap, int pass, int startPass) {
         List<Grouping> ret = new ArrayList<>();
         for (Grouping grouping : groupingMap.values()) {
             if (grouping.useSinglePass()) {
-                if (pass == 0) {
-                    grouping.setFirstLevel(0);
+                if (pass == startPass) {
+                    grouping.setFirstLevel(startPass);
                     grouping.setLastLevel(grouping.getLevels().size());
                     ret.add(grouping); // more levels to go
                 }
@@ -320,31 +464,32 @@ public class GroupingExecutor extends Searcher {
 
     /**
      * Merges the grouping content of the given result object. The first grouping hit found by iterating over the result
-     * content is kept, and all consecutive matching hits are merged into this.
+     * content is kept, and all consecutive matching hits are merged into this in a single pass.
      *
      * @param result The result to traverse.
      * @return A map of merged grouping objects.
      */
     private Map<Integer, Grouping> mergeGroupingResults(Result result) {
-        Map<Integer, Grouping> ret = new HashMap<>();
+        Map<Integer, List<Grouping>> partials = new HashMap<>();
         for (Iterator<Hit> i = result.hits().unorderedIterator(); i.hasNext(); ) {
             Hit hit = i.next();
             if (hit instanceof GroupingListHit) {
                 ContextInjector injector = new ContextInjector(hit);
                 for (Grouping grp : ((GroupingListHit)hit).getGroupingList()) {
                     grp.select(injector, injector);
-                    Grouping old = ret.get(grp.getId());
-                    if (old != null) {
-                        old.merge(grp);
-                    } else {
-                        ret.put(grp.getId(), grp);
-                    }
+                    partials.computeIfAbsent(grp.getId(), id -> new ArrayList<>()).add(grp);
                 }
                 i.remove();
             }
         }
-        for (Grouping grouping : ret.values()) {
-            grouping.postMerge();
+        Map<Integer, Grouping> ret = new HashMap<>();
+        for (List<Grouping> groupings : partials.values()) {
+            Grouping first = groupings.get(0);
+            if (groupings.size() > 1) {
+                first.merge(groupings.subList(1, groupings.size()));
+            }
+            first.postMerge();
+            ret.put(first.getId(), first);
         }
         return ret;
     }
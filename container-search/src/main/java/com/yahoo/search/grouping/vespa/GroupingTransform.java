@@ -3,8 +3,10 @@ package com.yahoo.search.grouping.vespa;
 
 import com.yahoo.search.grouping.Continuation;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -23,7 +25,10 @@ class GroupingTransform {
     private final Map<Integer, Integer> offsetByTag = new HashMap<>();
     private final Map<ResultId, Integer> offsetById = new HashMap<>();
     private final Set<ResultId> unstable = new HashSet<>();
+    private final Map<ResultId, PathContinuation> pathById = new LinkedHashMap<>();
     private final int requestId;
+    private boolean partialPaging = false;
+    private PathContinuation partialExecution = null;
 
     public GroupingTransform(int requestId) {
         this.requestId = requestId;
@@ -51,12 +56,60 @@ class GroupingTransform {
                 offsetByTag.put(tag, offset);
             }
             offsetById.put(id, offset);
+            if (offsetCont instanceof PathContinuation) {
+                pathById.put(id, (PathContinuation)offsetCont);
+            } else {
+                pathById.remove(id);
+            }
         } else {
             throw new UnsupportedOperationException(cont.getClass().getName());
         }
         return this;
     }
 
+    /**
+     * Returns the continuations of this request that hold the group ids of the list they page. If there are multiple
+     * continuations for the same list, only the last one is returned.
+     *
+     * @return The path continuations.
+     */
+    public Collection<PathContinuation> getPathContinuations() {
+        return pathById.values();
+    }
+
+    /**
+     * Sets whether the page continuations of the result should hold the ids of the groups that contain each list, so
+     * that paging a list only executes the passes needed to produce it. See {@link PathContinuation}.
+     *
+     * @param partialPaging True to create path continuations.
+     * @return This, to allow chaining.
+     */
+    public GroupingTransform setPartialPaging(boolean partialPaging) {
+        this.partialPaging = partialPaging;
+        return this;
+    }
+
+    public boolean isPartialPaging() {
+        return partialPaging;
+    }
+
+    /**
+     * Sets the continuation of the list that is the only list produced by the execution of this request, or null if
+     * the complete request is executed. All the groups that contain the list are known in advance, so they are not
+     * paged.
+     *
+     * @param continuation The continuation of the list to produce.
+     * @return This, to allow chaining.
+     */
+    public GroupingTransform setPartialExecution(PathContinuation continuation) {
+        this.partialExecution = continuation;
+        return this;
+    }
+
+    public PathContinuation getPartialExecution() {
+        return partialExecution;
+    }
+
     public boolean isStable(ResultId resultId) {
         return !unstable.contains(resultId);
     }
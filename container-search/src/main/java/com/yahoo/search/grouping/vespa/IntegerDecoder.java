@@ -1,6 +1,10 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.grouping.vespa;
 
+import com.yahoo.searchlib.expression.ResultNode;
+import com.yahoo.vespa.objects.BufferSerializer;
+import com.yahoo.vespa.objects.Identifiable;
+
 /**
  * @author Simon Thoresen Hult
  */
@@ -29,6 +33,40 @@ class IntegerDecoder {
         return (val >>> 1) ^ (-(val & 0x1));
     }
 
+    /**
+     * Returns the next integer as the number of elements that follow. As every element takes at least one character,
+     * this is rejected if it is negative or larger than the number of characters remaining.
+     */
+    public int nextLength() {
+        int len = next();
+        if (len < 0 || len > input.length() - pos) {
+            throw new IllegalArgumentException("Expected at most " + (input.length() - pos) + " elements, got " + len + ".");
+        }
+        return len;
+    }
+
+    /**
+     * Consumes the next integer if it equals the given value.
+     *
+     * @return True if the next integer was consumed.
+     */
+    public boolean skip(int val) {
+        int mark = pos;
+        if (next() == val) {
+            return true;
+        }
+        pos = mark;
+        return false;
+    }
+
+    public ResultNode nextGroupId() {
+        byte[] bytes = new byte[nextLength()];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte)next();
+        }
+        return Identifiable.create(BufferSerializer.wrap(bytes), ResultNode.class);
+    }
+
     private static int decodeChar(char c) {
         if (c >= CHAR_MIN && c <= CHAR_MAX) {
             return (0xF & (c - CHAR_MIN));
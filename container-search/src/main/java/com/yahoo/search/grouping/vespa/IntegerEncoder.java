@@ -1,6 +1,9 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.grouping.vespa;
 
+import com.yahoo.searchlib.expression.ResultNode;
+import com.yahoo.vespa.objects.BufferSerializer;
+
 /**
  * @author Simon Thoresen Hult
  */
@@ -8,6 +11,8 @@ class IntegerEncoder {
 
     public static final char[] CHARS = { 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H',
                                          'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P' };
+    /** Starts a {@link PathContinuation}. This can not start an {@link OffsetContinuation}, as that starts with a length. */
+    public static final int PATH_CONTINUATION = -1;
     private final StringBuilder out = new StringBuilder();
 
     public void append(int val) {
@@ -25,6 +30,20 @@ class IntegerEncoder {
         }
     }
 
+    /**
+     * Appends a group id as the number of bytes in its serialization followed by each byte.
+     */
+    public void append(ResultNode groupId) {
+        BufferSerializer buf = new BufferSerializer();
+        groupId.serializeWithId(buf);
+        buf.flip();
+        byte[] bytes = buf.getBytes(null, buf.remaining());
+        append(bytes.length);
+        for (byte b : bytes) {
+            append(b);
+        }
+    }
+
     @Override
     public String toString() {
         return out.toString();
@@ -52,7 +52,7 @@ class OffsetContinuation extends EncodableContinuation {
 
     @Override
     public boolean equals(Object obj) {
-        if (!(obj instanceof OffsetContinuation)) {
+        if (obj == null || obj.getClass() != getClass()) {
             return false;
         }
         OffsetContinuation rhs = (OffsetContinuation)obj;
@@ -79,6 +79,23 @@ class OffsetContinuation extends EncodableContinuation {
         out.append(flags);
     }
 
+    @Override
+    public void encode(BinaryEncoder out) {
+        out.append(BinaryEncoder.OFFSET_CONTINUATION);
+        resultId.encode(out);
+        out.append(tag);
+        out.append(offset);
+        out.append(flags);
+    }
+
+    public static OffsetContinuation decode(BinaryDecoder in) {
+        ResultId resultId = ResultId.decode(in);
+        int tag = in.next();
+        int offset = in.next();
+        int flags = in.next();
+        return new OffsetContinuation(resultId, tag, offset, flags);
+    }
+
     public static OffsetContinuation decode(IntegerDecoder in) {
         ResultId resultId = ResultId.decode(in);
         int tag = in.next();
@@ -0,0 +1,105 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.grouping.vespa;
+
+import com.yahoo.searchlib.expression.ResultNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An {@link OffsetContinuation} that also holds the ids of the groups that contain the list it pages, starting below
+ * the root group. This allows the {@link GroupingExecutor} to only execute the passes needed to produce that list
+ * instead of the complete request. It is rendered in the binary format, but can be encoded in both.
+ */
+final class PathContinuation extends OffsetContinuation {
+
+    private final List<ResultNode> path;
+
+    public PathContinuation(ResultId resultId, int tag, int offset, int flags, List<ResultNode> path) {
+        super(resultId, tag, offset, flags);
+        this.path = Collections.unmodifiableList(new ArrayList<>(path));
+    }
+
+    /**
+     * Returns the ids of the groups that contain the list of this, ordered from the first grouping level down.
+     *
+     * @return The list of group ids.
+     */
+    public List<ResultNode> getPath() {
+        return path;
+    }
+
+    @Override
+    public PathContinuation copy() {
+        return this; // immutable
+    }
+
+    @Override
+    public boolean prefersBinaryFormat() {
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode() + path.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return super.equals(obj) && path.equals(((PathContinuation)obj).path);
+    }
+
+    @Override
+    public void encode(IntegerEncoder out) {
+        out.append(IntegerEncoder.PATH_CONTINUATION);
+        getResultId().encode(out);
+        out.append(getTag());
+        out.append(getOffset());
+        out.append(getFlags());
+        out.append(path.size());
+        for (ResultNode groupId : path) {
+            out.append(groupId);
+        }
+    }
+
+    @Override
+    public void encode(BinaryEncoder out) {
+        out.append(BinaryEncoder.PATH_CONTINUATION);
+        getResultId().encode(out);
+        out.append(getTag());
+        out.append(getOffset());
+        out.append(getFlags());
+        out.append(path.size());
+        for (ResultNode groupId : path) {
+            out.append(groupId);
+        }
+    }
+
+    public static PathContinuation decode(BinaryDecoder in) {
+        ResultId resultId = ResultId.decode(in);
+        int tag = in.next();
+        int offset = in.next();
+        int flags = in.next();
+        int len = in.nextLength();
+        List<ResultNode> path = new ArrayList<>(len);
+        for (int i = 0; i < len; ++i) {
+            path.add(in.nextGroupId());
+        }
+        return new PathContinuation(resultId, tag, offset, flags, path);
+    }
+
+    public static PathContinuation decode(IntegerDecoder in) {
+        ResultId resultId = ResultId.decode(in);
+        int tag = in.next();
+        int offset = in.next();
+        int flags = in.next();
+        int len = in.nextLength();
+        List<ResultNode> path = new ArrayList<>(len);
+        for (int i = 0; i < len; ++i) {
+            path.add(in.nextGroupId());
+        }
+        return new PathContinuation(resultId, tag, offset, flags, path);
+    }
+
+}
@@ -108,6 +108,7 @@ class RequestBuilder {
         Grouping grouping = new Grouping();
         grouping.getRoot().setTag(++tag);
         grouping.setForceSinglePass(root.getForceSinglePass() || root.containsHint("singlepass"));
+        transform.setPartialPaging(root.containsHint("partialpaging"));
         Stack<BuildFrame> stack = new Stack<>();
         stack.push(new BuildFrame(grouping, new BuildState(), root));
         while (!stack.isEmpty()) {
@@ -44,6 +44,7 @@ import com.yahoo.searchlib.expression.StringResultNode;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -70,7 +71,9 @@ class ResultBuilder {
      */
     public ResultBuilder setRequestId(int requestId) {
         root = new RootGroup(requestId, continuation);
-        rootBuilder = new GroupListBuilder(ResultId.valueOf(requestId), 0, true, true);
+        // the groups that contain the list of a partial execution are not paged
+        boolean stable = transform.getPartialExecution() == null;
+        rootBuilder = new GroupListBuilder(ResultId.valueOf(requestId), 0, stable, true, null);
         return this;
     }
 
@@ -140,6 +143,15 @@ class ResultBuilder {
         rootBuilder.childGroups.get(0).fill(root);
     }
 
+    /**
+     * Returns whether the list with the given tag is the list produced by a partial execution. Since all the groups
+     * that contain that list are given by the request, there is only one such list in the result.
+     */
+    private boolean isPartialExecution(int tag) {
+        PathContinuation partial = transform.getPartialExecution();
+        return partial != null && partial.getTag() == tag;
+    }
+
     private class GroupBuilder {
 
         boolean [] results = new boolean[8];
@@ -148,11 +160,24 @@ class ResultBuilder {
         final ResultId resultId;
         final com.yahoo.searchlib.aggregation.Group group;
         final boolean stable;
+        final GroupListBuilder list;
 
-        GroupBuilder(ResultId resultId, com.yahoo.searchlib.aggregation.Group group, boolean stable) {
+        GroupBuilder(ResultId resultId, com.yahoo.searchlib.aggregation.Group group, boolean stable,
+                     GroupListBuilder list) {
             this.resultId = resultId;
             this.group = group;
             this.stable = stable;
+            this.list = list;
+        }
+
+        /** Returns the ids of this group and the groups that contain it, excluding the root group */
+        List<ResultNode> getPath() {
+            List<ResultNode> path = new ArrayList<>();
+            for (GroupBuilder builder = this; builder.list.parent != null; builder = builder.list.parent) {
+                path.add(builder.group.getId());
+            }
+            Collections.reverse(path);
+            return path;
         }
 
         Group build(double relevance) {
@@ -186,7 +211,11 @@ class ResultBuilder {
             }
             GroupListBuilder ret = childLists[index];
             if (ret == null) {
-                ret = new GroupListBuilder(resultId.newChildId(childCount), tag, stable, ranked);
+                if (isPartialExecution(tag)) {
+                    ret = new GroupListBuilder(transform.getPartialExecution().getResultId(), tag, true, ranked, this);
+                } else {
+                    ret = new GroupListBuilder(resultId.newChildId(childCount), tag, stable, ranked, this);
+                }
                 childLists[index] = ret;
                 childCount++;
             }
@@ -274,7 +303,12 @@ class ResultBuilder {
         HitList newHitList(int listIdx, int tag, HitsAggregationResult execResult) {
             HitList hitList = new HitList(transform.getLabel(tag));
             List<Hit> hits = execResult.getHits();
-            PageInfo page = new PageInfo(resultId.newChildId(listIdx), tag, stable, hits.size());
+            PageInfo page;
+            if (isPartialExecution(tag)) {
+                page = new PageInfo(transform.getPartialExecution().getResultId(), tag, true, hits.size(), this);
+            } else {
+                page = new PageInfo(resultId.newChildId(listIdx), tag, stable, hits.size(), this);
+            }
             for (int i = page.firstEntry; i < page.lastEntry; ++i) {
                 hitList.add(hitConverter.toSearchHit(execResult.getSummaryClass(), hits.get(i)));
             }
@@ -292,17 +326,19 @@ class ResultBuilder {
         final boolean stable;
         final boolean stableChildren;
         final boolean ranked;
+        final GroupBuilder parent;
 
-        GroupListBuilder(ResultId resultId, int tag, boolean stable, boolean ranked) {
+        GroupListBuilder(ResultId resultId, int tag, boolean stable, boolean ranked, GroupBuilder parent) {
             this.resultId = resultId;
             this.tag = tag;
             this.stable = stable;
             this.stableChildren = stable && transform.isStable(resultId);
             this.ranked = ranked;
+            this.parent = parent;
         }
 
         GroupList build() {
-            PageInfo page = new PageInfo(resultId, tag, stable, childGroups.size());
+            PageInfo page = new PageInfo(resultId, tag, stable, childGroups.size(), parent);
             GroupList groupList = new GroupList(transform.getLabel(tag));
             for (int i = page.firstEntry; i < page.lastEntry; ++i) {
                 GroupBuilder child = childGroups.get(i);
@@ -331,7 +367,7 @@ class ResultBuilder {
             if (ret != null) {
                 ret.merge(execGroup);
             } else {
-                ret = new GroupBuilder(resultId.newChildId(childResultGroups.size()), execGroup, stableChildren);
+                ret = new GroupBuilder(resultId.newChildId(childResultGroups.size()), execGroup, stableChildren, this);
                 childResultGroups.put(res, ret);
                 childGroups.add(ret);
             }
@@ -347,11 +383,13 @@ class ResultBuilder {
         final int numEntries;
         final int firstEntry;
         final int lastEntry;
+        final GroupBuilder owner;
 
-        PageInfo(ResultId resultId, int tag, boolean stable, int numEntries) {
+        PageInfo(ResultId resultId, int tag, boolean stable, int numEntries, GroupBuilder owner) {
             this.resultId = resultId;
             this.tag = tag;
             this.numEntries = numEntries;
+            this.owner = owner;
             max = transform.getMax(tag);
             if (max > 0) {
                 firstEntry = stable ? transform.getOffset(resultId) : 0;
@@ -364,19 +402,28 @@ class ResultBuilder {
 
         void putContinuations(Map<String, Continuation> out) {
             if (max > 0) {
+                boolean partial = isPartialExecution(tag);
+                if (firstEntry > 0 || partial) {
+                    continuation.add(newContinuation(firstEntry, 0, partial));
+                }
                 if (firstEntry > 0) {
-                    continuation.add(new OffsetContinuation(resultId, tag, firstEntry, 0));
-
                     int prevPage = Math.max(0, Math.min(firstEntry, lastEntry) - max);
-                    out.put(Continuation.PREV_PAGE, new OffsetContinuation(resultId, tag, prevPage,
-                                                                           OffsetContinuation.FLAG_UNSTABLE));
+                    out.put(Continuation.PREV_PAGE, newContinuation(prevPage, OffsetContinuation.FLAG_UNSTABLE,
+                                                                    transform.isPartialPaging()));
                 }
                 if (lastEntry < numEntries) {
-                    out.put(Continuation.NEXT_PAGE, new OffsetContinuation(resultId, tag, lastEntry,
-                                                                           OffsetContinuation.FLAG_UNSTABLE));
+                    out.put(Continuation.NEXT_PAGE, newContinuation(lastEntry, OffsetContinuation.FLAG_UNSTABLE,
+                                                                    transform.isPartialPaging()));
                 }
             }
         }
+
+        OffsetContinuation newContinuation(int offset, int flags, boolean withPath) {
+            if (withPath) {
+                return new PathContinuation(resultId, tag, offset, flags, owner.getPath());
+            }
+            return new OffsetContinuation(resultId, tag, offset, flags);
+        }
     }
 
     /**
@@ -58,8 +58,24 @@ class ResultId {
         }
     }
 
+    public void encode(BinaryEncoder out) {
+        out.append(indexes.length);
+        for (int i : indexes) {
+            out.append(i);
+        }
+    }
+
+    public static ResultId decode(BinaryDecoder in) {
+        int len = in.nextLength();
+        int[] arr = new int[len];
+        for (int i = 0; i < len; ++i) {
+            arr[i] = in.next();
+        }
+        return new ResultId(arr);
+    }
+
     public static ResultId decode(IntegerDecoder in) {
-        int len = in.next();
+        int len = in.nextLength();
         int[] arr = new int[len];
         for (int i = 0; i < len; ++i) {
             arr[i] = in.next();
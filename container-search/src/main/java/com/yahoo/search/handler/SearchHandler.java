@@ -52,6 +52,7 @@ import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.searchchain.Execution;
 import com.yahoo.search.searchchain.SearchChainRegistry;
 import com.yahoo.search.statistics.ElapsedTime;
+import com.yahoo.search.statistics.SearcherTimings;
 import com.yahoo.statistics.Callback;
 import com.yahoo.statistics.Handle;
 import com.yahoo.statistics.Statistics;
@@ -107,6 +108,9 @@ public class SearchHandler extends LoggingRequestHandler {
     private final Linguistics linguistics;
 
     private final CompiledQueryProfileRegistry queryProfileRegistry;
+
+    /** Receives the time spent in each searcher, or null if there is no metric to report it to */
+    private final SearcherTimings searcherTimings;
     
     /** If present, responses from this will set the HTTP response header with this key to the host name of this */
     private final Optional<String> hostResponseHeaderKey;
@@ -152,6 +156,7 @@ public class SearchHandler extends LoggingRequestHandler {
         this.queryProfileRegistry = queryProfileRegistry.compile();
 
         this.linguistics = linguistics;
+        this.searcherTimings = metric == null ? null : new SearcherTimings(metric);
         this.maxThreads = examineExecutor(executor);
 
         searchConnections = new Value(SEARCH_CONNECTIONS, statistics,
@@ -380,8 +385,9 @@ public class SearchHandler extends LoggingRequestHandler {
         if (query.getPresentation().getSummary() == null && renderer instanceof com.yahoo.search.rendering.Renderer)
             query.getPresentation().setSummary(((com.yahoo.search.rendering.Renderer) renderer).getDefaultSummaryClass());
 
-        Execution execution = new Execution(searchChain,
-                                            new Execution.Context(registry, indexFacts, specialTokens, rendererRegistry, linguistics));
+        Execution.Context context = new Execution.Context(registry, indexFacts, specialTokens, rendererRegistry, linguistics);
+        context.setSearcherTimings(searcherTimings);
+        Execution execution = new Execution(searchChain, context);
         query.getModel().setExecution(execution);
         execution.trace().setForceTimestamps(query.properties().getBoolean(FORCE_TIMESTAMPS, false));
         if (query.properties().getBoolean(DETAILED_TIMING_LOGGING, false)) {
@@ -17,6 +17,7 @@ import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
 import com.yahoo.search.cluster.PingableSearcher;
 import com.yahoo.search.rendering.RendererRegistry;
+import com.yahoo.search.statistics.SearcherTimings;
 import com.yahoo.search.statistics.TimeTracker;
 
 import java.util.logging.Logger;
@@ -94,6 +95,11 @@ public class Execution extends com.yahoo.processing.execution.Execution {
          */
         private Linguistics linguistics = null;
 
+        /**
+         * The receiver of the time spent in each searcher, or null if this is not measured.
+         */
+        private SearcherTimings searcherTimings = null;
+
         /** Always set if this context belongs to an execution, never set if it does not. */
         private final Execution owner;
 
@@ -191,6 +197,9 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             if (linguistics == null) {
                 linguistics = sourceContext.linguistics;
             }
+            if (searcherTimings == null) {
+                searcherTimings = sourceContext.searcherTimings;
+            }
         }
 
         /**
@@ -206,6 +215,7 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             detailedDiagnostics = other.detailedDiagnostics;
             breakdown = other.breakdown;
             linguistics = other.linguistics;
+            searcherTimings = other.searcherTimings;
         }
 
         public boolean equals(Context other) {
@@ -217,7 +227,8 @@ public class Execution extends com.yahoo.processing.execution.Execution {
                     && other.searchChainRegistry == searchChainRegistry
                     && other.detailedDiagnostics == detailedDiagnostics
                     && other.breakdown == breakdown
-                    && other.linguistics == linguistics;
+                    && other.linguistics == linguistics
+                    && other.searcherTimings == searcherTimings;
         }
 
         @Override
@@ -225,7 +236,7 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             return java.util.Objects.hash(indexFacts,
                                           rendererRegistry, tokenRegistry, searchChainRegistry,
                                           detailedDiagnostics, breakdown,
-                                          linguistics);
+                                          linguistics, searcherTimings);
         }
 
         @Override
@@ -374,6 +385,18 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             this.linguistics = linguistics;
         }
 
+        /**
+         * Returns the receiver of the time spent in each searcher of executions created from this context,
+         * or null if this is not measured.
+         */
+        public SearcherTimings getSearcherTimings() {
+            return searcherTimings;
+        }
+
+        public void setSearcherTimings(SearcherTimings searcherTimings) {
+            this.searcherTimings = searcherTimings;
+        }
+
         /** Creates a child trace if this has an owner, or a root trace otherwise */
         private Trace createChildTrace() {
             return owner!=null ? owner.trace().createChild() : Trace.createRoot(0);
@@ -423,7 +446,7 @@ public class Execution extends com.yahoo.processing.execution.Execution {
      * </p>
      */
     public Execution(Execution execution) {
-        this(execution.chain(), execution.context, execution.nextIndex());
+        this(execution.chain(), execution.context, execution.nextIndex(), execution.timer);
     }
 
     /** Creates an which executes nothing */
@@ -480,8 +503,13 @@ public class Execution extends com.yahoo.processing.execution.Execution {
      * @throws IllegalArgumentException
      *             if searchChain is null
      */
-    @SuppressWarnings("unchecked")
     private Execution(Chain<? extends Processor> searchChain,Context context, int searcherIndex) {
+        this(searchChain, context, searcherIndex, null);
+    }
+
+    /** Creates a new execution, which is forked from the execution of the given parent timer if it is not null */
+    @SuppressWarnings("unchecked")
+    private Execution(Chain<? extends Processor> searchChain, Context context, int searcherIndex, TimeTracker parentTimer) {
         // Create a new Execution which is placed in the context of the execution of the given Context if any
         // "if any" because a context may, or may not, belong to an execution.
         // This is decided at the creation time of the Context - Context instances which do not belong
@@ -490,7 +518,7 @@ public class Execution extends com.yahoo.processing.execution.Execution {
         this.context.fill(context);
         contextCache = new Context[searchChain.components().size()];
         entryIndex=searcherIndex;
-        timer = new TimeTracker(searchChain, searcherIndex);
+        timer = new TimeTracker(searchChain, searcherIndex, this.context.getSearcherTimings(), parentTimer);
     }
 
     /** Does return search(((Query)request) */
@@ -0,0 +1,58 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.statistics;
+
+import com.yahoo.jdisc.Metric;
+import com.yahoo.search.statistics.TimeTracker.Activity;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reports the time spent in each searcher of the search chains of a container as metrics.
+ *
+ * <p>The reported time is the self time of a searcher, in milliseconds with nanosecond resolution:
+ * The time spent between the searcher being invoked and returning, minus the time spent in the searchers it
+ * invoked through the same execution. Search, fill and ping are reported separately.
+ * This is measured by {@link TimeTracker} for every execution, regardless of the trace level and the
+ * detailed diagnostics setting of the query.
+ */
+public final class SearcherTimings {
+
+    public static final String SEARCHER_LATENCY_METRIC = "searcher_latency";
+
+    public static final String CHAIN_DIMENSION = "chain";
+    public static final String SEARCHER_DIMENSION = "searcher";
+    public static final String PHASE_DIMENSION = "phase";
+
+    private final Metric metric;
+
+    /** The metric contexts of each searcher, by chain and searcher id, indexed by activity */
+    private final ConcurrentMap<String, ConcurrentMap<String, Metric.Context[]>> contexts = new ConcurrentHashMap<>();
+
+    public SearcherTimings(Metric metric) {
+        this.metric = metric;
+    }
+
+    /** Records the given time, in nanoseconds, spent in the given searcher of the given chain */
+    void record(String chainId, String searcherId, Activity activity, long nanos) {
+        metric.set(SEARCHER_LATENCY_METRIC, nanos / 1.0e6, contextOf(chainId, searcherId, activity));
+    }
+
+    private Metric.Context contextOf(String chainId, String searcherId, Activity activity) {
+        Metric.Context[] searcherContexts = contexts.computeIfAbsent(chainId, __ -> new ConcurrentHashMap<>())
+                                                    .computeIfAbsent(searcherId, __ -> new Metric.Context[Activity.values().length]);
+        Metric.Context context = searcherContexts[activity.ordinal()];
+        if (context == null) { // a race here only creates an equal context twice
+            Map<String, String> dimensions = new HashMap<>();
+            dimensions.put(CHAIN_DIMENSION, chainId);
+            dimensions.put(SEARCHER_DIMENSION, searcherId);
+            dimensions.put(PHASE_DIMENSION, activity.name().toLowerCase());
+            context = metric.createContext(dimensions);
+            searcherContexts[activity.ordinal()] = context;
+        }
+        return context;
+    }
+
+}
@@ -8,9 +8,11 @@ import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A container for storing time stamps throughout the lifetime of an Execution instance.
@@ -138,6 +140,10 @@ public final class TimeTracker {
         long now() {
             return System.currentTimeMillis();
         }
+
+        long nanoTime() {
+            return System.nanoTime();
+        }
     }
 
     private State state = null;
@@ -151,13 +157,49 @@ public final class TimeTracker {
     private final int entryIndex;
     TimeSource timeSource = new TimeSource();
 
+    // Self time of each searcher in nanoseconds, by activity and searcher index, or -1 if not invoked.
+    // This is measured for every execution having searcherTimings, not only with detailed diagnostics.
+    private final SearcherTimings searcherTimings;
+    private long[][] selfTime = null;
+    // the activity each searcher was last invoked for
+    private Activity[] invokedFor = null;
+    private long lastNanos = 0L;
+    // the time this was last entered, and the tracker of the execution this was forked from, if any
+    private long entryNanos = 0L;
+    private final TimeTracker parent;
+    // time spent in executions forked from this since the last transition, which is not self time of this
+    private final AtomicLong forkedNanos = new AtomicLong();
+
     public TimeTracker(Chain<? extends Searcher> searchChain) {
         this(searchChain, 0);
     }
 
     public TimeTracker(Chain<? extends Processor> searchChain, int entryIndex) {
+        this(searchChain, entryIndex, null);
+    }
+
+    /**
+     * Creates a time tracker which reports the self time of each searcher in the given chain
+     * to the given searcher timings, which may be null, each time this execution returns from its entry searcher.
+     */
+    public TimeTracker(Chain<? extends Processor> searchChain, int entryIndex, SearcherTimings searcherTimings) {
+        this(searchChain, entryIndex, searcherTimings, null);
+    }
+
+    /**
+     * Creates a time tracker for an execution forked from the execution of the given parent tracker, which may be
+     * null. The time spent in the forked execution is subtracted from the self time of the parent searcher which
+     * forked it, so that it is only reported once, for the searchers which ran in the forked execution.
+     */
+    public TimeTracker(Chain<? extends Processor> searchChain, int entryIndex, SearcherTimings searcherTimings,
+                       TimeTracker parent) {
         this.searchChain = searchChain;
         this.entryIndex = entryIndex;
+        this.searcherTimings = searcherTimings;
+        this.parent = parent;
+        if (parent != null) {
+            this.timeSource = parent.timeSource;
+        }
     }
 
     private void concludeState(long now) {
@@ -203,6 +245,9 @@ public final class TimeTracker {
     }
 
     private void enteringState(int searcherIndex, boolean detailed, final Activity activity) {
+        if (searcherTimings != null) {
+            measureSelfTime(searcherIndex, true, activity);
+        }
         long now = 0L;
         if (detailed) {
             now = detailedMeasurements(searcherIndex, true);
@@ -281,6 +326,66 @@ public final class TimeTracker {
         }
     }
 
+    private void initSelfTime() {
+        int searchers = searchChain.components().size();
+        selfTime = new long[Activity.values().length][searchers];
+        for (long[] activityTime : selfTime) {
+            Arrays.fill(activityTime, -1L);
+        }
+        invokedFor = new Activity[searchers];
+    }
+
+    /**
+     * Adds the time since the last transition to the searcher which ran in between: The previous searcher when
+     * invoking the given searcher, or the given searcher itself when returning from it.
+     */
+    private void measureSelfTime(int searcherIndex, boolean calledAsInvoking, Activity activity) {
+        long now = timeSource.nanoTime();
+        if (selfTime == null) {
+            initSelfTime();
+        }
+        int ranIndex = calledAsInvoking ? searcherIndex - 1 : searcherIndex;
+        long forked = forkedNanos.getAndSet(0L);
+        if (ranIndex >= entryIndex && ranIndex < invokedFor.length && invokedFor[ranIndex] != null) {
+            selfTime[invokedFor[ranIndex].ordinal()][ranIndex] += Math.max(0L, now - lastNanos - forked);
+        }
+        if (calledAsInvoking && searcherIndex == entryIndex) {
+            entryNanos = now;
+        }
+        if (calledAsInvoking && searcherIndex < invokedFor.length) {
+            invokedFor[searcherIndex] = activity;
+            long[] activityTime = selfTime[activity.ordinal()];
+            if (activityTime[searcherIndex] < 0L) {
+                activityTime[searcherIndex] = 0L;
+            }
+        }
+        lastNanos = now;
+    }
+
+    /**
+     * Reports the self time of all searchers invoked since the last report, and resets it. If this execution was
+     * forked, its time is also handed to the parent tracker, to be subtracted from the searcher which forked it.
+     */
+    private void reportSelfTime() {
+        if (selfTime == null) {
+            return;
+        }
+        if (parent != null) {
+            parent.forkedNanos.addAndGet(lastNanos - entryNanos);
+        }
+        String chainId = searchChain.getId().stringValue();
+        List<? extends Processor> searchers = searchChain.components();
+        for (Activity activity : Activity.values()) {
+            long[] activityTime = selfTime[activity.ordinal()];
+            for (int i = entryIndex; i < activityTime.length; ++i) {
+                if (activityTime[i] >= 0L) {
+                    searcherTimings.record(chainId, searchers.get(i).getId().stringValue(), activity, activityTime[i]);
+                    activityTime[i] = -1L;
+                }
+            }
+        }
+    }
+
     private void initNewState(long now, Activity activity) {
         state = new State(now, activity);
     }
@@ -347,12 +452,18 @@ public final class TimeTracker {
     }
 
     private void sampleReturn(int searcherIndex, boolean detailed, ElapsedTime elapsed) {
+        if (searcherTimings != null) {
+            measureSelfTime(searcherIndex, false, null);
+        }
         long now = returnFromState(searcherIndex, detailed);
         if (searcherIndex == entryIndex) {
             concludeStateOnExit(now);
             if (elapsed != null) {
                 elapsed.add(this);
             }
+            if (searcherTimings != null) {
+                reportSelfTime();
+            }
         }
     }
 
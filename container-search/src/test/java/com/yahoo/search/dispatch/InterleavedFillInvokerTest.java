@@ -0,0 +1,137 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.ErrorMessage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InterleavedFillInvokerTest {
+
+    private final List<Integer> collected = new ArrayList<>();
+
+    @Test
+    public void requireThatResponsesAreCollectedInTheOrderTheyArrive() {
+        Map<Integer, FillInvoker> invokers = new HashMap<>();
+        MockFillInvoker first = new MockFillInvoker(0);
+        MockFillInvoker second = new MockFillInvoker(1);
+        invokers.put(0, first);
+        invokers.put(1, second);
+        Result result = createResult(0, 1, 0, 1);
+
+        InterleavedFillInvoker invoker = new InterleavedFillInvoker(invokers);
+        invoker.sendFillRequest(result, "summary");
+        second.respond();
+        first.respond();
+        invoker.getFillResults(result, "summary");
+
+        assertEquals(Arrays.asList(1, 0), collected);
+        assertTrue(result.isFilled("summary"));
+        assertNull(result.hits().getErrorHit());
+    }
+
+    @Test
+    public void requireThatErrorsOfEachNodeAreAddedToTheResult() {
+        Map<Integer, FillInvoker> invokers = new HashMap<>();
+        MockFillInvoker first = new MockFillInvoker(0);
+        MockFillInvoker second = new MockFillInvoker(1);
+        second.error = ErrorMessage.createBackendCommunicationError("node 1 failed");
+        invokers.put(0, first);
+        invokers.put(1, second);
+        Result result = createResult(0, 1);
+
+        InterleavedFillInvoker invoker = new InterleavedFillInvoker(invokers);
+        invoker.sendFillRequest(result, "summary");
+        first.respond();
+        second.respond();
+        invoker.getFillResults(result, "summary");
+
+        assertNotNull(result.hits().getErrorHit());
+        assertEquals("node 1 failed", result.hits().getError().getDetailedMessage());
+    }
+
+    @Test
+    public void requireThatHitsOfNodesWhichDoNotRespondAreLeftUnfilledOnTimeout() {
+        Map<Integer, FillInvoker> invokers = new HashMap<>();
+        MockFillInvoker first = new MockFillInvoker(0);
+        MockFillInvoker second = new MockFillInvoker(1);
+        invokers.put(0, first);
+        invokers.put(1, second);
+        Query query = new Query();
+        query.setTimeout(50);
+        Result result = createResult(query, 0, 1);
+
+        InterleavedFillInvoker invoker = new InterleavedFillInvoker(invokers);
+        invoker.sendFillRequest(result, "summary");
+        first.respond();
+        invoker.getFillResults(result, "summary");
+
+        assertEquals(Arrays.asList(0), collected);
+        assertTrue(result.hits().get("hit:0").isFilled("summary"));
+        assertFalse(result.hits().get("hit:1").isFilled("summary"));
+        assertNotNull(result.hits().getErrorHit());
+        assertEquals("Summary data is incomplete: Timed out waiting for content nodes with distribution-key [1]",
+                     result.hits().getError().getDetailedMessage());
+    }
+
+    private static Result createResult(int ... distributionKeys) {
+        return createResult(new Query(), distributionKeys);
+    }
+
+    private static Result createResult(Query query, int ... distributionKeys) {
+        Result result = new Result(query);
+        for (int i = 0; i < distributionKeys.length; ++i) {
+            FastHit hit = new FastHit("hit:" + i, 1.0);
+            hit.setDistributionKey(distributionKeys[i]);
+            hit.setFillable();
+            result.hits().add(hit);
+        }
+        return result;
+    }
+
+    private class MockFillInvoker extends FillInvoker {
+
+        private final int distributionKey;
+        ErrorMessage error = null;
+
+        MockFillInvoker(int distributionKey) {
+            this.distributionKey = distributionKey;
+        }
+
+        void respond() {
+            responseAvailable();
+        }
+
+        @Override
+        protected void sendFillRequest(Result result, String summaryClass) {
+        }
+
+        @Override
+        protected void getFillResults(Result result, String summaryClass) {
+            collected.add(distributionKey);
+            result.hits().asList().forEach(hit -> hit.setFilled(summaryClass));
+            if (error != null) {
+                result.hits().addError(error);
+            }
+        }
+
+        @Override
+        protected void release() {
+        }
+
+    }
+
+}
@@ -7,6 +7,7 @@ import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.search.result.Hit;
 import com.yahoo.search.searchchain.Execution;
 import com.yahoo.test.ManualClock;
 import org.junit.Test;
@@ -15,6 +16,7 @@ import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
@@ -84,6 +86,31 @@ public class InterleavedSearchInvokerTest {
         assertTrue("Degradataion reason is an adaptive timeout", result.getCoverage(false).isDegradedByAdapativeTimeout());
     }
 
+    @Test
+    public void requireThatHitsAreMergedInRelevanceOrderWithinOffsetAndHits() throws IOException {
+        SearchCluster cluster = new MockSearchCluster("!", createDispatchConfig(100.0), 1, 3);
+        invokers.add(new TestInvoker(9.0, 6.0, 3.0, 0.5));
+        invokers.add(new TestInvoker(8.0, 5.0, 2.0));
+        invokers.add(new TestInvoker(7.0, 4.0, 1.0, 0.4));
+        SearchInvoker invoker = createInterleavedInvoker(cluster, 0);
+
+        expectedEvents.add(new Event(5000, 100, 0));
+        expectedEvents.add(new Event(4900, 100, 1));
+        expectedEvents.add(new Event(4800, 100, 2));
+
+        query.setOffset(2);
+        query.setHits(4);
+        Result result = invoker.search(query, null, null, null);
+
+        assertTrue("All test scenario events processed", expectedEvents.isEmpty());
+        assertEquals(4, result.getConcreteHitCount());
+        List<Double> relevances = new ArrayList<>();
+        for (Hit hit : result.hits())
+            relevances.add(hit.getRelevance().getScore());
+        assertEquals(Arrays.asList(7.0, 6.0, 5.0, 4.0), relevances);
+        assertEquals(11, result.getTotalHitCount());
+    }
+
     private InterleavedSearchInvoker createInterleavedInvoker(SearchCluster searchCluster, int numInvokers) {
         for (int i = 0; i < numInvokers; i++) {
             invokers.add(new TestInvoker());
@@ -141,8 +168,11 @@ public class InterleavedSearchInvokerTest {
     }
 
     private class TestInvoker extends SearchInvoker {
-        protected TestInvoker() {
+        private final double[] relevances;
+
+        protected TestInvoker(double ... relevances) {
             super(Optional.of(new Node(42, "?", 0, 0)));
+            this.relevances = relevances;
         }
 
         @Override
@@ -151,7 +181,11 @@ public class InterleavedSearchInvokerTest {
 
         @Override
         protected Result getSearchResult(CacheKey cacheKey, Execution execution) throws IOException {
-            return new Result(query);
+            Result result = new Result(query);
+            for (double relevance : relevances)
+                result.hits().add(new Hit("hit:" + relevance, relevance));
+            result.setTotalHitCount(relevances.length);
+            return result;
         }
 
         @Override
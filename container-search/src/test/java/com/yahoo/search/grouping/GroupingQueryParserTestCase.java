@@ -75,6 +75,18 @@ public class GroupingQueryParserTestCase {
         assertEquals(2, req.continuations().size());
     }
 
+    @Test
+    public void requireThatBadContinuationThrowsIllegalArgument() {
+        for (String continuation : new String[] { "BC", "BCBCBE#", "_#", "_AQ" }) {
+            try {
+                executeQuery("all(group(foo) each(output(max(bar))))", "BCBBBBBDBF " + continuation, null);
+                fail(continuation);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().startsWith("Bad continuation"));
+            }
+        }
+    }
+
     @Test
     public void requireThatTimeZoneIsParsed() {
         List<GroupingRequest> lst = executeQuery("all(group(foo) each(output(max(bar))))", null, "cet");
@@ -117,5 +117,10 @@ public class CompositeContinuationTestCase {
         public void encode(IntegerEncoder out) {
 
         }
+
+        @Override
+        public void encode(BinaryEncoder out) {
+
+        }
     }
 }
@@ -13,6 +13,7 @@ import com.yahoo.prelude.query.WordItem;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
+import com.yahoo.search.grouping.Continuation;
 import com.yahoo.search.grouping.GroupingRequest;
 import com.yahoo.search.grouping.request.AllOperation;
 import com.yahoo.search.grouping.request.GroupingOperation;
@@ -530,6 +531,56 @@ public class GroupingExecutorTestCase {
         }
     }
 
+    @Test
+    public void requireThatPagingWithPathContinuationOnlyExecutesThePassOfThePagedList() {
+        String request = "all(group(foo) hint(partialpaging) max(2) each(group(bar) max(2) each(output(count()))))";
+        Query query = newQuery();
+        GroupingRequest req = GroupingRequest.newInstance(query);
+        req.setRootOperation(GroupingOperation.fromString(request));
+        Result res = newExecution(new GroupingExecutor(),
+                                  new ResultProvider(Arrays.asList(
+                                          new GroupingListHit(Arrays.asList(new Grouping(0)), null),
+                                          new GroupingListHit(Arrays.asList(newFooBarGrouping(0, "x", "y")), null),
+                                          new GroupingListHit(Arrays.asList(newFooBarGrouping(4, "x", "y")), null)))).search(query);
+        GroupList fooList = (GroupList)req.getResultGroup(res).get(0);
+        assertEquals(2, fooList.size());
+        GroupList barList = (GroupList)((Group)fooList.get(1)).get(0);
+        assertEquals("group:string:y", fooList.get(1).getId().toString());
+        assertEquals(2, barList.size());
+        Continuation next = barList.continuations().get(Continuation.NEXT_PAGE);
+        assertTrue(next instanceof PathContinuation);
+        assertEquals(Arrays.asList(new StringResultNode("y")), ((PathContinuation)next).getPath());
+
+        query = newQuery();
+        req = GroupingRequest.newInstance(query);
+        req.setRootOperation(GroupingOperation.fromString(request));
+        req.continuations().add(Continuation.fromString(next.toString()));
+        GroupingCollector collector = new GroupingCollector();
+        res = newExecution(new GroupingExecutor(),
+                           collector,
+                           new ResultProvider(Arrays.asList(
+                                   new GroupingListHit(Arrays.asList(newFooBarGrouping(4, "y")), null)))).search(query);
+        assertEquals(1, collector.lst.size());
+        Grouping grp = collector.lst.get(0);
+        assertEquals(2, grp.getFirstLevel());
+        assertEquals(2, grp.getLastLevel());
+        assertEquals(1, grp.getRoot().getChildren().size());
+        assertEquals(new StringResultNode("y"), grp.getRoot().getChildren().get(0).getId());
+        assertTrue(grp.getRoot().getChildren().get(0).getChildren().isEmpty());
+
+        fooList = (GroupList)req.getResultGroup(res).get(0);
+        assertEquals(1, fooList.size());
+        assertEquals("group:string:y", fooList.get(0).getId().toString());
+        assertTrue(fooList.continuations().isEmpty());
+        barList = (GroupList)((Group)fooList.get(0)).get(0);
+        assertEquals(2, barList.size());
+        assertEquals("group:long:3", barList.get(0).getId().toString());
+        assertEquals("group:long:4", barList.get(1).getId().toString());
+        Continuation prev = barList.continuations().get(Continuation.PREV_PAGE);
+        assertTrue(prev instanceof PathContinuation);
+        assertEquals(((PathContinuation)next).getResultId(), ((PathContinuation)prev).getResultId());
+    }
+
     @Test
     public void testIllegalQuery() {
         Execution exc = newExecution(new GroupingExecutor());
@@ -560,6 +611,21 @@ public class GroupingExecutorTestCase {
         return new Query("?query=dummy");
     }
 
+    private static Grouping newFooBarGrouping(int numBars, String... foos) {
+        com.yahoo.searchlib.aggregation.Group root = new com.yahoo.searchlib.aggregation.Group().setTag(1);
+        for (String foo : foos) {
+            com.yahoo.searchlib.aggregation.Group group = new com.yahoo.searchlib.aggregation.Group()
+                    .setId(new StringResultNode(foo)).setTag(2).setRank(foo.equals("x") ? 2 : 1);
+            for (int i = 1; i <= numBars; ++i) {
+                group.addChild(new com.yahoo.searchlib.aggregation.Group()
+                                       .setId(new IntegerResultNode(i)).setTag(3).setRank(numBars - i)
+                                       .addAggregationResult(new CountAggregationResult(i).setTag(4)));
+            }
+            root.addChild(group);
+        }
+        return new Grouping(0).setRoot(root);
+    }
+
     private static Execution newExecution(Searcher... searchers) {
         return new Execution(new SearchChain(new ComponentId("foo"), Arrays.asList(searchers)),
                              Execution.Context.createContextStub());
@@ -0,0 +1,215 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.grouping.vespa;
+
+import com.yahoo.search.grouping.Continuation;
+import com.yahoo.searchlib.expression.AddFunctionNode;
+import com.yahoo.searchlib.expression.IntegerResultNode;
+import com.yahoo.searchlib.expression.RawResultNode;
+import com.yahoo.searchlib.expression.ResultNode;
+import com.yahoo.searchlib.expression.StringBucketResultNode;
+import com.yahoo.searchlib.expression.StringResultNode;
+import com.yahoo.vespa.objects.BufferSerializer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PathContinuationTestCase {
+
+    @Test
+    public void requireThatAccessorsWork() {
+        PathContinuation cnt = newPath(1, 2, 3, 4, new StringResultNode("foo"), new IntegerResultNode(5));
+        assertEquals(ResultId.valueOf(1), cnt.getResultId());
+        assertEquals(2, cnt.getTag());
+        assertEquals(3, cnt.getOffset());
+        assertEquals(4, cnt.getFlags());
+        assertEquals(Arrays.asList(new StringResultNode("foo"), new IntegerResultNode(5)), cnt.getPath());
+    }
+
+    @Test
+    public void requireThatPathContinuationsUseBinaryFormat() {
+        assertTrue(newPath(1, 2, 3, 4).toString().startsWith("_"));
+        assertTrue(newComposite(newOffset(1, 2, 3, 4), newPath(1, 2, 3, 4)).toString().startsWith("_"));
+        assertEquals("BCBCBEBGBI", newOffset(1, 2, 3, 4).toString());
+        assertEquals("BCBCBEBGBI", newComposite(newOffset(1, 2, 3, 4)).toString());
+    }
+
+    @Test
+    public void requireThatPathContinuationsCanBeDecodedFromIntegerFormat() {
+        assertDecodeInteger(newComposite(newPath(1, 2, 3, 4)));
+        assertDecodeInteger(newComposite(newPath(-1, -2, -3, -4, new StringResultNode("blåbær"))));
+        assertDecodeInteger(newComposite(newPath(5, 800, 130000, Integer.MAX_VALUE,
+                                                 new IntegerResultNode(Long.MIN_VALUE),
+                                                 new RawResultNode(new byte[] { 0, 1, 2 }),
+                                                 new StringBucketResultNode("a", "b"))));
+        assertDecodeInteger(newComposite(newOffset(1, 1, 2, 3),
+                                         newPath(5, 8, 13, 21, new StringResultNode("foo")),
+                                         newOffset(34, 55, 89, 144)));
+    }
+
+    @Test
+    public void requireThatOffsetContinuationsCanBeEncodedInBinaryFormat() {
+        CompositeContinuation expected = newComposite(newOffset(1, 2, 3, 4), newOffset(-5, 6, 7, Integer.MIN_VALUE));
+        BinaryEncoder encoder = new BinaryEncoder();
+        expected.encode(encoder);
+        assertEquals(expected, ContinuationDecoder.decode(encoder.toString()));
+    }
+
+    @Test
+    public void requireThatPathContinuationsCanBeDecoded() {
+        assertDecode(newComposite(newPath(1, 2, 3, 4)));
+        assertDecode(newComposite(newPath(-1, -2, -3, -4, new StringResultNode("blåbær"))));
+        assertDecode(newComposite(newPath(5, 800, 130000, Integer.MAX_VALUE,
+                                          new IntegerResultNode(Long.MIN_VALUE),
+                                          new RawResultNode(new byte[] { 0, 1, 2 }),
+                                          new StringBucketResultNode("a", "b"))));
+        assertDecode(newComposite(newOffset(1, 1, 2, 3),
+                                  newPath(5, 8, 13, 21, new StringResultNode("foo")),
+                                  newOffset(34, 55, 89, 144)));
+    }
+
+    @Test
+    public void requireThatIllegalBinaryFormatThrowsException() {
+        assertIllegalArgument("_#");
+        BinaryEncoder unknownType = new BinaryEncoder();
+        unknownType.append(7);
+        assertIllegalArgument(unknownType.toString());
+    }
+
+    @Test
+    public void requireThatLengthsBeyondInputThrowException() {
+        BinaryEncoder longResultId = new BinaryEncoder();
+        longResultId.append(BinaryEncoder.PATH_CONTINUATION);
+        longResultId.append(Integer.MAX_VALUE);
+        assertIllegalArgument(longResultId.toString());
+
+        BinaryEncoder negativeResultId = new BinaryEncoder();
+        negativeResultId.append(BinaryEncoder.PATH_CONTINUATION);
+        negativeResultId.append(-1);
+        assertIllegalArgument(negativeResultId.toString());
+
+        BinaryEncoder path = new BinaryEncoder();
+        path.append(BinaryEncoder.PATH_CONTINUATION);
+        ResultId.valueOf(1).encode(path);
+        path.append(2);
+        path.append(3);
+        path.append(4);
+        path.append(1000000);
+        assertIllegalArgument(path.toString());
+    }
+
+    @Test
+    public void requireThatGroupIdsMustBeResultNodes() {
+        BufferSerializer notResultNode = new BufferSerializer();
+        notResultNode.putInt(null, AddFunctionNode.classId);
+        assertIllegalGroupId(notResultNode);
+
+        BufferSerializer unknownClass = new BufferSerializer();
+        unknownClass.putInt(null, 0x7ffffff0);
+        assertIllegalGroupId(unknownClass);
+    }
+
+    @Test
+    public void requireThatIllegalIntegerFormatThrowsException() {
+        assertIllegalArgument("BC");
+        assertIllegalArgument("BCBCBE#");
+        IntegerEncoder unterminatedPath = new IntegerEncoder();
+        unterminatedPath.append(IntegerEncoder.PATH_CONTINUATION);
+        ResultId.valueOf(1).encode(unterminatedPath);
+        unterminatedPath.append(2);
+        assertIllegalArgument(unterminatedPath.toString());
+    }
+
+    @Test
+    public void requireThatHashCodeIsImplemented() {
+        assertEquals(newPath(1, 1, 2, 3, new StringResultNode("foo")).hashCode(),
+                     newPath(1, 1, 2, 3, new StringResultNode("foo")).hashCode());
+    }
+
+    @Test
+    public void requireThatEqualsIsImplemented() {
+        Continuation cnt = newPath(1, 1, 2, 3, new StringResultNode("foo"));
+        assertFalse(cnt.equals(new Object()));
+        assertFalse(cnt.equals(newOffset(1, 1, 2, 3)));
+        assertFalse(newOffset(1, 1, 2, 3).equals(cnt));
+        assertFalse(cnt.equals(newPath(0, 1, 2, 3, new StringResultNode("foo"))));
+        assertFalse(cnt.equals(newPath(1, 1, 2, 3, new StringResultNode("bar"))));
+        assertFalse(cnt.equals(newPath(1, 1, 2, 3)));
+        assertEquals(cnt, newPath(1, 1, 2, 3, new StringResultNode("foo")));
+    }
+
+    private static PathContinuation newPath(int resultId, int tag, int offset, int flags, ResultNode... path) {
+        return new PathContinuation(ResultId.valueOf(resultId), tag, offset, flags, Arrays.asList(path));
+    }
+
+    private static OffsetContinuation newOffset(int resultId, int tag, int offset, int flags) {
+        return new OffsetContinuation(ResultId.valueOf(resultId), tag, offset, flags);
+    }
+
+    private static CompositeContinuation newComposite(EncodableContinuation... children) {
+        CompositeContinuation ret = new CompositeContinuation();
+        for (EncodableContinuation child : children) {
+            ret.add(child);
+        }
+        return ret;
+    }
+
+    private static void assertDecode(Continuation expected) {
+        assertEquals(expected, ContinuationDecoder.decode(expected.toString()));
+    }
+
+    private static void assertDecodeInteger(EncodableContinuation expected) {
+        IntegerEncoder encoder = new IntegerEncoder();
+        expected.encode(encoder);
+        assertEquals(expected, ContinuationDecoder.decode(encoder.toString()));
+    }
+
+    private static void assertIllegalGroupId(BufferSerializer groupId) {
+        groupId.flip();
+        byte[] bytes = groupId.getBytes(null, groupId.remaining());
+
+        BinaryEncoder binary = new BinaryEncoder();
+        binary.append(BinaryEncoder.PATH_CONTINUATION);
+        ResultId.valueOf(1).encode(binary);
+        binary.append(2);
+        binary.append(3);
+        binary.append(4);
+        binary.append(1);
+        String prefix = binary.toString();
+        assertIllegalArgument(BinaryEncoder.PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(
+                concat(Base64.getUrlDecoder().decode(prefix.substring(1)), bytes)));
+
+        IntegerEncoder integer = new IntegerEncoder();
+        integer.append(IntegerEncoder.PATH_CONTINUATION);
+        ResultId.valueOf(1).encode(integer);
+        integer.append(2);
+        integer.append(3);
+        integer.append(4);
+        integer.append(1);
+        integer.append(bytes.length);
+        for (byte b : bytes) {
+            integer.append(b);
+        }
+        assertIllegalArgument(integer.toString());
+    }
+
+    private static byte[] concat(byte[] lhs, byte[] rhs) {
+        byte[] ret = Arrays.copyOf(lhs, lhs.length + rhs.length);
+        System.arraycopy(rhs, 0, ret, lhs.length, rhs.length);
+        return ret;
+    }
+
+    private static void assertIllegalArgument(String toDecode) {
+        try {
+            ContinuationDecoder.decode(toDecode);
+            fail();
+        } catch (IllegalArgumentException e) {
+
+        }
+    }
+}
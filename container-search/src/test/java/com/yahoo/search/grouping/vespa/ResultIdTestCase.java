@@ -6,6 +6,7 @@ import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author Simon Thoresen Hult
@@ -56,6 +57,19 @@ public class ResultIdTestCase {
         assertDecode(ResultId.valueOf(5, 8, 13, 21), "BIBKCBACBKCCK");
     }
 
+    @Test
+    public void requireThatLengthsBeyondInputAreRejected() {
+        IntegerEncoder encoder = new IntegerEncoder();
+        encoder.append(Integer.MAX_VALUE);
+        encoder.append(1);
+        try {
+            ResultId.decode(new IntegerDecoder(encoder.toString()));
+            fail();
+        } catch (IllegalArgumentException e) {
+
+        }
+    }
+
     private static void assertEncode(String expected, ResultId toEncode) {
         IntegerEncoder encoder = new IntegerEncoder();
         toEncode.encode(encoder);
@@ -0,0 +1,165 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.statistics;
+
+import com.yahoo.component.ComponentId;
+import com.yahoo.component.chain.Chain;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.search.statistics.ElapsedTimeTestCase.UselessSearcher;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the self time of each searcher reported to {@link SearcherTimings}.
+ */
+public class SearcherTimingsTestCase {
+
+    @Test
+    public void requireThatSelfTimeOfEachSearcherIsReportedForSearchAndFill() {
+        Chain<Searcher> chain = new Chain<>(new ComponentId("chain"),
+                                            new UselessSearcher("first"),
+                                            new UselessSearcher("second"),
+                                            new HitProducer("last"));
+        RecordingMetric metric = new RecordingMetric();
+        Execution.Context context = Execution.Context.createContextStub();
+        context.setSearcherTimings(new SearcherTimings(metric));
+        Execution execution = new Execution(chain, context);
+        execution.timer().injectTimeSource(new SteppingTimeSource(1L, 2L, 3L, 4L, 5L, 6L));
+
+        // search: invoke first, second and last at 1, 3 and 6, and return from last, second and first at 10, 15 and 21
+        Result result = execution.search(new Query());
+        assertEquals(3, metric.values.size());
+        assertEquals(8.0e-6, metric.values.get("chain/first/search"), 1.0e-12);
+        assertEquals(8.0e-6, metric.values.get("chain/second/search"), 1.0e-12);
+        assertEquals(4.0e-6, metric.values.get("chain/last/search"), 1.0e-12);
+
+        // fill: invoke first, second, last and the end of the chain at 22, 24, 27 and 31,
+        // and return from last, second and first at 36, 42 and 43
+        metric.values.clear();
+        execution.fill(result);
+        assertEquals(3, metric.values.size());
+        assertEquals(3.0e-6, metric.values.get("chain/first/fill"), 1.0e-12);
+        assertEquals(9.0e-6, metric.values.get("chain/second/fill"), 1.0e-12);
+        assertEquals(9.0e-6, metric.values.get("chain/last/fill"), 1.0e-12);
+    }
+
+    @Test
+    public void requireThatTimeInForkedExecutionsIsOnlyReportedForTheSearchersRunningInThem() {
+        Chain<Searcher> chain = new Chain<>(new ComponentId("chain"),
+                                            new UselessSearcher("first"),
+                                            new ForkingSearcher("fork"),
+                                            new HitProducer("last"));
+        RecordingMetric metric = new RecordingMetric();
+        Execution.Context context = Execution.Context.createContextStub();
+        context.setSearcherTimings(new SearcherTimings(metric));
+        Execution execution = new Execution(chain, context);
+        execution.timer().injectTimeSource(new SteppingTimeSource(1L, 2L, 3L, 4L, 5L, 6L));
+
+        // invoke first and fork at 1 and 3, fork invokes last at 6 in a new execution, which returns at 10,
+        // and return from fork and first at 15 and 21
+        execution.search(new Query());
+        assertEquals(3, metric.values.size());
+        assertEquals(8.0e-6, metric.values.get("chain/first/search"), 1.0e-12);
+        assertEquals(8.0e-6, metric.values.get("chain/fork/search"), 1.0e-12);
+        assertEquals(4.0e-6, metric.values.get("chain/last/search"), 1.0e-12);
+    }
+
+    @Test
+    public void requireThatNothingIsMeasuredWithoutSearcherTimings() {
+        Chain<Searcher> chain = new Chain<>(new ComponentId("chain"), new UselessSearcher("first"));
+        Execution execution = new Execution(chain, Execution.Context.createContextStub());
+        SteppingTimeSource timeSource = new SteppingTimeSource(1L);
+        execution.timer().injectTimeSource(timeSource);
+        Result result = execution.search(new Query());
+        execution.fill(result);
+        assertEquals(0, result.hits().size());
+        assertEquals(0, timeSource.nanoTimeCalls);
+    }
+
+    private static class ForkingSearcher extends Searcher {
+
+        ForkingSearcher(String name) {
+            super(new ComponentId(name));
+        }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            return new Execution(execution).search(query);
+        }
+
+    }
+
+    private static class HitProducer extends Searcher {
+
+        HitProducer(String name) {
+            super(new ComponentId(name));
+        }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            Result result = new Result(query);
+            Hit hit = new Hit("hit");
+            hit.setFillable();
+            result.hits().add(hit);
+            return result;
+        }
+
+    }
+
+    /** A clock which starts at 0 and advances by the given steps in turn each time it is read */
+    private static class SteppingTimeSource extends TimeTracker.TimeSource {
+
+        private final long[] steps;
+        private long nanoTime = 0L;
+        int nanoTimeCalls = 0;
+
+        SteppingTimeSource(long ... steps) {
+            this.steps = steps;
+        }
+
+        @Override
+        long nanoTime() {
+            nanoTime += steps[nanoTimeCalls++ % steps.length];
+            return nanoTime;
+        }
+
+    }
+
+    /** Records the last value set for each chain, searcher and phase */
+    private static class RecordingMetric implements Metric {
+
+        final Map<String, Double> values = new LinkedHashMap<>();
+
+        @Override
+        public void set(String key, Number val, Context ctx) {
+            assertEquals(SearcherTimings.SEARCHER_LATENCY_METRIC, key);
+            values.put(ctx.toString(), val.doubleValue());
+        }
+
+        @Override
+        public void add(String key, Number val, Context ctx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Context createContext(Map<String, ?> properties) {
+            String name = properties.get(SearcherTimings.CHAIN_DIMENSION) + "/" +
+                          properties.get(SearcherTimings.SEARCHER_DIMENSION) + "/" +
+                          properties.get(SearcherTimings.PHASE_DIMENSION);
+            return new Context() {
+                @Override
+                public String toString() { return name; }
+            };
+        }
+
+    }
+
+}
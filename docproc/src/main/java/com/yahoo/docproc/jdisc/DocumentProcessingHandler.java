@@ -53,6 +53,7 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
             new ScheduledThreadPoolExecutor(2, new DaemonThreadFactory("docproc-later-"));
     private ContainerDocumentConfig containerDocConfig;
     private final DocumentTypeManager documentTypeManager;
+    private final boolean lazyFieldDecoding;
 
     public DocumentProcessingHandler(ComponentRegistry<DocprocService> docprocServiceRegistry,
                                      ComponentRegistry<DocumentProcessor> documentProcessorComponentRegistry,
@@ -61,11 +62,24 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
                                      ChainsModel chainsModel, SchemaMap schemaMap, Statistics statistics,
                                      Metric metric,
                                      ContainerDocumentConfig containerDocConfig) {
+        this(docprocServiceRegistry, documentProcessorComponentRegistry, docFactoryRegistry, threadPool,
+             documentTypeManager, chainsModel, schemaMap, statistics, metric, containerDocConfig, false);
+    }
+
+    public DocumentProcessingHandler(ComponentRegistry<DocprocService> docprocServiceRegistry,
+                                     ComponentRegistry<DocumentProcessor> documentProcessorComponentRegistry,
+                                     ComponentRegistry<AbstractConcreteDocumentFactory> docFactoryRegistry,
+                                     DocprocThreadPoolExecutor threadPool, DocumentTypeManager documentTypeManager,
+                                     ChainsModel chainsModel, SchemaMap schemaMap, Statistics statistics,
+                                     Metric metric,
+                                     ContainerDocumentConfig containerDocConfig,
+                                     boolean lazyFieldDecoding) {
         this.docprocServiceRegistry = docprocServiceRegistry;
         this.docFactoryRegistry = docFactoryRegistry;
         this.threadPool = threadPool;
         this.containerDocConfig = containerDocConfig;
         this.documentTypeManager = documentTypeManager;
+        this.lazyFieldDecoding = lazyFieldDecoding;
         DocprocService.schemaMap = schemaMap;
         threadPool.prestartCoreThread();
         laterExecutor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
@@ -103,7 +117,8 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
              params.getDocumentTypeManager(), params.getChainsModel(), params.getSchemaMap(),
              params.getStatisticsManager(),
              params.getMetric(),
-             params.getContainerDocConfig());
+             params.getContainerDocConfig(),
+             params.getLazyFieldDecoding());
     }
 
     @Inject
@@ -124,6 +139,7 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
                      .setDocumentExpansionFactor(containerMbusConfig.documentExpansionFactor())
                      .setContainerCoreMemoryMb(containerMbusConfig.containerCoreMemory())
                      .setMaxQueueTimeMs(docprocConfig.maxqueuetimems())
+                     .setLazyFieldDecoding(docprocConfig.lazyfielddecoding())
                      .setDocumentTypeManager(new DocumentTypeManager(docManConfig))
                      .setChainsModel(buildFromConfig(chainsConfig)).setSchemaMap(configureMapping(mappingConfig))
                      .setStatisticsManager(manager)
@@ -164,7 +180,8 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
     public ContentChannel handleRequest(Request request, ResponseHandler handler) {
         RequestContext requestContext;
         if (request instanceof MbusRequest) {
-            requestContext = new MbusRequestContext((MbusRequest) request, handler, docprocServiceRegistry, docFactoryRegistry, containerDocConfig);
+            requestContext = new MbusRequestContext((MbusRequest) request, handler, docprocServiceRegistry, docFactoryRegistry, containerDocConfig,
+                                                    lazyFieldDecoding);
         } else {
             //Other types can be added here in the future
             throw new IllegalArgumentException("Request type not supported: " + request);
@@ -28,6 +28,7 @@ public class DocumentProcessingHandlerParameters {
     private Statistics statisticsManager = Statistics.nullImplementation;
     private Metric metric = new NullMetric();
     private ContainerDocumentConfig containerDocConfig;
+    private boolean lazyFieldDecoding = false;
 
     public DocumentProcessingHandlerParameters() {
     }
@@ -168,4 +169,18 @@ public class DocumentProcessingHandlerParameters {
         return containerDocConfig;
     }
 
+    /**
+     * Returns whether the fields of put documents are decoded when they are first accessed, instead of up front.
+     *
+     * @return whether fields are decoded when they are accessed.
+     */
+    public boolean getLazyFieldDecoding() {
+        return lazyFieldDecoding;
+    }
+
+    public DocumentProcessingHandlerParameters setLazyFieldDecoding(boolean lazyFieldDecoding) {
+        this.lazyFieldDecoding = lazyFieldDecoding;
+        return this;
+    }
+
 }
@@ -57,12 +57,13 @@ public class MbusRequestContext implements RequestContext, ResponseHandler {
     public MbusRequestContext(MbusRequest request, ResponseHandler responseHandler,
                               ComponentRegistry<DocprocService> docprocServiceComponentRegistry,
                               ComponentRegistry<AbstractConcreteDocumentFactory> docFactoryRegistry,
-                              ContainerDocumentConfig containerDocConfig) {
+                              ContainerDocumentConfig containerDocConfig,
+                              boolean lazyFieldDecoding) {
         this.request = request;
         this.requestMsg = (DocumentMessage)request.getMessage();
         this.responseHandler = responseHandler;
         this.processingFactory = new ProcessingFactory(docprocServiceComponentRegistry, docFactoryRegistry,
-                                                       containerDocConfig, getServiceName());
+                                                       containerDocConfig, getServiceName(), lazyFieldDecoding);
         this.messageFactory = newMessageFactory(requestMsg);
     }
 
@@ -31,15 +31,18 @@ class ProcessingFactory {
     private final ComponentRegistry<AbstractConcreteDocumentFactory> docFactoryRegistry;
     private final ContainerDocumentConfig containerDocConfig;
     private final String serviceName;
+    private final boolean lazyFieldDecoding;
 
     public ProcessingFactory(ComponentRegistry<DocprocService> docprocServiceComponentRegistry,
                              ComponentRegistry<AbstractConcreteDocumentFactory> docFactoryRegistry,
                              ContainerDocumentConfig containerDocConfig,
-                             String serviceName) {
+                             String serviceName,
+                             boolean lazyFieldDecoding) {
         this.docprocServiceComponentRegistry = docprocServiceComponentRegistry;
         this.docFactoryRegistry = docFactoryRegistry;
         this.containerDocConfig = containerDocConfig;
         this.serviceName = serviceName;
+        this.lazyFieldDecoding = lazyFieldDecoding;
     }
 
     public List<Processing> fromMessage(Message message) {
@@ -47,6 +50,7 @@ class ProcessingFactory {
         switch (message.getType()) {
             case DocumentProtocol.MESSAGE_PUTDOCUMENT: {
                 PutDocumentMessage putMessage = (PutDocumentMessage) message;
+                putMessage.setLazyFieldDecoding(lazyFieldDecoding);
                 DocumentPut putOperation = new DocumentPut(createPutDocument(putMessage));
                 putOperation.setCondition(putMessage.getCondition());
                 processings.add(createProcessing(putOperation, message));
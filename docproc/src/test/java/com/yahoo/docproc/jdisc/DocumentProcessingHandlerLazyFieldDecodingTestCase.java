@@ -0,0 +1,90 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docproc.jdisc;
+
+import com.yahoo.collections.Pair;
+import com.yahoo.docproc.CallStack;
+import com.yahoo.docproc.SimpleDocumentProcessor;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.Field;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.Reply;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that documents are decoded lazily when the handler is configured to do so.
+ */
+public class DocumentProcessingHandlerLazyFieldDecodingTestCase extends DocumentProcessingHandlerTestBase {
+
+    private final DocumentType type;
+    private final FieldRecordingProcessor processor = new FieldRecordingProcessor();
+
+    public DocumentProcessingHandlerLazyFieldDecodingTestCase() {
+        type = new DocumentType("yalla");
+        type.addField(new Field("blahblah", DataType.STRING));
+    }
+
+    @Test
+    public void requireThatFieldsAreDecodedWhenAccessed() throws InterruptedException {
+        Document document = new Document(getType(), "doc:yalla:balla");
+        document.setFieldValue("blahblah", new StringFieldValue("This is a test."));
+        assertTrue(sendMessage("foobar", new PutDocumentMessage(new DocumentPut(document))));
+
+        Message msg = remoteServer.awaitMessage(60, TimeUnit.SECONDS);
+        assertNotNull(msg);
+        remoteServer.ackMessage(msg);
+        Reply reply = driver.client().awaitReply(60, TimeUnit.SECONDS);
+        assertNotNull(reply);
+        assertFalse(reply.hasErrors());
+
+        assertTrue(processor.serializedBeforeAccess);
+        assertEquals(document, ((PutDocumentMessage)msg).getDocumentPut().getDocument());
+    }
+
+    @Override
+    protected boolean lazyFieldDecoding() {
+        return true;
+    }
+
+    @Override
+    public List<Pair<String, CallStack>> getCallStacks() {
+        CallStack stack = new CallStack();
+        stack.addLast(processor);
+
+        ArrayList<Pair<String, CallStack>> stacks = new ArrayList<>(1);
+        stacks.add(new Pair<>("foobar", stack));
+        return stacks;
+    }
+
+    @Override
+    public DocumentType getType() {
+        return type;
+    }
+
+    private static class FieldRecordingProcessor extends SimpleDocumentProcessor {
+
+        volatile boolean serializedBeforeAccess = false;
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void process(DocumentPut put) {
+            Document document = put.getDocument();
+            serializedBeforeAccess = document.getHeader().getSerializedFieldValue(document.getField("blahblah")) != null;
+            document.getFieldValue("blahblah");
+        }
+    }
+
+}
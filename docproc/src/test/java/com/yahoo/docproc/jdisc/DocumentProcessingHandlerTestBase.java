@@ -65,7 +65,8 @@ public abstract class DocumentProcessingHandlerTestBase {
                 new ComponentRegistry<>(),
                 new DocumentProcessingHandlerParameters().
                         setDocumentTypeManager(documentTypeManager).
-                        setContainerDocumentConfig(new ContainerDocumentConfig(new ContainerDocumentConfig.Builder())));
+                        setContainerDocumentConfig(new ContainerDocumentConfig(new ContainerDocumentConfig.Builder())).
+                        setLazyFieldDecoding(lazyFieldDecoding()));
         builder.serverBindings().bind("mbus://*/*", handler);
 
         ReferencedResource<SharedSourceSession> sessionRef = sessionCache.retainSource(new SourceSessionParams());
@@ -120,6 +121,10 @@ public abstract class DocumentProcessingHandlerTestBase {
 
     protected abstract DocumentType getType();
 
+    protected boolean lazyFieldDecoding() {
+        return false;
+    }
+
     public boolean sendMessage(String destinationChainName, DocumentMessage msg) {
         msg.setRoute(Route.parse("test/chain." + destinationChainName + " " + remoteServer.connectionSpec()));
         msg.setPriority(DocumentProtocol.Priority.HIGH_1);
@@ -17,13 +17,16 @@ import com.yahoo.document.update.FieldUpdate;
 import com.yahoo.document.update.MapValueUpdate;
 import com.yahoo.document.update.ValueUpdate;
 import com.yahoo.vespa.indexinglanguage.AdapterFactory;
+import com.yahoo.vespa.indexinglanguage.ConcurrentScript;
 import com.yahoo.vespa.indexinglanguage.expressions.Expression;
+import com.yahoo.vespa.indexinglanguage.expressions.ScriptExpression;
 
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * @author Simon Thoresen Hult
@@ -33,21 +36,46 @@ public class DocumentScript {
     private final String documentType;
     private final Set<String> inputFields;
     private final Expression expression;
+    private final ConcurrentScript concurrentScript;
 
     public DocumentScript(String documentType, Collection<String> inputFields, Expression expression) {
         this.documentType = documentType;
         this.inputFields = new HashSet<>(inputFields);
         this.expression = expression;
+        this.concurrentScript = expression instanceof ScriptExpression
+                                ? new ConcurrentScript((ScriptExpression)expression)
+                                : null;
     }
 
     public Expression getExpression() { return expression; }
+
+    /** Returns whether independent statements of this script can be executed concurrently */
+    public boolean isConcurrent() {
+        return concurrentScript != null && concurrentScript.isConcurrent();
+    }
+
     public Document execute(AdapterFactory adapterFactory, Document document) {
+        prepare(document);
+        return expression.execute(adapterFactory, document);
+    }
+
+    /**
+     * Executes this script on the given document, running the independent statements of it concurrently
+     * using the given executor if possible.
+     */
+    public Document execute(AdapterFactory adapterFactory, Document document, Executor executor) {
+        if ( ! isConcurrent()) return execute(adapterFactory, document);
+
+        prepare(document);
+        return concurrentScript.execute(adapterFactory.newDocumentAdapter(document), executor);
+    }
+
+    private void prepare(Document document) {
         for (Iterator<Map.Entry<Field, FieldValue>> it = document.iterator(); it.hasNext(); ) {
             Map.Entry<Field, FieldValue> entry = it.next();
             requireThatFieldIsDeclaredInDocument(entry.getKey());
             removeAnyLinguisticsSpanTree(entry.getValue());
         }
-        return expression.execute(adapterFactory, document);
     }
 
     public DocumentUpdate execute(AdapterFactory adapterFactory, DocumentUpdate update) {
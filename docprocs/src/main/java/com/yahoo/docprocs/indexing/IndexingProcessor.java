@@ -2,21 +2,33 @@
 package com.yahoo.docprocs.indexing;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.google.inject.Inject;
 import com.yahoo.component.chain.dependencies.After;
 import com.yahoo.component.chain.dependencies.Before;
 import com.yahoo.component.chain.dependencies.Provides;
+import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.docproc.DocumentProcessor;
 import com.yahoo.docproc.Processing;
+import com.yahoo.docproc.jdisc.metric.NullMetric;
 import com.yahoo.document.*;
 import com.yahoo.document.config.DocumentmanagerConfig;
+import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.Linguistics;
 import com.yahoo.log.LogLevel;
 import com.yahoo.vespa.configdefinition.IlscriptsConfig;
 import com.yahoo.vespa.indexinglanguage.AdapterFactory;
 import com.yahoo.vespa.indexinglanguage.SimpleAdapterFactory;
 import com.yahoo.vespa.indexinglanguage.expressions.Expression;
+import com.yahoo.vespa.indexinglanguage.linguistics.TokenizationCache;
 
 /**
  * @author Simon Thoresen Hult
@@ -29,11 +41,19 @@ public class IndexingProcessor extends DocumentProcessor {
     public final static String PROVIDED_NAME = "indexedDocument";
     public final static String INDEXING_START = "indexingStart";
     public final static String INDEXING_END = "indexingEnd";
+    public final static String TOKENIZATION_CACHE_HITS = "indexing.tokenization_cache.hits";
+    public final static String TOKENIZATION_CACHE_MISSES = "indexing.tokenization_cache.misses";
+    public final static String TOKENIZATION_CACHE_SIZE = "indexing.tokenization_cache.size";
 
     private final static FastLogger log = FastLogger.getLogger(IndexingProcessor.class.getName());
     private final DocumentTypeManager docTypeMgr;
     private final ScriptManager scriptMgr;
     private final AdapterFactory adapterFactory;
+    private final int concurrentExecutionMinSize;
+    private final ExecutorService concurrentExecutor;
+    private final Metric metric;
+    private final AtomicLong reportedCacheHits = new AtomicLong();
+    private final AtomicLong reportedCacheMisses = new AtomicLong();
 
     private class ExpressionSelector extends SimpleAdapterFactory.SelectExpression {
         @Override
@@ -42,13 +62,34 @@ public class IndexingProcessor extends DocumentProcessor {
         }
     }
 
-    @Inject
     public IndexingProcessor(DocumentmanagerConfig documentmanagerConfig,
                              IlscriptsConfig ilscriptsConfig,
                              Linguistics linguistics) {
+        this(documentmanagerConfig, ilscriptsConfig, linguistics, new NullMetric());
+    }
+
+    @Inject
+    public IndexingProcessor(DocumentmanagerConfig documentmanagerConfig,
+                             IlscriptsConfig ilscriptsConfig,
+                             Linguistics linguistics,
+                             Metric metric) {
         docTypeMgr = DocumentTypeManagerConfigurer.configureNewManager(documentmanagerConfig);
         scriptMgr = new ScriptManager(docTypeMgr, ilscriptsConfig, linguistics);
         adapterFactory = new SimpleAdapterFactory(new ExpressionSelector());
+        concurrentExecutionMinSize = ilscriptsConfig.concurrentexecutionminsize();
+        concurrentExecutor = concurrentExecutionMinSize > 0
+                             ? Executors.newFixedThreadPool(ilscriptsConfig.concurrentexecutionthreads(),
+                                                            new DaemonThreadFactory("indexing-statements-"))
+                             : null;
+        this.metric = metric;
+    }
+
+    @Override
+    public void deconstruct() {
+        if (concurrentExecutor != null) {
+            concurrentExecutor.shutdown();
+        }
+        super.deconstruct();
     }
 
     @Override
@@ -72,9 +113,25 @@ public class IndexingProcessor extends DocumentProcessor {
         }
         proc.getDocumentOperations().clear();
         proc.getDocumentOperations().addAll(out);
+        reportTokenizationCacheMetrics();
         return Progress.DONE;
     }
 
+    /**
+     * Reports the tokenization cache lookups since the last report, and the current size of the cache. This takes no
+     * locks, as it is called for every processing. Concurrent callers each report the lookups no other caller has.
+     */
+    private void reportTokenizationCacheMetrics() {
+        TokenizationCache cache = scriptMgr.getTokenizationCache();
+        if (cache == null) return;
+
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+        metric.add(TOKENIZATION_CACHE_HITS, Math.max(0, hits - reportedCacheHits.getAndAccumulate(hits, Math::max)), null);
+        metric.add(TOKENIZATION_CACHE_MISSES, Math.max(0, misses - reportedCacheMisses.getAndAccumulate(misses, Math::max)), null);
+        metric.set(TOKENIZATION_CACHE_SIZE, cache.size(), null);
+    }
+
     DocumentTypeManager getDocumentTypeManager() {
         return docTypeMgr;
     }
@@ -87,7 +144,9 @@ public class IndexingProcessor extends DocumentProcessor {
             return;
         }
         log.log(LogLevel.DEBUG, "Processing document '%s'.", prev.getId());
-        Document next = script.execute(adapterFactory, prev.getDocument());
+        Document next = shouldExecuteConcurrently(script, prev.getDocument())
+                        ? script.execute(adapterFactory, prev.getDocument(), concurrentExecutor)
+                        : script.execute(adapterFactory, prev.getDocument());
         if (next == null) {
             log.log(LogLevel.DEBUG, "Document '" + prev.getId() + "' produced no output.");
             return;
@@ -96,6 +155,20 @@ public class IndexingProcessor extends DocumentProcessor {
         out.add(new DocumentPut(prev, next));
     }
 
+    private boolean shouldExecuteConcurrently(DocumentScript script, Document document) {
+        if (concurrentExecutor == null || ! script.isConcurrent()) return false;
+
+        long size = 0;
+        for (Iterator<Map.Entry<Field, FieldValue>> it = document.iterator(); it.hasNext(); ) {
+            FieldValue value = it.next().getValue();
+            if (value instanceof StringFieldValue) {
+                size += ((StringFieldValue)value).getString().length();
+                if (size >= concurrentExecutionMinSize) return true;
+            }
+        }
+        return false;
+    }
+
     private void processUpdate(DocumentUpdate prev, List<DocumentOperation> out) {
         DocumentScript script = scriptMgr.getScript(prev.getType());
         if (script == null) {
@@ -10,6 +10,7 @@ import com.yahoo.vespa.indexinglanguage.ScriptParserContext;
 import com.yahoo.vespa.indexinglanguage.expressions.InputExpression;
 import com.yahoo.vespa.indexinglanguage.expressions.ScriptExpression;
 import com.yahoo.vespa.indexinglanguage.expressions.StatementExpression;
+import com.yahoo.vespa.indexinglanguage.linguistics.TokenizationCache;
 import com.yahoo.vespa.indexinglanguage.parser.IndexingInput;
 import com.yahoo.vespa.indexinglanguage.parser.ParseException;
 
@@ -25,10 +26,19 @@ public class ScriptManager {
     private static final String FULL = "[all]";
     private final Map<String, Map<String, DocumentScript>> documentFieldScripts;
     private final DocumentTypeManager docTypeMgr;
+    private final TokenizationCache tokenizationCache;
 
     public ScriptManager(DocumentTypeManager docTypeMgr, IlscriptsConfig config, Linguistics linguistics) {
         this.docTypeMgr = docTypeMgr;
-        documentFieldScripts = createScriptsMap(docTypeMgr, config, linguistics);
+        tokenizationCache = config.tokenizationcachesize() > 0
+                            ? new TokenizationCache(config.tokenizationcachesize(), config.tokenizationcachemaxtextlength())
+                            : null;
+        documentFieldScripts = createScriptsMap(docTypeMgr, config, linguistics, tokenizationCache);
+    }
+
+    /** Returns the cache of tokenization results shared by all scripts of this, or null if caching is disabled */
+    public TokenizationCache getTokenizationCache() {
+        return tokenizationCache;
     }
 
 
@@ -72,9 +82,11 @@ public class ScriptManager {
 
     private static Map<String, Map<String, DocumentScript>>  createScriptsMap(DocumentTypeManager docTypeMgr,
                                                                               IlscriptsConfig config,
-                                                                              Linguistics linguistics) {
+                                                                              Linguistics linguistics,
+                                                                              TokenizationCache tokenizationCache) {
         Map<String, Map<String, DocumentScript>> documentFieldScripts = new HashMap<>(config.ilscript().size());
         ScriptParserContext parserContext = new ScriptParserContext(linguistics);
+        parserContext.setTokenizationCache(tokenizationCache);
         parserContext.getAnnotatorConfig().setMaxTermOccurrences(config.maxtermoccurrences());
         parserContext.getAnnotatorConfig().setMaxTokenLength(config.fieldmatchmaxlength());
 
@@ -13,11 +13,14 @@ import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.update.AssignValueUpdate;
 import com.yahoo.document.update.FieldUpdate;
 import com.yahoo.document.update.ValueUpdate;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.simple.SimpleLinguistics;
 import com.yahoo.vespa.configdefinition.IlscriptsConfig;
 import org.junit.Test;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
@@ -112,6 +115,42 @@ public class IndexingProcessorTestCase {
         assertSame(input, output);
     }
 
+    @Test
+    public void requireThatTokenizationCacheLookupsAreReportedAsMetrics() {
+        IlscriptsConfig ilscripts = new IlscriptsConfig(new IlscriptsConfig.Builder()
+                .tokenizationcachesize(10)
+                .ilscript(new IlscriptsConfig.Ilscript.Builder()
+                                  .doctype("music")
+                                  .docfield("artist")
+                                  .docfield("title")
+                                  .content("input artist | tokenize | attribute title")));
+        RecordingMetric metric = new RecordingMetric();
+        indexer = new IndexingProcessor(ConfigGetter.getConfig(DocumentmanagerConfig.class, CONFIG_ID),
+                                        ilscripts, new SimpleLinguistics(), metric);
+        DocumentType type = indexer.getDocumentTypeManager().getDocumentType("music");
+
+        for (int i = 0; i < 3; i++) {
+            Document input = new Document(type, "doc:scheme:" + i);
+            input.setFieldValue("artist", new StringFieldValue("the artist"));
+            process(new DocumentPut(input));
+        }
+        assertEquals(2L, metric.values.get(IndexingProcessor.TOKENIZATION_CACHE_HITS));
+        assertEquals(1L, metric.values.get(IndexingProcessor.TOKENIZATION_CACHE_MISSES));
+        assertEquals(1, metric.values.get(IndexingProcessor.TOKENIZATION_CACHE_SIZE));
+    }
+
+    @Test
+    public void requireThatNoTokenizationCacheMetricsAreReportedWithoutCache() {
+        RecordingMetric metric = new RecordingMetric();
+        indexer = new IndexingProcessor(ConfigGetter.getConfig(DocumentmanagerConfig.class, CONFIG_ID),
+                                        ConfigGetter.getConfig(IlscriptsConfig.class, CONFIG_ID),
+                                        new SimpleLinguistics(), metric);
+        Document input = new Document(indexer.getDocumentTypeManager().getDocumentType("music"), "doc:scheme:");
+        input.setFieldValue("artist", new StringFieldValue("69"));
+        process(new DocumentPut(input));
+        assertTrue(metric.values.isEmpty());
+    }
+
     private DocumentOperation process(DocumentOperation input) {
         Processing proc = new Processing();
         proc.getDocumentOperations().add(input);
@@ -127,4 +166,25 @@ public class IndexingProcessorTestCase {
                                      ConfigGetter.getConfig(IlscriptsConfig.class, configId),
                                      new SimpleLinguistics());
     }
+
+    private static class RecordingMetric implements Metric {
+
+        final Map<String, Number> values = new HashMap<>();
+
+        @Override
+        public void set(String key, Number val, Context ctx) {
+            values.put(key, val);
+        }
+
+        @Override
+        public void add(String key, Number val, Context ctx) {
+            values.merge(key, val, (a, b) -> a.longValue() + b.longValue());
+        }
+
+        @Override
+        public Context createContext(Map<String, ?> properties) {
+            return null;
+        }
+    }
+
 }
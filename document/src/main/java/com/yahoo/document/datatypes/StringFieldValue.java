@@ -11,7 +11,10 @@ import com.yahoo.document.serialization.FieldReader;
 import com.yahoo.document.serialization.FieldWriter;
 import com.yahoo.document.serialization.XmlSerializationHelper;
 import com.yahoo.document.serialization.XmlStream;
+import com.yahoo.text.AbstractUtf8Array;
 import com.yahoo.text.Text;
+import com.yahoo.text.Utf8Array;
+import com.yahoo.text.Utf8String;
 import com.yahoo.vespa.objects.Ids;
 
 import java.util.Collection;
@@ -24,6 +27,11 @@ import java.util.OptionalInt;
  * other {@link com.yahoo.document.datatypes.FieldValue}s.
  * 
  * String fields can only contain text characters, as defined by {@link Text#isTextCharacter(int)}
+ * <p>
+ * A value read by a deserializer holds the UTF-8 bytes it was read from, and only decodes these to a String
+ * the first time the String is requested. The bytes are dropped when they are decoded, so a value holds either
+ * the bytes or the String. Serializing a value which was never decoded writes the bytes through without
+ * decoding and encoding the String.
  *
  * @author Einar M R Rosenvinge
  */
@@ -37,7 +45,10 @@ public class StringFieldValue extends FieldValue {
 
     public static PrimitiveDataType.Factory getFactory() { return new Factory(); }
     public static final int classId = registerClass(Ids.document + 15, StringFieldValue.class);
+    /** The wrapped String, or null if it is not yet decoded from utf8 */
     private String value;
+    /** The UTF-8 encoding of the wrapped String while it is not decoded, or null */
+    private Utf8Array utf8 = null;
     private Map<String, SpanTree> spanTrees = null;
 
     /** Creates a new StringFieldValue holding an empty String. */
@@ -68,6 +79,7 @@ public class StringFieldValue extends FieldValue {
     private void setValue(String value) {
         validateTextString(value);
         this.value = value;
+        this.utf8 = null;
     }
 
     /**
@@ -102,6 +114,7 @@ public class StringFieldValue extends FieldValue {
     @Override
     public void clear() {
         value = "";
+        utf8 = null;
         if (spanTrees != null) {
             spanTrees.clear();
             spanTrees = null;
@@ -206,13 +219,31 @@ public class StringFieldValue extends FieldValue {
 
     /** Returns the String value wrapped by this StringFieldValue */
     public String getString() {
+        String decoded = value; // Strings are safely published, so a non-null value needs no lock
+        return (decoded != null) ? decoded : decode();
+    }
+
+    private synchronized String decode() {
+        if (value == null) {
+            value = utf8.toString();
+            utf8 = null;
+        }
         return value;
     }
 
+    /**
+     * Returns the UTF-8 encoding of the String value wrapped by this StringFieldValue. This is the bytes this
+     * was set from if the String has not been decoded from them, otherwise the String is encoded on each call.
+     */
+    public AbstractUtf8Array getUtf8() {
+        Utf8Array bytes = utf8;
+        return (bytes != null) ? bytes : new Utf8String(getString());
+    }
+
     /** Returns the String value wrapped by this StringFieldValue */
     @Override
     public Object getWrappedValue() {
-        return value;
+        return getString();
     }
 
     /**
@@ -233,7 +264,7 @@ public class StringFieldValue extends FieldValue {
      */
     @Override
     public String toString() {
-        return value;
+        return getString();
     }
 
     @Override
@@ -243,13 +274,14 @@ public class StringFieldValue extends FieldValue {
         if (!super.equals(o)) return false;
         StringFieldValue that = (StringFieldValue) o;
         if ((spanTrees != null) ? !spanTrees.equals(that.spanTrees) : that.spanTrees != null) return false;
-        if ((value != null) ? !value.equals(that.value) : that.value != null) return false;
-        return true;
+        Utf8Array bytes = utf8, thatBytes = that.utf8;
+        if (bytes != null && thatBytes != null) return bytes.equals(thatBytes);
+        return getString().equals(that.getString());
     }
 
     @Override
     public int hashCode() {
-        return (value != null) ? value.hashCode() : super.hashCode();
+        return getString().hashCode();
     }
 
     @Override
@@ -272,7 +304,7 @@ public class StringFieldValue extends FieldValue {
 
         //types are equal, this must be of this type
         StringFieldValue otherValue = (StringFieldValue) fieldValue;
-        comp = value.compareTo(otherValue.value);
+        comp = getString().compareTo(otherValue.getString());
 
         if (comp != 0) {
             return comp;
@@ -299,6 +331,16 @@ public class StringFieldValue extends FieldValue {
      */
     public void setUnChecked(String s) {
         value = s;
+        utf8 = null;
+    }
+
+    /**
+     * Only for use by deserializer to avoid the cost of decoding and verifying input.
+     * The given bytes must be valid UTF-8 and must not be modified after this call.
+     */
+    public void setUnChecked(Utf8Array utf8) {
+        this.value = null;
+        this.utf8 = utf8;
     }
 
 }
@@ -5,13 +5,23 @@ import com.yahoo.collections.Hashlet;
 import com.yahoo.document.*;
 import com.yahoo.document.serialization.FieldReader;
 import com.yahoo.document.serialization.FieldWriter;
+import com.yahoo.document.serialization.VespaDocumentDeserializerHead;
 import com.yahoo.document.serialization.XmlSerializationHelper;
 import com.yahoo.document.serialization.XmlStream;
+import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.vespa.objects.Ids;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
+ * A struct of field values.
+ *
+ * <p>The values of a struct may be set in serialized form by {@link #setSerializedFieldValue}, in which case they
+ * are decoded when first accessed. The serialized forms are kept apart from the values, which hold null for those
+ * fields until they are decoded. Until all values are decoded, values are accessed while holding the lock of the
+ * struct, such that it remains safe for concurrent reads.
+ *
  * @author Håkon Humberset
  */
 public class Struct extends StructuredFieldValue {
@@ -20,6 +30,12 @@ public class Struct extends StructuredFieldValue {
     private Hashlet<Integer, FieldValue> values = new Hashlet<>();
     private int [] order = null;
 
+    /** The serialized form of values which are not decoded yet, by field id, or null if there are none */
+    private Map<Integer, SerializedValue> serializedValues = null;
+
+    /** Whether some values are serialized, in which case values are only accessed while holding the lock of this */
+    private volatile boolean hasSerializedValues = false;
+
     private int version;
 
     private int [] getInOrder() {
@@ -78,11 +94,24 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public Struct clone() {
+        if (hasSerializedValues) {
+            synchronized (this) {
+                return cloneValues();
+            }
+        }
+        return cloneValues();
+    }
+
+    private Struct cloneValues() {
         Struct struct = (Struct) super.clone();
         struct.values = new Hashlet<>();
         struct.values.reserve(values.size());
         for (int i = 0; i < values.size(); i++) {
-            struct.values.put(values.key(i), values.value(i).clone());
+            FieldValue value = values.value(i);
+            struct.values.put(values.key(i), value == null ? null : value.clone());
+        }
+        if (serializedValues != null) {
+            struct.serializedValues = new HashMap<>(serializedValues);
         }
         return struct;
     }
@@ -91,6 +120,110 @@ public class Struct extends StructuredFieldValue {
     public void clear() {
         values = new Hashlet<>();
         invalidateOrder();
+        clearSerializedValues();
+    }
+
+    /**
+     * Sets the value of the given field to one which is serialized on the current document format in the given
+     * part of the given buffer, and which is decoded when it is first accessed. Serializing this struct again
+     * copies the serialized form of values which have not been accessed, instead of encoding them.
+     * The given buffer must not be modified after this.
+     *
+     * @param field   the field to set the value of
+     * @param buffer  the buffer containing the serialized value
+     * @param offset  the offset of the serialized value in the buffer
+     * @param length  the length of the serialized value
+     * @param manager the document type manager to decode the value with
+     */
+    public void setSerializedFieldValue(Field field, byte[] buffer, int offset, int length, DocumentTypeManager manager) {
+        synchronized (this) {
+            if (serializedValues == null) {
+                serializedValues = new HashMap<>();
+            }
+            serializedValues.put(field.getId(), new SerializedValue(field, buffer, offset, length, manager));
+            putValue(field.getId(), null);
+            hasSerializedValues = true;
+        }
+    }
+
+    /**
+     * Returns the serialized form of the value of the given field if it was set by
+     * {@link #setSerializedFieldValue} and has not been accessed since, or null otherwise.
+     */
+    public ByteBuffer getSerializedFieldValue(Field field) {
+        if ( ! hasSerializedValues) {
+            return null;
+        }
+        synchronized (this) {
+            SerializedValue serialized = (serializedValues != null) ? serializedValues.get(field.getId()) : null;
+            if (serialized == null) {
+                return null;
+            }
+            return ByteBuffer.wrap(serialized.buffer, serialized.offset, serialized.length).asReadOnlyBuffer();
+        }
+    }
+
+    /** Returns the value at the given index of the values of this, decoding it first if necessary */
+    private FieldValue decodedValue(int index) {
+        if ( ! hasSerializedValues) {
+            return values.value(index);
+        }
+        synchronized (this) {
+            FieldValue value = values.value(index);
+            if (value == null) {
+                int fieldId = values.key(index);
+                value = serializedValues.get(fieldId).decode();
+                values.setValue(index, value);
+                removeSerializedValue(fieldId);
+            }
+            return value;
+        }
+    }
+
+    private void decodeAll() {
+        if ( ! hasSerializedValues) {
+            return;
+        }
+        synchronized (this) {
+            for (int i = 0; i < values.size() && hasSerializedValues; i++) {
+                decodedValue(i);
+            }
+        }
+    }
+
+    /** Removes the serialized form of the given field, and clears the flag when none are left */
+    private void removeSerializedValue(int fieldId) {
+        serializedValues.remove(fieldId);
+        if (serializedValues.isEmpty()) {
+            clearSerializedValues();
+        }
+    }
+
+    /** Forgets the serialized form of the given field, which is about to be replaced or removed */
+    private void dropSerializedValue(int fieldId) {
+        if ( ! hasSerializedValues) {
+            return;
+        }
+        synchronized (this) {
+            if (serializedValues.containsKey(fieldId)) {
+                removeSerializedValue(fieldId);
+            }
+        }
+    }
+
+    private void clearSerializedValues() {
+        serializedValues = null;
+        hasSerializedValues = false;
+    }
+
+    private void putValue(int fieldId, FieldValue value) {
+        int index = values.getIndexOfKey(fieldId);
+        if (index == -1) {
+            values.put(fieldId, value);
+            invalidateOrder();
+        } else {
+            values.setValue(index, value);
+        }
     }
 
     @Override
@@ -117,7 +250,8 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue getFieldValue(Field field) {
-        return values.get(field.getId());
+        int index = values.getIndexOfKey(field.getId());
+        return index == -1 ? null : decodedValue(index);
     }
 
 
@@ -154,18 +288,13 @@ public class Struct extends StructuredFieldValue {
                     "Inconsistent field: " + field);
         }
 
-        int index = values.getIndexOfKey(field.getId());
-        if (index == -1) {
-            values.put(field.getId(), value);
-            invalidateOrder();
-        } else {
-            values.setValue(index, value);
-        }
+        dropSerializedValue(field.getId());
+        putValue(field.getId(), value);
     }
 
     @Override
     public FieldValue removeFieldValue(Field field) {
-        FieldValue found = values.get(field.getId());
+        FieldValue found = getFieldValue(field);
         if (found != null) {
             Hashlet<Integer, FieldValue> copy = new Hashlet<>();
             copy.reserve(values.size() - 1);
@@ -213,12 +342,15 @@ public class Struct extends StructuredFieldValue {
         if (!super.equals(o)) return false;
 
         Struct struct = (Struct) o;
+        decodeAll();
+        struct.decodeAll();
         return values.equals(struct.values);
     }
 
     @Override
     public int hashCode() {
         int result = super.hashCode();
+        decodeAll();
         result = 31 * result + values.hashCode();
         return result;
     }
@@ -227,6 +359,7 @@ public class Struct extends StructuredFieldValue {
     public String toString() {
         StringBuilder retVal = new StringBuilder();
         retVal.append("Struct (").append(getDataType()).append("): ");
+        decodeAll();
         int [] increasing = getInOrder();
         for (int i = 0; i < increasing.length; i++) {
             int id = increasing[i];
@@ -288,7 +421,8 @@ public class Struct extends StructuredFieldValue {
         }
 
         public FieldValue getValue() {
-            return values.get(id);
+            int index = values.getIndexOfKey(id);
+            return index == -1 ? null : decodedValue(index);
         }
 
         public FieldValue setValue(FieldValue value) {
@@ -302,7 +436,7 @@ public class Struct extends StructuredFieldValue {
                 values.put(id, value);
                 invalidateOrder();
             } else {
-                retVal = values.value(index);
+                retVal = decodedValue(index);
                 values.setValue(index, value);
             }
 
@@ -358,6 +492,31 @@ public class Struct extends StructuredFieldValue {
         }
     }
 
+    /** The serialized form of a field value, which is decoded when the value is first accessed */
+    private static final class SerializedValue {
+
+        private final Field field;
+        private final byte[] buffer;
+        private final int offset;
+        private final int length;
+        private final DocumentTypeManager manager;
+
+        SerializedValue(Field field, byte[] buffer, int offset, int length, DocumentTypeManager manager) {
+            this.field = field;
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+            this.manager = manager;
+        }
+
+        FieldValue decode() {
+            FieldValue value = field.getDataType().createFieldValue();
+            value.deserialize(field, new VespaDocumentDeserializerHead(manager, GrowableByteBuffer.wrap(buffer, offset, length)));
+            return value;
+        }
+
+    }
+
     public static <T> T getFieldValue(FieldValue struct, DataType structType, String fieldName, Class<T> fieldType) {
         if (!(struct instanceof Struct)) {
             return null;
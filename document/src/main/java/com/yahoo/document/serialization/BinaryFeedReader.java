@@ -0,0 +1,247 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.DocumentUpdate;
+import com.yahoo.document.TestAndSetCondition;
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.text.Utf8;
+import com.yahoo.vespaxmlparser.FeedReader;
+import com.yahoo.vespaxmlparser.VespaXMLFeedReader.Operation;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads document operations written in the binary feed format by {@link BinaryFeedWriter}.
+ *
+ * <p>
+ * Documents are fully de-serialized when read, such that malformed documents are rejected by the reader.
+ * Readers of trusted feeds may instead use lazy field decoding, so a document which is fed again without being
+ * inspected is serialized from the bytes it was read from, without decoding and encoding its fields.
+ *
+ * <p>
+ * Documents compressed with a dictionary of the feed are decompressed before they are de-serialized.
+ * Readers of single operations, which can not refer to dictionaries earlier in the feed, reject them.
+ *
+ * <p>
+ * The feed reader will take ownership of the input stream and close it when the last operation has been read.
+ */
+public class BinaryFeedReader implements FeedReader {
+
+    static final byte[] MAGIC = { 'V', 'B', 'F' };
+    static final byte VERSION = 1;
+
+    static final byte PUT = 1;
+    static final byte REMOVE = 2;
+    static final byte DICTIONARY = 3;
+    static final byte COMPRESSED_PUT = 4;
+    static final byte UPDATE = 5;
+    static final byte CONDITION = 6;
+
+    /** The max payload size of an entry, which is far larger than any document a content node accepts */
+    public static final int MAX_ENTRY_SIZE = 128 * 1024 * 1024;
+
+    /** The size of the first buffer a payload is read into, which is grown as more of it is read */
+    private static final int INITIAL_PAYLOAD_BUFFER_SIZE = 64 * 1024;
+
+    /** The max number of dictionaries in a feed, which is far more than the number of document types */
+    static final int MAX_DICTIONARIES = 1024;
+
+    private final DataInputStream in;
+    private final DocumentTypeManager manager;
+    private final boolean allowDictionaries;
+    private final boolean lazyFieldDecoding;
+    private final Map<Integer, CompressionDictionary> dictionaries = new HashMap<>();
+    /** The condition of the next operation, or null if it has none */
+    private TestAndSetCondition condition = null;
+    private boolean headerRead = false;
+
+    public BinaryFeedReader(InputStream stream, DocumentTypeManager manager) {
+        this(stream, manager, true);
+    }
+
+    /**
+     * @param allowDictionaries whether the feed may contain dictionaries and documents compressed with them,
+     *                          which is false when each operation is read from a feed of its own
+     */
+    public BinaryFeedReader(InputStream stream, DocumentTypeManager manager, boolean allowDictionaries) {
+        this(stream, manager, allowDictionaries, false);
+    }
+
+    /**
+     * @param allowDictionaries whether the feed may contain dictionaries and documents compressed with them,
+     *                          which is false when each operation is read from a feed of its own
+     * @param lazyFieldDecoding whether to keep the fields of documents serialized until they are accessed.
+     *                          Malformed fields are then not detected by this, so this must only be used
+     *                          for feeds from a trusted source, such as the local files of vespa-feeder
+     */
+    public BinaryFeedReader(InputStream stream, DocumentTypeManager manager, boolean allowDictionaries,
+                            boolean lazyFieldDecoding) {
+        this.in = new DataInputStream(new BufferedInputStream(stream));
+        this.manager = manager;
+        this.allowDictionaries = allowDictionaries;
+        this.lazyFieldDecoding = lazyFieldDecoding;
+    }
+
+    /** Returns whether the given bytes are the start of a stream in the binary feed format */
+    public static boolean isBinaryFeed(byte[] start) {
+        return start.length >= MAGIC.length && Arrays.equals(MAGIC, Arrays.copyOf(start, MAGIC.length));
+    }
+
+    @Override
+    public void read(Operation operation) throws Exception {
+        if ( ! headerRead) {
+            readHeader();
+        }
+        // Conditions and dictionaries apply to the entries after them, so read until an operation is read
+        while ( ! readEntry(operation)) { }
+    }
+
+    /** Reads the next entry, and returns whether it completed the given operation, or the end of the feed */
+    private boolean readEntry(Operation operation) throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            in.close();
+            if (condition != null) {
+                throw new DeserializationException("Binary feed ended after the condition of an operation");
+            }
+            operation.setInvalid();
+            return true;
+        }
+        byte[] payload = readPayload(in.readInt());
+
+        switch (type) {
+            case PUT:
+                operation.setDocument(readDocument(payload));
+                break;
+            case UPDATE:
+                operation.setDocumentUpdate(new DocumentUpdate(DocumentDeserializerFactory.createHead(manager,
+                                                                                                      GrowableByteBuffer.wrap(payload))));
+                break;
+            case REMOVE:
+                operation.setRemove(new DocumentId(Utf8.toString(payload)));
+                break;
+            case CONDITION:
+                if (condition != null) {
+                    throw new DeserializationException("Condition in binary feed is followed by another condition");
+                }
+                condition = new TestAndSetCondition(Utf8.toString(payload));
+                return false;
+            case DICTIONARY:
+                addDictionary(payload);
+                return false;
+            case COMPRESSED_PUT:
+                operation.setDocument(readDocument(decompress(payload)));
+                break;
+            default:
+                throw new DeserializationException("Unknown operation type " + type + " in binary feed");
+        }
+        if (condition != null) {
+            operation.setCondition(condition);
+            condition = null;
+        }
+        return true;
+    }
+
+    private Document readDocument(byte[] serialized) {
+        GrowableByteBuffer buffer = GrowableByteBuffer.wrap(serialized);
+        if (lazyFieldDecoding) {
+            return new Document(DocumentDeserializerFactory.createLazyHead(manager, buffer));
+        }
+        try {
+            return new Document(DocumentDeserializerFactory.createHead(manager, buffer));
+        } catch (DeserializationException e) {
+            throw e;
+        } catch (RuntimeException e) { // malformed data may cause any exception in the deserializer
+            throw new DeserializationException("Malformed document in binary feed", e);
+        }
+    }
+
+    private void addDictionary(byte[] payload) {
+        requireDictionariesAllowed();
+        if (payload.length < 4 || payload.length - 4 > CompressionDictionary.MAX_SIZE) {
+            throw new DeserializationException("Dictionary entry of " + payload.length + " bytes in binary feed is " +
+                                               "not in the range [4, " + (CompressionDictionary.MAX_SIZE + 4) + "]");
+        }
+        int id = ByteBuffer.wrap(payload).getInt();
+        if (dictionaries.size() >= MAX_DICTIONARIES && ! dictionaries.containsKey(id)) {
+            throw new DeserializationException("Binary feed has more than " + MAX_DICTIONARIES + " dictionaries");
+        }
+        dictionaries.put(id, new CompressionDictionary(id, Arrays.copyOfRange(payload, 4, payload.length)));
+    }
+
+    private void requireDictionariesAllowed() {
+        if ( ! allowDictionaries) {
+            throw new DeserializationException("Documents compressed with a dictionary are not accepted here, " +
+                                               "as each operation is read on its own");
+        }
+    }
+
+    /**
+     * Reads a payload of the given length. The buffer it is read into is grown as it is read, such that
+     * a corrupt length does not cause more to be allocated than what is in the stream.
+     */
+    private byte[] readPayload(int length) throws IOException {
+        if (length < 0 || length > MAX_ENTRY_SIZE) {
+            throw new DeserializationException("Entry length " + length + " in binary feed is not in the range [0, " +
+                                               MAX_ENTRY_SIZE + "]");
+        }
+        byte[] payload = new byte[Math.min(length, INITIAL_PAYLOAD_BUFFER_SIZE)];
+        int size = 0;
+        while (size < length) {
+            if (size == payload.length) {
+                payload = Arrays.copyOf(payload, (int) Math.min(length, 2L * payload.length));
+            }
+            int read = in.read(payload, size, payload.length - size);
+            if (read < 0) {
+                throw new EOFException("Binary feed ended after " + size + " of the " + length + " bytes of an entry");
+            }
+            size += read;
+        }
+        return payload;
+    }
+
+    private byte[] decompress(byte[] payload) {
+        requireDictionariesAllowed();
+        if (payload.length < 8) {
+            throw new DeserializationException("Compressed put of " + payload.length + " bytes in binary feed is " +
+                                               "shorter than its header");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        int id = buffer.getInt();
+        int uncompressedSize = buffer.getInt();
+        if (uncompressedSize < 0 || uncompressedSize > MAX_ENTRY_SIZE) {
+            throw new DeserializationException("Uncompressed size " + uncompressedSize + " in binary feed is not " +
+                                               "in the range [0, " + MAX_ENTRY_SIZE + "]");
+        }
+        CompressionDictionary dictionary = dictionaries.get(id);
+        if (dictionary == null) {
+            throw new DeserializationException("Document is compressed with dictionary " + id +
+                                               ", which is not in the binary feed before it");
+        }
+        return dictionary.decompress(Arrays.copyOfRange(payload, 8, payload.length), uncompressedSize);
+    }
+
+    private void readHeader() throws IOException {
+        byte[] header = new byte[MAGIC.length + 1];
+        in.readFully(header);
+        if ( ! isBinaryFeed(header)) {
+            throw new DeserializationException("Stream is not in the binary feed format");
+        }
+        if (header[MAGIC.length] != VERSION) {
+            throw new DeserializationException("Unsupported binary feed format version " + header[MAGIC.length]);
+        }
+        headerRead = true;
+    }
+
+}
@@ -0,0 +1,228 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentUpdate;
+import com.yahoo.document.TestAndSetCondition;
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.text.Utf8;
+import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes document operations to a stream in the binary feed format, which is read by {@link BinaryFeedReader}.
+ * The stream starts with a header identifying the format, followed by one entry per operation:
+ * <pre>
+ *   header:  'V' 'B' 'F' version (1 byte)
+ *   entry:   operation type (1 byte), payload length (4 bytes, big endian), payload
+ * </pre>
+ * The payload of a put is the document in the current serialization format, the payload of an update is the
+ * document update in the current serialization format, and the payload of a remove is the UTF-8 encoded document id.
+ * An operation with a test-and-set condition is preceded by a condition entry, which has the UTF-8 encoded document
+ * selection of the condition as payload. Documents which are already serialized, like those received from a
+ * visitor, are written as-is, without being deserialized.
+ *
+ * <p>
+ * If dictionary compression is enabled, the first puts of each document type are written as they are, and used
+ * as samples to train a {@link CompressionDictionary} for that type. Sampling ends when the given number of samples
+ * is collected, or they reach {@link CompressionDictionary#MAX_SAMPLE_BYTES} in total. The dictionary is then written as an entry of
+ * its own, and the following puts of that type are written compressed with it, whenever that makes them smaller:
+ * <pre>
+ *   dictionary:      dictionary id (4 bytes), dictionary
+ *   compressed put:  dictionary id (4 bytes), uncompressed size (4 bytes), compressed document
+ * </pre>
+ * Small documents of the same type have much in common, which is lost when each is compressed on its own.
+ *
+ * The methods of this may be called from multiple threads concurrently. Each entry is written in one piece.
+ */
+public class BinaryFeedWriter implements Closeable {
+
+    /** The max number of documents of each document type to train its dictionary from */
+    public static final int MAX_DICTIONARY_SAMPLES = 100000;
+
+    private final DataOutputStream out;
+    private final int dictionarySamples;
+    /** The samples collected of each document type which does not yet have a dictionary, and their total size */
+    private final Map<String, List<byte[]>> samples = new HashMap<>();
+    private final Map<String, Integer> sampleBytes = new HashMap<>();
+    private final Map<String, CompressionDictionary> dictionaries = new HashMap<>();
+
+    /** Creates a writer of the given stream, and writes the header of the format to it */
+    public BinaryFeedWriter(OutputStream out) throws IOException {
+        this(out, 0);
+    }
+
+    /**
+     * Creates a writer of the given stream which compresses documents with dictionaries, and writes the header
+     * of the format to it.
+     *
+     * @param dictionarySamples the number of documents of each document type to train its dictionary from,
+     *                          at most {@link #MAX_DICTIONARY_SAMPLES}, or 0 to not compress documents
+     */
+    public BinaryFeedWriter(OutputStream out, int dictionarySamples) throws IOException {
+        if (dictionarySamples < 0 || dictionarySamples > MAX_DICTIONARY_SAMPLES)
+            throw new IllegalArgumentException("Number of dictionary samples must be in [0, " + MAX_DICTIONARY_SAMPLES +
+                                               "], was " + dictionarySamples);
+        this.out = new DataOutputStream(out);
+        this.dictionarySamples = dictionarySamples;
+        this.out.write(BinaryFeedReader.MAGIC);
+        this.out.writeByte(BinaryFeedReader.VERSION);
+    }
+
+    /** Writes a put of the given document */
+    public void writePut(Document document) throws IOException {
+        GrowableByteBuffer buf = new GrowableByteBuffer();
+        document.serialize(buf);
+        buf.flip();
+        writePut(buf.getByteBuffer());
+    }
+
+    /**
+     * Writes a put of the given serialized document. The remaining content of the buffer is written,
+     * without changing its position.
+     */
+    public synchronized void writePut(ByteBuffer serializedDocument) throws IOException {
+        if (dictionarySamples > 0) {
+            byte[] bytes = new byte[serializedDocument.remaining()];
+            serializedDocument.duplicate().get(bytes);
+            writeCompressedPut(bytes);
+            return;
+        }
+        out.writeByte(BinaryFeedReader.PUT);
+        out.writeInt(serializedDocument.remaining());
+        if (serializedDocument.hasArray()) {
+            out.write(serializedDocument.array(), serializedDocument.arrayOffset() + serializedDocument.position(),
+                      serializedDocument.remaining());
+        } else {
+            byte[] bytes = new byte[serializedDocument.remaining()];
+            serializedDocument.duplicate().get(bytes);
+            out.write(bytes);
+        }
+    }
+
+    private void writeCompressedPut(byte[] document) throws IOException {
+        String documentType = documentTypeOf(document);
+        CompressionDictionary dictionary = documentType == null ? null : dictionaries.get(documentType);
+        if (dictionary != null) {
+            byte[] compressed = dictionary.compress(document, 0, document.length);
+            if (compressed.length + 8 < document.length) {
+                out.writeByte(BinaryFeedReader.COMPRESSED_PUT);
+                out.writeInt(compressed.length + 8);
+                out.writeInt(dictionary.id());
+                out.writeInt(document.length);
+                out.write(compressed);
+                return;
+            }
+        } else if (documentType != null) {
+            List<byte[]> typeSamples = samples.computeIfAbsent(documentType, __ -> new ArrayList<>());
+            typeSamples.add(document);
+            int typeSampleBytes = sampleBytes.merge(documentType, document.length, Integer::sum);
+            if (typeSamples.size() == dictionarySamples || typeSampleBytes >= CompressionDictionary.MAX_SAMPLE_BYTES) {
+                samples.remove(documentType);
+                sampleBytes.remove(documentType);
+                writeDictionary(documentType, CompressionDictionary.train(dictionaries.size(), typeSamples,
+                                                                          CompressionDictionary.MAX_SIZE));
+            }
+        }
+        out.writeByte(BinaryFeedReader.PUT);
+        out.writeInt(document.length);
+        out.write(document);
+    }
+
+    private void writeDictionary(String documentType, CompressionDictionary dictionary) throws IOException {
+        byte[] data = dictionary.data();
+        out.writeByte(BinaryFeedReader.DICTIONARY);
+        out.writeInt(data.length + 4);
+        out.writeInt(dictionary.id());
+        out.write(data);
+        dictionaries.put(documentType, dictionary);
+    }
+
+    /**
+     * Returns the name of the document type of the given serialized document, or null if it is not found.
+     * The document starts with the serialization version (2 bytes) and length (4 bytes), followed by the
+     * null terminated document id, a byte telling the content of the document, and the null terminated
+     * name of its type.
+     */
+    static String documentTypeOf(byte[] document) {
+        int idEnd = indexOfNull(document, 6);
+        if (idEnd < 0) return null;
+        int typeStart = idEnd + 2;
+        int typeEnd = indexOfNull(document, typeStart);
+        if (typeEnd < 0) return null;
+        return Utf8.toString(document, typeStart, typeEnd - typeStart);
+    }
+
+    private static int indexOfNull(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length; i++)
+            if (bytes[i] == 0) return i;
+        return -1;
+    }
+
+    /** Writes the given document update */
+    public synchronized void writeUpdate(DocumentUpdate update) throws IOException {
+        GrowableByteBuffer buf = new GrowableByteBuffer();
+        DocumentSerializerFactory.createHead(buf).write(update);
+        buf.flip();
+        out.writeByte(BinaryFeedReader.UPDATE);
+        out.writeInt(buf.remaining());
+        out.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+    }
+
+    /** Writes a remove of the document with the given id */
+    public synchronized void writeRemove(DocumentId id) throws IOException {
+        byte[] bytes = Utf8.toBytes(id.toString());
+        out.writeByte(BinaryFeedReader.REMOVE);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes the given operation, as read from a feed in any format, with its test-and-set condition, if any.
+     *
+     * @throws IllegalArgumentException if the operation is not a put, update or remove
+     */
+    public synchronized void write(VespaXMLFeedReader.Operation operation) throws IOException {
+        TestAndSetCondition condition = operation.getCondition();
+        if (condition != null && condition.isPresent()) {
+            byte[] bytes = Utf8.toBytes(condition.getSelection());
+            out.writeByte(BinaryFeedReader.CONDITION);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        switch (operation.getType()) {
+            case DOCUMENT:
+                writePut(operation.getDocument());
+                break;
+            case UPDATE:
+                writeUpdate(operation.getDocumentUpdate());
+                break;
+            case REMOVE:
+                writeRemove(operation.getRemove());
+                break;
+            default:
+                throw new IllegalArgumentException("Can not write operation of type " + operation.getType() +
+                                                   " in the binary feed format");
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+}
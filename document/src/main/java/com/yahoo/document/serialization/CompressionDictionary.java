@@ -0,0 +1,201 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A dictionary of byte sequences which are common in the serialized documents of a document type, used to
+ * compress such documents individually. Small documents compress poorly on their own, as most of what they
+ * have in common with other documents, like field ids, the document type and id scheme, and recurring
+ * values, only occurs once in each. Compressing them with a preset dictionary which contains these
+ * sequences lets each document refer to the dictionary instead.
+ *
+ * Documents are compressed with raw deflate with the dictionary preset, so the same dictionary must be used
+ * to decompress them. Dictionaries are identified by an id which is assigned by the user of this.
+ */
+public final class CompressionDictionary {
+
+    /** The max size of a dictionary, which is the size of the window of deflate */
+    public static final int MAX_SIZE = 32 * 1024;
+
+    /** The max total size of the samples a dictionary is trained from. Samples beyond this are ignored. */
+    public static final int MAX_SAMPLE_BYTES = 100 * MAX_SIZE;
+
+    /** The length of the byte sequences which are counted when training */
+    private static final int SEQUENCE_LENGTH = 8;
+
+    private final int id;
+    private final byte[] data;
+
+    public CompressionDictionary(int id, byte[] data) {
+        if (data.length > MAX_SIZE)
+            throw new IllegalArgumentException("Dictionary size " + data.length + " exceeds max size " + MAX_SIZE);
+        this.id = id;
+        this.data = data.clone();
+    }
+
+    /** Returns the id of this dictionary */
+    public int id() { return id; }
+
+    /** Returns a copy of the content of this dictionary */
+    public byte[] data() { return data.clone(); }
+
+    /**
+     * Trains a dictionary from the given samples, typically serialized documents of a single document type.
+     * The dictionary consists of the sequences which occur in more than one of the samples, with the ones
+     * which are expected to save the most placed last, as deflate encodes references to these most cheaply.
+     * Only the first samples which fit within {@link #MAX_SAMPLE_BYTES} in total are used.
+     *
+     * @param id the id of the dictionary
+     * @param samples the samples to train the dictionary from
+     * @param maxSize the max size of the dictionary, at most {@link #MAX_SIZE}
+     */
+    public static CompressionDictionary train(int id, List<byte[]> samples, int maxSize) {
+        if (maxSize < 0 || maxSize > MAX_SIZE)
+            throw new IllegalArgumentException("Dictionary size must be in [0, " + MAX_SIZE + "], was " + maxSize);
+        samples = withinMaxSampleBytes(samples);
+
+        // Count the number of samples each short sequence occurs in
+        Map<ByteBuffer, Integer> sampleCounts = new HashMap<>();
+        for (byte[] sample : samples) {
+            Set<ByteBuffer> sequences = new HashSet<>();
+            for (int i = 0; i + SEQUENCE_LENGTH <= sample.length; i++)
+                sequences.add(ByteBuffer.wrap(sample, i, SEQUENCE_LENGTH).slice());
+            sequences.forEach(sequence -> sampleCounts.merge(sequence, 1, Integer::sum));
+        }
+
+        // Join overlapping common sequences into segments, and count the occurrences of each segment
+        int minSampleCount = Math.max(2, samples.size() / 10);
+        Map<ByteBuffer, Integer> segmentCounts = new HashMap<>();
+        for (byte[] sample : samples) {
+            int i = 0;
+            while (i + SEQUENCE_LENGTH <= sample.length) {
+                if (sampleCounts.get(ByteBuffer.wrap(sample, i, SEQUENCE_LENGTH).slice()) < minSampleCount) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i + SEQUENCE_LENGTH <= sample.length &&
+                       sampleCounts.get(ByteBuffer.wrap(sample, i, SEQUENCE_LENGTH).slice()) >= minSampleCount)
+                    i++;
+                int end = i - 1 + SEQUENCE_LENGTH;
+                segmentCounts.merge(ByteBuffer.wrap(sample, start, end - start).slice(), 1, Integer::sum);
+            }
+        }
+
+        // Keep the segments saving the most which fit, and place the best last
+        List<Map.Entry<ByteBuffer, Integer>> segments = new ArrayList<>(segmentCounts.entrySet());
+        segments.sort((a, b) -> Long.compare(score(b), score(a)));
+        List<ByteBuffer> selected = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<ByteBuffer, Integer> segment : segments) {
+            int length = segment.getKey().remaining();
+            if (size + length > maxSize) continue;
+            selected.add(segment.getKey());
+            size += length;
+        }
+        ByteBuffer dictionary = ByteBuffer.allocate(size);
+        for (int i = selected.size() - 1; i >= 0; i--)
+            dictionary.put(selected.get(i).duplicate());
+        return new CompressionDictionary(id, dictionary.array());
+    }
+
+    private static List<byte[]> withinMaxSampleBytes(List<byte[]> samples) {
+        long size = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            size += samples.get(i).length;
+            if (size > MAX_SAMPLE_BYTES)
+                return samples.subList(0, i);
+        }
+        return samples;
+    }
+
+    private static long score(Map.Entry<ByteBuffer, Integer> segment) {
+        return (long) segment.getKey().remaining() * segment.getValue();
+    }
+
+    /** Returns the given data compressed with this dictionary */
+    public byte[] compress(byte[] data, int offset, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            if (this.data.length > 0)
+                deflater.setDictionary(this.data);
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 16);
+            byte[] buffer = new byte[Math.max(64, length)];
+            while ( ! deflater.finished()) {
+                int size = deflater.deflate(buffer);
+                out.write(buffer, 0, size);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Returns the given data, compressed with this dictionary, decompressed. The buffer the data is decompressed
+     * into is grown as it is filled, such that a corrupt size does not cause more to be allocated than what the
+     * data decompresses to.
+     *
+     * @throws DeserializationException if the data is not compressed with this dictionary, or is not of the given size
+     */
+    public byte[] decompress(byte[] compressed, int uncompressedSize) {
+        if (uncompressedSize < 0)
+            throw new DeserializationException("Uncompressed size can not be negative, was " + uncompressedSize);
+        Inflater inflater = new Inflater(true);
+        try {
+            if (data.length > 0)
+                inflater.setDictionary(data);
+            inflater.setInput(compressed);
+            byte[] result = new byte[(int) Math.min(uncompressedSize, Math.max(64, 4L * compressed.length))];
+            int size = 0;
+            while (size < uncompressedSize && ! inflater.finished()) {
+                if (size == result.length)
+                    result = Arrays.copyOf(result, (int) Math.min(uncompressedSize, 2L * result.length));
+                int inflated = inflater.inflate(result, size, result.length - size);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                size += inflated;
+            }
+            if (size != uncompressedSize)
+                throw new DeserializationException("Data compressed with dictionary " + id + " decompressed to " + size +
+                                                   " bytes, expected " + uncompressedSize);
+            return result;
+        } catch (DataFormatException e) {
+            throw new DeserializationException("Could not decompress data with dictionary " + id + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if ( ! (o instanceof CompressionDictionary)) return false;
+        CompressionDictionary other = (CompressionDictionary) o;
+        return id == other.id && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * id + Arrays.hashCode(data);
+    }
+
+    @Override
+    public String toString() {
+        return "compression dictionary " + id + " of " + data.length + " bytes";
+    }
+
+}
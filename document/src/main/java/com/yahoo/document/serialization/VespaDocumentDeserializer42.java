@@ -59,7 +59,6 @@ import com.yahoo.document.update.RemoveValueUpdate;
 import com.yahoo.document.update.ValueUpdate;
 import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.tensor.serialization.TypedBinaryFormat;
-import com.yahoo.text.Utf8;
 import com.yahoo.text.Utf8Array;
 import com.yahoo.text.Utf8String;
 import com.yahoo.vespa.objects.FieldBase;
@@ -90,6 +89,7 @@ public class VespaDocumentDeserializer42 extends VespaDocumentSerializer42 imple
     private List<SpanNode> spanNodes;
     private List<Annotation> annotations;
     private int[] stringPositions;
+    private boolean lazyFieldDecoding = false;
 
     VespaDocumentDeserializer42(DocumentTypeManager manager, GrowableByteBuffer header, GrowableByteBuffer body, short version) {
         super(header);
@@ -108,6 +108,12 @@ public class VespaDocumentDeserializer42 extends VespaDocumentSerializer42 imple
 
     final public DocumentTypeManager getDocumentTypeManager() { return manager; }
 
+    /**
+     * Sets whether the header and body fields of documents on the current format should be kept serialized
+     * until they are accessed. See {@link Struct#setSerializedFieldValue}.
+     */
+    public void setLazyFieldDecoding(boolean lazyFieldDecoding) { this.lazyFieldDecoding = lazyFieldDecoding; }
+
     public void read(Document document) {
          read(null, document);
     }
@@ -249,7 +255,7 @@ public class VespaDocumentDeserializer42 extends VespaDocumentSerializer42 imple
         byte[] stringArray = new byte[length - 1];
         buf.get(stringArray);
         buf.get();    //move past 0-termination
-        value.setUnChecked(Utf8.toString(stringArray));
+        value.setUnChecked(new Utf8Array(stringArray));
 
         if ((coding & 64) == 64) {
             //we have a span tree!
@@ -443,6 +449,7 @@ public class VespaDocumentDeserializer42 extends VespaDocumentSerializer42 imple
 
         StructDataType priType = primary.getDataType();
         StructDataType altType = alternate.getDataType();
+        boolean lazy = lazyFieldDecoding && version == Document.SERIALIZED_VERSION;
         for (int i=0; i<numberOfFields; ++i) {
             int posBefore = position();
             Struct s = null;
@@ -456,7 +463,9 @@ public class VespaDocumentDeserializer42 extends VespaDocumentSerializer42 imple
                   s = alternate;
                 }
             }
-            if (s != null) {
+            if (s != null && lazy) {
+              s.setSerializedFieldValue(structField, destination, posBefore, fieldIdsAndLengths.get(i).second.intValue(), manager);
+            } else if (s != null) {
               FieldValue value = structField.getDataType().createFieldValue();
               value.deserialize(structField, this);
               s.setFieldValue(structField, value);
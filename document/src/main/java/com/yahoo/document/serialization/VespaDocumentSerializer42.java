@@ -47,6 +47,7 @@ import com.yahoo.document.update.RemoveValueUpdate;
 import com.yahoo.document.update.ValueUpdate;
 import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.tensor.serialization.TypedBinaryFormat;
+import com.yahoo.text.AbstractUtf8Array;
 import com.yahoo.vespa.objects.BufferSerializer;
 import com.yahoo.vespa.objects.FieldBase;
 
@@ -257,7 +258,7 @@ public class VespaDocumentSerializer42 extends BufferSerializer implements Docum
      * @param value - field value
      */
     public void write(FieldBase field, StringFieldValue value) {
-        byte[] stringBytes = createUTF8CharArray(value.getString());
+        AbstractUtf8Array stringBytes = value.getUtf8();
 
         byte coding = 0;
         //Use bit 6 of "coding" to say whether span tree is available or not
@@ -265,9 +266,9 @@ public class VespaDocumentSerializer42 extends BufferSerializer implements Docum
             coding |= 64;
         }
         buf.put(coding);
-        buf.putInt1_4Bytes(stringBytes.length + 1);
+        buf.putInt1_4Bytes(stringBytes.getByteLength() + 1);
 
-        buf.put(stringBytes);
+        buf.put(stringBytes.wrap());
         buf.put(((byte) 0));
 
         Map<String, SpanTree> trees = value.getSpanTreeMap();
@@ -346,7 +347,12 @@ public class VespaDocumentSerializer42 extends BufferSerializer implements Docum
         for (Map.Entry<Field, FieldValue> value : s.getFields()) {
 
             int startPos = buffer.position();
-            value.getValue().serialize(value.getKey(), this);
+            ByteBuffer serialized = s.getSerializedFieldValue(value.getKey());
+            if (serialized != null) {
+                buffer.put(serialized);
+            } else {
+                value.getValue().serialize(value.getKey(), this);
+            }
 
             fieldLengths.add(buffer.position() - startPos);
             fieldIds.add(value.getKey().getId(s.getVersion()));
@@ -1,10 +1,15 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.document.datatypes;
 
+import com.yahoo.text.Utf8;
+import com.yahoo.text.Utf8Array;
 import org.junit.Test;
 
 import static java.lang.Character.MAX_SURROGATE;
 import static java.lang.Character.MIN_SURROGATE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author <a href="mailto:einarmr@yahoo-inc.com">Einar M R Rosenvinge</a>
@@ -95,6 +100,34 @@ public class StringFieldValueTestCase {
         }
     }
 
+    @Test
+    public void requireThatUtf8BackedValueIsDecodedOnDemand() {
+        Utf8Array utf8 = new Utf8Array(Utf8.toBytes("bl\u00e5b\u00e6r"));
+        StringFieldValue value = new StringFieldValue();
+        value.setUnChecked(utf8);
+        assertSame(utf8, value.getUtf8());
+        assertEquals("bl\u00e5b\u00e6r", value.getString());
+        assertSame(value.getString(), value.getString());
+        assertNotSame("Bytes are dropped when decoded", utf8, value.getUtf8());
+        assertEquals(utf8, value.getUtf8());
+        assertEquals(new StringFieldValue("bl\u00e5b\u00e6r"), value);
+        assertEquals(new StringFieldValue("bl\u00e5b\u00e6r").hashCode(), value.hashCode());
+    }
+
+    @Test
+    public void requireThatUtf8IsDroppedWhenValueChanges() {
+        Utf8Array utf8 = new Utf8Array(Utf8.toBytes("foo"));
+        StringFieldValue value = new StringFieldValue();
+        value.setUnChecked(utf8);
+        value.assign("bar");
+        assertNotSame(utf8, value.getUtf8());
+        assertEquals("bar", value.getUtf8().toString());
+
+        value.setUnChecked(utf8);
+        value.clear();
+        assertEquals(0, value.getUtf8().getByteLength());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void requireThatControlCharFails0() {
         new StringFieldValue("\u0000");
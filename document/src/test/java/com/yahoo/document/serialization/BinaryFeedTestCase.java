@@ -0,0 +1,331 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.DocumentUpdate;
+import com.yahoo.document.TestAndSetCondition;
+import com.yahoo.document.datatypes.IntegerFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.update.FieldUpdate;
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests writing and reading document operations in the binary feed format.
+ */
+public class BinaryFeedTestCase {
+
+    private final DocumentTypeManager manager = new DocumentTypeManager();
+    private final DocumentType docType = new DocumentType("my_type");
+
+    public BinaryFeedTestCase() {
+        docType.addField("my_str", DataType.STRING);
+        docType.addField("my_int", DataType.INT);
+        manager.registerDocumentType(docType);
+    }
+
+    @Test
+    public void requireThatOperationsAreReadAsWritten() throws Exception {
+        Document first = createDocument("id:ns:my_type::1");
+        Document second = createDocument("id:ns:my_type::2");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFeedWriter writer = new BinaryFeedWriter(out);
+        writer.writePut(first);
+        writer.writeRemove(new DocumentId("id:ns:my_type::3"));
+        writer.writePut(ByteBuffer.wrap(serialize(second)));
+        writer.close();
+        assertTrue(BinaryFeedReader.isBinaryFeed(out.toByteArray()));
+
+        BinaryFeedReader reader = new BinaryFeedReader(new ByteArrayInputStream(out.toByteArray()), manager);
+        assertEquals(first, read(reader).getDocument());
+        assertEquals(new DocumentId("id:ns:my_type::3"), read(reader).getRemove());
+        assertEquals(second, read(reader).getDocument());
+        assertEquals(VespaXMLFeedReader.OperationType.INVALID, read(reader).getType());
+    }
+
+    @Test
+    public void requireThatUpdatesAndConditionsAreReadAsWritten() throws Exception {
+        DocumentUpdate update = new DocumentUpdate(docType, "id:ns:my_type::1");
+        update.addFieldUpdate(FieldUpdate.createAssign(docType.getField("my_str"), new StringFieldValue("bar")));
+        update.addFieldUpdate(FieldUpdate.createIncrement(docType.getField("my_int"), 1));
+        update.setCreateIfNonExistent(true);
+
+        VespaXMLFeedReader.Operation conditionalUpdate = new VespaXMLFeedReader.Operation();
+        conditionalUpdate.setDocumentUpdate(update);
+        conditionalUpdate.setCondition(new TestAndSetCondition("my_type.my_int == 69"));
+        VespaXMLFeedReader.Operation remove = new VespaXMLFeedReader.Operation();
+        remove.setRemove(new DocumentId("id:ns:my_type::2"));
+        remove.setCondition(TestAndSetCondition.NOT_PRESENT_CONDITION);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFeedWriter writer = new BinaryFeedWriter(out);
+        writer.write(conditionalUpdate);
+        writer.write(remove);
+        writer.close();
+
+        BinaryFeedReader reader = new BinaryFeedReader(new ByteArrayInputStream(out.toByteArray()), manager);
+        VespaXMLFeedReader.Operation operation = read(reader);
+        assertEquals(update, operation.getDocumentUpdate());
+        assertTrue(operation.getDocumentUpdate().getCreateIfNonExistent());
+        assertEquals("my_type.my_int == 69", operation.getCondition().getSelection());
+        operation = read(reader);
+        assertEquals(new DocumentId("id:ns:my_type::2"), operation.getRemove());
+        assertNull(operation.getCondition());
+        assertEquals(VespaXMLFeedReader.OperationType.INVALID, read(reader).getType());
+    }
+
+    @Test
+    public void requireThatDocumentsAreFedAgainAsRead() throws Exception {
+        byte[] serialized = serialize(createDocument("id:ns:my_type::1"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFeedWriter writer = new BinaryFeedWriter(out);
+        writer.writePut(ByteBuffer.wrap(serialized));
+        writer.close();
+
+        Document document = read(new BinaryFeedReader(new ByteArrayInputStream(out.toByteArray()), manager)).getDocument();
+        assertArrayEquals(serialized, serialize(document));
+    }
+
+    @Test
+    public void requireThatMalformedDocumentsAreRejectedUnlessDecodedLazily() throws Exception {
+        byte[] serialized = serialize(createDocument("id:ns:my_type::1"));
+        int value = indexOf(serialized, "foo".getBytes(StandardCharsets.UTF_8));
+        serialized[value - 1] = 0x7f; // string length far beyond the end of the document
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFeedWriter writer = new BinaryFeedWriter(out);
+        writer.writePut(ByteBuffer.wrap(serialized));
+        writer.close();
+
+        try {
+            read(new BinaryFeedReader(new ByteArrayInputStream(out.toByteArray()), manager));
+            fail("Expected exception");
+        } catch (DeserializationException expected) { }
+        Document document = read(new BinaryFeedReader(new ByteArrayInputStream(out.toByteArray()), manager, true, true)).getDocument();
+        assertEquals(new DocumentId("id:ns:my_type::1"), document.getId());
+    }
+
+    @Test
+    public void requireThatOnlyTheRemainingBufferIsWritten() throws Exception {
+        byte[] serialized = serialize(createDocument("id:ns:my_type::1"));
+        ByteBuffer buffer = ByteBuffer.allocate(serialized.length + 10);
+        buffer.position(5);
+        buffer.put(serialized);
+        buffer.position(5);
+        buffer.limit(5 + serialized.length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BinaryFeedWriter(out).writePut(buffer);
+        assertEquals(5, buffer.position());
+
+        Document document = read(new BinaryFeedReader(new ByteArrayInputStream(out.toByteArray()), manager)).getDocument();
+        assertEquals(createDocument("id:ns:my_type::1"), document);
+    }
+
+    @Test
+    public void requireThatDocumentsAreCompressedWithDictionaryOfTheirType() throws Exception {
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        BinaryFeedWriter plainWriter = new BinaryFeedWriter(plain);
+        BinaryFeedWriter compressingWriter = new BinaryFeedWriter(compressed, 10);
+        for (int i = 0; i < 100; i++) {
+            plainWriter.writePut(createDocument("id:ns:my_type::" + i));
+            compressingWriter.writePut(ByteBuffer.wrap(serialize(createDocument("id:ns:my_type::" + i))));
+        }
+        compressingWriter.writeRemove(new DocumentId("id:ns:my_type::100"));
+        plainWriter.close();
+        compressingWriter.close();
+        assertTrue(compressed.size() + " should be much less than " + plain.size(), 2 * compressed.size() < plain.size());
+
+        BinaryFeedReader reader = new BinaryFeedReader(new ByteArrayInputStream(compressed.toByteArray()), manager);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(createDocument("id:ns:my_type::" + i), read(reader).getDocument());
+        }
+        assertEquals(new DocumentId("id:ns:my_type::100"), read(reader).getRemove());
+        assertEquals(VespaXMLFeedReader.OperationType.INVALID, read(reader).getType());
+    }
+
+    @Test
+    public void requireThatSamplingEndsWhenSamplesReachMaxBytes() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        char[] text = new char[CompressionDictionary.MAX_SAMPLE_BYTES / 2];
+        Arrays.fill(text, 'x');
+        List<Document> documents = new ArrayList<>();
+        try (BinaryFeedWriter writer = new BinaryFeedWriter(out, BinaryFeedWriter.MAX_DICTIONARY_SAMPLES)) {
+            for (int i = 0; i < 3; i++) {
+                Document document = createDocument("id:ns:my_type::" + i);
+                document.setFieldValue("my_str", new StringFieldValue(new String(text)));
+                documents.add(document);
+                writer.writePut(document);
+            }
+        }
+        assertTrue("The last document is compressed", out.size() < 2.5 * text.length);
+
+        BinaryFeedReader reader = new BinaryFeedReader(new ByteArrayInputStream(out.toByteArray()), manager);
+        for (Document document : documents)
+            assertEquals(document, read(reader).getDocument());
+        assertEquals(VespaXMLFeedReader.OperationType.INVALID, read(reader).getType());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requireThatTooManyDictionarySamplesAreRejected() throws Exception {
+        new BinaryFeedWriter(new ByteArrayOutputStream(), BinaryFeedWriter.MAX_DICTIONARY_SAMPLES + 1);
+    }
+
+    @Test
+    public void requireThatDocumentTypeIsFoundInSerializedDocument() {
+        assertEquals("my_type", BinaryFeedWriter.documentTypeOf(serialize(createDocument("id:ns:my_type::1"))));
+        assertNull(BinaryFeedWriter.documentTypeOf(new byte[] { 0, 8, 0, 0, 0, 1, 'i', 'd' }));
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void requireThatDocumentCompressedWithUnknownDictionaryFails() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BinaryFeedWriter(out);
+        DataOutputStream entry = new DataOutputStream(out);
+        entry.writeByte(BinaryFeedReader.COMPRESSED_PUT);
+        entry.writeInt(9);
+        entry.writeInt(7);
+        entry.writeInt(100);
+        entry.writeByte(0);
+        read(new BinaryFeedReader(new ByteArrayInputStream(out.toByteArray()), manager));
+    }
+
+    @Test
+    public void requireThatOtherFormatsAreNotMistakenForTheBinaryFeedFormat() {
+        assertFalse(BinaryFeedReader.isBinaryFeed("[{\"put\": \"id:ns:my_type::1\"}]".getBytes()));
+        assertFalse(BinaryFeedReader.isBinaryFeed("<vespafeed>".getBytes()));
+        assertFalse(BinaryFeedReader.isBinaryFeed(new byte[] { 'V' }));
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void requireThatStreamMustStartWithHeader() throws Exception {
+        read(new BinaryFeedReader(new ByteArrayInputStream("<vespafeed>".getBytes()), manager));
+    }
+
+    @Test(expected = EOFException.class)
+    public void requireThatTruncatedEntryFails() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BinaryFeedWriter(out).writePut(createDocument("id:ns:my_type::1"));
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+        read(new BinaryFeedReader(new ByteArrayInputStream(truncated), manager));
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void requireThatNegativeEntryLengthFails() throws Exception {
+        read(new BinaryFeedReader(new ByteArrayInputStream(new byte[] { 'V', 'B', 'F', 1, 1, -1, -1, -1, -1 }), manager));
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void requireThatTooLargeEntryLengthFails() throws Exception {
+        read(new BinaryFeedReader(new ByteArrayInputStream(new byte[] { 'V', 'B', 'F', 1, 1, 0x7f, -1, -1, -1 }), manager));
+    }
+
+    @Test(expected = EOFException.class)
+    public void requireThatEntryLongerThanStreamFails() throws Exception {
+        int length = BinaryFeedReader.MAX_ENTRY_SIZE;
+        byte[] feed = { 'V', 'B', 'F', 1, 1, (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8),
+                        (byte) length, 0, 8 };
+        read(new BinaryFeedReader(new ByteArrayInputStream(feed), manager));
+    }
+
+    @Test
+    public void requireThatLongRunsOfDictionariesAreRead() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] { 'V', 'B', 'F', 1 });
+        for (int i = 0; i < 100000; i++)
+            out.write(new byte[] { 3, 0, 0, 0, 5, 0, 0, 0, 0, 'x' });
+        out.write(new byte[] { 2, 0, 0, 0, 16 });
+        out.write("id:ns:my_type::1".getBytes(StandardCharsets.UTF_8));
+        assertEquals(new DocumentId("id:ns:my_type::1"),
+                     read(new BinaryFeedReader(new ByteArrayInputStream(out.toByteArray()), manager)).getRemove());
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void requireThatConditionFollowedByConditionFails() throws Exception {
+        byte[] condition = { 6, 0, 0, 0, 4, 't', 'r', 'u', 'e' };
+        read(new BinaryFeedReader(new ByteArrayInputStream(bytes(new byte[] { 'V', 'B', 'F', 1 }, condition, condition)),
+                                  manager));
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void requireThatTooManyDictionariesFail() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] { 'V', 'B', 'F', 1 });
+        for (int i = 0; i <= BinaryFeedReader.MAX_DICTIONARIES; i++)
+            out.write(new byte[] { 3, 0, 0, 0, 4, (byte) (i >>> 24), (byte) (i >>> 16), (byte) (i >>> 8), (byte) i });
+        read(new BinaryFeedReader(new ByteArrayInputStream(out.toByteArray()), manager));
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void requireThatTooLargeUncompressedSizeFails() throws Exception {
+        byte[] feed = { 'V', 'B', 'F', 1, 3, 0, 0, 0, 4, 0, 0, 0, 0,
+                        4, 0, 0, 0, 9, 0, 0, 0, 0, 0x7f, -1, -1, -1, 0 };
+        read(new BinaryFeedReader(new ByteArrayInputStream(feed), manager));
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void requireThatDictionariesAreRejectedWhenNotAllowed() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinaryFeedWriter writer = new BinaryFeedWriter(out, 1)) {
+            writer.writePut(createDocument("id:ns:my_type::1"));
+        }
+        read(new BinaryFeedReader(new ByteArrayInputStream(out.toByteArray()), manager, false));
+    }
+
+    private static int indexOf(byte[] array, byte[] part) {
+        for (int i = 0; i + part.length <= array.length; i++)
+            if (Arrays.equals(part, Arrays.copyOfRange(array, i, i + part.length)))
+                return i;
+        throw new IllegalArgumentException("Not found");
+    }
+
+    private static byte[] bytes(byte[] ... parts) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts)
+            out.write(part);
+        return out.toByteArray();
+    }
+
+    private Document createDocument(String id) {
+        Document doc = new Document(docType, id);
+        doc.setFieldValue("my_str", new StringFieldValue("foo"));
+        doc.setFieldValue("my_int", new IntegerFieldValue(69));
+        return doc;
+    }
+
+    private static byte[] serialize(Document doc) {
+        GrowableByteBuffer buf = new GrowableByteBuffer();
+        doc.serialize(buf);
+        buf.flip();
+        return Arrays.copyOf(buf.array(), buf.limit());
+    }
+
+    private static VespaXMLFeedReader.Operation read(BinaryFeedReader reader) throws Exception {
+        VespaXMLFeedReader.Operation operation = new VespaXMLFeedReader.Operation();
+        reader.read(operation);
+        return operation;
+    }
+
+}
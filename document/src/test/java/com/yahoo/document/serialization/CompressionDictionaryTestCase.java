@@ -0,0 +1,150 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.datatypes.DoubleFieldValue;
+import com.yahoo.document.datatypes.IntegerFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.io.GrowableByteBuffer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests training compression dictionaries from documents, and compressing documents with them.
+ */
+public class CompressionDictionaryTestCase {
+
+    private static final String[] brands = { "Acme", "Globex", "Initech", "Umbrella", "Hooli", "Stark" };
+    private static final String[] categories = { "electronics/audio/headphones", "electronics/computers/laptops",
+                                                 "home/kitchen/appliances", "sports/outdoor/camping" };
+
+    private final DocumentType docType = new DocumentType("product");
+    private final Random random = new Random(42);
+
+    public CompressionDictionaryTestCase() {
+        docType.addField("title", DataType.STRING);
+        docType.addField("brand", DataType.STRING);
+        docType.addField("category", DataType.STRING);
+        docType.addField("description", DataType.STRING);
+        docType.addField("price", DataType.DOUBLE);
+        docType.addField("stock", DataType.INT);
+    }
+
+    @Test
+    public void requireThatSmallDocumentsCompressMuchBetterWithTrainedDictionary() {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            samples.add(serialize(createProduct(i)));
+        CompressionDictionary dictionary = CompressionDictionary.train(1, samples, CompressionDictionary.MAX_SIZE);
+        CompressionDictionary empty = new CompressionDictionary(2, new byte[0]);
+
+        long size = 0, withoutDictionary = 0, withDictionary = 0;
+        for (int i = 100; i < 200; i++) {
+            byte[] document = serialize(createProduct(i));
+            size += document.length;
+            withoutDictionary += empty.compress(document, 0, document.length).length;
+            byte[] compressed = dictionary.compress(document, 0, document.length);
+            withDictionary += compressed.length;
+            assertArrayEquals(document, dictionary.decompress(compressed, document.length));
+        }
+        assertTrue("Documents should be around 500 bytes, were " + size / 100, size / 100 > 350 && size / 100 < 650);
+        assertTrue("Dictionary should at least halve the compressed size: " + withDictionary + " vs " + withoutDictionary,
+                   2 * withDictionary < withoutDictionary);
+        assertTrue("Documents should compress to less than a third: " + withDictionary + " of " + size,
+                   3 * withDictionary < size);
+    }
+
+    @Test
+    public void requireThatDictionaryIsLimitedToMaxSize() {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            samples.add(serialize(createProduct(i)));
+        assertTrue(CompressionDictionary.train(1, samples, 1000).data().length <= 1000);
+        assertEquals(0, CompressionDictionary.train(1, samples, 0).data().length);
+    }
+
+    @Test
+    public void requireThatSamplesBeyondMaxSampleBytesAreIgnored() {
+        byte[] document = serialize(createProduct(0));
+        assertTrue(CompressionDictionary.train(1, Arrays.asList(new byte[1000], document, document), 1000).data().length > 0);
+        assertEquals(0, CompressionDictionary.train(1, Arrays.asList(new byte[CompressionDictionary.MAX_SAMPLE_BYTES], document, document),
+                                                    1000).data().length);
+    }
+
+    @Test
+    public void requireThatNothingIsTrainedFromUnrelatedSamples() {
+        byte[] first = new byte[1000];
+        byte[] second = new byte[1000];
+        random.nextBytes(first);
+        random.nextBytes(second);
+        assertEquals(0, CompressionDictionary.train(1, Arrays.asList(first, second), 1000).data().length);
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void requireThatDataCompressedWithAnotherDictionaryFails() {
+        byte[] document = serialize(createProduct(0));
+        byte[] compressed = new CompressionDictionary(1, serialize(createProduct(1))).compress(document, 0, document.length);
+        new CompressionDictionary(2, new byte[] { 1, 2, 3 }).decompress(compressed, document.length);
+    }
+
+    @Test
+    public void requireThatCorruptUncompressedSizeDoesNotAllocateIt() {
+        byte[] document = serialize(createProduct(0));
+        CompressionDictionary dictionary = new CompressionDictionary(1, serialize(createProduct(1)));
+        byte[] compressed = dictionary.compress(document, 0, document.length);
+        try {
+            dictionary.decompress(compressed, Integer.MAX_VALUE);
+            fail("Expected exception");
+        } catch (DeserializationException e) {
+            assertEquals("Data compressed with dictionary 1 decompressed to " + document.length +
+                         " bytes, expected " + Integer.MAX_VALUE, e.getMessage());
+        }
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void requireThatNegativeUncompressedSizeIsRejected() {
+        new CompressionDictionary(1, new byte[0]).decompress(new byte[] { 3, 0 }, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requireThatTooLargeDictionariesAreRejected() {
+        new CompressionDictionary(1, new byte[CompressionDictionary.MAX_SIZE + 1]);
+    }
+
+    private Document createProduct(int i) {
+        Document doc = new Document(docType, "id:shop:product::" + (1000000 + i));
+        String brand = brands[random.nextInt(brands.length)];
+        String category = categories[random.nextInt(categories.length)];
+        doc.setFieldValue("title", new StringFieldValue(brand + " " + category.substring(category.lastIndexOf('/') + 1) +
+                                                        " model " + random.nextInt(1000)));
+        doc.setFieldValue("brand", new StringFieldValue(brand));
+        doc.setFieldValue("category", new StringFieldValue(category));
+        doc.setFieldValue("description", new StringFieldValue(
+                "High quality product from " + brand + ", with free shipping and a two year warranty. " +
+                "Available in black, white and silver. Rated " + (1 + random.nextInt(5)) + " out of 5 stars by our " +
+                "customers. Order before noon for delivery the next business day. Returns are free within 30 days " +
+                "of purchase, see our return policy for details. Item number " + random.nextInt(100000) + "."));
+        doc.setFieldValue("price", new DoubleFieldValue(random.nextInt(100000) / 100.0));
+        doc.setFieldValue("stock", new IntegerFieldValue(random.nextInt(500)));
+        return doc;
+    }
+
+    private static byte[] serialize(Document doc) {
+        GrowableByteBuffer buf = new GrowableByteBuffer();
+        doc.serialize(buf);
+        buf.flip();
+        return Arrays.copyOf(buf.array(), buf.limit());
+    }
+
+}
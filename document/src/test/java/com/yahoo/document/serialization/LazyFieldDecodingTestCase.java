@@ -0,0 +1,169 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.datatypes.IntegerFieldValue;
+import com.yahoo.document.datatypes.MapFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.datatypes.Struct;
+import com.yahoo.io.GrowableByteBuffer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests documents de-serialized with lazy field decoding.
+ */
+public class LazyFieldDecodingTestCase {
+
+    private final DocumentTypeManager manager = new DocumentTypeManager();
+    private final DocumentType docType = new DocumentType("my_type");
+
+    public LazyFieldDecodingTestCase() {
+        docType.addHeaderField("my_str", DataType.STRING);
+        docType.addHeaderField("my_int", DataType.INT);
+        docType.addField("my_body_str", DataType.STRING);
+        manager.registerDocumentType(docType);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void requireThatFieldsAreDecodedWhenAccessed() {
+        Document doc = createDocument();
+        Document lazy = lazyDeserialize(serialize(doc));
+
+        Field field = docType.getField("my_str");
+        assertNotNull(lazy.getHeader().getSerializedFieldValue(field));
+        assertEquals(new StringFieldValue("foo"), lazy.getFieldValue(field));
+        assertNull(lazy.getHeader().getSerializedFieldValue(field));
+        assertNotNull(lazy.getHeader().getSerializedFieldValue(docType.getField("my_int")));
+        assertEquals(doc, lazy);
+    }
+
+    @Test
+    public void requireThatUntouchedFieldsAreSerializedAsReceived() {
+        byte[] serialized = serialize(createDocument());
+        Document lazy = lazyDeserialize(serialized);
+        assertEquals(new IntegerFieldValue(69), lazy.getFieldValue("my_int"));
+        assertArrayEquals(serialized, serialize(lazy));
+    }
+
+    @Test
+    public void requireThatModifiedFieldsAreSerializedWithTheUntouchedFields() {
+        Document lazy = lazyDeserialize(serialize(createDocument()));
+        lazy.setFieldValue("my_str", new StringFieldValue("bar"));
+        lazy.removeFieldValue("my_int");
+
+        Document result = manager.createDocument(GrowableByteBuffer.wrap(serialize(lazy)));
+        assertEquals(new StringFieldValue("bar"), result.getFieldValue("my_str"));
+        assertNull(result.getFieldValue("my_int"));
+        assertEquals(new StringFieldValue("body"), result.getFieldValue("my_body_str"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void requireThatSettingAFieldReplacesItsSerializedForm() {
+        Document lazy = lazyDeserialize(serialize(createDocument()));
+        Field field = docType.getField("my_str");
+        lazy.setFieldValue(field, new StringFieldValue("bar"));
+        assertNull(lazy.getHeader().getSerializedFieldValue(field));
+        assertEquals(new StringFieldValue("bar"), lazy.getFieldValue(field));
+        assertEquals(new StringFieldValue("bar"),
+                     manager.createDocument(GrowableByteBuffer.wrap(serialize(lazy))).getFieldValue(field));
+
+        lazy.getHeader().clear();
+        assertNull(lazy.getHeader().getSerializedFieldValue(docType.getField("my_int")));
+        assertNull(lazy.getFieldValue("my_int"));
+    }
+
+    @Test
+    public void requireThatCompressedStructsCanBeDecodedLazily() {
+        VespaDocumentSerializerTestCase.CompressionFixture fixture = new VespaDocumentSerializerTestCase.CompressionFixture();
+        Document doc = new Document(fixture.docType, "id:foo:map_of_structs::flarn");
+        Struct nested = new Struct(fixture.nestedType);
+        nested.setFieldValue("str", new StringFieldValue(VespaDocumentSerializerTestCase.CompressionFixture.COMPRESSABLE_STRING));
+        MapFieldValue<StringFieldValue, Struct> map = new MapFieldValue<>(fixture.mapType);
+        map.put(new StringFieldValue("foo"), nested);
+        map.put(new StringFieldValue("bar"), nested);
+        doc.setFieldValue("map", map);
+
+        GrowableByteBuffer buf = VespaDocumentSerializerTestCase.CompressionFixture.asSerialized(doc);
+        Document lazy = new Document(DocumentDeserializerFactory.createLazyHead(fixture.manager, buf));
+        assertEquals(doc, lazy);
+    }
+
+    @Test
+    public void requireThatFieldsCanBeDecodedByConcurrentReaders() throws Exception {
+        Document doc = createDocument();
+        byte[] serialized = serialize(doc);
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < 100; i++) {
+                Document lazy = lazyDeserialize(serialized);
+                CyclicBarrier barrier = new CyclicBarrier(threads);
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int thread = 0; thread < threads; thread++) {
+                    results.add(executor.submit(() -> {
+                        barrier.await();
+                        return doc.getFieldValue("my_str").equals(lazy.getFieldValue("my_str")) &&
+                               doc.getFieldValue("my_int").equals(lazy.getFieldValue("my_int")) &&
+                               doc.getFieldValue("my_body_str").equals(lazy.getFieldValue("my_body_str"));
+                    }));
+                }
+                for (Future<Boolean> result : results)
+                    assertTrue(result.get());
+                assertArrayEquals(serialized, serialize(lazy));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void requireThatClonesDecodeIndependently() {
+        Document lazy = lazyDeserialize(serialize(createDocument()));
+        Document clone = lazy.clone();
+        assertEquals(new StringFieldValue("foo"), clone.getFieldValue("my_str"));
+        assertNull(clone.getHeader().getSerializedFieldValue(docType.getField("my_str")));
+        assertNotNull(lazy.getHeader().getSerializedFieldValue(docType.getField("my_str")));
+        assertEquals(lazy, clone);
+    }
+
+    private Document createDocument() {
+        Document doc = new Document(docType, "id:ns:my_type::1");
+        doc.setFieldValue("my_str", new StringFieldValue("foo"));
+        doc.setFieldValue("my_int", new IntegerFieldValue(69));
+        doc.setFieldValue("my_body_str", new StringFieldValue("body"));
+        return doc;
+    }
+
+    private static byte[] serialize(Document doc) {
+        GrowableByteBuffer buf = new GrowableByteBuffer();
+        doc.serialize(buf);
+        buf.flip();
+        return Arrays.copyOf(buf.array(), buf.limit());
+    }
+
+    private Document lazyDeserialize(byte[] serialized) {
+        return new Document(DocumentDeserializerFactory.createLazyHead(manager, GrowableByteBuffer.wrap(serialized)));
+    }
+
+}
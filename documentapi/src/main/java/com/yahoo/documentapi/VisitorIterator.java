@@ -10,6 +10,7 @@ import com.yahoo.log.LogLevel;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.logging.Logger;
 
 /**
@@ -75,18 +76,40 @@ public class VisitorIterator {
 
     /**
      * Provides a bucket source that encompasses the entire range available
-     * through a given value of distribution bits
+     * through a given value of distribution bits, or one slice of it.
+     *
+     * A slice is a contiguous range of the bucket cursor positions, which covers
+     * the same part of the bucket space for any distribution bit count of at least
+     * log2(slices) bits. Buckets outside the slice are counted as finished by its
+     * progress token, such that the unfinished parts of the progress tokens of all
+     * the slices add up to what is unfinished for the whole bucket space.
+     * The bucket space of a slice therefore always uses at least log2(slices)
+     * distribution bits, even when fewer are requested, as the slices would
+     * otherwise overlap. Visiting such buckets is like visiting sub-buckets.
      */
     protected static class DistributionRangeBucketSource implements BucketSource {
         private boolean flushActive = false;
         private int distributionBitCount;
+        private final int sliceBits;
+        private final int sliceId;
         // Wouldn't need this if this were a non-static class, but do it for
         // the sake of keeping things identical in Java and C++
         private ProgressToken progressToken;
 
         public DistributionRangeBucketSource(int distributionBitCount,
                                              ProgressToken progress) {
+            this(distributionBitCount, progress, 1, 0);
+        }
+
+        public DistributionRangeBucketSource(int distributionBitCount,
+                                             ProgressToken progress,
+                                             int slices,
+                                             int sliceId) {
+            assert(Integer.bitCount(slices) == 1 && sliceId >= 0 && sliceId < slices) : "invalid slice";
+            this.sliceBits = Integer.numberOfTrailingZeros(slices);
+            this.sliceId = sliceId;
             progressToken = progress;
+            distributionBitCount = Math.max(distributionBitCount, sliceBits);
 
             // New progress token (could also be empty, in which this is a
             // no-op anyway)
@@ -106,6 +129,10 @@ public class VisitorIterator {
                     throw new IllegalArgumentException("Total bucket count in existing progress is not "
                             + "consistent with that of the current document selection");
                 }
+                if (this.distributionBitCount < sliceBits) {
+                    throw new IllegalArgumentException("Existing progress has " + this.distributionBitCount +
+                            " distribution bits, which is too few for " + (1 << sliceBits) + " slices");
+                }
             }
 
             if (!progress.isFinished()) {
@@ -140,6 +167,7 @@ public class VisitorIterator {
                                 "from position " + progressToken.getBucketCursor());
                     }
                 }
+                skipBucketsOutsideSlice();
                 progressToken.setFinishedBucketCount(progressToken.getBucketCursor() -
                         progressToken.getPendingBucketCount());
             } else {
@@ -308,11 +336,40 @@ public class VisitorIterator {
             return 1L << distributionBitCount;
         }
 
+        /** Returns the first bucket cursor position of the slice of this, at the current distribution bit count */
+        private long sliceBegin() {
+            return (long)sliceId << (distributionBitCount - sliceBits);
+        }
+
+        /** Returns the bucket cursor position past the slice of this, at the current distribution bit count */
+        private long sliceEnd() {
+            return (long)(sliceId + 1) << (distributionBitCount - sliceBits);
+        }
+
+        /**
+         * Moves the bucket cursor past any buckets outside the slice of this. These are added to the
+         * finished bucket count, as another slice is responsible for them.
+         */
+        private void skipBucketsOutsideSlice() {
+            long cursor = progressToken.getBucketCursor();
+            long skipTo = cursor;
+            if (cursor < sliceBegin()) {
+                skipTo = sliceBegin();
+            } else if (cursor >= sliceEnd()) {
+                skipTo = 1L << distributionBitCount;
+            }
+            progressToken.setBucketCursor(skipTo);
+            progressToken.setFinishedBucketCount(progressToken.getFinishedBucketCount() + skipTo - cursor);
+        }
+
         public BucketProgress getNext() {
             assert(hasNext()) : "getNext() called with hasNext() == false";
             long currentPosition = progressToken.getBucketCursor();
             long key = ProgressToken.makeNthBucketKey(currentPosition, distributionBitCount);
             ++currentPosition;
+            if (currentPosition >= sliceEnd()) {
+                currentPosition = 1L << distributionBitCount; // finished count is corrected on update
+            }
             progressToken.setBucketCursor(currentPosition);
             return new BucketProgress(
                     new BucketId(ProgressToken.keyToBucketId(key)),
@@ -326,6 +383,7 @@ public class VisitorIterator {
         public void setDistributionBitCount(int distributionBitCount,
                                             ProgressToken progress)
         {
+            distributionBitCount = Math.max(distributionBitCount, sliceBits);
             this.distributionBitCount = distributionBitCount;
 
             // There might be a case where we're waiting for active buckets
@@ -372,6 +430,7 @@ public class VisitorIterator {
                 progressToken.setDistributionBitCount(distributionBitCount);
 
                 correctTruncatedBucketCursor();
+                skipBucketsOutsideSlice();
                 progressToken.setInconsistentState(false);
             }
         }
@@ -753,6 +812,27 @@ public class VisitorIterator {
             BucketIdFactory idFactory,
             int distributionBitCount,
             ProgressToken progress) throws ParseException {
+        return createFromDocumentSelection(documentSelection, idFactory, distributionBitCount, progress, 1, 0);
+    }
+
+    /**
+     * Create a new <code>VisitorIterator</code> instance based on the given document
+     * selection string, which iterates over only one slice of the buckets it selects.
+     * Iterators for each of the slices of the same selection together iterate over all its buckets,
+     * and each may be used concurrently with the others as long as each has its own progress token.
+     *
+     * @param slices The number of slices to partition the buckets into. Must be a power of two
+     * @param sliceId The slice to iterate over, in the range [0, slices)
+     * @see #createFromDocumentSelection(String, BucketIdFactory, int, ProgressToken)
+     * @see VisitorParameters#slice(int, int)
+     */
+    public static VisitorIterator createFromDocumentSelection(
+            String documentSelection,
+            BucketIdFactory idFactory,
+            int distributionBitCount,
+            ProgressToken progress,
+            int slices,
+            int sliceId) throws ParseException {
         BucketSelector bucketSel = new BucketSelector(idFactory);
         Set<BucketId> rawBuckets = bucketSel.getBucketList(documentSelection);
         BucketSource src;
@@ -762,10 +842,10 @@ public class VisitorIterator {
         // bit-based range source
         if (rawBuckets == null) {
             // Range source
-            src = new DistributionRangeBucketSource(distributionBitCount, progress);
+            src = new DistributionRangeBucketSource(distributionBitCount, progress, slices, sliceId);
         } else {
             // Explicit source
-            src = new ExplicitBucketSource(rawBuckets, distributionBitCount, progress);
+            src = new ExplicitBucketSource(slice(rawBuckets, slices, sliceId), distributionBitCount, progress);
         }
 
         return new VisitorIterator(progress, src);
@@ -789,9 +869,39 @@ public class VisitorIterator {
             Set<BucketId> bucketsToVisit,
             int distributionBitCount,
             ProgressToken progress) {
+        return createFromExplicitBucketSet(bucketsToVisit, distributionBitCount, progress, 1, 0);
+    }
+
+    /**
+     * Create a new <code>VisitorIterator</code> instance which iterates over only
+     * one slice of the given set of buckets.
+     *
+     * @param slices The number of slices to partition the buckets into
+     * @param sliceId The slice to iterate over, in the range [0, slices)
+     * @see #createFromExplicitBucketSet(Set, int, ProgressToken)
+     */
+    public static VisitorIterator createFromExplicitBucketSet(
+            Set<BucketId> bucketsToVisit,
+            int distributionBitCount,
+            ProgressToken progress,
+            int slices,
+            int sliceId) {
         // For obvious reasons, always create an explicit source here
-        BucketSource src = new ExplicitBucketSource(bucketsToVisit,
+        BucketSource src = new ExplicitBucketSource(slice(bucketsToVisit, slices, sliceId),
                 distributionBitCount, progress);
         return new VisitorIterator(progress, src);
     }
+
+    /** Returns every slices'th of the given buckets, in bucket order, starting at the sliceId'th */
+    private static Set<BucketId> slice(Set<BucketId> buckets, int slices, int sliceId) {
+        if (slices == 1) return buckets;
+        Set<BucketId> slice = new TreeSet<BucketId>();
+        int index = 0;
+        for (BucketId bucket : new TreeSet<BucketId>(buckets)) {
+            if (index++ % slices == sliceId) {
+                slice.add(bucket);
+            }
+        }
+        return slice;
+    }
 }
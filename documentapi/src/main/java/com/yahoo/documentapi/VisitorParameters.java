@@ -50,6 +50,8 @@ public class VisitorParameters extends Parameters {
     private int traceLevel = 0;
     private ThrottlePolicy throttlePolicy = null;
     private boolean skipBucketsOnFatalErrors = false;
+    private int slices = 1;
+    private int sliceId = 0;
 
     // Advanced parameter, only for internal use.
     Set<BucketId> bucketsToVisit = null;
@@ -102,6 +104,7 @@ public class VisitorParameters extends Parameters {
                 params.getDynamicMaxBucketsIncreaseFactor());
         setTraceLevel(params.getTraceLevel());
         skipBucketsOnFatalErrors(params.skipBucketsOnFatalErrors());
+        slice(params.getSlices(), params.getSliceId());
     }
 
     // Get functions
@@ -333,6 +336,31 @@ public class VisitorParameters extends Parameters {
 
     public void skipBucketsOnFatalErrors(boolean skipBucketsOnFatalErrors) { this.skipBucketsOnFatalErrors = skipBucketsOnFatalErrors; }
 
+    /**
+     * Restricts visiting to one of a number of disjoint slices of the bucket space, such that sessions
+     * visiting each slice of the same selection together visit all of it. Each slice has its own progress.
+     *
+     * @param slices the number of slices to partition the bucket space into; must be a power of two
+     * @param sliceId the slice to visit, in the range [0, slices)
+     * @throws IllegalArgumentException if slices is not a positive power of two, or sliceId is out of range
+     */
+    public void slice(int slices, int sliceId) {
+        if (slices < 1 || Integer.bitCount(slices) != 1) {
+            throw new IllegalArgumentException("Number of slices must be a positive power of two, was " + slices);
+        }
+        if (sliceId < 0 || sliceId >= slices) {
+            throw new IllegalArgumentException("Slice id must be in the range [0, " + slices + "), was " + sliceId);
+        }
+        this.slices = slices;
+        this.sliceId = sliceId;
+    }
+
+    /** Returns the number of slices the bucket space is partitioned into. 1 means the whole bucket space is visited. */
+    public int getSlices() { return slices; }
+
+    /** Returns which of the slices of the bucket space to visit */
+    public int getSliceId() { return sliceId; }
+
     /**
      * Set whether or not max buckets per visitor value should be dynamically
      * increased when using orderdoc and visitors do not return at least half
@@ -382,6 +410,9 @@ public class VisitorParameters extends Parameters {
         sb.append("  Visitor ordering:   ").append(visitorOrdering).append('\n');
         sb.append("  Max buckets:        ").append(maxBucketsPerVisitor).append('\n');
         sb.append("  Priority:           ").append(getPriority().toString()).append('\n');
+        if (slices > 1) {
+            sb.append("  Slice:              ").append(sliceId).append(" of ").append(slices).append('\n');
+        }
         if (dynamicallyIncreaseMaxBucketsPerVisitor) {
             sb.append("  Dynamically increasing max buckets per visitor\n");
             sb.append("  Increase factor:    ")
@@ -548,7 +548,9 @@ public class MessageBusVisitorSession implements VisitorSession {
                     params.getDocumentSelection(),
                     bucketIdFactory,
                     1,
-                    progressToken);
+                    progressToken,
+                    params.getSlices(),
+                    params.getSliceId());
         } else {
             if (log.isLoggable(LogLevel.DEBUG)) {
                 log.log(LogLevel.DEBUG, "parameters specify explicit bucket set " +
@@ -562,7 +564,9 @@ public class MessageBusVisitorSession implements VisitorSession {
             visitorIterator = VisitorIterator.createFromExplicitBucketSet(
                     params.getBucketsToVisit(),
                     1,
-                    progressToken);
+                    progressToken,
+                    params.getSlices(),
+                    params.getSliceId());
         }
         return new VisitingProgress(visitorIterator, progressToken);
     }
@@ -18,6 +18,7 @@ public class PutDocumentMessage extends TestAndSetMessage {
     private DocumentPut put = null;
     private long time = 0;
     private LazyDecoder decoder = null;
+    private boolean lazyFieldDecoding = false;
 
     /**
      * Constructs a new message for deserialization.
@@ -64,6 +65,26 @@ public class PutDocumentMessage extends TestAndSetMessage {
         }
     }
 
+    /**
+     * Sets whether the fields of the document of this should be decoded when they are first accessed, instead of
+     * when the document is. Fields which are never accessed are then passed on as they were received if the
+     * document is sent again. This has no effect if the document has already been decoded.
+     *
+     * @param lazyFieldDecoding Whether to decode the fields of the document when they are accessed.
+     */
+    public void setLazyFieldDecoding(boolean lazyFieldDecoding) {
+        this.lazyFieldDecoding = lazyFieldDecoding;
+    }
+
+    /**
+     * Returns whether the fields of the document of this are decoded when they are first accessed.
+     *
+     * @return True if fields are decoded when accessed.
+     */
+    public boolean getLazyFieldDecoding() {
+        return lazyFieldDecoding;
+    }
+
     /**
      * Returns the document put operation
      */
@@ -114,6 +135,24 @@ public class PutDocumentMessage extends TestAndSetMessage {
         return buffer != null ? buffer.getBuf().getByteBuffer() : null; // TODO: very dirty. Must make interface.
     }
 
+    /**
+     * Returns the document of this message in serialized form, as it was received from across the network. This
+     * allows passing the document on without deserializing and serializing it again. The returned buffer shares
+     * content with this message and must not be modified. This method will return null if the message has been
+     * decoded, in which case the document must be retrieved through {@link #getDocumentPut()}.
+     *
+     * @return The buffer containing the serialized document, or null.
+     */
+    public ByteBuffer getSerializedDocument() {
+        ByteBuffer serialized = getSerializedBuffer();
+        if (serialized == null) {
+            return null;
+        }
+        ByteBuffer document = serialized.slice();
+        document.limit(2 + 4 + document.getInt(2)); // version and length precede the document data
+        return document;
+    }
+
     @Override
     public DocumentReply createReply() {
         return new WriteDocumentReply(DocumentProtocol.REPLY_PUTDOCUMENT);
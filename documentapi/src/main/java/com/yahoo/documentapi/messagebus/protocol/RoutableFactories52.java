@@ -11,6 +11,7 @@ import com.yahoo.document.TestAndSetCondition;
 import com.yahoo.document.serialization.DocumentDeserializer;
 import com.yahoo.document.serialization.DocumentSerializer;
 import com.yahoo.document.serialization.DocumentSerializerFactory;
+import com.yahoo.document.serialization.VespaDocumentDeserializerHead;
 import com.yahoo.documentapi.messagebus.loadtypes.LoadTypeSet;
 import com.yahoo.log.LogLevel;
 import com.yahoo.messagebus.Routable;
@@ -609,6 +610,9 @@ public abstract class RoutableFactories52 {
 
     public static class PutDocumentMessageFactory extends DocumentMessageFactory {
         protected void decodeInto(PutDocumentMessage msg, DocumentDeserializer buf) {
+            if (msg.getLazyFieldDecoding() && buf instanceof VespaDocumentDeserializerHead) {
+                ((VespaDocumentDeserializerHead)buf).setLazyFieldDecoding(true);
+            }
             msg.setDocumentPut(new DocumentPut(Document.createDocument(buf)));
             msg.setTimestamp(buf.getLong(null));
             decodeTasCondition(msg, buf);
@@ -1557,6 +1557,99 @@ public class VisitorIteratorTestCase {
         assertTrue(caughtIt);
     }
 
+    @Test
+    public void testSlicesVisitDisjointPartsOfBucketSpace() throws ParseException {
+        int db = 3;
+        int slices = 4;
+        BucketIdFactory idFactory = new BucketIdFactory();
+        Set<BucketId> visited = new TreeSet<BucketId>();
+        for (int sliceId = 0; sliceId < slices; ++sliceId) {
+            ProgressToken p = new ProgressToken();
+            VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                    "id.group != \"yahoo.com\"", idFactory, db, p, slices, sliceId);
+            assertEquals(2 * sliceId, p.getFinishedBucketCount()); // the buckets of the slices before this
+            for (int i = 0; i < 2; ++i) {
+                assertTrue(iter.hasNext());
+                VisitorIterator.BucketProgress bp = iter.getNext();
+                assertTrue(visited.add(bp.getSuperbucket()));
+                iter.update(bp.getSuperbucket(), ProgressToken.FINISHED_BUCKET);
+            }
+            assertFalse(iter.hasNext());
+            assertTrue(iter.isDone());
+            assertTrue(p.isFinished());
+            assertEquals(100.0, p.percentFinished(), 0.0);
+        }
+        assertEquals(8, visited.size());
+    }
+
+    @Test
+    public void testSliceIsKeptWhenDistributionBitsIncrease() throws ParseException {
+        int db = 2;
+        BucketIdFactory idFactory = new BucketIdFactory();
+        ProgressToken p = new ProgressToken();
+        // The second of two slices is cursor positions 2 and 3, i.e. buckets 1 and 3
+        VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                "id.group != \"yahoo.com\"", idFactory, db, p, 2, 1);
+
+        VisitorIterator.BucketProgress bp = iter.getNext();
+        assertEquals(new BucketId(db, 1), bp.getSuperbucket());
+        iter.update(bp.getSuperbucket(), ProgressToken.FINISHED_BUCKET);
+
+        // What remains of the slice is bucket 3, which is now split in buckets 3 and 7
+        iter.setDistributionBitCount(db + 1);
+        int[] desired = new int[] { 3, 7 };
+        for (int i = 0; i < desired.length; ++i) {
+            bp = iter.getNext();
+            assertEquals(new BucketId(db + 1, desired[i]), bp.getSuperbucket());
+            iter.update(bp.getSuperbucket(), ProgressToken.FINISHED_BUCKET);
+        }
+        assertTrue(iter.isDone());
+        assertTrue(p.isFinished());
+    }
+
+    @Test
+    public void testSlicesDoNotOverlapWithFewerDistributionBitsThanSliceBits() throws ParseException {
+        int slices = 4;
+        BucketIdFactory idFactory = new BucketIdFactory();
+        Set<BucketId> visited = new TreeSet<BucketId>();
+        for (int sliceId = 0; sliceId < slices; ++sliceId) {
+            ProgressToken p = new ProgressToken();
+            VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                    "id.group != \"yahoo.com\"", idFactory, 1, p, slices, sliceId);
+            assertEquals(2, p.getDistributionBitCount());
+            iter.setDistributionBitCount(1); // as when the cluster has fewer distribution bits
+            assertEquals(2, p.getDistributionBitCount());
+            while (iter.hasNext()) {
+                VisitorIterator.BucketProgress bp = iter.getNext();
+                assertTrue(visited.add(bp.getSuperbucket()));
+                iter.update(bp.getSuperbucket(), ProgressToken.FINISHED_BUCKET);
+            }
+            assertTrue(p.isFinished());
+        }
+        assertEquals(4, visited.size());
+    }
+
+    @Test
+    public void testSlicesOfExplicitBucketSet() {
+        Set<BucketId> buckets = new TreeSet<BucketId>();
+        for (int i = 0; i < 5; ++i) {
+            buckets.add(new BucketId(32, 1000 + i));
+        }
+        Set<BucketId> visited = new TreeSet<BucketId>();
+        for (int sliceId = 0; sliceId < 2; ++sliceId) {
+            ProgressToken p = new ProgressToken();
+            VisitorIterator iter = VisitorIterator.createFromExplicitBucketSet(buckets, 16, p, 2, sliceId);
+            assertEquals(sliceId == 0 ? 3 : 2, p.getTotalBucketCount());
+            while (iter.hasNext()) {
+                VisitorIterator.BucketProgress bp = iter.getNext();
+                assertTrue(visited.add(bp.getSuperbucket()));
+                iter.update(bp.getSuperbucket(), ProgressToken.FINISHED_BUCKET);
+            }
+            assertTrue(p.isFinished());
+        }
+        assertEquals(buckets, visited);
+    }
+
     @Test
     public void testBinaryProgressSerialization() {
         String input = "VDS bucket progress file (48.828125% completed)\n" +
@@ -38,6 +38,7 @@ public class VisitorParametersTestCase {
         params.setDynamicallyIncreaseMaxBucketsPerVisitor(true);
         params.setDynamicMaxBucketsIncreaseFactor(2.5f);
         params.skipBucketsOnFatalErrors(true);
+        params.slice(4, 3);
 
         return params;
     }
@@ -75,6 +76,8 @@ public class VisitorParametersTestCase {
         assertEquals(true, copy.getDynamicallyIncreaseMaxBucketsPerVisitor());
         assertEquals(2.5f, copy.getDynamicMaxBucketsIncreaseFactor(), 0.0001);
         assertEquals(true, copy.skipBucketsOnFatalErrors());
+        assertEquals(4, copy.getSlices());
+        assertEquals(3, copy.getSliceId());
 
         // Test local data handler copy
         VisitorParameters params2 = new VisitorParameters("");
@@ -108,9 +111,20 @@ public class VisitorParametersTestCase {
                 "  Visitor ordering:   123\n" +
                 "  Max buckets:        55\n" +
                 "  Priority:           HIGHEST\n" +
+                "  Slice:              3 of 4\n" +
                 "  Dynamically increasing max buckets per visitor\n" +
                 "  Increase factor:    2.5\n" +
                 ")",
                 params.toString());
     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSlicesMustBePowerOfTwo() {
+        new VisitorParameters("").slice(3, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSliceIdMustBeLessThanSlices() {
+        new VisitorParameters("").slice(2, 2);
+    }
 }
@@ -0,0 +1,77 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.documentapi.messagebus.protocol.test;
+
+import com.yahoo.component.Version;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.datatypes.IntegerFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests decoding the document of put document messages.
+ */
+@SuppressWarnings("deprecation")
+public class PutDocumentMessageTestCase {
+
+    private static final Version version = new Version(6, 221);
+
+    private final DocumentTypeManager manager = new DocumentTypeManager();
+    private final DocumentType docType = new DocumentType("my_type");
+    private final DocumentProtocol protocol;
+
+    public PutDocumentMessageTestCase() {
+        docType.addHeaderField("my_str", DataType.STRING);
+        docType.addHeaderField("my_int", DataType.INT);
+        manager.registerDocumentType(docType);
+        protocol = new DocumentProtocol(manager);
+    }
+
+    @Test
+    public void requireThatFieldsAreDecodedEagerlyByDefault() {
+        Document document = createDocument();
+        PutDocumentMessage message = encodeAndDecode(document);
+        Document decoded = message.getDocumentPut().getDocument();
+        assertNull(decoded.getHeader().getSerializedFieldValue(docType.getField("my_str")));
+        assertEquals(document, decoded);
+    }
+
+    @Test
+    public void requireThatFieldsCanBeDecodedWhenAccessed() {
+        Document document = createDocument();
+        PutDocumentMessage message = encodeAndDecode(document);
+        message.setLazyFieldDecoding(true);
+        Document decoded = message.getDocumentPut().getDocument();
+        assertNotNull(decoded.getHeader().getSerializedFieldValue(docType.getField("my_str")));
+        assertEquals(new IntegerFieldValue(69), decoded.getFieldValue("my_int"));
+        assertNotNull(decoded.getHeader().getSerializedFieldValue(docType.getField("my_str")));
+        assertEquals(document, decoded);
+        assertEquals(666, message.getTimestamp());
+
+        PutDocumentMessage forwarded = encodeAndDecode(decoded);
+        assertEquals(document, forwarded.getDocumentPut().getDocument());
+    }
+
+    private Document createDocument() {
+        Document document = new Document(docType, "id:ns:my_type::1");
+        document.setFieldValue("my_str", new StringFieldValue("foo"));
+        document.setFieldValue("my_int", new IntegerFieldValue(69));
+        return document;
+    }
+
+    private PutDocumentMessage encodeAndDecode(Document document) {
+        PutDocumentMessage message = new PutDocumentMessage(new DocumentPut(document));
+        message.setTimestamp(666);
+        return (PutDocumentMessage) protocol.decode(version, protocol.encode(version, message));
+    }
+
+}
@@ -0,0 +1,303 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.indexinglanguage;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.FieldPath;
+import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.vespa.indexinglanguage.expressions.EchoExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.ExecutionContext;
+import com.yahoo.vespa.indexinglanguage.expressions.Expression;
+import com.yahoo.vespa.indexinglanguage.expressions.FieldValueAdapter;
+import com.yahoo.vespa.indexinglanguage.expressions.GetVarExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.InputExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.OptimizePredicateExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.OutputExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.ScriptExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.SelectInputExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.SetLanguageExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.SetVarExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.StatementExpression;
+import com.yahoo.collections.Pair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * A script whose statements are partitioned into groups which do not depend on each other, such that the groups
+ * can be executed concurrently on a document. Two statements depend on each other if one of them writes a field
+ * which the other reads or writes. If any statement uses state which is shared by all statements of an execution
+ * (variables, the language, or the console), the script is not partitioned at all.
+ * <p>
+ * During concurrent execution, the statements of each group are executed in order, and their output values are
+ * buffered. Once all groups are done, the buffered values of each group are written to the document in statement
+ * order. Since no two groups write the same field, the order in which groups are written does not matter. The
+ * result is identical to that of executing the script sequentially on an adapter whose input document is also its
+ * output document, which is what {@link SimpleAdapterFactory#newDocumentAdapter(Document)} returns.
+ * <p>
+ * This class is thread-safe.
+ */
+public class ConcurrentScript {
+
+    private final ScriptExpression script;
+    private final List<List<StatementExpression>> partitions;
+
+    public ConcurrentScript(ScriptExpression script) {
+        this.script = script;
+        this.partitions = partition(script);
+    }
+
+    public ScriptExpression getScript() {
+        return script;
+    }
+
+    /** Returns the groups of statements of this which may be executed concurrently, in statement order */
+    public List<List<StatementExpression>> getPartitions() {
+        return partitions;
+    }
+
+    /** Returns whether execution of this may be split across multiple threads */
+    public boolean isConcurrent() {
+        return partitions.size() > 1;
+    }
+
+    /**
+     * Executes this on the document of the given adapter, using the given executor to run each independent
+     * group of statements. If this is not concurrent, it is executed on the calling thread.
+     *
+     * @return the output document of the given adapter
+     */
+    public Document execute(DocumentAdapter adapter, Executor executor) {
+        if ( ! isConcurrent()) {
+            return script.execute(adapter);
+        }
+        List<CompletableFuture<BufferedOutputAdapter>> results = new ArrayList<>(partitions.size());
+        for (List<StatementExpression> partition : partitions) {
+            results.add(CompletableFuture.supplyAsync(() -> execute(partition, adapter), executor));
+        }
+        List<BufferedOutputAdapter> outputs = new ArrayList<>(results.size());
+        for (CompletableFuture<BufferedOutputAdapter> result : results) {
+            try {
+                outputs.add(result.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException)e.getCause();
+                }
+                throw e;
+            }
+        }
+        for (BufferedOutputAdapter output : outputs) {
+            output.commit();
+        }
+        return adapter.getFullOutput();
+    }
+
+    private static BufferedOutputAdapter execute(List<StatementExpression> statements, DocumentAdapter adapter) {
+        BufferedOutputAdapter output = new BufferedOutputAdapter(adapter);
+        ExecutionContext context = new ExecutionContext(output);
+        for (StatementExpression statement : statements) {
+            context.setValue(null).execute(statement);
+        }
+        return output;
+    }
+
+    private static List<List<StatementExpression>> partition(ScriptExpression script) {
+        if (script.requiredInputType() != null || script.size() < 2) {
+            return Collections.singletonList(script.asList());
+        }
+        List<FieldAccess> accesses = new ArrayList<>(script.size());
+        Set<String> written = new HashSet<>();
+        for (StatementExpression statement : script) {
+            FieldAccess access = new FieldAccess();
+            access.visit(statement);
+            if (access.usesSharedState) {
+                return Collections.singletonList(script.asList());
+            }
+            accesses.add(access);
+            written.addAll(access.written);
+        }
+        for (FieldAccess access : accesses) {
+            for (String path : access.readPaths) {
+                if (written.contains(topLevelFieldName(path))) {
+                    return Collections.singletonList(script.asList()); // reads of buffered struct values not supported
+                }
+            }
+        }
+
+        // Union statements which touch the same written field
+        int[] group = new int[accesses.size()];
+        for (int i = 0; i < group.length; ++i) {
+            group[i] = i;
+        }
+        Map<String, Integer> writers = new HashMap<>();
+        for (int i = 0; i < accesses.size(); ++i) {
+            for (String field : accesses.get(i).written) {
+                Integer prev = writers.putIfAbsent(field, i);
+                if (prev != null) {
+                    union(group, prev, i);
+                }
+            }
+        }
+        for (int i = 0; i < accesses.size(); ++i) {
+            for (String field : accesses.get(i).read) {
+                Integer writer = writers.get(field);
+                if (writer != null) {
+                    union(group, writer, i);
+                }
+            }
+        }
+
+        Map<Integer, List<StatementExpression>> partitions = new HashMap<>();
+        List<List<StatementExpression>> ret = new ArrayList<>();
+        for (int i = 0; i < accesses.size(); ++i) {
+            List<StatementExpression> partition = partitions.get(find(group, i));
+            if (partition == null) {
+                partition = new ArrayList<>();
+                partitions.put(find(group, i), partition);
+                ret.add(partition);
+            }
+            partition.add(script.get(i));
+        }
+        return Collections.unmodifiableList(ret);
+    }
+
+    private static int find(int[] group, int i) {
+        while (group[i] != i) {
+            i = group[i] = group[group[i]];
+        }
+        return i;
+    }
+
+    private static void union(int[] group, int a, int b) {
+        int rootA = find(group, a);
+        int rootB = find(group, b);
+        group[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+    }
+
+    private static String topLevelFieldName(String path) {
+        for (int i = 0; i < path.length(); ++i) {
+            char c = path.charAt(i);
+            if (c == '.' || c == '{' || c == '[') {
+                return path.substring(0, i);
+            }
+        }
+        return path;
+    }
+
+    /** Collects the fields read and written by an expression */
+    private static class FieldAccess extends ExpressionVisitor {
+
+        final Set<String> read = new HashSet<>();
+        final Set<String> readPaths = new HashSet<>();
+        final Set<String> written = new HashSet<>();
+        boolean usesSharedState = false;
+
+        @Override
+        protected void doVisit(Expression exp) {
+            if (exp instanceof InputExpression) {
+                addRead(((InputExpression)exp).getFieldName());
+            } else if (exp instanceof SelectInputExpression) {
+                for (Pair<String, Expression> entry : ((SelectInputExpression)exp).getCases()) {
+                    addRead(entry.getFirst());
+                }
+            } else if (exp instanceof OutputExpression) {
+                written.add(((OutputExpression)exp).getFieldName());
+            } else if (exp instanceof SetVarExpression || exp instanceof GetVarExpression ||
+                       exp instanceof OptimizePredicateExpression || exp instanceof SetLanguageExpression ||
+                       exp instanceof EchoExpression) {
+                usesSharedState = true;
+            }
+        }
+
+        private void addRead(String fieldName) {
+            if (fieldName == null) {
+                usesSharedState = true; // reads the document itself
+                return;
+            }
+            String topLevel = topLevelFieldName(fieldName);
+            read.add(topLevel);
+            if ( ! topLevel.equals(fieldName)) {
+                readPaths.add(fieldName);
+            }
+        }
+    }
+
+    /**
+     * Reads from an underlying adapter, and buffers writes until {@link #commit()} is called. Buffered values are
+     * visible to subsequent reads of the same top-level field.
+     */
+    private static class BufferedOutputAdapter implements FieldValueAdapter {
+
+        private final DocumentAdapter adapter;
+        private final List<Write> writes = new ArrayList<>();
+        private final Map<String, FieldValue> values = new HashMap<>();
+
+        BufferedOutputAdapter(DocumentAdapter adapter) {
+            this.adapter = adapter;
+        }
+
+        @Override
+        public DataType getInputType(Expression exp, String fieldName) {
+            return adapter.getInputType(exp, fieldName);
+        }
+
+        @Override
+        public FieldValue getInputValue(String fieldName) {
+            if (values.containsKey(fieldName)) {
+                return values.get(fieldName);
+            }
+            return adapter.getInputValue(fieldName);
+        }
+
+        @Override
+        public FieldValue getInputValue(FieldPath fieldPath) {
+            if (fieldPath.size() == 1) {
+                String fieldName = fieldPath.get(0).getFieldRef().getName();
+                if (values.containsKey(fieldName)) {
+                    return values.get(fieldName);
+                }
+            }
+            return adapter.getInputValue(fieldPath);
+        }
+
+        @Override
+        public void tryOutputType(Expression exp, String fieldName, DataType valueType) {
+            adapter.tryOutputType(exp, fieldName, valueType);
+        }
+
+        @Override
+        public FieldValueAdapter setOutputValue(Expression exp, String fieldName, FieldValue fieldValue) {
+            writes.add(new Write(exp, fieldName, fieldValue));
+            values.put(fieldName, fieldValue);
+            return this;
+        }
+
+        void commit() {
+            for (Write write : writes) {
+                adapter.setOutputValue(write.exp, write.fieldName, write.value);
+            }
+        }
+    }
+
+    private static class Write {
+
+        final Expression exp;
+        final String fieldName;
+        final FieldValue value;
+
+        Write(Expression exp, String fieldName, FieldValue value) {
+            this.exp = exp;
+            this.fieldName = fieldName;
+            this.value = value;
+        }
+    }
+
+}
@@ -62,6 +62,7 @@ public final class ScriptParser {
         parser.setAnnotatorConfig(config.getAnnotatorConfig());
         parser.setDefaultFieldName(config.getDefaultFieldName());
         parser.setLinguistics(config.getLinguistcs());
+        parser.setTokenizationCache(config.getTokenizationCache());
         try {
             return method.call(parser);
         } catch (ParseException e) {
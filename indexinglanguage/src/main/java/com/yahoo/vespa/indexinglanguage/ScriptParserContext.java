@@ -4,6 +4,7 @@ package com.yahoo.vespa.indexinglanguage;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.simple.SimpleLinguistics;
 import com.yahoo.vespa.indexinglanguage.linguistics.AnnotatorConfig;
+import com.yahoo.vespa.indexinglanguage.linguistics.TokenizationCache;
 import com.yahoo.vespa.indexinglanguage.parser.CharStream;
 
 /**
@@ -13,6 +14,7 @@ public class ScriptParserContext {
 
     private AnnotatorConfig annotatorConfig = new AnnotatorConfig();
     private Linguistics linguistics;
+    private TokenizationCache tokenizationCache = null;
     private String defaultFieldName = null;
     private CharStream inputStream = null;
 
@@ -38,6 +40,15 @@ public class ScriptParserContext {
         return this;
     }
 
+    public TokenizationCache getTokenizationCache() {
+        return tokenizationCache;
+    }
+
+    public ScriptParserContext setTokenizationCache(TokenizationCache cache) {
+        tokenizationCache = cache;
+        return this;
+    }
+
     public String getDefaultFieldName() {
         return defaultFieldName;
     }
@@ -7,6 +7,7 @@ import com.yahoo.document.Field;
 import com.yahoo.document.FieldPath;
 import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.vespa.indexinglanguage.expressions.Expression;
+import com.yahoo.vespa.indexinglanguage.expressions.OutputExpression;
 import com.yahoo.vespa.indexinglanguage.expressions.VerificationException;
 
 /**
@@ -79,7 +80,7 @@ public class SimpleDocumentAdapter implements DocumentAdapter {
     @SuppressWarnings({ "unchecked" })
     @Override
     public SimpleDocumentAdapter setOutputValue(Expression exp, String fieldName, FieldValue fieldValue) {
-        Field field = output.getField(fieldName);
+        Field field = resolveOutputField(exp, fieldName);
         if (field == null) {
             throw new IllegalArgumentException("Field '" + fieldName + "' not found in document type '" +
                                                output.getDataType().getName() + "'.");
@@ -87,4 +88,11 @@ public class SimpleDocumentAdapter implements DocumentAdapter {
         output.setFieldValue(field, fieldValue);
         return this;
     }
+
+    private Field resolveOutputField(Expression exp, String fieldName) {
+        if (exp instanceof OutputExpression && fieldName != null && fieldName.equals(((OutputExpression)exp).getFieldName())) {
+            return ((OutputExpression)exp).resolveField(output);
+        }
+        return output.getField(fieldName);
+    }
 }
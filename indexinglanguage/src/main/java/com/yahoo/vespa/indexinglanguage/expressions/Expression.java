@@ -12,6 +12,8 @@ import com.yahoo.vespa.indexinglanguage.parser.IndexingInput;
 import com.yahoo.vespa.indexinglanguage.parser.ParseException;
 import com.yahoo.vespa.objects.Selectable;
 
+import java.util.Optional;
+
 /**
  * @author Simon Thoresen Hult
  */
@@ -19,6 +21,12 @@ public abstract class Expression extends Selectable {
 
     private final DataType inputType;
 
+    /**
+     * The output type of this, resolved on first execution. Expressions are immutable once constructed, so the
+     * output type never changes, but it is expensive to resolve for composite expressions.
+     */
+    private volatile Optional<DataType> executionOutputType = null;
+
     protected Expression(DataType inputType) {
         this.inputType = inputType;
     }
@@ -76,7 +84,7 @@ public abstract class Expression extends Selectable {
             }
         }
         doExecute(context);
-        DataType outputType = createdOutputType();
+        DataType outputType = resolveExecutionOutputType();
         if (outputType != null) {
             FieldValue output = context.getValue();
             if (output != null && !outputType.isValueCompatible(output)) {
@@ -89,6 +97,15 @@ public abstract class Expression extends Selectable {
 
     protected abstract void doExecute(ExecutionContext ctx);
 
+    private DataType resolveExecutionOutputType() {
+        Optional<DataType> outputType = executionOutputType;
+        if (outputType == null) {
+            outputType = Optional.ofNullable(createdOutputType());
+            executionOutputType = outputType;
+        }
+        return outputType.orElse(null);
+    }
+
     public final DataType verify() {
         return verify(new VerificationContext());
     }
@@ -6,9 +6,9 @@ import com.yahoo.document.DocumentType;
 import com.yahoo.vespa.objects.ObjectOperation;
 import com.yahoo.vespa.objects.ObjectPredicate;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -16,13 +16,16 @@ import java.util.List;
  */
 public abstract class ExpressionList<T extends Expression> extends CompositeExpression implements Iterable<T> {
 
-    private final List<T> expressions = new LinkedList<T>();
+    private final List<T> expressions;
 
     protected ExpressionList(Iterable<? extends T> lst, DataType inputType) {
         super(inputType);
+        ArrayList<T> expressions = new ArrayList<>();
         for (T exp : lst) {
-            this.expressions.add(exp);
+            expressions.add(exp);
         }
+        expressions.trimToSize();
+        this.expressions = expressions;
     }
 
     public int size() {
@@ -2,7 +2,9 @@
 package com.yahoo.vespa.indexinglanguage.expressions;
 
 import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
 import com.yahoo.document.DocumentType;
+import com.yahoo.document.Field;
 
 /**
  * @author Simon Thoresen Hult
@@ -11,6 +13,7 @@ public abstract class OutputExpression extends Expression {
 
     private final String image;
     private final String fieldName;
+    private volatile FieldBinding fieldBinding = null;
 
     public OutputExpression(String image, String fieldName) {
         super(UnresolvedDataType.INSTANCE);
@@ -22,6 +25,19 @@ public abstract class OutputExpression extends Expression {
         return fieldName;
     }
 
+    /**
+     * Returns the field this outputs to in the given document, or null if the document has no such field. The field
+     * is looked up once per document type, and reused for all subsequent documents of that type.
+     */
+    public Field resolveField(Document document) {
+        FieldBinding binding = fieldBinding;
+        if (binding == null || binding.documentType != document.getDataType()) {
+            binding = new FieldBinding(document.getDataType(), document.getField(fieldName));
+            fieldBinding = binding;
+        }
+        return binding.field;
+    }
+
     @Override
     protected void doExecute(ExecutionContext ctx) {
         ctx.setOutputValue(this, fieldName, ctx.getValue());
@@ -58,4 +74,15 @@ public abstract class OutputExpression extends Expression {
     public int hashCode() {
         return getClass().hashCode() + (fieldName != null ? fieldName.hashCode() : 0);
     }
+
+    private static class FieldBinding {
+
+        final DocumentType documentType;
+        final Field field;
+
+        FieldBinding(DocumentType documentType, Field field) {
+            this.documentType = documentType;
+            this.field = field;
+        }
+    }
 }
@@ -35,8 +35,8 @@ public final class ScriptExpression extends ExpressionList<StatementExpression>
     @Override
     protected void doExecute(ExecutionContext ctx) {
         FieldValue input = ctx.getValue();
-        for (Expression exp : this) {
-            ctx.setValue(input).execute(exp);
+        for (int i = 0, len = size(); i < len; i++) {
+            ctx.setValue(input).execute(get(i));
         }
         ctx.setValue(input);
     }
@@ -34,8 +34,8 @@ public final class StatementExpression extends ExpressionList<Expression> {
 
     @Override
     protected void doExecute(ExecutionContext ctx) {
-        for (Expression exp : this) {
-            ctx.execute(exp);
+        for (int i = 0, len = size(); i < len; i++) {
+            ctx.execute(get(i));
         }
     }
 
@@ -8,6 +8,7 @@ import com.yahoo.language.Linguistics;
 import com.yahoo.language.process.StemMode;
 import com.yahoo.vespa.indexinglanguage.linguistics.AnnotatorConfig;
 import com.yahoo.vespa.indexinglanguage.linguistics.LinguisticsAnnotator;
+import com.yahoo.vespa.indexinglanguage.linguistics.TokenizationCache;
 
 /**
  * @author Simon Thoresen Hult
@@ -16,11 +17,17 @@ public final class TokenizeExpression extends Expression {
 
     private final Linguistics linguistics;
     private final AnnotatorConfig config;
+    private final TokenizationCache cache;
 
     public TokenizeExpression(Linguistics linguistics, AnnotatorConfig config) {
+        this(linguistics, config, null);
+    }
+
+    public TokenizeExpression(Linguistics linguistics, AnnotatorConfig config, TokenizationCache cache) {
         super(DataType.STRING);
         this.linguistics = linguistics;
         this.config = config;
+        this.cache = cache;
     }
 
     public Linguistics getLinguistics() {
@@ -31,6 +38,11 @@ public final class TokenizeExpression extends Expression {
         return config;
     }
 
+    /** Returns the cache of tokenization results used by this, or null if none */
+    public TokenizationCache getCache() {
+        return cache;
+    }
+
     @Override
     protected void doExecute(ExecutionContext context) {
         StringFieldValue input = (StringFieldValue)context.getValue();
@@ -42,7 +54,7 @@ public final class TokenizeExpression extends Expression {
         if (lang != null) {
             cfg.setLanguage(lang);
         }
-        LinguisticsAnnotator annotator = new LinguisticsAnnotator(linguistics, cfg);
+        LinguisticsAnnotator annotator = new LinguisticsAnnotator(linguistics, cfg, cache);
         annotator.annotate(output);
     }
 
@@ -10,7 +10,7 @@ import com.yahoo.document.annotation.SpanTrees;
 import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.process.StemMode;
-import com.yahoo.language.process.Token;
+import com.yahoo.language.process.TokenCursor;
 import com.yahoo.language.process.Tokenizer;
 
 import java.util.HashMap;
@@ -27,6 +27,7 @@ public class LinguisticsAnnotator {
 
     private final Linguistics factory;
     private final AnnotatorConfig config;
+    private final TokenizationCache cache;
 
     private static class TermOccurrences {
         final Map<String, Integer> termOccurrences = new HashMap<>();
@@ -55,8 +56,20 @@ public class LinguisticsAnnotator {
      * @param config  the linguistics config to use
      */
     public LinguisticsAnnotator(Linguistics factory, AnnotatorConfig config) {
+        this(factory, config, null);
+    }
+
+    /**
+     * Constructs a new instance of this annotator which reuses the annotations of previously seen texts.
+     *
+     * @param factory the linguistics factory to use when annotating
+     * @param config  the linguistics config to use
+     * @param cache   the cache of previous tokenization results, or null to always tokenize
+     */
+    public LinguisticsAnnotator(Linguistics factory, AnnotatorConfig config, TokenizationCache cache) {
         this.factory = factory;
         this.config = config;
+        this.cache = cache;
     }
 
     /**
@@ -68,16 +81,15 @@ public class LinguisticsAnnotator {
     public boolean annotate(StringFieldValue text) {
         if (text.getSpanTree(SpanTrees.LINGUISTICS) != null) return true;  // Already annotated with LINGUISTICS.
 
-        Tokenizer tokenizer = factory.getTokenizer();
         String input = (text.getString().length() <=  config.getMaxTokenizeLength())
                 ? text.getString()
                 : text.getString().substring(0, config.getMaxTokenizeLength());
-        Iterable<Token> tokens = tokenizer.tokenize(input, config.getLanguage(), config.getStemMode(),
-                                                    config.getRemoveAccents());
-        TermOccurrences termOccurrences = new TermOccurrences(config.getMaxTermOccurrences());
-        SpanTree tree = new SpanTree(SpanTrees.LINGUISTICS);
-        for (Token token : tokens) {
-            addAnnotationSpan(text.getString(), tree.spanList(), tokenizer, token, config.getStemMode(), termOccurrences);
+        SpanTree tree = (cache != null) ? cache.get(input, config) : null;
+        if (tree == null) {
+            tree = tokenize(text, input);
+            if (cache != null) {
+                cache.put(input, config, tree);
+            }
         }
 
         if (tree.numAnnotations() == 0) return false;
@@ -85,6 +97,18 @@ public class LinguisticsAnnotator {
         return true;
     }
 
+    private SpanTree tokenize(StringFieldValue text, String input) {
+        Tokenizer tokenizer = factory.getTokenizer();
+        TokenCursor tokens = tokenizer.cursor(input, config.getLanguage(), config.getStemMode(),
+                                              config.getRemoveAccents());
+        TermOccurrences termOccurrences = new TermOccurrences(config.getMaxTermOccurrences());
+        SpanTree tree = new SpanTree(SpanTrees.LINGUISTICS);
+        while (tokens.next()) {
+            addAnnotationSpan(text.getString(), tree.spanList(), tokenizer, tokens, config.getStemMode(), termOccurrences);
+        }
+        return tree;
+    }
+
     /**
      * Creates a TERM annotation which has the lowercase value as annotation (only) if it is different from the
      * original.
@@ -94,8 +118,12 @@ public class LinguisticsAnnotator {
      * @return the created TERM annotation.
      */
     public static Annotation lowerCaseTermAnnotation(String termToLowerCase, String origTerm) {
+        return lowerCaseTermAnnotation(termToLowerCase, (CharSequence)origTerm);
+    }
+
+    private static Annotation lowerCaseTermAnnotation(String termToLowerCase, CharSequence origTerm) {
         String annotationValue = toLowerCase(termToLowerCase);
-        if (annotationValue.equals(origTerm)) {
+        if (annotationValue.contentEquals(origTerm)) {
             return new Annotation(AnnotationTypes.TERM);
         }
         return new Annotation(AnnotationTypes.TERM, new StringFieldValue(annotationValue));
@@ -107,20 +135,12 @@ public class LinguisticsAnnotator {
         }
     }
 
-    private static void addAnnotationSpan(String input, SpanList parent, Tokenizer tokenizer, Token token, StemMode mode, TermOccurrences termOccurrences) {
-        if ( ! token.isSpecialToken()) {
-            if (token.getNumComponents() > 0) {
-                for (int i = 0; i < token.getNumComponents(); ++i) {
-                    addAnnotationSpan(input, parent, tokenizer, token.getComponent(i), mode, termOccurrences);
-                }
-                return;
-            }
-            if ( ! token.isIndexable()) {
-                return;
-            }
+    private static void addAnnotationSpan(String input, SpanList parent, Tokenizer tokenizer, TokenCursor token, StemMode mode, TermOccurrences termOccurrences) {
+        if ( ! token.isSpecialToken() && ! token.isIndexable()) {
+            return;
         }
-        String orig = token.getOrig();
-        int pos = (int)token.getOffset();
+        CharSequence orig = token.getOrig();
+        int pos = token.getOffset();
         if (pos >= input.length()) {
             throw new IllegalArgumentException("Token '" + orig + "' has offset " + pos + ", which is outside the " +
                                                "bounds of the input string; " + input);
@@ -132,11 +152,12 @@ public class LinguisticsAnnotator {
         }
         if (mode == StemMode.ALL) {
             Span where = parent.span(pos, len);
-            String lowercasedOrig = toLowerCase(orig);
-            addAnnotation(where, orig, orig, termOccurrences);
+            String origString = orig.toString();
+            String lowercasedOrig = toLowerCase(origString);
+            addAnnotation(where, origString, origString, termOccurrences);
 
             String lowercasedTerm = lowercasedOrig;
-            String term = token.getTokenString();
+            String term = toString(token.getTokenString());
             if (term != null) {
                 term = tokenizer.getReplacementTerm(term);
             }
@@ -144,17 +165,17 @@ public class LinguisticsAnnotator {
                 lowercasedTerm = toLowerCase(term);
             }
             if (! lowercasedOrig.equals(lowercasedTerm)) {
-                addAnnotation(where, term, orig, termOccurrences);
+                addAnnotation(where, term, origString, termOccurrences);
             }
             for (int i = 0; i < token.getNumStems(); i++) {
-                String stem = token.getStem(i);
+                String stem = toString(token.getStem(i));
                 String lowercasedStem = toLowerCase(stem);
                 if (! (lowercasedOrig.equals(lowercasedStem) || lowercasedTerm.equals(lowercasedStem))) {
-                    addAnnotation(where, stem, orig, termOccurrences);
+                    addAnnotation(where, stem, origString, termOccurrences);
                 }
             }
         } else {
-            String term = token.getTokenString();
+            String term = toString(token.getTokenString());
             if (term != null) {
                 term = tokenizer.getReplacementTerm(term);
             }
@@ -162,9 +183,13 @@ public class LinguisticsAnnotator {
                 return;
             }
             if (termOccurrences.termCountBelowLimit(term))  {
-                parent.span(pos, len).annotate(lowerCaseTermAnnotation(term, token.getOrig()));
+                parent.span(pos, len).annotate(lowerCaseTermAnnotation(term, orig));
             }
         }
     }
 
+    private static String toString(CharSequence s) {
+        return s == null ? null : s.toString();
+    }
+
 }
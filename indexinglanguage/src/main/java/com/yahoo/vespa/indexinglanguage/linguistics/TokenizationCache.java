@@ -0,0 +1,171 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.indexinglanguage.linguistics;
+
+import com.yahoo.document.annotation.SpanTree;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, least-recently-used cache of the {@link SpanTree} produced by a {@link LinguisticsAnnotator} for a
+ * given input text and {@link AnnotatorConfig}. Entries are stored as detached copies, and every lookup returns a
+ * fresh copy, so that callers may attach and modify the returned tree freely. Texts longer than the max text length
+ * of the cache are neither looked up nor stored, so that the memory used by the cache is bounded.
+ *
+ * This class is thread-safe, and is intended to be shared by all annotators that use the same
+ * {@link com.yahoo.language.Linguistics} instance.
+ */
+public class TokenizationCache {
+
+    /** Marker for inputs that produced no annotations */
+    private static final SpanTree EMPTY = new SpanTree();
+
+    /** The default max length of the texts to cache */
+    public static final int DEFAULT_MAX_TEXT_LENGTH = 1000;
+
+    private final int maxSize;
+    private final int maxTextLength;
+    private final Map<Key, SpanTree> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile int size = 0;
+
+    /**
+     * Constructs a new cache of texts of at most {@link #DEFAULT_MAX_TEXT_LENGTH} characters.
+     *
+     * @param maxSize the maximum number of distinct texts to keep in this cache
+     * @throws IllegalArgumentException if maxSize is not positive
+     */
+    public TokenizationCache(int maxSize) {
+        this(maxSize, DEFAULT_MAX_TEXT_LENGTH);
+    }
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param maxSize the maximum number of distinct texts to keep in this cache
+     * @param maxTextLength the maximum number of characters of the texts to keep in this cache
+     * @throws IllegalArgumentException if maxSize or maxTextLength is not positive
+     */
+    public TokenizationCache(int maxSize, int maxTextLength) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Expected positive max size, got " + maxSize + ".");
+        }
+        if (maxTextLength <= 0) {
+            throw new IllegalArgumentException("Expected positive max text length, got " + maxTextLength + ".");
+        }
+        this.maxSize = maxSize;
+        this.maxTextLength = maxTextLength;
+        this.entries = new LinkedHashMap<Key, SpanTree>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SpanTree> eldest) {
+                return size() > TokenizationCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns a copy of the span tree cached for the given input, or null if there is no entry for it, or the input
+     * is too long to be cached. If the input is known to produce no annotations, this returns an empty tree for which
+     * {@link SpanTree#numAnnotations()} is 0.
+     */
+    SpanTree get(String input, AnnotatorConfig config) {
+        if (input.length() > maxTextLength) {
+            return null;
+        }
+        SpanTree tree;
+        synchronized (this) {
+            tree = entries.get(new Key(input, config));
+        }
+        if (tree == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return tree == EMPTY ? EMPTY : new SpanTree(tree);
+    }
+
+    /** Stores a copy of the given span tree as the result of annotating the given input, unless it is too long. */
+    void put(String input, AnnotatorConfig config, SpanTree tree) {
+        if (input.length() > maxTextLength) {
+            return;
+        }
+        SpanTree copy = (tree.numAnnotations() == 0) ? EMPTY : new SpanTree(tree);
+        Key key = new Key(input, new AnnotatorConfig(config));
+        synchronized (this) {
+            entries.put(key, copy);
+            size = entries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getMaxTextLength() {
+        return maxTextLength;
+    }
+
+    /** Returns the number of texts in this cache. This does not lock the cache. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns the number of lookups that were answered from this cache. This does not lock the cache. */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /** Returns the number of lookups that had to be tokenized. This does not lock the cache. */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** Returns the fraction of lookups that were answered from this cache, or 0 if there has been no lookups */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0 : (double)hits / total;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "tokenization cache (size " + size() + " of " + maxSize + ", " +
+               getHitCount() + " hits, " + getMissCount() + " misses)";
+    }
+
+    private static class Key {
+
+        final String input;
+        final AnnotatorConfig config;
+        final int hashCode;
+
+        Key(String input, AnnotatorConfig config) {
+            this.input = input;
+            this.config = config;
+            this.hashCode = Objects.hash(input, config);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key rhs = (Key)obj;
+            return hashCode == rhs.hashCode && input.equals(rhs.input) && config.equals(rhs.config);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.indexinglanguage;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.vespa.indexinglanguage.expressions.Expression;
+import com.yahoo.vespa.indexinglanguage.expressions.ScriptExpression;
+import com.yahoo.vespa.indexinglanguage.parser.ParseException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConcurrentScriptTestCase {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final DocumentType type;
+
+    public ConcurrentScriptTestCase() {
+        type = new DocumentType("mytype");
+        type.addField("in-1", DataType.STRING);
+        type.addField("in-2", DataType.STRING);
+        type.addField("out-1", DataType.STRING);
+        type.addField("out-2", DataType.STRING);
+        type.addField("out-3", DataType.STRING);
+    }
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void requireThatIndependentStatementsArePartitioned() throws ParseException {
+        ConcurrentScript script = newScript("{ input in-1 | attribute out-1; input in-2 | attribute out-2; }");
+        assertTrue(script.isConcurrent());
+        assertEquals(2, script.getPartitions().size());
+    }
+
+    @Test
+    public void requireThatStatementsWritingTheSameFieldAreGrouped() throws ParseException {
+        ConcurrentScript script = newScript("{ input in-1 | attribute out-1; input in-2 | attribute out-1; " +
+                                            "input in-2 | attribute out-2; }");
+        assertEquals(2, script.getPartitions().size());
+        assertEquals(2, script.getPartitions().get(0).size());
+        assertEquals(1, script.getPartitions().get(1).size());
+    }
+
+    @Test
+    public void requireThatStatementsReadingWrittenFieldsAreGrouped() throws ParseException {
+        ConcurrentScript script = newScript("{ input in-1 | attribute out-1; input in-2 | attribute out-2; " +
+                                            "input out-1 | attribute out-3; }");
+        assertEquals(2, script.getPartitions().size());
+        assertEquals(2, script.getPartitions().get(0).size());
+        assertEquals(1, script.getPartitions().get(1).size());
+    }
+
+    @Test
+    public void requireThatScriptsUsingVariablesAreNotPartitioned() throws ParseException {
+        assertFalse(newScript("{ input in-1 | set_var foo; input in-2 | attribute out-2; }").isConcurrent());
+        assertFalse(newScript("{ input in-1 | set_language; input in-2 | attribute out-2; }").isConcurrent());
+    }
+
+    @Test
+    public void requireThatConcurrentExecutionEqualsSequentialExecution() throws ParseException {
+        String script = "{ input in-1 | lowercase | attribute out-1; input in-2 | attribute out-2; " +
+                        "input out-1 | attribute out-3; }";
+        Document expected = newDocument();
+        Expression.execute(Expression.fromString(script), expected);
+
+        Document actual = newDocument();
+        newScript(script).execute(new SimpleAdapterFactory().newDocumentAdapter(actual), executor);
+        assertEquals(expected, actual);
+        assertEquals(new StringFieldValue("foo"), actual.getFieldValue("out-3"));
+    }
+
+    @Test
+    public void requireThatExecutionExceptionsArePropagated() throws ParseException {
+        ConcurrentScript script = newScript("{ input in-1 | attribute out-1; " +
+                                            "input in-2 | to_int | attribute out-2; }");
+        try {
+            script.execute(new SimpleAdapterFactory().newDocumentAdapter(newDocument()), executor);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private Document newDocument() {
+        Document doc = new Document(type, "doc:scheme:");
+        doc.setFieldValue("in-1", new StringFieldValue("FOO"));
+        doc.setFieldValue("in-2", new StringFieldValue("bar"));
+        return doc;
+    }
+
+    private static ConcurrentScript newScript(String script) throws ParseException {
+        return new ConcurrentScript((ScriptExpression)Expression.fromString(script));
+    }
+
+}
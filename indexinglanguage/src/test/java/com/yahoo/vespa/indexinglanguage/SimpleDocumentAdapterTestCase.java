@@ -3,12 +3,16 @@ package com.yahoo.vespa.indexinglanguage;
 
 import com.yahoo.document.*;
 import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.datatypes.Struct;
+import com.yahoo.vespa.indexinglanguage.expressions.AttributeExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.OutputExpression;
 import com.yahoo.vespa.indexinglanguage.expressions.VerificationException;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 /**
@@ -52,4 +56,23 @@ public class SimpleDocumentAdapterTestCase {
         }
         assertNull(adapter.getInputValue("foo"));
     }
+
+    @Test
+    public void requireThatOutputFieldIsResolvedPerDocumentType() {
+        DocumentType fooType = new DocumentType("foo");
+        fooType.addField("title", DataType.STRING);
+        DocumentType barType = new DocumentType("bar");
+        barType.addField("title", DataType.STRING);
+        OutputExpression output = new AttributeExpression("title");
+
+        Document foo = new Document(fooType, "doc:scheme:foo");
+        new SimpleDocumentAdapter(foo, foo).setOutputValue(output, "title", new StringFieldValue("69"));
+        assertEquals(new StringFieldValue("69"), foo.getFieldValue("title"));
+        assertSame(fooType.getField("title"), output.resolveField(foo));
+
+        Document bar = new Document(barType, "doc:scheme:bar");
+        new SimpleDocumentAdapter(bar, bar).setOutputValue(output, "title", new StringFieldValue("96"));
+        assertEquals(new StringFieldValue("96"), bar.getFieldValue("title"));
+        assertSame(barType.getField("title"), output.resolveField(bar));
+    }
 }
@@ -21,6 +21,10 @@ import org.mockito.Mockito;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -218,6 +222,88 @@ public class LinguisticsAnnotatorTestCase {
         }
     }
 
+    @Test
+    public void requireThatCachedAnnotationsAreEqualToTokenizedAnnotations() {
+        Linguistics linguistics = new SimpleLinguistics();
+        AnnotatorConfig config = new AnnotatorConfig().setStemMode(StemMode.ALL);
+        TokenizationCache cache = new TokenizationCache(10);
+        LinguisticsAnnotator annotator = new LinguisticsAnnotator(linguistics, config, cache);
+
+        StringFieldValue expected = new StringFieldValue("Running cats and dogs");
+        new LinguisticsAnnotator(linguistics, config).annotate(expected);
+
+        StringFieldValue first = new StringFieldValue("Running cats and dogs");
+        StringFieldValue second = new StringFieldValue("Running cats and dogs");
+        assertTrue(annotator.annotate(first));
+        assertTrue(annotator.annotate(second));
+        assertEquals(expected.getSpanTree(SpanTrees.LINGUISTICS), first.getSpanTree(SpanTrees.LINGUISTICS));
+        assertEquals(expected.getSpanTree(SpanTrees.LINGUISTICS), second.getSpanTree(SpanTrees.LINGUISTICS));
+        assertNotSame(first.getSpanTree(SpanTrees.LINGUISTICS), second.getSpanTree(SpanTrees.LINGUISTICS));
+        assertSame(second, second.getSpanTree(SpanTrees.LINGUISTICS).getStringFieldValue());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 1e-6);
+    }
+
+    @Test
+    public void requireThatCacheIsKeyedOnConfig() {
+        Linguistics linguistics = new SimpleLinguistics();
+        TokenizationCache cache = new TokenizationCache(10);
+        new LinguisticsAnnotator(linguistics, new AnnotatorConfig(), cache).annotate(new StringFieldValue("foo"));
+        new LinguisticsAnnotator(linguistics, new AnnotatorConfig().setRemoveAccents(true), cache)
+                .annotate(new StringFieldValue("foo"));
+        new LinguisticsAnnotator(linguistics, new AnnotatorConfig().setLanguage(Language.GERMAN), cache)
+                .annotate(new StringFieldValue("foo"));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void requireThatCacheIsBounded() {
+        Linguistics linguistics = new SimpleLinguistics();
+        TokenizationCache cache = new TokenizationCache(2);
+        LinguisticsAnnotator annotator = new LinguisticsAnnotator(linguistics, CONFIG, cache);
+        annotator.annotate(new StringFieldValue("foo"));
+        annotator.annotate(new StringFieldValue("bar"));
+        annotator.annotate(new StringFieldValue("foo"));
+        annotator.annotate(new StringFieldValue("baz"));
+        assertEquals(2, cache.size());
+        annotator.annotate(new StringFieldValue("foo"));
+        assertEquals(2, cache.getHitCount());
+        annotator.annotate(new StringFieldValue("bar"));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void requireThatLongTextsAreNotCached() {
+        TokenizationCache cache = new TokenizationCache(10, 3);
+        LinguisticsAnnotator annotator = new LinguisticsAnnotator(new SimpleLinguistics(), CONFIG, cache);
+        StringFieldValue val = new StringFieldValue("foo bar");
+        assertTrue(annotator.annotate(val));
+        assertTrue(annotator.annotate(new StringFieldValue("foo bar")));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+
+        annotator.annotate(new StringFieldValue("foo"));
+        annotator.annotate(new StringFieldValue("foo"));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void requireThatTextsWithoutAnnotationsAreCached() {
+        TokenizationCache cache = new TokenizationCache(10);
+        LinguisticsAnnotator annotator = new LinguisticsAnnotator(newLinguistics(Collections.<Token>emptyList(),
+                                                                                 Collections.<String, String>emptyMap()),
+                                                                  CONFIG, cache);
+        StringFieldValue val = new StringFieldValue("foo");
+        assertFalse(annotator.annotate(val));
+        assertFalse(annotator.annotate(val));
+        assertNull(val.getSpanTree(SpanTrees.LINGUISTICS));
+        assertEquals(1, cache.getHitCount());
+    }
+
     // --------------------------------------------------------------------------------
     //
     // Utilities
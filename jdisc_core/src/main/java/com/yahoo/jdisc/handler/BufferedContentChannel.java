@@ -2,7 +2,7 @@
 package com.yahoo.jdisc.handler;
 
 import java.nio.ByteBuffer;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -17,7 +17,7 @@ import java.util.Objects;
 public final class BufferedContentChannel implements ContentChannel {
 
     private final Object lock = new Object();
-    private List<Entry> queue = new LinkedList<>();
+    private List<Entry> queue = new ArrayList<>();
     private ContentChannel content = null;
     private boolean closed = false;
     private CompletionHandler closeCompletion = null;
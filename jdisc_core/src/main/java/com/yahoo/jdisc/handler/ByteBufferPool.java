@@ -0,0 +1,182 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.handler;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>This class implements a pool of heap ByteBuffers in power-of-two size classes. Each thread keeps a small cache
+ * of released buffers per size class, and falls back to a bounded global cache shared by all threads. Requests
+ * larger than the largest size class are allocated without pooling.</p>
+ *
+ * <p>A buffer acquired from this pool may be written to a {@link ContentChannel} using the completion handler returned
+ * by {@link #releaseOnCompletion(ByteBuffer, CompletionHandler)}, which returns the buffer to this pool once the write
+ * has completed. This is only safe if the channel is done with the buffer when it completes the write. The http
+ * server completes a write only once its output stream is ready for the next one, which is when an asynchronous
+ * write of the buffer has finished. The {@link ReadableContentChannel}, however, completes a write when the buffer
+ * is read, before the reader is done with it. A buffer which fails to be written is not returned to the pool.</p>
+ *
+ * <p>The number of acquired buffers which have not been released is tracked by {@link #outstanding()}, which can be
+ * used to detect buffer leaks in tests.</p>
+ */
+public final class ByteBufferPool {
+
+    /** A pool shared by all users which do not need a separate one */
+    public static final ByteBufferPool DEFAULT = new ByteBufferPool();
+
+    private static final int MIN_SIZE_SHIFT = 12; // 4 KiB
+    private static final int MAX_SIZE_SHIFT = 16; // 64 KiB
+    private static final int NUM_SIZE_CLASSES = MAX_SIZE_SHIFT - MIN_SIZE_SHIFT + 1;
+
+    private final int maxThreadLocalBuffers;
+    private final int maxGlobalBuffers;
+    private final ThreadLocal<ArrayDeque<ByteBuffer>[]> threadLocalCaches = ThreadLocal.withInitial(this::newCaches);
+    private final SizeClass[] globalCaches = new SizeClass[NUM_SIZE_CLASSES];
+    private final LongAdder outstanding = new LongAdder();
+
+    public ByteBufferPool() {
+        this(16, 1024);
+    }
+
+    /**
+     * <p>Creates a new ByteBufferPool.</p>
+     *
+     * @param maxThreadLocalBuffers The maximum number of buffers of each size class cached by each thread.
+     * @param maxGlobalBuffers      The maximum number of buffers of each size class cached by the global cache.
+     */
+    public ByteBufferPool(int maxThreadLocalBuffers, int maxGlobalBuffers) {
+        this.maxThreadLocalBuffers = maxThreadLocalBuffers;
+        this.maxGlobalBuffers = maxGlobalBuffers;
+        for (int i = 0; i < NUM_SIZE_CLASSES; ++i) {
+            globalCaches[i] = new SizeClass();
+        }
+    }
+
+    /**
+     * <p>Returns a cleared buffer with a capacity of at least the given number of bytes. The buffer should be returned
+     * to this pool by {@link #release(ByteBuffer)} once it is no longer used.</p>
+     *
+     * @param minCapacity The minimum capacity of the returned buffer.
+     * @return The buffer.
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        outstanding.increment();
+        int sizeClass = sizeClassOf(minCapacity);
+        if (sizeClass < 0) {
+            return ByteBuffer.allocate(minCapacity);
+        }
+        ByteBuffer buf = threadLocalCaches.get()[sizeClass].pollLast();
+        if (buf == null) {
+            buf = globalCaches[sizeClass].poll();
+        }
+        if (buf == null) {
+            return ByteBuffer.allocate(1 << (sizeClass + MIN_SIZE_SHIFT));
+        }
+        buf.clear();
+        return buf;
+    }
+
+    /**
+     * <p>Returns a buffer previously returned by {@link #acquire(int)} to this pool. The buffer must not be used by the
+     * caller after this.</p>
+     *
+     * @param buf The buffer to release.
+     */
+    public void release(ByteBuffer buf) {
+        outstanding.decrement();
+        int capacity = buf.capacity();
+        int sizeClass = sizeClassOf(capacity);
+        if (sizeClass < 0 || capacity != 1 << (sizeClass + MIN_SIZE_SHIFT)) {
+            return; // not pooled
+        }
+        ArrayDeque<ByteBuffer> cache = threadLocalCaches.get()[sizeClass];
+        if (cache.size() < maxThreadLocalBuffers) {
+            cache.addLast(buf);
+        } else {
+            globalCaches[sizeClass].offer(buf, maxGlobalBuffers);
+        }
+    }
+
+    /**
+     * <p>Returns a CompletionHandler which releases the given buffer to this pool before it forwards to the given
+     * handler when the write of the buffer has completed. If the write fails, the buffer is not returned to the pool,
+     * as the channel may still refer to it.</p>
+     *
+     * @param buf     The buffer to release when the write completes.
+     * @param handler The handler to forward to, or null.
+     * @return The releasing CompletionHandler.
+     */
+    public CompletionHandler releaseOnCompletion(ByteBuffer buf, CompletionHandler handler) {
+        return new CompletionHandler() {
+
+            @Override
+            public void completed() {
+                release(buf);
+                if (handler != null) {
+                    handler.completed();
+                }
+            }
+
+            @Override
+            public void failed(Throwable t) {
+                outstanding.decrement();
+                if (handler != null) {
+                    handler.failed(t);
+                }
+            }
+        };
+    }
+
+    /**
+     * <p>Returns the number of buffers acquired from this pool which have not yet been released.</p>
+     *
+     * @return The number of outstanding buffers.
+     */
+    public long outstanding() {
+        return outstanding.sum();
+    }
+
+    private static int sizeClassOf(int capacity) {
+        if (capacity > 1 << MAX_SIZE_SHIFT) {
+            return -1;
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1) - 1); // log2, rounded up
+        return Math.max(shift, MIN_SIZE_SHIFT) - MIN_SIZE_SHIFT;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private ArrayDeque<ByteBuffer>[] newCaches() {
+        ArrayDeque<ByteBuffer>[] caches = new ArrayDeque[NUM_SIZE_CLASSES];
+        for (int i = 0; i < NUM_SIZE_CLASSES; ++i) {
+            caches[i] = new ArrayDeque<>();
+        }
+        return caches;
+    }
+
+    private static class SizeClass {
+
+        final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger(0);
+
+        ByteBuffer poll() {
+            ByteBuffer buf = buffers.poll();
+            if (buf != null) {
+                size.decrementAndGet();
+            }
+            return buf;
+        }
+
+        void offer(ByteBuffer buf, int maxSize) {
+            if (size.incrementAndGet() > maxSize) {
+                size.decrementAndGet();
+                return;
+            }
+            buffers.offer(buf);
+        }
+    }
+
+}
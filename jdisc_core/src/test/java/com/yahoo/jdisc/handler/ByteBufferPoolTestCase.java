@@ -0,0 +1,100 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.handler;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ByteBufferPoolTestCase {
+
+    @Test
+    public void requireThatCapacityIsRoundedUpToSizeClass() {
+        ByteBufferPool pool = new ByteBufferPool();
+        assertEquals(4096, pool.acquire(0).capacity());
+        assertEquals(4096, pool.acquire(4096).capacity());
+        assertEquals(8192, pool.acquire(4097).capacity());
+        assertEquals(65536, pool.acquire(65536).capacity());
+        assertEquals(65537, pool.acquire(65537).capacity());
+        assertEquals(5, pool.outstanding());
+    }
+
+    @Test
+    public void requireThatReleasedBuffersAreReusedAndCleared() {
+        ByteBufferPool pool = new ByteBufferPool();
+        ByteBuffer buf = pool.acquire(100);
+        buf.put((byte)1).flip();
+        pool.release(buf);
+        assertEquals(0, pool.outstanding());
+
+        ByteBuffer reused = pool.acquire(200);
+        assertSame(buf, reused);
+        assertEquals(0, reused.position());
+        assertEquals(reused.capacity(), reused.limit());
+        assertNotSame(buf, pool.acquire(200));
+    }
+
+    @Test
+    public void requireThatBuffersAreSharedBetweenThreadsThroughGlobalCache() throws InterruptedException {
+        ByteBufferPool pool = new ByteBufferPool(0, 10);
+        ByteBuffer buf = pool.acquire(100);
+        pool.release(buf);
+        ByteBuffer[] reused = new ByteBuffer[1];
+        Thread thread = new Thread(() -> reused[0] = pool.acquire(100));
+        thread.start();
+        thread.join();
+        assertSame(buf, reused[0]);
+    }
+
+    @Test
+    public void requireThatUnpooledBuffersAreNotReused() {
+        ByteBufferPool pool = new ByteBufferPool();
+        ByteBuffer large = pool.acquire(100000);
+        pool.release(large);
+        assertNotSame(large, pool.acquire(100000));
+        pool.release(ByteBuffer.allocate(5000));
+        assertEquals(4096, pool.acquire(100).capacity());
+    }
+
+    @Test
+    public void requireThatBufferIsReleasedOnCompletion() {
+        ByteBufferPool pool = new ByteBufferPool();
+        ByteBuffer buf = pool.acquire(100);
+        MyCompletion completion = new MyCompletion();
+        pool.releaseOnCompletion(buf, completion).completed();
+        assertEquals(1, completion.completed);
+        assertEquals(0, pool.outstanding());
+        assertSame(buf, pool.acquire(100));
+    }
+
+    @Test
+    public void requireThatBufferIsNotReusedOnFailure() {
+        ByteBufferPool pool = new ByteBufferPool();
+        ByteBuffer buf = pool.acquire(100);
+        MyCompletion completion = new MyCompletion();
+        pool.releaseOnCompletion(buf, completion).failed(new RuntimeException());
+        assertEquals(1, completion.failed);
+        assertEquals(0, pool.outstanding());
+        assertNotSame(buf, pool.acquire(100));
+    }
+
+    private static class MyCompletion implements CompletionHandler {
+
+        int completed = 0;
+        int failed = 0;
+
+        @Override
+        public void completed() {
+            ++completed;
+        }
+
+        @Override
+        public void failed(Throwable t) {
+            ++failed;
+        }
+    }
+
+}
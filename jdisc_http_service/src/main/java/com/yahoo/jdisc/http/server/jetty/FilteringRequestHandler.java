@@ -44,11 +44,14 @@ class FilteringRequestHandler extends AbstractRequestHandler {
 
     private final BindingSet<RequestFilter> requestFilters;
     private final BindingSet<ResponseFilter> responseFilters;
+    private final OverloadProtection.Admission admission;
 
-    public FilteringRequestHandler(BindingSet<RequestFilter> requestFilters, 
-                                   BindingSet<ResponseFilter> responseFilters) {
+    public FilteringRequestHandler(BindingSet<RequestFilter> requestFilters,
+                                   BindingSet<ResponseFilter> responseFilters,
+                                   OverloadProtection.Admission admission) {
         this.requestFilters = requestFilters;
         this.responseFilters = responseFilters;
+        this.admission = admission;
     }
 
     @Override
@@ -74,6 +77,8 @@ class FilteringRequestHandler extends AbstractRequestHandler {
             responseHandler = originalResponseHandler;
         }
 
+        admission.admit(request, responseHandler);
+
         if (requestFilter != null) {
             InterceptingResponseHandler interceptingResponseHandler = new InterceptingResponseHandler(responseHandler);
             requestFilter.filter(HttpRequest.class.cast(request), interceptingResponseHandler);
@@ -51,6 +51,7 @@ class HttpRequestDispatch {
     private final ServletResponseController servletResponseController;
     private final RequestHandler requestHandler;
     private final MetricReporter metricReporter;
+    private final OverloadProtection.Admission admission;
 
     public HttpRequestDispatch(JDiscContext jDiscContext,
                                AccessLogEntry accessLogEntry,
@@ -59,7 +60,8 @@ class HttpRequestDispatch {
                                HttpServletResponse servletResponse) throws IOException {
         this.jDiscContext = jDiscContext;
 
-        requestHandler = newRequestHandler(jDiscContext, accessLogEntry, servletRequest);
+        admission = jDiscContext.overloadProtection.newAdmission();
+        requestHandler = newRequestHandler(jDiscContext, admission, accessLogEntry, servletRequest);
 
         this.jettyRequest = (Request) servletRequest;
         this.metricReporter = new MetricReporter(jDiscContext.metric, metricContext, jettyRequest.getTimeStamp());
@@ -141,6 +143,7 @@ class HttpRequestDispatch {
             } else {
                 parent.metricReporter.successfulResponse();
             }
+            parent.admission.complete(parent.jettyRequest.getResponse().getStatus());
 
             try {
                 parent.async.complete();
@@ -196,10 +199,11 @@ class HttpRequestDispatch {
 
 
     private static RequestHandler newRequestHandler(JDiscContext context,
+                                                    OverloadProtection.Admission admission,
                                                     AccessLogEntry accessLogEntry,
                                                     HttpServletRequest servletRequest) {
         RequestHandler requestHandler = wrapHandlerIfFormPost(
-                new FilteringRequestHandler(context.requestFilters, context.responseFilters),
+                new FilteringRequestHandler(context.requestFilters, context.responseFilters, admission),
                 servletRequest, context.serverConfig.removeRawPostBodyForWwwUrlEncodedPost());
 
         return new AccessLoggingRequestHandler(requestHandler, accessLogEntry);
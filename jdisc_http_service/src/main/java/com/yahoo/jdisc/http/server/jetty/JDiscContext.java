@@ -17,13 +17,15 @@ public class JDiscContext {
     final Executor janitor;
     final Metric metric;
     final ServerConfig serverConfig;
+    final OverloadProtection overloadProtection;
 
     public JDiscContext(BindingSet<RequestFilter> requestFilters,
                         BindingSet<ResponseFilter> responseFilters,
                         CurrentContainer container,
                         Executor janitor,
                         Metric metric,
-                        ServerConfig serverConfig) {
+                        ServerConfig serverConfig,
+                        OverloadProtection overloadProtection) {
 
         this.requestFilters = requestFilters;
         this.responseFilters = responseFilters;
@@ -31,6 +33,7 @@ public class JDiscContext {
         this.janitor = janitor;
         this.metric = metric;
         this.serverConfig = serverConfig;
+        this.overloadProtection = overloadProtection;
     }
 
     public boolean developerMode() {
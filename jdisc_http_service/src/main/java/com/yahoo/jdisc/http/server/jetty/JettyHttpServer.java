@@ -117,6 +117,11 @@ public class JettyHttpServer extends AbstractServerProvider {
 
         String URI_LENGTH = "jdisc.http.request.uri_length";
         String CONTENT_SIZE = "jdisc.http.request.content_size";
+
+        String HANDLER_DIMENSION = "handler";
+        String OVERLOAD_CONCURRENCY_LIMIT = "jdisc.http.overload.concurrency_limit";
+        String OVERLOAD_CONCURRENT_REQUESTS = "jdisc.http.overload.concurrent_requests";
+        String OVERLOAD_REJECTED_REQUESTS = "jdisc.http.overload.rejected_requests";
     }
 
     private final static Logger log = Logger.getLogger(JettyHttpServer.class.getName());
@@ -125,6 +130,7 @@ public class JettyHttpServer extends AbstractServerProvider {
     private final ScheduledExecutorService metricReporterExecutor;
     private final Metric metric;
     private final Server server;
+    private final OverloadProtection overloadProtection;
     private final List<Integer> listenedPorts = new ArrayList<>();
 
     @Inject
@@ -159,6 +165,7 @@ public class JettyHttpServer extends AbstractServerProvider {
         }
 
         janitor = newJanitor(threadFactory);
+        overloadProtection = new OverloadProtection(serverConfig.overloadProtection(), metric);
 
         JDiscContext jDiscContext = new JDiscContext(
                 filterBindings.getRequestFilters().activate(),
@@ -166,7 +173,8 @@ public class JettyHttpServer extends AbstractServerProvider {
                 container,
                 janitor,
                 metric,
-                serverConfig);
+                serverConfig,
+                overloadProtection);
 
         ServletHolder jdiscServlet = new ServletHolder(new JDiscHttpServlet(jDiscContext));
         FilterHolder jDiscFilterInvokerFilter = new FilterHolder(new JDiscFilterInvokerFilter(jDiscContext, filterInvoker));
@@ -346,6 +354,8 @@ public class JettyHttpServer extends AbstractServerProvider {
             for (Connector connector : server.getConnectors()) {
                 setConnectorMetrics((JDiscServerConnector)connector);
             }
+
+            overloadProtection.reportMetrics();
         }
 
     }
@@ -0,0 +1,194 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.Metric;
+import com.yahoo.jdisc.Request;
+import com.yahoo.jdisc.Response;
+import com.yahoo.jdisc.application.BindingMatch;
+import com.yahoo.jdisc.handler.OverloadException;
+import com.yahoo.jdisc.handler.ResponseDispatch;
+import com.yahoo.jdisc.handler.ResponseHandler;
+import com.yahoo.jdisc.http.ServerConfig;
+
+import javax.annotation.concurrent.GuardedBy;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects requests with 503 Service Unavailable when the number of concurrent requests to a handler binding exceeds
+ * an adaptive limit, instead of letting them queue up until they time out.
+ *
+ * The limit of each binding is adjusted by additive increase/multiplicative decrease on the requests it completes:
+ * A request which is too slow, or which is responded to with 503 or 504, multiplies the limit by a backoff ratio,
+ * while other requests slowly increase it as long as it is in use. What is too slow may be configured per binding,
+ * as requests to bindings which stream their responses take as long as the stream lasts.
+ */
+class OverloadProtection {
+
+    private static final Admission NO_ADMISSION_CONTROL = new Admission() {
+        @Override public void admit(Request request, ResponseHandler responseHandler) { }
+        @Override public void complete(int responseStatus) { }
+    };
+
+    private final ServerConfig.OverloadProtection config;
+    private final Metric metric;
+    private final ConcurrentMap<String, BindingLimit> limits = new ConcurrentHashMap<>();
+
+    OverloadProtection(ServerConfig.OverloadProtection config, Metric metric) {
+        this.config = config;
+        this.metric = metric;
+    }
+
+    /** Returns the admission control of a new request */
+    Admission newAdmission() {
+        return config.enabled() ? new LimitingAdmission() : NO_ADMISSION_CONTROL;
+    }
+
+    void reportMetrics() {
+        limits.values().forEach(limit -> {
+            metric.set(JettyHttpServer.Metrics.OVERLOAD_CONCURRENCY_LIMIT, limit.limiter.limit(), limit.metricContext);
+            metric.set(JettyHttpServer.Metrics.OVERLOAD_CONCURRENT_REQUESTS, limit.limiter.inFlight(), limit.metricContext);
+        });
+    }
+
+    private BindingLimit limitOf(BindingMatch<?> match) {
+        return limits.computeIfAbsent(match.matched().toString(), binding -> new BindingLimit(
+                new Limiter(config.initialLimit(),
+                            config.minLimit(),
+                            config.maxLimit(),
+                            config.backoffRatio(),
+                            latencyThresholdNanosOf(binding)),
+                metric.createContext(Collections.singletonMap(JettyHttpServer.Metrics.HANDLER_DIMENSION, binding))));
+    }
+
+    /** Returns the latency threshold of the given binding pattern, or 0 if latency should not cause backoff */
+    long latencyThresholdNanosOf(String binding) {
+        for (ServerConfig.OverloadProtection.Binding override : config.binding())
+            if (override.pattern().equals(binding))
+                return TimeUnit.MILLISECONDS.toNanos(override.latencyThresholdMillis());
+        return TimeUnit.MILLISECONDS.toNanos(config.latencyThresholdMillis());
+    }
+
+    /** The admission control of a single request */
+    interface Admission {
+
+        /**
+         * Admits the given request, whose handler has been resolved, or dispatches a 503 response to the given
+         * handler and throws an {@link OverloadException} if it is rejected.
+         */
+        void admit(Request request, ResponseHandler responseHandler);
+
+        /** Called when the request has completed, with the status of its response */
+        void complete(int responseStatus);
+
+    }
+
+    private class LimitingAdmission implements Admission {
+
+        private volatile Limiter limiter = null;
+        private volatile long admittedAtNanos;
+
+        @Override
+        public void admit(Request request, ResponseHandler responseHandler) {
+            BindingMatch<?> match = request.getBindingMatch();
+            if (match == null || match.matched() == null) return;
+
+            BindingLimit limit = limitOf(match);
+            if ( ! limit.limiter.tryAcquire()) {
+                metric.add(JettyHttpServer.Metrics.OVERLOAD_REJECTED_REQUESTS, 1, limit.metricContext);
+                ResponseDispatch.newInstance(Response.Status.SERVICE_UNAVAILABLE).dispatch(responseHandler);
+                throw new OverloadException("Concurrency limit of " + limit.limiter.limit() + " reached for " +
+                                            match.matched(), null);
+            }
+            admittedAtNanos = System.nanoTime();
+            limiter = limit.limiter;
+        }
+
+        @Override
+        public void complete(int responseStatus) {
+            Limiter limiter = this.limiter;
+            if (limiter == null) return;
+
+            boolean overloaded = responseStatus == Response.Status.SERVICE_UNAVAILABLE ||
+                                 responseStatus == Response.Status.GATEWAY_TIMEOUT;
+            limiter.release(admittedAtNanos, System.nanoTime(), overloaded);
+        }
+
+    }
+
+    private static class BindingLimit {
+
+        final Limiter limiter;
+        final Metric.Context metricContext;
+
+        BindingLimit(Limiter limiter, Metric.Context metricContext) {
+            this.limiter = limiter;
+            this.metricContext = metricContext;
+        }
+
+    }
+
+    /** A concurrency limit which is adjusted by additive increase/multiplicative decrease */
+    static class Limiter {
+
+        private final int minLimit;
+        private final int maxLimit;
+        private final double backoffRatio;
+        /** The latency above which requests cause backoff, or 0 if latency should not cause backoff */
+        private final long latencyThresholdNanos;
+
+        @GuardedBy("this")
+        private double limit;
+        @GuardedBy("this")
+        private int inFlight = 0;
+        @GuardedBy("this")
+        private boolean hasBackedOff = false;
+        @GuardedBy("this")
+        private long lastBackoffNanos;
+
+        Limiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long latencyThresholdNanos) {
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.backoffRatio = backoffRatio;
+            this.latencyThresholdNanos = latencyThresholdNanos;
+            this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        }
+
+        synchronized boolean tryAcquire() {
+            if (inFlight >= (int)limit) return false;
+            ++inFlight;
+            return true;
+        }
+
+        /**
+         * Releases a request admitted at the given time. Only requests admitted after the last backoff may cause
+         * another, such that a single overload episode backs off once rather than once per request in flight.
+         */
+        synchronized void release(long admittedAtNanos, long completedAtNanos, boolean overloaded) {
+            boolean inUse = inFlight * 2 >= limit;
+            --inFlight;
+            boolean tooSlow = latencyThresholdNanos > 0 && completedAtNanos - admittedAtNanos > latencyThresholdNanos;
+            if (overloaded || tooSlow) {
+                if ( ! hasBackedOff || admittedAtNanos - lastBackoffNanos > 0) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    hasBackedOff = true;
+                    lastBackoffNanos = completedAtNanos;
+                }
+            } else if (inUse) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+
+        synchronized int limit() {
+            return (int)limit;
+        }
+
+        synchronized int inFlight() {
+            return inFlight;
+        }
+
+    }
+
+}
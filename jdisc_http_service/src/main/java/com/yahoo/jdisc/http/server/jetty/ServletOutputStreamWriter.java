@@ -1,8 +1,11 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.jdisc.http.server.jetty;
 
+import com.yahoo.jdisc.handler.ByteBufferPool;
 import com.yahoo.jdisc.handler.CompletionHandler;
 
+import org.eclipse.jetty.server.HttpOutput;
+
 import javax.annotation.concurrent.GuardedBy;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
@@ -11,6 +14,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
@@ -48,6 +52,13 @@ public class ServletOutputStreamWriter {
     // Other ways to express this are also possible, e.g. with a 'closed' state checked when queue goes empty.
     private static final ByteBuffer CLOSE_STREAM_BUFFER = ByteBuffer.allocate(0);
 
+    /**
+     * Consecutive queued buffers are copied into a single write as long as their total size is at most this.
+     * Each write to the output stream must be preceded by an isReady call, and may cause a separate network write,
+     * so gathering small buffers saves both.
+     */
+    static final int MAX_GATHERED_BYTES = 16 * 1024;
+
     private final Object monitor = new Object();
 
     @GuardedBy("monitor")
@@ -56,10 +67,18 @@ public class ServletOutputStreamWriter {
     @GuardedBy("state")
     private final ServletOutputStream outputStream;
     private final Executor executor;
+    private final ByteBufferPool bufferPool;
 
     @GuardedBy("monitor")
     private final Deque<ResponseContentPart> responseContentQueue = new ArrayDeque<>();
 
+    /**
+     * The handlers of buffers which have been written to the output stream, which may still refer to them until
+     * it is ready for the next write. They are completed when it is, such that their buffers may then be reused.
+     */
+    @GuardedBy("monitor")
+    private List<CompletionHandler> writtenHandlers = new ArrayList<>();
+
     private final MetricReporter metricReporter;
 
     /**
@@ -72,9 +91,15 @@ public class ServletOutputStreamWriter {
 
 
     public ServletOutputStreamWriter(ServletOutputStream outputStream, Executor executor, MetricReporter metricReporter) {
+        this(outputStream, executor, metricReporter, ByteBufferPool.DEFAULT);
+    }
+
+    ServletOutputStreamWriter(ServletOutputStream outputStream, Executor executor, MetricReporter metricReporter,
+                              ByteBufferPool bufferPool) {
         this.outputStream = outputStream;
         this.executor = executor;
         this.metricReporter = metricReporter;
+        this.bufferPool = bufferPool;
     }
 
     public void sendErrorContentAndCloseAsync(ByteBuffer errorContent) {
@@ -136,6 +161,8 @@ public class ServletOutputStreamWriter {
 
         while (true) {
             ResponseContentPart contentPart;
+            List<ResponseContentPart> gatheredParts;
+            List<CompletionHandler> completedHandlers = null;
 
             synchronized (monitor) {
                 if (state == State.FINISHED_OR_ERROR) {
@@ -148,15 +175,27 @@ public class ServletOutputStreamWriter {
                     return;
                 }
 
-                contentPart = responseContentQueue.pollFirst();
+                if (!writtenHandlers.isEmpty()) {
+                    completedHandlers = writtenHandlers;
+                    writtenHandlers = new ArrayList<>();
+                    contentPart = null;
+                    gatheredParts = null;
+                } else {
+                    contentPart = responseContentQueue.pollFirst();
 
-                if (contentPart == null && lastOperationWasFlush) {
-                    state = State.WAITING_FOR_BUFFER;
-                    return;
+                    if (contentPart == null && lastOperationWasFlush) {
+                        state = State.WAITING_FOR_BUFFER;
+                        return;
+                    }
+                    gatheredParts = pollGatherableParts_holdingLock(contentPart);
                 }
             }
 
             try {
+                if (completedHandlers != null) { // the stream is done with their buffers
+                    completeHandlers(completedHandlers);
+                    continue;
+                }
                 boolean isFlush = contentPart == null;
                 if (isFlush) {
                     outputStream.flush();
@@ -169,6 +208,8 @@ public class ServletOutputStreamWriter {
                     callCompletionHandlerWhenDone(contentPart.handler, outputStream::close);
                     setFinished(Optional.empty());
                     return;
+                } else if (gatheredParts != null) {
+                    writeGatheredBuffersToOutputStream(gatheredParts);
                 } else {
                     writeBufferToOutputStream(contentPart);
                 }
@@ -182,7 +223,7 @@ public class ServletOutputStreamWriter {
     private void setFinished(Optional<Throwable> e) {
         synchronized (monitor) {
             state = State.FINISHED_OR_ERROR;
-            if (!responseContentQueue.isEmpty()) {
+            if (!responseContentQueue.isEmpty() || !writtenHandlers.isEmpty()) {
                 failAllParts_holdingLock(e.orElse(new IllegalStateException("ContentChannel closed.")));
             }
         }
@@ -198,38 +239,116 @@ public class ServletOutputStreamWriter {
     private void failAllParts_holdingLock(Throwable e) {
         assert Thread.holdsLock(monitor);
 
-        ArrayList<ResponseContentPart> failedParts = new ArrayList<>(responseContentQueue);
+        List<CompletionHandler> failedHandlers = writtenHandlers;
+        writtenHandlers = new ArrayList<>();
+        responseContentQueue.forEach(part -> failedHandlers.add(part.handler));
         responseContentQueue.clear();
 
         @SuppressWarnings("ThrowableInstanceNeverThrown")
         RuntimeException failReason = new RuntimeException("Failing due to earlier ServletOutputStream write failure", e);
 
-        Consumer<ResponseContentPart> failCompletionHandler = responseContentPart ->
+        Consumer<CompletionHandler> failCompletionHandler = handler ->
                 runCompletionHandler_logOnExceptions(
-                        () -> responseContentPart.handler.failed(failReason));
+                        () -> handler.failed(failReason));
 
         executor.execute(
-                () -> failedParts.forEach(failCompletionHandler));
+                () -> failedHandlers.forEach(failCompletionHandler));
+    }
+
+    /**
+     * Returns the given part followed by the queued parts which can be written together with it in a single write,
+     * or null if there are none, in which case the given part should be written by itself.
+     */
+    private List<ResponseContentPart> pollGatherableParts_holdingLock(ResponseContentPart first) {
+        assert Thread.holdsLock(monitor);
+
+        if (first == null || first.buf == CLOSE_STREAM_BUFFER) return null;
+        int gatheredBytes = first.buf.remaining();
+        List<ResponseContentPart> parts = null;
+        for (ResponseContentPart next = responseContentQueue.peekFirst();
+             next != null && next.buf != CLOSE_STREAM_BUFFER && gatheredBytes + next.buf.remaining() <= MAX_GATHERED_BYTES;
+             next = responseContentQueue.peekFirst()) {
+            if (parts == null) {
+                parts = new ArrayList<>();
+                parts.add(first);
+            }
+            parts.add(responseContentQueue.pollFirst());
+            gatheredBytes += next.buf.remaining();
+        }
+        return parts;
     }
 
     private void writeBufferToOutputStream(ResponseContentPart contentPart) throws Throwable {
-        callCompletionHandlerWhenDone(contentPart.handler, () -> {
-            ByteBuffer buffer = contentPart.buf;
-            final int bytesToSend = buffer.remaining();
+        ByteBuffer buffer = contentPart.buf;
+        final int bytesToSend = buffer.remaining();
+        try {
+            if (buffer.hasArray()) {
+                outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else if (outputStream instanceof HttpOutput) { // write direct buffers without copying them to the heap
+                ((HttpOutput)outputStream).write(buffer);
+            } else {
+                final byte[] array = new byte[buffer.remaining()];
+                buffer.get(array);
+                outputStream.write(array);
+            }
+            metricReporter.successfulWrite(bytesToSend);
+        } catch (Throwable throwable) {
+            metricReporter.failedWrite();
+            runCompletionHandler_logOnExceptions(() -> contentPart.handler.failed(throwable));
+            throw throwable;
+        }
+        synchronized (monitor) {
+            writtenHandlers.add(contentPart.handler);
+        }
+    }
+
+    /**
+     * Writes the given parts in a single write, through a buffer from the pool. The buffer is released, and the
+     * handlers of the parts completed in order, when the stream is ready again, as an asynchronous write of the
+     * buffer is then done with it. The buffer is not released if the write fails, as the stream may still refer to it.
+     */
+    private void writeGatheredBuffersToOutputStream(List<ResponseContentPart> parts) throws Throwable {
+        int bytesToSend = 0;
+        for (ResponseContentPart part : parts) {
+            bytesToSend += part.buf.remaining();
+        }
+        ByteBuffer buffer = bufferPool.acquire(bytesToSend);
+        CompletionHandler releaseHandler = bufferPool.releaseOnCompletion(buffer, null);
+        try {
+            for (ResponseContentPart part : parts) {
+                buffer.put(part.buf);
+            }
+            buffer.flip();
+            if (outputStream instanceof HttpOutput) {
+                ((HttpOutput)outputStream).write(buffer);
+            } else {
+                outputStream.write(buffer.array(), buffer.arrayOffset(), buffer.remaining());
+            }
+            metricReporter.successfulWrite(bytesToSend);
+        } catch (Throwable e) {
+            metricReporter.failedWrite();
+            releaseHandler.failed(e);
+            for (ResponseContentPart part : parts) {
+                runCompletionHandler_logOnExceptions(() -> part.handler.failed(e));
+            }
+            throw e;
+        }
+        synchronized (monitor) {
+            writtenHandlers.add(releaseHandler);
+            parts.forEach(part -> writtenHandlers.add(part.handler));
+        }
+    }
+
+    private static void completeHandlers(List<CompletionHandler> handlers) throws Throwable {
+        Throwable handlerFailure = null;
+        for (CompletionHandler handler : handlers) {
             try {
-                if (buffer.hasArray()) {
-                    outputStream.write(buffer.array(), buffer.arrayOffset(), buffer.remaining());
-                } else {
-                    final byte[] array = new byte[buffer.remaining()];
-                    buffer.get(array);
-                    outputStream.write(array);
-                }
-                metricReporter.successfulWrite(bytesToSend);
-            } catch (Throwable throwable) {
-                metricReporter.failedWrite();
-                throw throwable;
+                handler.completed();
+            } catch (Throwable e) { // complete the remaining handlers before handling this in the enclosing scope
+                if (handlerFailure == null) handlerFailure = e;
             }
-        });
+        }
+        if (handlerFailure != null) throw handlerFailure;
     }
 
     private static void callCompletionHandlerWhenDone(CompletionHandler handler, IORunnable runnable) throws Exception {
@@ -36,6 +36,10 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
@@ -44,6 +48,7 @@ import static com.yahoo.jdisc.Response.Status.INTERNAL_SERVER_ERROR;
 import static com.yahoo.jdisc.Response.Status.NOT_FOUND;
 import static com.yahoo.jdisc.Response.Status.OK;
 import static com.yahoo.jdisc.Response.Status.REQUEST_URI_TOO_LONG;
+import static com.yahoo.jdisc.Response.Status.SERVICE_UNAVAILABLE;
 import static com.yahoo.jdisc.Response.Status.UNSUPPORTED_MEDIA_TYPE;
 import static com.yahoo.jdisc.http.HttpHeaders.Names.CONNECTION;
 import static com.yahoo.jdisc.http.HttpHeaders.Names.CONTENT_TYPE;
@@ -402,6 +407,30 @@ public class HttpServerTest {
         assertThat(driver.close(), is(true));
     }
 
+    @Test
+    public void requireThatRequestsAboveConcurrencyLimitAreRejected() throws Exception {
+        final HoldingHandler requestHandler = new HoldingHandler();
+        final TestDriver driver = TestDrivers.newConfiguredInstance(
+                requestHandler,
+                new ServerConfig.Builder()
+                        .overloadProtection(new ServerConfig.OverloadProtection.Builder()
+                                                    .enabled(true)
+                                                    .initialLimit(1)
+                                                    .minLimit(1)),
+                new ConnectorConfig.Builder());
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Future<ResponseValidator> admitted = executor.submit(() -> driver.client().get("/status.html"));
+        assertThat(requestHandler.requestReceived.await(600, TimeUnit.SECONDS), is(true));
+
+        driver.client().get("/status.html")
+              .expectStatusCode(is(SERVICE_UNAVAILABLE));
+        ResponseDispatch.newInstance(OK).dispatch(requestHandler.responseHandler);
+        admitted.get(600, TimeUnit.SECONDS)
+                .expectStatusCode(is(OK));
+        executor.shutdown();
+        assertThat(driver.close(), is(true));
+    }
+
     // Header with no value is disallowed by https://tools.ietf.org/html/rfc7230#section-3.2
     // Details in https://github.com/eclipse/jetty.project/issues/1116
     @Test
@@ -610,6 +639,19 @@ public class HttpServerTest {
         }
     }
 
+    private static class HoldingHandler extends AbstractRequestHandler {
+
+        final CountDownLatch requestReceived = new CountDownLatch(1);
+        volatile ResponseHandler responseHandler;
+
+        @Override
+        public ContentChannel handleRequest(final Request request, final ResponseHandler handler) {
+            responseHandler = handler;
+            requestReceived.countDown();
+            return null;
+        }
+    }
+
     private static class EchoRequestHandler extends AbstractRequestHandler {
 
         @Override
@@ -0,0 +1,118 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.Metric;
+import com.yahoo.jdisc.http.ServerConfig;
+import com.yahoo.jdisc.http.server.jetty.OverloadProtection.Limiter;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class OverloadProtectionTest {
+
+    private static final long THRESHOLD = 1000;
+
+    @Test
+    public void requireThatRequestsAboveLimitAreRejected() {
+        Limiter limiter = new Limiter(2, 1, 10, 0.5, THRESHOLD);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(limiter.inFlight(), 2);
+
+        limiter.release(0, 10, false);
+        assertEquals(limiter.inFlight(), 1);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void requireThatLimitIncreasesAdditivelyWhileInUse() {
+        Limiter limiter = new Limiter(4, 1, 6, 0.5, THRESHOLD);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(0, 10, false); // a single request in flight does not use the limit
+        }
+        assertEquals(limiter.limit(), 4);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        limiter.release(0, 10, false);
+        limiter.release(0, 10, false);
+        assertEquals(limiter.limit(), 4); // 4 + 1/4 + 1/4.25
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            assertTrue(limiter.tryAcquire());
+            limiter.release(0, 10, false);
+            limiter.release(0, 10, false);
+        }
+        assertEquals(limiter.limit(), 6); // bounded by the maximum limit
+    }
+
+    @Test
+    public void requireThatSlowAndOverloadedRequestsBackOff() {
+        Limiter limiter = new Limiter(8, 3, 10, 0.5, THRESHOLD);
+        assertTrue(limiter.tryAcquire());
+        limiter.release(0, THRESHOLD + 1, false);
+        assertEquals(limiter.limit(), 4);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(THRESHOLD + 2, THRESHOLD + 3, true);
+        assertEquals(limiter.limit(), 3);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(THRESHOLD + 4, THRESHOLD * 3, false);
+        assertEquals(limiter.limit(), 3); // bounded by the minimum limit
+    }
+
+    @Test
+    public void requireThatSlowRequestsDoNotBackOffWithoutLatencyThreshold() {
+        Limiter limiter = new Limiter(8, 1, 10, 0.5, 0);
+        assertTrue(limiter.tryAcquire());
+        limiter.release(0, THRESHOLD * 1000, false);
+        assertEquals(limiter.limit(), 8);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(1, 2, true);
+        assertEquals(limiter.limit(), 4);
+    }
+
+    @Test
+    public void requireThatLatencyThresholdCanBeSetPerBinding() {
+        OverloadProtection protection = new OverloadProtection(
+                new ServerConfig.OverloadProtection(new ServerConfig.OverloadProtection.Builder()
+                        .latencyThresholdMillis(1000)
+                        .binding(new ServerConfig.OverloadProtection.Binding.Builder()
+                                         .pattern("http://*/feed/*")
+                                         .latencyThresholdMillis(0))
+                        .binding(new ServerConfig.OverloadProtection.Binding.Builder()
+                                         .pattern("http://*/search/*")
+                                         .latencyThresholdMillis(200))),
+                mock(Metric.class));
+        assertEquals(protection.latencyThresholdNanosOf("http://*/feed/*"), 0);
+        assertEquals(protection.latencyThresholdNanosOf("http://*/search/*"), TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(protection.latencyThresholdNanosOf("http://*/status.html"), TimeUnit.MILLISECONDS.toNanos(1000));
+    }
+
+    @Test
+    public void requireThatRequestsAdmittedBeforeLastBackoffDoNotBackOffAgain() {
+        Limiter limiter = new Limiter(8, 1, 10, 0.5, THRESHOLD);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        limiter.release(0, THRESHOLD + 1, false);
+        limiter.release(1, THRESHOLD + 2, false);
+        limiter.release(2, THRESHOLD + 3, true);
+        assertEquals(limiter.limit(), 4);
+
+        limiter.release(THRESHOLD + 2, THRESHOLD + 3, true);
+        assertEquals(limiter.limit(), 2);
+    }
+
+}
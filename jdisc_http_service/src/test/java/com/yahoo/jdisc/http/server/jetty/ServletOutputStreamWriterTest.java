@@ -0,0 +1,195 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.Metric;
+import com.yahoo.jdisc.handler.ByteBufferPool;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import org.testng.annotations.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ServletOutputStreamWriterTest {
+
+    @Test
+    public void requireThatSmallBuffersAreGatheredIntoASingleWrite() throws IOException {
+        MockOutputStream output = new MockOutputStream();
+        ServletOutputStreamWriter writer = newWriter(output);
+        List<MockCompletionHandler> handlers = new ArrayList<>();
+        for (String s : Arrays.asList("foo", "bar", "baz")) {
+            MockCompletionHandler handler = new MockCompletionHandler();
+            writer.writeBuffer(ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8)), handler);
+            handlers.add(handler);
+        }
+        MockCompletionHandler closeHandler = new MockCompletionHandler();
+        writer.close(closeHandler);
+
+        output.listener.onWritePossible();
+        assertEquals(output.writeSizes, Arrays.asList(9));
+        assertEquals(new String(output.written.toByteArray(), StandardCharsets.UTF_8), "foobarbaz");
+        for (MockCompletionHandler handler : handlers) {
+            assertEquals(handler.completed, 1);
+        }
+        assertEquals(closeHandler.completed, 1);
+        assertTrue(output.closed);
+        assertTrue(writer.finishedFuture.isDone());
+    }
+
+    @Test
+    public void requireThatLargeBuffersAreWrittenByThemselves() throws IOException {
+        MockOutputStream output = new MockOutputStream();
+        ServletOutputStreamWriter writer = newWriter(output);
+        byte[] large = new byte[ServletOutputStreamWriter.MAX_GATHERED_BYTES];
+        Arrays.fill(large, (byte)'x');
+        writer.writeBuffer(ByteBuffer.wrap(new byte[] { 'a' }), new MockCompletionHandler());
+        writer.writeBuffer(ByteBuffer.wrap(large), new MockCompletionHandler());
+        writer.writeBuffer(ByteBuffer.wrap(new byte[] { 'b' }), new MockCompletionHandler());
+        writer.writeBuffer(ByteBuffer.wrap(new byte[] { 'c' }), new MockCompletionHandler());
+        writer.close();
+
+        output.listener.onWritePossible();
+        assertEquals(output.writeSizes, Arrays.asList(1, large.length, 2));
+        assertEquals(output.written.size(), large.length + 3);
+    }
+
+    @Test
+    public void requireThatBufferPositionIsRespected() throws IOException {
+        MockOutputStream output = new MockOutputStream();
+        ServletOutputStreamWriter writer = newWriter(output);
+        ByteBuffer buffer = ByteBuffer.wrap("xxfoo".getBytes(StandardCharsets.UTF_8));
+        buffer.position(2);
+        writer.writeBuffer(buffer, new MockCompletionHandler());
+        writer.close();
+
+        output.listener.onWritePossible();
+        assertEquals(output.written.toByteArray(), "foo".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void requireThatWriteIsCompletedWhenStreamIsReadyAgain() throws IOException {
+        MockOutputStream output = new MockOutputStream();
+        ServletOutputStreamWriter writer = newWriter(output);
+        MockCompletionHandler handler = new MockCompletionHandler();
+        writer.writeBuffer(ByteBuffer.wrap(new byte[] { 'a' }), handler);
+
+        output.readyAfterWrite = false; // the stream may still refer to the written buffer
+        output.listener.onWritePossible();
+        assertEquals(output.writeSizes, Arrays.asList(1));
+        assertEquals(handler.completed, 0);
+
+        output.readyAfterWrite = true;
+        output.ready = true;
+        output.listener.onWritePossible();
+        assertEquals(handler.completed, 1);
+    }
+
+    @Test
+    public void requireThatGatherBufferIsReleasedWhenStreamIsReadyAgain() throws IOException {
+        MockOutputStream output = new MockOutputStream();
+        ByteBufferPool pool = new ByteBufferPool();
+        ServletOutputStreamWriter writer = newWriter(output, pool);
+        MockCompletionHandler first = new MockCompletionHandler();
+        MockCompletionHandler second = new MockCompletionHandler();
+        writer.writeBuffer(ByteBuffer.wrap(new byte[] { 'a' }), first);
+        writer.writeBuffer(ByteBuffer.wrap(new byte[] { 'b' }), second);
+
+        output.readyAfterWrite = false; // an asynchronous write may still refer to the gather buffer
+        output.listener.onWritePossible();
+        assertEquals(output.writeSizes, Arrays.asList(2));
+        assertEquals(pool.outstanding(), 1);
+        assertEquals(first.completed, 0);
+
+        output.readyAfterWrite = true;
+        output.ready = true;
+        output.listener.onWritePossible();
+        assertEquals(pool.outstanding(), 0);
+        assertEquals(first.completed, 1);
+        assertEquals(second.completed, 1);
+    }
+
+    @Test
+    public void requireThatHandlersOfGatheredBuffersAreFailedOnWriteFailure() throws IOException {
+        MockOutputStream output = new MockOutputStream();
+        output.failWrites = true;
+        ByteBufferPool pool = new ByteBufferPool();
+        ServletOutputStreamWriter writer = newWriter(output, pool);
+        MockCompletionHandler first = new MockCompletionHandler();
+        MockCompletionHandler second = new MockCompletionHandler();
+        writer.writeBuffer(ByteBuffer.wrap(new byte[] { 'a' }), first);
+        writer.writeBuffer(ByteBuffer.wrap(new byte[] { 'b' }), second);
+
+        output.listener.onWritePossible();
+        assertEquals(first.failed, 1);
+        assertEquals(second.failed, 1);
+        assertEquals(pool.outstanding(), 0);
+        assertTrue(writer.finishedFuture.isCompletedExceptionally());
+    }
+
+    private static ServletOutputStreamWriter newWriter(ServletOutputStream output) {
+        return newWriter(output, new ByteBufferPool());
+    }
+
+    private static ServletOutputStreamWriter newWriter(ServletOutputStream output, ByteBufferPool pool) {
+        return new ServletOutputStreamWriter(output, Runnable::run,
+                                             new MetricReporter(Mockito.mock(Metric.class), null, 0), pool);
+    }
+
+    private static class MockOutputStream extends ServletOutputStream {
+
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        final List<Integer> writeSizes = new ArrayList<>();
+        WriteListener listener;
+        boolean failWrites = false;
+        boolean closed = false;
+        boolean ready = true;
+        boolean readyAfterWrite = true;
+
+        @Override
+        public boolean isReady() { return ready; }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) { listener = writeListener; }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte)b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (failWrites) throw new IOException("Expected");
+            writeSizes.add(len);
+            written.write(b, off, len);
+            ready = readyAfterWrite;
+        }
+
+        @Override
+        public void close() { closed = true; }
+
+    }
+
+    private static class MockCompletionHandler implements CompletionHandler {
+
+        int completed = 0;
+        int failed = 0;
+
+        @Override
+        public void completed() { completed++; }
+
+        @Override
+        public void failed(Throwable t) { failed++; }
+
+    }
+
+}
@@ -20,27 +20,21 @@ public class StemmerImpl implements Stemmer {
     @Override
     public List<StemList> stem(String input, StemMode stemMode, Language language) {
         List<StemList> stems = new ArrayList<>();
-        for (Token token : tokenizer.tokenize(input, language, stemMode, false)) {
-            findStems(token, stems);
+        TokenCursor cursor = tokenizer.cursor(input, language, stemMode, false);
+        while (cursor.next()) {
+            if ( ! cursor.isIndexable()) continue;
+
+            StemList word = new StemList();
+            word.add(toString(cursor.getTokenString())); // takes care of getStem(0)
+            for (int i = 1; i < cursor.getNumStems(); i++) {
+                word.add(toString(cursor.getStem(i)));
+            }
+            stems.add(word);
         }
         return stems;
     }
 
-    private void findStems(Token token, List<StemList> out) {
-        int len;
-        if (token.isSpecialToken() || (len = token.getNumComponents()) == 0) {
-            if (token.isIndexable()) {
-                StemList word = new StemList();
-                word.add(token.getTokenString()); // takes care of getStem(0)
-                for (int i = 1; i < token.getNumStems(); i++) {
-                    word.add(token.getStem(i));
-                }
-                out.add(word);
-            }
-        } else {
-            for (int i = 0; i < len; ++i) {
-                findStems(token.getComponent(i), out);
-            }
-        }
+    private static String toString(CharSequence s) {
+        return s == null ? null : s.toString();
     }
 }
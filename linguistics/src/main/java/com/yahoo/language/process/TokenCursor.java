@@ -0,0 +1,45 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.process;
+
+/**
+ * A cursor over the tokens produced from an input text, as returned by
+ * {@link Tokenizer#cursor(CharSequence, com.yahoo.language.Language, StemMode, boolean)}.
+ * <p>
+ * Unlike the tokens returned by {@link Tokenizer#tokenize}, a cursor presents one token at a time and overwrites its
+ * state on each call to {@link #next()}, which allows tokenizers to produce tokens without allocating objects per
+ * token. The char sequences returned by a cursor are therefore only valid until the next call to next(), and must be
+ * copied (e.g. using toString()) if they are to be retained.
+ * <p>
+ * Compound tokens which are not special tokens are presented as their components, which is how they are
+ * consumed for indexing and stemming.
+ */
+public interface TokenCursor {
+
+    /** Moves this to the next token. Returns false when there are no more tokens */
+    boolean next();
+
+    /** Returns the type of the current token */
+    TokenType getType();
+
+    /** Returns the offset of the current token in the input */
+    int getOffset();
+
+    /** Returns the original form of the current token */
+    CharSequence getOrig();
+
+    /** Returns the token string of the current token, see {@link Token#getTokenString()}, or null if none */
+    CharSequence getTokenString();
+
+    /** Returns the number of stem forms available for the current token */
+    int getNumStems();
+
+    /** Returns the stem at position i of the current token */
+    CharSequence getStem(int i);
+
+    /** Returns whether the current token is an instance of a declared special token (e.g. c++) */
+    boolean isSpecialToken();
+
+    /** Returns whether the current token should be indexed */
+    default boolean isIndexable() { return getType().isIndexable(); }
+
+}
@@ -0,0 +1,61 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.process;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * A cursor over a list of tokens, used by tokenizers which do not provide a cursor of their own.
+ */
+class TokenIterableCursor implements TokenCursor {
+
+    private final Iterator<Token> tokens;
+    private final Deque<Token> components = new ArrayDeque<>();
+    private Token current = null;
+
+    TokenIterableCursor(Iterable<Token> tokens) {
+        this.tokens = tokens.iterator();
+    }
+
+    @Override
+    public boolean next() {
+        while (true) {
+            if ( ! components.isEmpty())
+                current = components.pop();
+            else if (tokens.hasNext())
+                current = tokens.next();
+            else
+                return false;
+
+            if (current.isSpecialToken() || current.getNumComponents() == 0) return true;
+            for (int i = current.getNumComponents() - 1; i >= 0; i--)
+                components.push(current.getComponent(i));
+        }
+    }
+
+    @Override
+    public TokenType getType() { return current.getType(); }
+
+    @Override
+    public int getOffset() { return (int)current.getOffset(); }
+
+    @Override
+    public CharSequence getOrig() { return current.getOrig(); }
+
+    @Override
+    public CharSequence getTokenString() { return current.getTokenString(); }
+
+    @Override
+    public int getNumStems() { return current.getNumStems(); }
+
+    @Override
+    public CharSequence getStem(int i) { return current.getStem(i); }
+
+    @Override
+    public boolean isSpecialToken() { return current.isSpecialToken(); }
+
+    @Override
+    public boolean isIndexable() { return current.isIndexable(); }
+
+}
@@ -22,6 +22,24 @@ public interface Tokenizer {
      */
     Iterable<Token> tokenize(String input, Language language, StemMode stemMode, boolean removeAccents);
 
+    /**
+     * Returns a cursor over the tokens produced from an input string under the rules of the given Language and
+     * additional options. This produces the same tokens as {@link #tokenize}, but tokenizers may implement it
+     * without allocating objects per token.
+     * <p>
+     * This default implementation returns a cursor over the tokens returned by {@link #tokenize}.
+     *
+     * @param input the text to tokenize. May be arbitrarily large.
+     * @param language the language of the input string.
+     * @param stemMode the stem mode applied on the returned tokens
+     * @param removeAccents if true accents and similar are removed from the returned tokens
+     * @return a cursor positioned before the first token of the input
+     * @throws ProcessingException If the underlying library throws an Exception.
+     */
+    default TokenCursor cursor(CharSequence input, Language language, StemMode stemMode, boolean removeAccents) {
+        return new TokenIterableCursor(tokenize(input.toString(), language, stemMode, removeAccents));
+    }
+
     /**
      * Return a replacement for an input token string.
      * This accepts strings returned by Token.getTokenString
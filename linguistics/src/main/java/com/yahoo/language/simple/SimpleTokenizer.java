@@ -5,6 +5,7 @@ import com.yahoo.language.Language;
 import com.yahoo.language.LinguisticsCase;
 import com.yahoo.language.process.*;
 import com.yahoo.language.simple.kstem.KStemmer;
+import com.yahoo.language.simple.kstem.OpenStringBuilder;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -63,6 +64,16 @@ public class SimpleTokenizer implements Tokenizer {
         return tokens;
     }
 
+    /**
+     * Returns a cursor over the same tokens as {@link #tokenize} would return for this input. The cursor processes
+     * tokens consisting only of ASCII characters in a reused char buffer, such that no objects are created per token
+     * unless the normalizer or transformer of this is not the default one.
+     */
+    @Override
+    public TokenCursor cursor(CharSequence input, Language language, StemMode stemMode, boolean removeAccents) {
+        return new Cursor(input, language, stemMode, removeAccents);
+    }
+
     private String processToken(String token, Language language, StemMode stemMode, boolean removeAccents) {
         token = normalizer.normalize(token);
         token = LinguisticsCase.toLowerCase(token);
@@ -73,4 +84,138 @@ public class SimpleTokenizer implements Tokenizer {
         return token;
     }
 
+    /** Returns whether ASCII input is left unchanged by both normalization and accent removal */
+    private boolean asciiIsInvariant() {
+        return normalizer.getClass() == SimpleNormalizer.class && transformer.getClass() == SimpleTransformer.class;
+    }
+
+    private class Cursor implements TokenCursor {
+
+        private final CharSequence input;
+        private final Language language;
+        private final StemMode stemMode;
+        private final boolean removeAccents;
+        private final boolean asciiIsInvariant = asciiIsInvariant();
+        private final Window orig;
+        private final OpenStringBuilder buffer = new OpenStringBuilder();
+
+        private int prev = 0;
+        private int next;
+        private TokenType prevType;
+
+        private TokenType type;
+        private int offset;
+        private CharSequence tokenString;
+
+        Cursor(CharSequence input, Language language, StemMode stemMode, boolean removeAccents) {
+            this.input = input;
+            this.language = language;
+            this.stemMode = stemMode;
+            this.removeAccents = removeAccents;
+            this.orig = new Window(input);
+            if (input.length() == 0) {
+                next = 1; // done
+            } else {
+                int firstCode = Character.codePointAt(input, 0);
+                prevType = SimpleTokenType.valueOf(firstCode);
+                next = Character.charCount(firstCode);
+            }
+        }
+
+        @Override
+        public boolean next() {
+            while (next <= input.length()) {
+                int nextCode = next < input.length() ? Character.codePointAt(input, next) : SPACE_CODE;
+                TokenType nextType = SimpleTokenType.valueOf(nextCode);
+                boolean boundary = !prevType.isIndexable() || !nextType.isIndexable();
+                if (boundary) {
+                    type = prevType;
+                    offset = prev;
+                    orig.set(prev, next);
+                    tokenString = processToken();
+                    prev = next;
+                    prevType = nextType;
+                }
+                next += Character.charCount(nextCode);
+                if (boundary) return true;
+            }
+            return false;
+        }
+
+        private CharSequence processToken() {
+            if ( ! asciiIsInvariant || ! isAscii(orig))
+                return SimpleTokenizer.this.processToken(orig.toString(), language, stemMode, removeAccents);
+
+            buffer.reset();
+            buffer.reserve(orig.length());
+            for (int i = 0; i < orig.length(); i++) {
+                char c = orig.charAt(i);
+                buffer.unsafeWrite(c >= 'A' && c <= 'Z' ? (char)(c + ('a' - 'A')) : c);
+            }
+            if (stemMode == StemMode.NONE) return buffer;
+            CharSequence stem = stemmer.stem(buffer.getArray(), buffer.length());
+            return stem != null ? stem : buffer;
+        }
+
+        private boolean isAscii(CharSequence s) {
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) >= 0x80) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public TokenType getType() { return type; }
+
+        @Override
+        public int getOffset() { return offset; }
+
+        @Override
+        public CharSequence getOrig() { return orig; }
+
+        @Override
+        public CharSequence getTokenString() { return tokenString; }
+
+        @Override
+        public int getNumStems() { return 1; }
+
+        @Override
+        public CharSequence getStem(int i) { return tokenString; }
+
+        @Override
+        public boolean isSpecialToken() { return false; }
+
+    }
+
+    /** A reusable view of a region of a char sequence */
+    private static class Window implements CharSequence {
+
+        private final CharSequence source;
+        private int start, end;
+
+        Window(CharSequence source) {
+            this.source = source;
+        }
+
+        void set(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() { return end - start; }
+
+        @Override
+        public char charAt(int index) { return source.charAt(start + index); }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return source.subSequence(this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() { return source.subSequence(start, end).toString(); }
+
+    }
+
 }
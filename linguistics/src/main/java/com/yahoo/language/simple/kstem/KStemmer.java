@@ -1275,10 +1275,19 @@ public class KStemmer {
   public KStemmer() {}
   
   public String stem(String term) {
-    boolean changed = stem(term.toCharArray(), term.length());
+    boolean changed = stemInPlace(term.toCharArray(), term.length());
     if (!changed) return term;
     return asString();
   }
+
+  /**
+   * Stems the first len chars of the given array without creating any strings.
+   * Returns the stem, or null if the term is unchanged by stemming. The returned
+   * sequence is owned by this stemmer and is only valid until it is invoked again.
+   */
+  public CharSequence stem(char[] term, int len) {
+    return stemInPlace(term, len) ? asCharSequence() : null;
+  }
   
   /**
    * Returns the result of the stem (assuming the word was changed) as a String.
@@ -1320,7 +1329,7 @@ public class KStemmer {
   /**
    * Stems the text in the token. Returns true if changed.
    */
-  boolean stem(char[] term, int len) {
+  boolean stemInPlace(char[] term, int len) {
     
     result = null;
     
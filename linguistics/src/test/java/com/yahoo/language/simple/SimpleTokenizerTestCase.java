@@ -33,4 +33,16 @@ public class SimpleTokenizerTestCase extends AbstractTokenizerTestCase {
                             " ", "gods", ".", "running", ")");
     }
 
+    @Test
+    public void testCursorEqualsTokens() {
+        String input = "Running RUNNERS ran. Cafe\u0301 caf\u00e9 na\u00efve Nai\u0308ve \uD800\uDFC8 c++ 42nd x";
+        for (StemMode stemMode : StemMode.values()) {
+            new TokenizerTester().setStemMode(stemMode).assertCursorEqualsTokens(input);
+            new TokenizerTester().setStemMode(stemMode).setAccentDrop(true).assertCursorEqualsTokens(input);
+        }
+        new TokenizerTester().assertCursorEqualsTokens("");
+        new TokenizerTester().assertCursorEqualsTokens(" ");
+        new TokenizerTester().assertCursorEqualsTokens("a");
+    }
+
 }
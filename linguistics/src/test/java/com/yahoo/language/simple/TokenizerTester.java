@@ -5,12 +5,15 @@ import com.yahoo.language.Language;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.process.StemMode;
 import com.yahoo.language.process.Token;
+import com.yahoo.language.process.TokenCursor;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author bratseth
@@ -28,6 +31,41 @@ public class TokenizerTester {
             findTokenStrings(token, actual);
         }
         assertEquals(Arrays.asList(expectedTokenStrings), actual);
+        assertCursorEqualsTokens(input);
+    }
+
+    /** Asserts that the cursor of the tokenizer produces the same tokens as tokenize */
+    public void assertCursorEqualsTokens(String input) {
+        List<Token> expected = new ArrayList<>();
+        for (Token token : tokenize(input)) {
+            findTokens(token, expected);
+        }
+        TokenCursor cursor = linguistics.getTokenizer().cursor(input, language, stemMode, accentDrop);
+        for (Token token : expected) {
+            assertTrue(cursor.next());
+            assertEquals(token.getType(), cursor.getType());
+            assertEquals(token.getOffset(), cursor.getOffset());
+            assertEquals(token.getOrig(), cursor.getOrig().toString());
+            assertEquals(token.getTokenString(), cursor.getTokenString().toString());
+            assertEquals(token.getNumStems(), cursor.getNumStems());
+            for (int i = 0; i < token.getNumStems(); i++) {
+                assertEquals(token.getStem(i), cursor.getStem(i).toString());
+            }
+            assertEquals(token.isSpecialToken(), cursor.isSpecialToken());
+            assertEquals(token.isIndexable(), cursor.isIndexable());
+        }
+        assertFalse(cursor.next());
+    }
+
+    private void findTokens(Token token, List<Token> out) {
+        int numComponents = token.getNumComponents();
+        if (token.isSpecialToken() || numComponents == 0) {
+            out.add(token);
+        } else {
+            for (int i = 0; i < numComponents; ++i) {
+                findTokens(token.getComponent(i), out);
+            }
+        }
     }
 
     public List<String> findTokenStrings(Token token, List<String> out) {
@@ -21,7 +21,7 @@ public class ExpressionCountAggregationResult extends AggregationResult {
     // The unique count estimator
     private final UniqueCountEstimator<Sketch<?>> estimator;
     // Sketch merger
-    private final SketchMerger sketchMerger = new SketchMerger();
+    private static final SketchMerger sketchMerger = new SketchMerger();
     // The sketch used as basis for the unique count calculation. The sketch is populated with data by the search nodes.
     private Sketch<?> sketch;
     // The estimated unique count. This value will not be serialized / deserialized.
@@ -40,49 +40,109 @@ public class Group extends Identifiable {
      * @param rhs          The group to merge with.
      */
     public void merge(int firstLevel, int currentLevel, Group rhs) {
-        if (rhs.rank > rank) {
-            rank = rhs.rank; // keep highest rank
-        }
-        if (currentLevel >= firstLevel) {
-            for (int i = 0, len = aggregationResults.size(); i < len; ++i) {
-                aggregationResults.get(i).merge(rhs.aggregationResults.get(i));
-            }
-        }
+        merge(firstLevel, currentLevel, Collections.singletonList(rhs));
+    }
 
-        ArrayList<Group> merged = new ArrayList<Group>();
-        Iterator<Group> lhsChild = children.iterator(), rhsChild = rhs.children.iterator();
-        if (lhsChild.hasNext() && rhsChild.hasNext()) {
-            Group lhsGroup = lhsChild.next();
-            Group rhsGroup = rhsChild.next();
-            for (; (lhsGroup != null) && (rhsGroup != null); ) {
-                int cmp = lhsGroup.getId().compareTo(rhsGroup.getId());
-                if (cmp < 0) {
-                    merged.add(lhsGroup);
-                    lhsGroup = lhsChild.hasNext() ? lhsChild.next() : null;
-                } else if (cmp > 0) {
-                    merged.add(rhsGroup);
-                    rhsGroup = rhsChild.hasNext() ? rhsChild.next() : null;
-                } else {
-                    lhsGroup.merge(firstLevel, currentLevel + 1, rhsGroup);
-                    merged.add(lhsGroup);
-                    lhsGroup = lhsChild.hasNext() ? lhsChild.next() : null;
-                    rhsGroup = rhsChild.hasNext() ? rhsChild.next() : null;
+    /**
+     * <p>Merges the content of all the given groups <b>into</b> this. This is equivalent to merging the groups into
+     * this one at a time, but the children of all the groups are merged in a single pass, so that the cost does not
+     * grow with the number of groups merged so far. The children of all groups must be sorted by id. When this
+     * function returns, make sure to call {@link #postMerge(java.util.List, int, int)}.</p>
+     *
+     * @param firstLevel   The first level to merge.
+     * @param currentLevel The current level.
+     * @param others       The groups to merge with.
+     */
+    public void merge(int firstLevel, int currentLevel, List<Group> others) {
+        for (Group rhs : others) {
+            if (rhs.rank > rank) {
+                rank = rhs.rank; // keep highest rank
+            }
+            if (currentLevel >= firstLevel) {
+                for (int i = 0, len = aggregationResults.size(); i < len; ++i) {
+                    aggregationResults.get(i).merge(rhs.aggregationResults.get(i));
                 }
             }
-            if (lhsGroup != null) {
+        }
+        if (others.size() == 1) {
+            children = mergeChildren(firstLevel, currentLevel, children, others.get(0).children);
+        } else {
+            children = mergeChildren(firstLevel, currentLevel, others);
+        }
+    }
+
+    private static List<Group> mergeChildren(int firstLevel, int currentLevel, List<Group> lhs, List<Group> rhs) {
+        if (rhs.isEmpty()) {
+            return lhs;
+        }
+        if (lhs.isEmpty()) {
+            return new ArrayList<>(rhs);
+        }
+        List<Group> merged = new ArrayList<>(Math.max(lhs.size(), rhs.size()));
+        int lhsIdx = 0, rhsIdx = 0;
+        while (lhsIdx < lhs.size() && rhsIdx < rhs.size()) {
+            Group lhsGroup = lhs.get(lhsIdx);
+            Group rhsGroup = rhs.get(rhsIdx);
+            int cmp = lhsGroup.getId().compareTo(rhsGroup.getId());
+            if (cmp < 0) {
                 merged.add(lhsGroup);
-            }
-            if (rhsGroup != null) {
+                ++lhsIdx;
+            } else if (cmp > 0) {
                 merged.add(rhsGroup);
+                ++rhsIdx;
+            } else {
+                lhsGroup.merge(firstLevel, currentLevel + 1, rhsGroup);
+                merged.add(lhsGroup);
+                ++lhsIdx;
+                ++rhsIdx;
             }
         }
-        while (lhsChild.hasNext()) {
-            merged.add(lhsChild.next());
+        merged.addAll(lhs.subList(lhsIdx, lhs.size()));
+        merged.addAll(rhs.subList(rhsIdx, rhs.size()));
+        return merged;
+    }
+
+    /** Merges the children of all the given groups into the children of this, using a heap ordered by child id */
+    private List<Group> mergeChildren(int firstLevel, int currentLevel, List<Group> others) {
+        PriorityQueue<ChildCursor> heap = new PriorityQueue<>(others.size() + 1);
+        int maxSize = children.size();
+        if ( ! children.isEmpty()) {
+            heap.add(new ChildCursor(children, 0));
         }
-        while (rhsChild.hasNext()) {
-            merged.add(rhsChild.next());
+        for (int i = 0; i < others.size(); ++i) {
+            List<Group> rhs = others.get(i).children;
+            if ( ! rhs.isEmpty()) {
+                heap.add(new ChildCursor(rhs, i + 1));
+                maxSize = Math.max(maxSize, rhs.size());
+            }
+        }
+        if (heap.size() < 2) {
+            return (heap.isEmpty() || heap.peek().source == 0) ? children : new ArrayList<>(heap.peek().groups);
+        }
+        List<Group> merged = new ArrayList<>(maxSize);
+        List<Group> equal = new ArrayList<>(heap.size());
+        while ( ! heap.isEmpty()) {
+            ChildCursor cursor = heap.poll();
+            Group group = cursor.current();
+            advance(cursor, heap);
+            while ( ! heap.isEmpty() && heap.peek().current().getId().compareTo(group.getId()) == 0) {
+                ChildCursor other = heap.poll();
+                equal.add(other.current());
+                advance(other, heap);
+            }
+            if ( ! equal.isEmpty()) {
+                group.merge(firstLevel, currentLevel + 1, new ArrayList<>(equal));
+                equal.clear();
+            }
+            merged.add(group);
+        }
+        return merged;
+    }
+
+    private static void advance(ChildCursor cursor, PriorityQueue<ChildCursor> heap) {
+        if (cursor.next()) {
+            heap.add(cursor);
         }
-        children = merged;
     }
 
     private void executeOrderBy() {
@@ -115,10 +175,7 @@ public class Group extends Identifiable {
                 group.executeOrderBy();
             }
             if (maxGroups >= 0 && children.size() > maxGroups) {
-                // prune groups
-                sortChildrenByRank();
-                children = children.subList(0, maxGroups);
-                sortChildrenById();
+                pruneChildren(maxGroups);
             }
             for (Group group : children) {
                 group.postMerge(levels, firstLevel, currentLevel + 1);
@@ -127,6 +184,32 @@ public class Group extends Identifiable {
 
     }
 
+    /**
+     * Keeps the given number of children with the best rank, sorted by id. This selects the children using a heap
+     * holding the worst of the best children found so far, instead of sorting all the children by rank. Among
+     * children of equal rank, the ones first in the current order are kept.
+     */
+    private void pruneChildren(int maxGroups) {
+        List<Group> current = children;
+        PriorityQueue<Integer> best = new PriorityQueue<>(maxGroups + 1, (a, b) -> {
+            int cmp = current.get(b).compareRank(current.get(a));
+            return (cmp != 0) ? cmp : Integer.compare(b, a);
+        });
+        for (int i = 0, len = current.size(); i < len; ++i) {
+            best.add(i);
+            if (best.size() > maxGroups) {
+                best.poll();
+            }
+        }
+        List<Group> kept = new ArrayList<>(best.size());
+        for (Integer i : best) {
+            kept.add(current.get(i));
+        }
+        children = kept;
+        sortType = SortType.UNSORTED;
+        sortChildrenById();
+    }
+
     /**
      * <p>Will sort the children by their id, if they are not sorted already.</p>
      */
@@ -317,6 +400,33 @@ public class Group extends Identifiable {
         return 0;
     }
 
+    /** The position in a list of child groups sorted by id. Cursors on equal ids are ordered by their source */
+    private static class ChildCursor implements Comparable<ChildCursor> {
+
+        final List<Group> groups;
+        final int source;
+        int index = 0;
+
+        ChildCursor(List<Group> groups, int source) {
+            this.groups = groups;
+            this.source = source;
+        }
+
+        Group current() {
+            return groups.get(index);
+        }
+
+        boolean next() {
+            return ++index < groups.size();
+        }
+
+        @Override
+        public int compareTo(ChildCursor rhs) {
+            int cmp = current().getId().compareTo(rhs.current().getId());
+            return (cmp != 0) ? cmp : Integer.compare(source, rhs.source);
+        }
+    }
+
     @Override
     protected int onGetClassId() {
         return classId;
@@ -73,6 +73,19 @@ public class Grouping extends Identifiable {
         root.merge(firstLevel, 0, rhs.root);
     }
 
+    /**
+     * <p>Merges the content of all the given groupings <b>into</b> this, in a single pass over their groups.</p>
+     *
+     * @param others The groupings to merge with.
+     */
+    public void merge(List<Grouping> others) {
+        List<Group> roots = new ArrayList<>(others.size());
+        for (Grouping rhs : others) {
+            roots.add(rhs.root);
+        }
+        root.merge(firstLevel, 0, roots);
+    }
+
     /**
      * <p>This method is invoked after merging is done. It is intended used for resolving any dependencies or derivates
      * that might have changes due to the merge.</p>
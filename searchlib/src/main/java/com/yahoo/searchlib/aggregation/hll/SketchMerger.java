@@ -3,6 +3,7 @@ package com.yahoo.searchlib.aggregation.hll;
 
 /**
  * This class is responsible for merging any combinations of two {@link Sketch} instances.
+ * It holds no state, and may be shared by any number of threads.
  */
 public class SketchMerger {
 
@@ -44,9 +45,8 @@ public class SketchMerger {
     }
 
     private NormalSketch mergeNormalWithSparse(NormalSketch dest, SparseSketch other) {
-        NormalSketch newSketch = new NormalSketch();
-        newSketch.aggregate(other.data());
-        dest.merge(newSketch);
+        // Aggregating the hashes of the sparse sketch gives the same result as merging with a normal sketch of them
+        dest.aggregate(other.data());
         return dest;
     }
 
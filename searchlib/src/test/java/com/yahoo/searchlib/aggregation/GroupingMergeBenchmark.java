@@ -0,0 +1,104 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.aggregation;
+
+import com.yahoo.searchlib.aggregation.hll.SparseSketch;
+import com.yahoo.searchlib.aggregation.hll.HyperLogLogEstimator;
+import com.yahoo.searchlib.expression.AttributeNode;
+import com.yahoo.searchlib.expression.FloatResultNode;
+import com.yahoo.searchlib.expression.IntegerResultNode;
+import com.yahoo.searchlib.expression.StringResultNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares merging the grouping results of many content nodes one at a time with merging them in a single pass.
+ * Each node returns a two level grouping of overlapping string and integer groups with sum, min, max, average,
+ * count, xor and unique count aggregates.
+ */
+public class GroupingMergeBenchmark {
+
+    private static final int NUM_ITERATIONS = 20;
+    private static final int GROUPS_PER_NODE = 1000;
+    private static final int SUBGROUPS_PER_GROUP = 10;
+
+    public static void main(String[] args) {
+        System.out.println("Nodes; Pairwise merge (ms); Single pass merge (ms)");
+        for (int numNodes = 2; numNodes <= 32; numNodes *= 2) {
+            List<Grouping> nodeResults = createNodeResults(numNodes, new Random(424242));
+            long pairwise = 0;
+            long singlePass = 0;
+            for (int iteration = 0; iteration < NUM_ITERATIONS; iteration++) {
+                List<Grouping> input = cloneAll(nodeResults);
+                long start = System.nanoTime();
+                Grouping merged = input.get(0);
+                for (int i = 1; i < input.size(); i++) {
+                    merged.merge(input.get(i));
+                }
+                merged.postMerge();
+                pairwise += System.nanoTime() - start;
+
+                input = cloneAll(nodeResults);
+                start = System.nanoTime();
+                merged = input.get(0);
+                merged.merge(input.subList(1, input.size()));
+                merged.postMerge();
+                singlePass += System.nanoTime() - start;
+            }
+            System.out.printf("%d; %.3f; %.3f\n", numNodes,
+                              pairwise / 1e6 / NUM_ITERATIONS, singlePass / 1e6 / NUM_ITERATIONS);
+        }
+    }
+
+    private static List<Grouping> cloneAll(List<Grouping> groupings) {
+        List<Grouping> ret = new ArrayList<>(groupings.size());
+        for (Grouping grouping : groupings) {
+            ret.add(grouping.clone());
+        }
+        return ret;
+    }
+
+    private static List<Grouping> createNodeResults(int numNodes, Random random) {
+        List<Grouping> ret = new ArrayList<>(numNodes);
+        for (int node = 0; node < numNodes; node++) {
+            Grouping grouping = new Grouping()
+                    .addLevel(new GroupingLevel().setExpression(new AttributeNode("category")).setMaxGroups(100))
+                    .addLevel(new GroupingLevel().setExpression(new AttributeNode("year")).setMaxGroups(5));
+            Group root = new Group();
+            for (int i = 0; i < GROUPS_PER_NODE; i++) {
+                // half of the groups are shared by all nodes, the rest are unique to the node
+                String id = (i % 2 == 0) ? String.format("shared-%06d", i) : String.format("node-%03d-%06d", node, i);
+                Group group = createGroup(new StringResultNode(id), random);
+                for (int j = 0; j < SUBGROUPS_PER_GROUP; j++) {
+                    group.addChild(createGroup(new IntegerResultNode(1990 + j * 2 + random.nextInt(2)), random));
+                }
+                root.addChild(group);
+            }
+            root.sortChildrenById();
+            for (Group group : root.getChildren()) {
+                group.sortChildrenById();
+            }
+            ret.add(grouping.setRoot(root));
+        }
+        return ret;
+    }
+
+    private static Group createGroup(com.yahoo.searchlib.expression.ResultNode id, Random random) {
+        SparseSketch sketch = new SparseSketch();
+        for (int i = 0; i < 10; i++) {
+            sketch.aggregate(random.nextInt());
+        }
+        return new Group()
+                .setId(id)
+                .setRank(random.nextDouble())
+                .addAggregationResult(new SumAggregationResult(new IntegerResultNode(random.nextInt(100))))
+                .addAggregationResult(new MinAggregationResult(new IntegerResultNode(random.nextInt(100))))
+                .addAggregationResult(new MaxAggregationResult(new IntegerResultNode(random.nextInt(100))))
+                .addAggregationResult(new AverageAggregationResult(new FloatResultNode(random.nextDouble()), 1))
+                .addAggregationResult(new CountAggregationResult(random.nextInt(100)))
+                .addAggregationResult(new XorAggregationResult(random.nextLong()))
+                .addAggregationResult(new ExpressionCountAggregationResult(sketch, new HyperLogLogEstimator()));
+    }
+
+}
@@ -13,6 +13,7 @@ import com.yahoo.searchlib.expression.MultiplyFunctionNode;
 import com.yahoo.searchlib.expression.StringResultNode;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -744,11 +745,21 @@ public class MergeTestCase {
     private static void assertMerge(List<Grouping> groupingList, Group expect) {
         Grouping tmp = groupingList.get(0).clone();
         for (int i = 1; i < groupingList.size(); ++i) {
-            tmp.merge(groupingList.get(i));
+            tmp.merge(groupingList.get(i).clone());
         }
         tmp.postMerge();
         assertEquals(expect.toString(), tmp.getRoot().toString());
         assertEquals(expect, tmp.getRoot());
+
+        Grouping all = groupingList.get(0).clone();
+        List<Grouping> others = new ArrayList<>();
+        for (int i = 1; i < groupingList.size(); ++i) {
+            others.add(groupingList.get(i).clone());
+        }
+        all.merge(others);
+        all.postMerge();
+        assertEquals(expect.toString(), all.getRoot().toString());
+        assertEquals(expect, all.getRoot());
     }
 
 }
@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.http.client;
 
+import com.yahoo.vespa.http.client.core.BinaryReader;
 import com.yahoo.vespa.http.client.core.JsonReader;
 import com.yahoo.vespa.http.client.core.XmlFeedReader;
 
@@ -41,6 +42,17 @@ public interface FeedClient extends AutoCloseable {
      */
     void stream(String documentId, CharSequence documentData, Object context);
 
+    /**
+     * Streams a document operation given as bytes to cluster(s), which is needed for data in the
+     * {@link com.yahoo.vespa.http.client.config.FeedParams.DataFormat#BINARY} format. If the pipeline and buffers
+     * are full, this call will be blocking. Don't call stream() after close is called.
+     *
+     * @param documentId the document id of the document.
+     * @param documentData the document operation in the data format specified when using the factory to create the API
+     * @param context a context object which will be accessible in the result of the callback, or null if none
+     */
+    void stream(String documentId, byte[] documentData, Object context);
+
 
     /**
      * This callback is executed when new results are arriving or an error occur.
@@ -111,4 +123,17 @@ public interface FeedClient extends AutoCloseable {
         }
     }
 
+    /**
+     * Utility function that takes a stream in the binary feed format and calls the FeedClient for each operation.
+     * The feed client must be created with the {@link com.yahoo.vespa.http.client.config.FeedParams.DataFormat#BINARY}
+     * data format.
+     *
+     * @param inputStream the stream to feed, starting with the header of the binary feed format
+     * @param feedClient the feed client that will receive the document operations
+     * @param numSent increased per document sent to API (but not waiting for results)
+     */
+    static void feedBinary(InputStream inputStream, FeedClient feedClient, AtomicInteger numSent) {
+        BinaryReader.read(inputStream, feedClient, numSent);
+    }
+
 }
@@ -5,6 +5,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.annotations.Beta;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
+import com.yahoo.compress.CompressionType;
+import com.yahoo.vespa.http.client.core.BlockCompression;
 import net.jcip.annotations.Immutable;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 
@@ -40,9 +42,11 @@ public final class ConnectionParams {
         private final Multimap<String, String> headers = ArrayListMultimap.create();
         private final Map<String, HeaderProvider> headerProviders = new HashMap<>();
         private int numPersistentConnectionsPerEndpoint = 8;
+        private int numIoThreads = 0;
         private String proxyHost = null;
         private int proxyPort = 8080;
         private boolean useCompression = false;
+        private CompressionType batchCompression = CompressionType.NONE;
         private int maxRetries = 100;
         private long minTimeBetweenRetriesMs = 700;
         private boolean dryRun = false;
@@ -120,6 +124,24 @@ public final class ConnectionParams {
             return this;
         }
 
+        /**
+         * The number of threads sending operations and fetching results on the connections to the gateways.
+         * By default this is 0, which means every connection has a thread of its own. Otherwise, all the
+         * connections of a session share a pool of this many threads, and a connection only occupies a thread
+         * while it is sending operations or fetching results. A connection with no operations to send and no
+         * results to fetch does not occupy a thread. This allows feeding over many connections with few threads.
+         *
+         * @param numIoThreads number of threads shared by all connections, or 0 for one thread per connection
+         * @return pointer to builder.
+         */
+        public Builder setNumIoThreads(int numIoThreads) {
+            if (numIoThreads < 0) {
+                throw new IllegalArgumentException("Number of I/O threads cannot be negative, was " + numIoThreads);
+            }
+            this.numIoThreads = numIoThreads;
+            return this;
+        }
+
         /**
          * Sets the HTTP proxy host name to use.
          *
@@ -153,6 +175,23 @@ public final class ConnectionParams {
             return this;
         }
 
+        /**
+         * Sets the compression of the document operations sent in each request to the gateway, which is
+         * used if the gateway supports it. This is done before, and can be combined with, compression
+         * enabled by {@link #setUseCompression(boolean)}. Default is NONE.
+         *
+         * @param batchCompression NONE or LZ4.
+         * @return pointer to builder.
+         * @throws IllegalArgumentException if the compression type is not supported
+         */
+        public Builder setBatchCompression(CompressionType batchCompression) {
+            if ( ! BlockCompression.isSupported(batchCompression)) {
+                throw new IllegalArgumentException("Batch compression " + batchCompression + " is not supported");
+            }
+            this.batchCompression = batchCompression;
+            return this;
+        }
+
         /**
          * Set how many times to retry sending an operation to a gateway when encountering transient problems.
          *
@@ -239,9 +278,11 @@ public final class ConnectionParams {
                     headers,
                     headerProviders,
                     numPersistentConnectionsPerEndpoint,
+                    numIoThreads,
                     proxyHost,
                     proxyPort,
                     useCompression,
+                    batchCompression,
                     maxRetries,
                     minTimeBetweenRetriesMs,
                     dryRun,
@@ -255,6 +296,10 @@ public final class ConnectionParams {
             return numPersistentConnectionsPerEndpoint;
         }
 
+        public int getNumIoThreads() {
+            return numIoThreads;
+        }
+
         public String getProxyHost() {
             return proxyHost;
         }
@@ -295,9 +340,11 @@ public final class ConnectionParams {
     private final Multimap<String, String> headers = ArrayListMultimap.create();
     private final Map<String, HeaderProvider> headerProviders = new HashMap<>();
     private final int numPersistentConnectionsPerEndpoint;
+    private final int numIoThreads;
     private final String proxyHost;
     private final int proxyPort;
     private final boolean useCompression;
+    private final CompressionType batchCompression;
     private final int maxRetries;
     private final long minTimeBetweenRetriesMs;
     private final boolean dryRun;
@@ -313,9 +360,11 @@ public final class ConnectionParams {
             Multimap<String, String> headers,
             Map<String, HeaderProvider> headerProviders,
             int numPersistentConnectionsPerEndpoint,
+            int numIoThreads,
             String proxyHost,
             int proxyPort,
             boolean useCompression,
+            CompressionType batchCompression,
             int maxRetries,
             long minTimeBetweenRetriesMs,
             boolean dryRun,
@@ -329,9 +378,11 @@ public final class ConnectionParams {
         this.headers.putAll(headers);
         this.headerProviders.putAll(headerProviders);
         this.numPersistentConnectionsPerEndpoint = numPersistentConnectionsPerEndpoint;
+        this.numIoThreads = numIoThreads;
         this.proxyHost = proxyHost;
         this.proxyPort = proxyPort;
         this.useCompression = useCompression;
+        this.batchCompression = batchCompression;
         this.maxRetries = maxRetries;
         this.minTimeBetweenRetriesMs = minTimeBetweenRetriesMs;
         this.dryRun = dryRun;
@@ -363,6 +414,10 @@ public final class ConnectionParams {
         return numPersistentConnectionsPerEndpoint;
     }
 
+    public int getNumIoThreads() {
+        return numIoThreads;
+    }
+
     public String getProxyHost() {
         return proxyHost;
     }
@@ -375,6 +430,10 @@ public final class ConnectionParams {
         return useCompression;
     }
 
+    public CompressionType getBatchCompression() {
+        return batchCompression;
+    }
+
     public int getMaxRetries() {
         return maxRetries;
     }
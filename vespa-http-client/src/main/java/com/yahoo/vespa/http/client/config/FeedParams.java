@@ -33,7 +33,12 @@ public final class FeedParams {
     public enum DataFormat {
         /** UTF-8-encoded XML. Preamble is not necessary. */
         XML_UTF8,
-        JSON_UTF8
+        JSON_UTF8,
+        /**
+         * The binary feed format written by com.yahoo.document.serialization.BinaryFeedWriter. The data of each
+         * operation is a binary feed of that single operation, including the header of the format.
+         */
+        BINARY
     }
     /**
      * Mutable class used to instantiate a {@link FeedParams}.
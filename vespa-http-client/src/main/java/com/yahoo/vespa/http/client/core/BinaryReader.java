@@ -0,0 +1,157 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core;
+
+import com.yahoo.vespa.http.client.FeedClient;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads a stream in the binary feed format and sends each operation to feedClient, as a binary feed of that
+ * single operation. The format is defined by com.yahoo.document.serialization.BinaryFeedWriter: a header,
+ * followed by one entry per operation, which is the operation type (1 byte), the payload length
+ * (4 bytes, big endian) and the payload. Only the payload is needed to find the document id of the operation,
+ * so operations are sent as they are read, without de-serializing them.
+ */
+public class BinaryReader {
+
+    private static final byte[] HEADER = { 'V', 'B', 'F', 1 };
+
+    // Entry types of the format, see com.yahoo.document.serialization.BinaryFeedReader
+    private static final int PUT = 1;
+    private static final int REMOVE = 2;
+    private static final int DICTIONARY = 3;
+    private static final int COMPRESSED_PUT = 4;
+    private static final int UPDATE = 5;
+    private static final int CONDITION = 6;
+
+    /** The serialized document starts with the serialization version (2 bytes) and length (4 bytes), then the id */
+    private static final int DOCUMENT_ID_OFFSET = 6;
+
+    /** The max payload size of an entry, as in com.yahoo.document.serialization.BinaryFeedReader */
+    private static final int MAX_ENTRY_SIZE = 128 * 1024 * 1024;
+
+    /** The size of the first buffer a payload is read into, which is grown as more of it is read */
+    private static final int INITIAL_PAYLOAD_BUFFER_SIZE = 64 * 1024;
+
+    // Intended to be used as static.
+    private BinaryReader() {}
+
+    /** Returns whether the given bytes are the start of a stream in the binary feed format */
+    public static boolean isBinaryFeed(byte[] start) {
+        return start.length >= HEADER.length - 1 && Arrays.equals(Arrays.copyOf(HEADER, HEADER.length - 1),
+                                                                   Arrays.copyOf(start, HEADER.length - 1));
+    }
+
+    /**
+     * Process one inputstream and send all operations to feedclient.
+     *
+     * @param inputStream source of the binary feed
+     * @param feedClient where data is sent
+     * @param numSent counter to be incremented for every operation streamed
+     * @throws IllegalArgumentException if the stream is not a binary feed of a supported version, or if it
+     *                                  contains documents compressed with a dictionary of the feed
+     */
+    public static void read(InputStream inputStream, FeedClient feedClient, AtomicInteger numSent) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream))) {
+            byte[] header = new byte[HEADER.length];
+            in.readFully(header);
+            if ( ! Arrays.equals(HEADER, header)) {
+                throw new IllegalArgumentException("Input is not a binary feed of a supported version");
+            }
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream operation = new DataOutputStream(buffer);
+            operation.write(HEADER);
+            int type;
+            boolean hasCondition = false;
+            while ((type = in.read()) >= 0) {
+                byte[] payload = readPayload(in, in.readInt());
+                operation.writeByte(type);
+                operation.writeInt(payload.length);
+                operation.write(payload);
+                if (type == CONDITION) { // Belongs to the next operation
+                    if (hasCondition) {
+                        throw new IllegalArgumentException("Condition in binary feed is followed by another condition");
+                    }
+                    hasCondition = true;
+                    continue;
+                }
+                hasCondition = false;
+
+                feedClient.stream(documentIdOf(type, payload), buffer.toByteArray(), null);
+                numSent.incrementAndGet();
+                buffer.reset();
+                operation.write(HEADER);
+            }
+            if (hasCondition) {
+                throw new EOFException();
+            }
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Binary feed ended in the middle of an operation", e);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads a payload of the given length. The buffer it is read into is grown as it is read, such that
+     * a corrupt length does not cause more to be allocated than what is in the stream.
+     */
+    private static byte[] readPayload(InputStream in, int length) throws IOException {
+        if (length < 0 || length > MAX_ENTRY_SIZE) {
+            throw new IllegalArgumentException("Entry length " + length + " in binary feed is not in the range [0, " +
+                                               MAX_ENTRY_SIZE + "]");
+        }
+        byte[] payload = new byte[Math.min(length, INITIAL_PAYLOAD_BUFFER_SIZE)];
+        int size = 0;
+        while (size < length) {
+            if (size == payload.length) {
+                payload = Arrays.copyOf(payload, (int) Math.min(length, 2L * payload.length));
+            }
+            int read = in.read(payload, size, payload.length - size);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            size += read;
+        }
+        return payload;
+    }
+
+    private static String documentIdOf(int type, byte[] payload) {
+        switch (type) {
+            case PUT:
+                return nullTerminatedString(payload, DOCUMENT_ID_OFFSET);
+            case UPDATE:
+                return nullTerminatedString(payload, 0);
+            case REMOVE:
+                return new String(payload, StandardCharsets.UTF_8);
+            case DICTIONARY:
+            case COMPRESSED_PUT:
+                throw new IllegalArgumentException("Binary feed contains documents compressed with a dictionary, " +
+                                                   "which can only be fed with vespa-feeder");
+            default:
+                throw new IllegalArgumentException("Unknown operation type " + type + " in binary feed");
+        }
+    }
+
+    private static String nullTerminatedString(byte[] bytes, int offset) {
+        for (int end = offset; end < bytes.length; end++) {
+            if (bytes[end] == 0) {
+                return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+            }
+        }
+        throw new IllegalArgumentException("Operation in binary feed has no document id");
+    }
+
+}
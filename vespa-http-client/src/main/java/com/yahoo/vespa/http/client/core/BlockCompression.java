@@ -0,0 +1,159 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core;
+
+import com.yahoo.compress.CompressionType;
+import com.yahoo.compress.Compressor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Compression of the payload of a feed request, shared by client and server. The payload is compressed in blocks
+ * so the server can decompress it while it reads the operations. Each block is
+ * <pre>
+ *   compression type code (byte)
+ *   uncompressed size (int)
+ *   compressed size (int)
+ *   compressed data
+ * </pre>
+ * where the compression type is either the requested one or {@link CompressionType#INCOMPRESSIBLE}, in which case
+ * the data is stored as is.
+ */
+public final class BlockCompression {
+
+    /** The max uncompressed size of a block */
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    private BlockCompression() {}
+
+    /** Returns whether the given compression type can be used for feed requests */
+    public static boolean isSupported(CompressionType type) {
+        return type == CompressionType.NONE || type == CompressionType.LZ4;
+    }
+
+    /**
+     * Returns the first supported compression type in the given comma separated list of compression type names,
+     * or empty if there is none.
+     */
+    public static Optional<CompressionType> select(String compressionTypes) {
+        if (compressionTypes == null) return Optional.empty();
+        for (String name : compressionTypes.split(",")) {
+            try {
+                CompressionType type = CompressionType.valueOf(name.trim());
+                if (type.isCompressed() && isSupported(type)) return Optional.of(type);
+            } catch (IllegalArgumentException e) {
+                // Not a compression type known to this, skip it
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** Returns all the remaining data of the given stream compressed in blocks by the given compressor */
+    public static byte[] compress(InputStream data, Compressor compressor) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        byte[] block = new byte[BLOCK_SIZE];
+        int size;
+        while ((size = readBlock(data, block)) > 0) {
+            Compressor.Compression compression = compressor.compress(block, size);
+            byte[] compressed = compression.type().isCompressed() ? compression.data() : block;
+            int compressedSize = compression.type().isCompressed() ? compressed.length : size;
+            out.writeByte(compression.type().getCode());
+            out.writeInt(size);
+            out.writeInt(compressedSize);
+            out.write(compressed, 0, compressedSize);
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Returns a stream of the uncompressed data of the given stream of compressed blocks. The blocks are validated
+     * while they are decompressed, so they may come from the network.
+     */
+    public static InputStream decompress(InputStream blocks) {
+        return new DecompressingInputStream(blocks);
+    }
+
+    private static int readBlock(InputStream in, byte[] block) throws IOException {
+        int size = 0;
+        int read;
+        while (size < block.length && (read = in.read(block, size, block.length - size)) > 0) {
+            size += read;
+        }
+        return size;
+    }
+
+    private static class DecompressingInputStream extends InputStream {
+
+        private final DataInputStream in;
+        private final Compressor compressor = new Compressor();
+        private byte[] block = new byte[0];
+        private int position = 0;
+
+        DecompressingInputStream(InputStream in) {
+            this.in = new DataInputStream(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if ( ! hasRemaining()) return -1;
+            return block[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if ( ! hasRemaining()) return -1;
+            int read = Math.min(length, block.length - position);
+            System.arraycopy(block, position, buffer, offset, read);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return block.length - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private boolean hasRemaining() throws IOException {
+            while (position == block.length) {
+                if ( ! readNextBlock()) return false;
+            }
+            return true;
+        }
+
+        private boolean readNextBlock() throws IOException {
+            int code = in.read();
+            if (code < 0) return false;
+            try {
+                CompressionType type = CompressionType.valueOf((byte) code);
+                int size = in.readInt();
+                int compressedSize = in.readInt();
+                if (size < 0 || size > BLOCK_SIZE || compressedSize < 0 || compressedSize > 2 * BLOCK_SIZE)
+                    throw new IOException("Corrupt compressed block of size " + size + " compressed to " + compressedSize);
+                byte[] compressed = new byte[compressedSize];
+                in.readFully(compressed);
+                block = compressor.decompressUntrusted(type, compressed, 0, compressedSize, size);
+                position = 0;
+                return true;
+            } catch (EOFException e) {
+                throw new IOException("Compressed data ended in the middle of a block", e);
+            } catch (RuntimeException e) { // thrown by the compressor on unknown types or corrupt data
+                throw new IOException("Could not decompress block: " + e.getMessage(), e);
+            }
+        }
+
+    }
+
+}
@@ -23,6 +23,12 @@ public final class Headers {
     public static final String SHARDING_KEY = "X-Yahoo-Feed-Sharding-Key";
     public static final String PRIORITY = "X-Yahoo-Feed-Priority";
     public static final String TRACE_LEVEL = "X-Yahoo-Feed-Trace-Level";
+    // The compression of the operations in the request, see BlockCompression. In a handshake, this is a comma
+    // separated list of the compression types the client can use, and the server returns the one it chose, if any.
+    public static final String COMPRESSION = "X-Yahoo-Feed-Compression";
+    // Set to true in a handshake by a client which sends operations in the BINARY data format. A server which
+    // accepts that format returns it, so the client does not send such operations to servers which do not.
+    public static final String BINARY_DATA_FORMAT = "X-Yahoo-Feed-Binary-Data-Format";
 
     public static final int HTTP_NOT_ACCEPTABLE = 406;
 
@@ -59,6 +59,11 @@ public class FeedClientImpl implements FeedClient {
         operationProcessor.sendDocument(document);
     }
 
+    @Override
+    public void stream(String documentId, byte[] documentData, Object context) {
+        operationProcessor.sendDocument(new Document(documentId, documentData, context));
+    }
+
     @Override
     public void close() {
         Instant lastOldestResultReceivedAt = Instant.now();
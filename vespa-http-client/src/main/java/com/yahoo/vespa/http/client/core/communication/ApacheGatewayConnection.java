@@ -4,9 +4,12 @@ package com.yahoo.vespa.http.client.core.communication;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yahoo.component.Vtag;
+import com.yahoo.compress.CompressionType;
+import com.yahoo.compress.Compressor;
 import com.yahoo.vespa.http.client.config.ConnectionParams;
 import com.yahoo.vespa.http.client.config.Endpoint;
 import com.yahoo.vespa.http.client.config.FeedParams;
+import com.yahoo.vespa.http.client.core.BlockCompression;
 import com.yahoo.vespa.http.client.core.Document;
 import com.yahoo.vespa.http.client.core.Encoder;
 import com.yahoo.vespa.http.client.core.Headers;
@@ -68,6 +71,8 @@ class ApacheGatewayConnection implements GatewayConnection {
     private String sessionId;
     private final String clientId;
     private int negotiatedVersion = -1;
+    private CompressionType negotiatedCompression = CompressionType.NONE;
+    private final Compressor batchCompressor;
     private final HttpClientFactory httpClientFactory;
     private final String shardingKey = UUID.randomUUID().toString().substring(0, 5);
 
@@ -84,14 +89,20 @@ class ApacheGatewayConnection implements GatewayConnection {
         this.clusterSpecificRoute = clusterSpecificRoute;
         this.httpClientFactory = httpClientFactory;
         this.connectionParams = connectionParams;
+        this.batchCompressor = new Compressor(connectionParams.getBatchCompression(), 1, 0.95, 0);
         this.httpClient = null;
-        boolean isJson = feedParams.getDataFormat() == FeedParams.DataFormat.JSON_UTF8;
-        if (isJson) {
-            startOfFeed = START_OF_FEED_JSON;
-            endOfFeed = END_OF_FEED_JSON;
-        } else {
-            startOfFeed = START_OF_FEED_XML;
-            endOfFeed = END_OF_FEED_XML;
+        switch (feedParams.getDataFormat()) {
+            case JSON_UTF8:
+                startOfFeed = START_OF_FEED_JSON;
+                endOfFeed = END_OF_FEED_JSON;
+                break;
+            case BINARY: // The data of each operation is a complete binary feed
+                startOfFeed = new byte[0];
+                endOfFeed = new byte[0];
+                break;
+            default:
+                startOfFeed = START_OF_FEED_XML;
+                endOfFeed = END_OF_FEED_XML;
         }
         this.clientId = clientId;
         if (connectionParams.isEnableV3Protocol()) {
@@ -147,7 +158,10 @@ class ApacheGatewayConnection implements GatewayConnection {
         HttpPost httpPost = createPost(drain, useCompression, false /* this is not hanshake */);
 
         final ByteBuffer[] buffers = getDataWithStartAndEndOfFeed(docs, negotiatedVersion);
-        final InputStream inputStream = new ByteBufferInputStream(buffers);
+        InputStream inputStream = new ByteBufferInputStream(buffers);
+        if (compressBatch(drain)) {
+            inputStream = new ByteArrayInputStream(BlockCompression.compress(inputStream, batchCompressor));
+        }
         final InputStreamEntity reqEntity;
         if (useCompression ) {
             reqEntity = zipAndCreateEntity(inputStream);
@@ -206,11 +220,7 @@ class ApacheGatewayConnection implements GatewayConnection {
             }
         }
         if (!isHandshake) {
-            if (feedParams.getDataFormat() == FeedParams.DataFormat.JSON_UTF8) {
-                httpPost.setHeader(Headers.DATA_FORMAT, FeedParams.DataFormat.JSON_UTF8.name());
-            } else {
-                httpPost.setHeader(Headers.DATA_FORMAT, FeedParams.DataFormat.XML_UTF8.name());
-            }
+            httpPost.setHeader(Headers.DATA_FORMAT, feedParams.getDataFormat().name());
             if (feedParams.getPriority() != null) {
                 httpPost.setHeader(Headers.PRIORITY, feedParams.getPriority());
             }
@@ -220,6 +230,16 @@ class ApacheGatewayConnection implements GatewayConnection {
             if (negotiatedVersion == 3 && feedParams.getDenyIfBusyV3()) {
                 httpPost.setHeader(Headers.DENY_IF_BUSY, "true");
             }
+            if (compressBatch(drain)) {
+                httpPost.setHeader(Headers.COMPRESSION, negotiatedCompression.name());
+            }
+        } else {
+            if (connectionParams.getBatchCompression().isCompressed()) {
+                httpPost.setHeader(Headers.COMPRESSION, connectionParams.getBatchCompression().name());
+            }
+            if (feedParams.getDataFormat() == FeedParams.DataFormat.BINARY) {
+                httpPost.setHeader(Headers.BINARY_DATA_FORMAT, "true");
+            }
         }
         if (feedParams.getSilentUpgrade()) {
             httpPost.setHeader(Headers.SILENTUPGRADE, "true");
@@ -242,7 +262,16 @@ class ApacheGatewayConnection implements GatewayConnection {
         return httpPost;
     }
 
+    /** Returns whether the operations sent in a request should be compressed in blocks */
+    private boolean compressBatch(boolean drain) {
+        return ! drain && negotiatedCompression.isCompressed();
+    }
+
     private InputStream executePost(HttpPost httpPost) throws ServerResponseException, IOException {
+        return executeAndVerifyPost(httpPost).getEntity().getContent();
+    }
+
+    private HttpResponse executeAndVerifyPost(HttpPost httpPost) throws ServerResponseException, IOException {
         HttpResponse response;
         try {
             if (httpClient == null) {
@@ -264,7 +293,22 @@ class ApacheGatewayConnection implements GatewayConnection {
             httpPost.abort();
             throw e;
         }
-        return response.getEntity().getContent();
+        return response;
+    }
+
+    /** Returns the compression type the server chose of those offered in the handshake, or NONE */
+    private CompressionType negotiateCompression(Header serverHeader) {
+        if (serverHeader == null) {
+            return CompressionType.NONE;
+        }
+        return BlockCompression.select(serverHeader.getValue())
+                .filter(type -> type == connectionParams.getBatchCompression())
+                .orElse(CompressionType.NONE);
+    }
+
+    private static boolean acceptsBinaryDataFormat(HttpResponse response) {
+        Header header = response.getFirstHeader(Headers.BINARY_DATA_FORMAT);
+        return header != null && Boolean.parseBoolean(header.getValue().trim());
     }
 
     private void verifyServerResponseCode(HttpResponse response) throws ServerResponseException {
@@ -375,7 +419,14 @@ class ApacheGatewayConnection implements GatewayConnection {
 
         final String oldSessionID = sessionId;
         sessionId = null;
-        try (InputStream stream = executePost(httpPost)) {
+        negotiatedCompression = CompressionType.NONE;
+        HttpResponse response = executeAndVerifyPost(httpPost);
+        negotiatedCompression = negotiateCompression(response.getFirstHeader(Headers.COMPRESSION));
+        try (InputStream stream = response.getEntity().getContent()) {
+            if (feedParams.getDataFormat() == FeedParams.DataFormat.BINARY && ! acceptsBinaryDataFormat(response)) {
+                throw new ServerResponseException("Gateway " + endpoint + " does not accept operations in the " +
+                                                  "BINARY data format, and must be upgraded to feed them");
+            }
             if (oldSessionID != null && !oldSessionID.equals(sessionId)) {
                 throw new ServerResponseException(
                         "Session ID changed after new handshake, some documents might not be acked to correct thread. "
@@ -384,7 +435,7 @@ class ApacheGatewayConnection implements GatewayConnection {
             if (stream == null) {
                 log.fine("Stream is null.");
             }
-            log.fine("Got session ID " + sessionId);
+            log.fine("Got session ID " + sessionId + ", using batch compression " + negotiatedCompression);
         }
     }
 
@@ -95,7 +95,8 @@ public class ClusterConnection implements AutoCloseable {
                         maxInFlightPerSession,
                         feedParams.getLocalQueueTimeOut(),
                         documentQueue,
-                        connectionParams.isEnableV3Protocol() ? feedParams.getMaxSleepTimeMs() : 0);
+                        connectionParams.isEnableV3Protocol() ? feedParams.getMaxSleepTimeMs() : 0,
+                        operationProcessor.getIoExecutor());
                 ioThreads.add(ioThread);
             }
         }
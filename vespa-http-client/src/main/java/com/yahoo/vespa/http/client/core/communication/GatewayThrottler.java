@@ -20,12 +20,31 @@ public class GatewayThrottler {
     }
 
     public void handleCall(int transientErrors) {
+        sleepMs(backOff(transientErrors));
+    }
+
+    /** Adjusts the back-off time by the number of transient errors of a call, and returns it */
+    public long backOff(int transientErrors) {
         if (transientErrors > 0) {
             backOffTimeMs = Math.min(maxSleepTimeMs, backOffTimeMs + distribute(100));
         } else {
             backOffTimeMs = Math.max(0, backOffTimeMs - distribute(10));
         }
-        sleepMs(backOffTimeMs);
+        return backOffTimeMs;
+    }
+
+    /**
+     * Doubles the back-off time, as the gateway refused a whole call because it is overloaded, and returns it.
+     * The back-off time then goes back down as in {@link #backOff(int)}.
+     */
+    public long backOffOverloaded() {
+        backOffTimeMs = Math.min(maxSleepTimeMs, Math.max(distribute(100), 2 * backOffTimeMs));
+        return backOffTimeMs;
+    }
+
+    /** Returns whether the given response code means that the gateway, or what is behind it, is overloaded */
+    public static boolean isOverloaded(int responseCode) {
+        return responseCode == 429 || responseCode == 503;
     }
 
     protected void sleepMs(long sleepTime) {
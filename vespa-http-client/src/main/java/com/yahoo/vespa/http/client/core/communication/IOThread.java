@@ -18,13 +18,19 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Class for handling asynchronous feeding of new documents and processing of results.
+ *
+ * This either runs in a thread of its own, or in cycles scheduled on an executor shared with other
+ * instances. On the executor, a cycle never waits for documents to feed, and no cycle is scheduled
+ * while there are no documents to feed and no results to fetch.
  * 
  * @author Einar M R Rosenvinge
  */
@@ -36,6 +42,7 @@ class IOThread implements Runnable, AutoCloseable {
     private final DocumentQueue documentQueue;
     private final EndpointResultQueue resultQueue;
     private final Thread thread;
+    private final ScheduledExecutorService executor;
     private final ThreadGroup ioThreadGroup;
     private final int clusterId;
     private final CountDownLatch running = new CountDownLatch(1);
@@ -46,6 +53,13 @@ class IOThread implements Runnable, AutoCloseable {
     private final GatewayThrottler gatewayThrottler;
 
     private enum ThreadState { DISCONNECTED, CONNECTED, SESSION_SYNCED };
+    /** Whether a cycle is scheduled or running on the executor */
+    private final AtomicBoolean cycleScheduled = new AtomicBoolean(false);
+    /** The state of this when running on the executor, only accessed by the current cycle */
+    private ThreadState executorThreadState = ThreadState.DISCONNECTED;
+    /** The time to pause before the next cycle on the executor, only accessed by the current cycle */
+    private long pauseMs = 0;
+
     private final AtomicInteger wrongSessionDetectedCounter = new AtomicInteger(0);
     private final AtomicInteger wrongVersionDetectedCounter = new AtomicInteger(0);
     private final AtomicInteger problemStatusCodeFromServerCounter = new AtomicInteger(0);
@@ -66,6 +80,25 @@ class IOThread implements Runnable, AutoCloseable {
             long localQueueTimeOut,
             DocumentQueue documentQueue,
             long maxSleepTimeMs) {
+        this(ioThreadGroup, endpointResultQueue, client, clusterId, maxChunkSizeBytes, maxInFlightRequests,
+             localQueueTimeOut, documentQueue, maxSleepTimeMs, null);
+    }
+
+    /**
+     * Creates an instance which runs on the given executor, or in a thread of its own if the executor is null.
+     * The threads of the executor must belong to the given thread group.
+     */
+    IOThread(
+            ThreadGroup ioThreadGroup,
+            EndpointResultQueue endpointResultQueue,
+            GatewayConnection client,
+            int clusterId,
+            int maxChunkSizeBytes,
+            int maxInFlightRequests,
+            long localQueueTimeOut,
+            DocumentQueue documentQueue,
+            long maxSleepTimeMs,
+            ScheduledExecutorService executor) {
         this.documentQueue = documentQueue;
         this.endpoint = client.getEndpoint();
         this.client = client;
@@ -74,11 +107,17 @@ class IOThread implements Runnable, AutoCloseable {
         this.maxChunkSizeBytes = maxChunkSizeBytes;
         this.maxInFlightRequests = maxInFlightRequests;
         this.gatewayThrottler = new GatewayThrottler(maxSleepTimeMs);
-        this.thread = new Thread(ioThreadGroup, this, "IOThread " + endpoint);
         this.ioThreadGroup = ioThreadGroup;
-        thread.setDaemon(true);
         this.localQueueTimeOut = localQueueTimeOut;
-        thread.start();
+        this.executor = executor;
+        if (executor == null) {
+            this.thread = new Thread(ioThreadGroup, this, "IOThread " + endpoint);
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            this.thread = null;
+            scheduleCycle(); // Connect right away, like a thread of its own would
+        }
     }
 
     public Endpoint getEndpoint() {
@@ -143,6 +182,9 @@ class IOThread implements Runnable, AutoCloseable {
 
         stopSignal.countDown();
         log.finer("Closed called.");
+        if (executor != null) {
+            scheduleCycle(); // Lets an idle instance see that it is stopped
+        }
 
         // Make a last attempt to get results from previous operations, we have already waited quite a bit before getting here.
         int size = resultQueue.getPendingSize();
@@ -169,6 +211,9 @@ class IOThread implements Runnable, AutoCloseable {
 
     public void post(final Document document) throws InterruptedException {
         documentQueue.put(document, Thread.currentThread().getThreadGroup() == ioThreadGroup);
+        if (executor != null) {
+            scheduleCycle();
+        }
     }
 
     @Override
@@ -182,7 +227,7 @@ class IOThread implements Runnable, AutoCloseable {
         int chunkSizeBytes = 0;
         try {
             drainFirstDocumentsInQueueIfOld();
-            Document doc = documentQueue.poll(maxWaitUnits, timeUnit);
+            Document doc = maxWaitUnits > 0 ? documentQueue.poll(maxWaitUnits, timeUnit) : documentQueue.poll();
             if (doc != null) {
                 docsForSendChunk.add(doc);
                 chunkSizeBytes = doc.size();
@@ -289,13 +334,9 @@ class IOThread implements Runnable, AutoCloseable {
         log.finest("Awaiting " + pendingResultQueueSize + " results.");
         ProcessResponse processResponse = feedDocumentAndProcessResults(nextDocsForFeeding);
         if (pendingResultQueueSize > maxInFlightRequests && processResponse.processResultsCount == 0) {
-            try {
-                // Max outstanding document operations, no more results on server side, wait a bit
-                // before asking again.
-                Thread.sleep(300);
-            } catch (InterruptedException e) {
-                // Ignore
-            }
+            // Max outstanding document operations, no more results on server side, wait a bit
+            // before asking again.
+            pause(300);
         }
         return processResponse;
     }
@@ -337,10 +378,16 @@ class IOThread implements Runnable, AutoCloseable {
                 return ThreadState.SESSION_SYNCED;
             case SESSION_SYNCED:
                 try {
-                    ProcessResponse processResponse = pullAndProcessData(100);
-                    gatewayThrottler.handleCall(processResponse.transitiveErrorCount);
+                    ProcessResponse processResponse = pullAndProcessData(executor == null ? 100 : 0);
+                    pause(gatewayThrottler.backOff(processResponse.transitiveErrorCount));
                 }
                 catch (ServerResponseException ser) {
+                    if (GatewayThrottler.isOverloaded(ser.getResponseCode())) {
+                        // The session is fine, so keep it, but give the gateway time to recover.
+                        log.fine("Gateway " + endpoint + " is overloaded: " + Exceptions.toMessageString(ser));
+                        pause(gatewayThrottler.backOffOverloaded());
+                        return ThreadState.SESSION_SYNCED;
+                    }
                     log.info("Problems while handing data over to gateway " + endpoint + ": " + Exceptions.toMessageString(ser));
                     return ThreadState.CONNECTED;
                 }
@@ -362,13 +409,62 @@ class IOThread implements Runnable, AutoCloseable {
 
         if (newState == ThreadState.SESSION_SYNCED) return;
         if (newState == ThreadState.CONNECTED && oldState == ThreadState.DISCONNECTED) return;
+        // Take it easy we have problems getting a connection up.
+        if (stopSignal.getCount() > 0 || !documentQueue.isEmpty()) {
+            pause(gatewayThrottler.distribute(3000));
+        }
+    }
+
+    /** Pauses this thread, or the next cycle on the executor, for the given time */
+    private void pause(long timeMs) {
+        if (timeMs <= 0) return;
+        if (executor != null) {
+            pauseMs += timeMs;
+            return;
+        }
         try {
-            // Take it easy we have problems getting a connection up.
-            if (stopSignal.getCount() > 0 || !documentQueue.isEmpty()) {
-                Thread.sleep(gatewayThrottler.distribute(3000));
-            }
+            Thread.sleep(timeMs);
         } catch (InterruptedException e) {
+            // Ignore
+        }
+    }
+
+    /** Schedules a cycle on the executor now, unless one is already scheduled or running */
+    private void scheduleCycle() {
+        if (cycleScheduled.compareAndSet(false, true)) {
+            executor.execute(this::runCycle);
+        }
+    }
+
+    /**
+     * Runs one cycle on the executor, and schedules the next one. Results are fetched every 100 ms when
+     * no documents are sent, like a thread of its own does when waiting for documents. If there are neither
+     * documents to send nor results to fetch, the next cycle is scheduled by {@link #post} or {@link #close}.
+     */
+    private void runCycle() {
+        if (stopSignal.getCount() == 0 && documentQueue.isEmpty()) {
+            log.finer(toString() + " exiting.");
+            running.countDown();
+            return; // Leaves the cycle scheduled, so no more cycles are run
+        }
+        ThreadState oldState = executorThreadState;
+        pauseMs = 0;
+        executorThreadState = cycle(oldState);
+        sleepIfProblemsGettingSyncedConnection(executorThreadState, oldState);
+
+        long delayMs = pauseMs;
+        if (delayMs == 0 && executorThreadState == ThreadState.SESSION_SYNCED
+            && documentQueue.isEmpty() && stopSignal.getCount() > 0) {
+            if (resultQueue.getPendingSize() == 0) {
+                cycleScheduled.set(false);
+                if ( ! documentQueue.isEmpty() || stopSignal.getCount() == 0) {
+                    scheduleCycle(); // Work arrived after the checks above
+                }
+                return;
+            }
+            delayMs = 100;
         }
+        executor.schedule(this::runCycle, delayMs, TimeUnit.MILLISECONDS);
     }
 
     @Override
@@ -25,6 +25,11 @@ import java.util.Random;
  * In case the where the queue is moved to minimum size, it will now and then increase queue size to get
  * more sample data and possibly grow size.
  *
+ * When the gateway reports that it is overloaded, max in-flight is reduced at once, and sampling starts over.
+ * Since it takes about one round-trip before a smaller window has any effect, this is done at most once per
+ * average latency of an operation, which is found from the average in-flight operations and the throughput
+ * of the last phase (Little's law).
+ *
  * Class is fully thread safe, i.e. all public methods are thread safe.
  *
  * @author dybis
@@ -52,8 +57,17 @@ public class IncompleteResultsThrottler {
     private int minWindowSizeCounter = 0;
     private int minPermitsAvailable = 0;
 
+    private int numResults = 0;
+    private long inFlightSum = 0;
+    private double throughput = 0;
+    private double averageLatencyMs = 0;
+    private long lastOverloadBackOffTimeMs = Long.MIN_VALUE;
+    private int overloadBackOffCount = 0;
+
     protected static int INITIAL_MAX_IN_FLIGHT_VALUE = 200;
     protected static int SECOND_MAX_IN_FLIGHT_VALUE = 270;
+    protected static double OVERLOAD_BACK_OFF_FACTOR = 0.7;
+    protected static long MIN_OVERLOAD_BACK_OFF_INTERVAL_MS = 1000;
     private StringBuilder debugMessage = new StringBuilder();
 
     /**
@@ -102,6 +116,10 @@ public class IncompleteResultsThrottler {
     }
 
     public void resultReady(boolean success) {
+        synchronized (monitor) {
+            numResults++;
+            inFlightSum += maxInFlightNow - blocker.availablePermits();
+        }
         blocker.operationDone();
         if (!success) {
             return;
@@ -112,6 +130,64 @@ public class IncompleteResultsThrottler {
         }
     }
 
+    /**
+     * Tells the throttler that the gateway or the cluster behind it is overloaded, i.e., that an operation
+     * failed with a transient error. This reduces max in-flight unless it was already reduced within the
+     * last average latency, and does nothing if the throttling is static.
+     */
+    public void overloadDetected() {
+        if (maxInFlightValue == minInFlightValue) {
+            return;
+        }
+        synchronized (monitor) {
+            long now = clock.getTimeMillis();
+            long interval = Math.max(MIN_OVERLOAD_BACK_OFF_INTERVAL_MS, (long) averageLatencyMs);
+            if (lastOverloadBackOffTimeMs != Long.MIN_VALUE && now < lastOverloadBackOffTimeMs + interval) {
+                return;
+            }
+            lastOverloadBackOffTimeMs = now;
+            overloadBackOffCount++;
+            int newMaxInFlight = Math.max(minInFlightValue, (int) (maxInFlightNow * OVERLOAD_BACK_OFF_FACTOR));
+            debugMessage = new StringBuilder();
+            debugMessage.append("overloaded, maxInFlightNow: " + maxInFlightNow + " new size is: " + newMaxInFlight);
+            maxInFlightNow = newMaxInFlight;
+            blocker.setMaxConcurrency(maxInFlightNow);
+
+            // The throughput of the current phase says nothing about the new size, so start sampling over.
+            sampleStartTimeMs = now;
+            stabilizingPhasesLeft = Math.max(stabilizingPhasesLeft, 1);
+            startPhase();
+        }
+    }
+
+    /** Returns the current max number of operations in flight */
+    public int getMaxInFlight() {
+        synchronized (monitor) {
+            return maxInFlightNow;
+        }
+    }
+
+    /** Returns the number of successful operations per second in the last phase, or 0 if not known */
+    public double getThroughput() {
+        synchronized (monitor) {
+            return throughput;
+        }
+    }
+
+    /** Returns the average latency of an operation in the last phase, or 0 if not known */
+    public double getAverageLatencyMs() {
+        synchronized (monitor) {
+            return averageLatencyMs;
+        }
+    }
+
+    /** Returns the number of times max in-flight has been reduced because of overload */
+    public int getOverloadBackOffCount() {
+        synchronized (monitor) {
+            return overloadBackOffCount;
+        }
+    }
+
     // Only for testing
     protected int waitingThreads() {
         synchronized (monitor) {
@@ -153,10 +229,21 @@ public class IncompleteResultsThrottler {
         }
         sampleStartTimeMs += phaseSizeMs;
 
+        throughput = numOk * 1000.0 / phaseSizeMs;
+        if (numResults > 0) {
+            // Little's law: latency is the average number in flight divided by the rate of results.
+            averageLatencyMs = (double) inFlightSum / numResults * phaseSizeMs / numResults;
+        }
         if (stabilizingPhasesLeft-- == 0) {
             adjustCycle();
         }
+        startPhase();
+    }
+
+    private void startPhase() {
         numOk = 0;
+        numResults = 0;
+        inFlightSum = 0;
         this.minPermitsAvailable = maxInFlightNow;
     }
 
@@ -23,8 +23,10 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -55,6 +57,8 @@ public class OperationProcessor {
     private int traceCounter = 0;
     private final boolean traceToStderr;
     private final ThreadGroup ioThreadGroup;
+    /** The threads shared by all connections, or null if each connection has a thread of its own */
+    private final ScheduledThreadPoolExecutor ioExecutor;
     private final String clientId = new BigInteger(130, random).toString(32);
 
     public OperationProcessor(
@@ -68,6 +72,7 @@ public class OperationProcessor {
         this.timeoutExecutor = timeoutExecutor;
         this.blockOperationsToSameDocument = sessionParams.getConnectionParams().isEnableV3Protocol();
         this.ioThreadGroup = new ThreadGroup("operationprocessor");
+        this.ioExecutor = createIoExecutor(sessionParams.getConnectionParams().getNumIoThreads(), ioThreadGroup);
 
         if (sessionParams.getClusters().isEmpty()) {
             throw new IllegalArgumentException("Cannot feed to 0 clusters.");
@@ -100,10 +105,29 @@ public class OperationProcessor {
         traceToStderr = sessionParams.getConnectionParams().getPrintTraceToStdErr();
     }
 
+    private static ScheduledThreadPoolExecutor createIoExecutor(int numIoThreads, ThreadGroup ioThreadGroup) {
+        if (numIoThreads == 0) {
+            return null;
+        }
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        ScheduledThreadPoolExecutor ioExecutor = new ScheduledThreadPoolExecutor(numIoThreads, runnable -> {
+            Thread thread = new Thread(ioThreadGroup, runnable, "IOThread-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ioExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return ioExecutor;
+    }
+
     public ThreadGroup getIoThreadGroup() {
         return ioThreadGroup;
     }
 
+    /** Returns the executor whose threads are shared by all connections, or null if each has a thread of its own */
+    public ScheduledExecutorService getIoExecutor() {
+        return ioExecutor;
+    }
+
     public int getIncompleteResultQueueSize() {
         synchronized (monitor) {
             return docSendInfoByOperationId.size();
@@ -211,6 +235,9 @@ public class OperationProcessor {
     }
 
     public void resultReceived(EndpointResult endpointResult, int clusterId) {
+        if (endpointResult.getDetail().getResultType() == Result.ResultType.TRANSITIVE_ERROR) {
+            incompleteResultsThrottler.overloadDetected();
+        }
         Result result = process(endpointResult, clusterId);
 
         if (result != null) {
@@ -312,6 +339,13 @@ public class OperationProcessor {
     }
 
     private void closeExecutor() throws InterruptedException {
+        if (ioExecutor != null) {
+            log.log(Level.FINE, "Shutting down I/O executor.");
+            ioExecutor.shutdownNow();
+            if (! ioExecutor.awaitTermination(300, TimeUnit.SECONDS)) {
+                log.severe("Did not manage to shut down the I/O threads within 300 secs, system stuck?");
+            }
+        }
         log.log(Level.FINE, "Shutting down timeout executor.");
         timeoutExecutor.shutdownNow();
 
@@ -57,6 +57,12 @@ public class OperationStats {
             jsonGenerator.writeRawValue(sessionParamsAsXmlString);
             jsonGenerator.writeFieldName("throttleDebugMessage");
             jsonGenerator.writeRawValue("\"" + throttler.getDebugMessage() + "\"");
+            jsonGenerator.writeObjectFieldStart("throttler");
+            jsonGenerator.writeNumberField("maxInFlight", throttler.getMaxInFlight());
+            jsonGenerator.writeNumberField("throughputPerSecond", throttler.getThroughput());
+            jsonGenerator.writeNumberField("averageLatencyMs", throttler.getAverageLatencyMs());
+            jsonGenerator.writeNumberField("overloadBackOffs", throttler.getOverloadBackOffCount());
+            jsonGenerator.writeEndObject();
             jsonGenerator.writeEndObject();
             jsonGenerator.close();
             return stringWriter.toString();
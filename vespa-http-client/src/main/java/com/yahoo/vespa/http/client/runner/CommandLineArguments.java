@@ -2,6 +2,7 @@
 package com.yahoo.vespa.http.client.runner;
 
 import com.google.common.base.Splitter;
+import com.yahoo.compress.CompressionType;
 import com.yahoo.vespa.http.client.config.Cluster;
 import com.yahoo.vespa.http.client.config.ConnectionParams;
 import com.yahoo.vespa.http.client.config.Endpoint;
@@ -57,6 +58,9 @@ public class CommandLineArguments {
         if (cmdArgs.priorityArg != null && ! checkPriorityFlag(cmdArgs.priorityArg)) {
             return null;
         }
+        if ( ! checkBatchCompressionFlag(cmdArgs.batchCompressionArg)) {
+            return null;
+        }
 
         for (String header : cmdArgs.headers) {
             try {
@@ -106,6 +110,17 @@ public class CommandLineArguments {
         }
     }
 
+    private static boolean checkBatchCompressionFlag(String batchCompressionArg) {
+        switch (batchCompressionArg.toUpperCase()) {
+            case "NONE":
+            case "LZ4":
+                return true;
+            default:
+                System.err.println("Not valid value for batch compression. Allowed values are NONE and LZ4.");
+                return false;
+        }
+    }
+
     @Inject
     private HelpOption helpOption;
 
@@ -143,6 +158,11 @@ public class CommandLineArguments {
             description = "Use compression over network.")
     private boolean useCompressionArg = false;
 
+    @Option(name = {"--batchCompression"},
+            description = "(=NONE) Compression of the operations sent in each request, NONE or LZ4. " +
+                          "It is only used if the gateway supports it.")
+    private String batchCompressionArg = "NONE";
+
     @Option(name = {"--useDynamicThrottling"},
             description = "Try to maximize throughput by using dynamic throttling.")
     private boolean useDynamicThrottlingArg = false;
@@ -188,6 +208,10 @@ public class CommandLineArguments {
             description = "How many tcp connections to establish per endoint.)")
     private int numPersistentConnectionsPerEndpoint = 16;
 
+    @Option(name = {"--numIoThreads"},
+            description = "How many threads to share between all connections. 0 means one thread per connection.")
+    private int numIoThreads = 0;
+
     @Option(name = {"--maxChunkSizeBytes"},
             description = "How much data to send to gateway in each message.")
     private int maxChunkSizeBytes = 20 * 1024;
@@ -221,15 +245,17 @@ public class CommandLineArguments {
     public boolean getAddRootElementToXml() { return addRootElementToXml; }
 
     SessionParams createSessionParams(boolean useJson) {
+        return createSessionParams(useJson ? FeedParams.DataFormat.JSON_UTF8 : FeedParams.DataFormat.XML_UTF8);
+    }
+
+    SessionParams createSessionParams(FeedParams.DataFormat dataFormat) {
         final int minThrottleValue = useDynamicThrottlingArg ? 10 : 0;
         ConnectionParams.Builder connectionParamsBuilder = new ConnectionParams.Builder();
         parsedHeaders.forEach(header -> connectionParamsBuilder.addHeader(header.getName(), header.getValue()));
         SessionParams.Builder builder = new SessionParams.Builder()
                 .setFeedParams(
                         new FeedParams.Builder()
-                                .setDataFormat(useJson
-                                        ? FeedParams.DataFormat.JSON_UTF8
-                                        : FeedParams.DataFormat.XML_UTF8)
+                                .setDataFormat(dataFormat)
                                 .setRoute(routeArg)
                                 .setMaxInFlightRequests(maxPendingOperationCountArg)
                                 .setClientTimeout(timeoutArg, TimeUnit.SECONDS)
@@ -246,6 +272,7 @@ public class CommandLineArguments {
                                 .setNumPersistentConnectionsPerEndpoint(16)
                                 .setEnableV3Protocol(! enableV2Protocol)
                                 .setUseCompression(useCompressionArg)
+                                .setBatchCompression(CompressionType.valueOf(batchCompressionArg.toUpperCase()))
                                 .setMaxRetries(noRetryArg ? 0 : 100)
                                 .setMinTimeBetweenRetries(retrydelayArg, TimeUnit.SECONDS)
                                 .setDryRun(validateArg)
@@ -253,6 +280,7 @@ public class CommandLineArguments {
                                 .setTraceEveryXOperation(traceEveryXOperation)
                                 .setPrintTraceToStdErr(traceArg > 0)
                                 .setNumPersistentConnectionsPerEndpoint(numPersistentConnectionsPerEndpoint)
+                                .setNumIoThreads(numIoThreads)
                                 .build()
                 )
                         // Enable dynamic throttling.
@@ -6,6 +6,8 @@ import com.fasterxml.jackson.core.format.DataFormatDetector;
 import com.fasterxml.jackson.core.format.DataFormatMatcher;
 import com.fasterxml.jackson.core.format.MatchStrength;
 import com.fasterxml.jackson.dataformat.xml.XmlFactory;
+import com.yahoo.vespa.http.client.config.FeedParams;
+import com.yahoo.vespa.http.client.core.BinaryReader;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
@@ -28,7 +30,8 @@ public class FormatInputStream {
     /**
      * Creates a single data input stream from either file or InputStream depending on which one is present. Preference
      * for file if both present. Additionally also detects input data format of the result stream, throws
-     * IllegalArgumentException if unable to determine data format.
+     * IllegalArgumentException if unable to determine data format. Input in the binary feed format is
+     * recognized by its header.
      *
      * @param stream              InputStream of the data if present
      * @param inputFile           Path to file to use as input
@@ -39,8 +42,12 @@ public class FormatInputStream {
             throws IOException {
         final DataFormatDetector dataFormatDetector = new DataFormatDetector(new JsonFactory(), new XmlFactory());
         final DataFormatMatcher formatMatcher;
+        final boolean isBinary;
 
         if (inputFile.isPresent()) {
+            try (FileInputStream fileInputStream = new FileInputStream(inputFile.get())) {
+                isBinary = BinaryReader.isBinaryFeed(readStart(fileInputStream));
+            }
             try (FileInputStream fileInputStream = new FileInputStream(inputFile.get())) {
                 formatMatcher = dataFormatDetector.findFormat(fileInputStream);
             }
@@ -53,6 +60,9 @@ public class FormatInputStream {
 
             inputStream = stream.markSupported() ? stream : new BufferedInputStream(stream);
             inputStream.mark(DataFormatDetector.DEFAULT_MAX_INPUT_LOOKAHEAD);
+            isBinary = BinaryReader.isBinaryFeed(readStart(inputStream));
+            inputStream.reset();
+            inputStream.mark(DataFormatDetector.DEFAULT_MAX_INPUT_LOOKAHEAD);
             formatMatcher = dataFormatDetector.findFormat(inputStream);
             inputStream.reset();
         }
@@ -63,6 +73,11 @@ public class FormatInputStream {
             return;
         }
 
+        if (isBinary) {
+            format = Format.BINARY;
+            return;
+        }
+
         if (formatMatcher.getMatchStrength() == MatchStrength.INCONCLUSIVE ||
                 formatMatcher.getMatchStrength() == MatchStrength.NO_MATCH) {
             throw new IllegalArgumentException("Could not detect input format");
@@ -82,6 +97,16 @@ public class FormatInputStream {
         }
     }
 
+    private static byte[] readStart(InputStream inputStream) throws IOException {
+        byte[] start = new byte[4];
+        int length = 0;
+        int read;
+        while (length < start.length && (read = inputStream.read(start, length, start.length - length)) > 0) {
+            length += read;
+        }
+        return Arrays.copyOf(start, length);
+    }
+
     private static InputStream addVespafeedTag(InputStream inputStream) {
         return new SequenceInputStream(Collections.enumeration(Arrays.asList(
                 new ByteArrayInputStream("<vespafeed>".getBytes()),
@@ -99,7 +124,20 @@ public class FormatInputStream {
     }
 
     public enum Format {
-        JSON, XML
+        JSON(FeedParams.DataFormat.JSON_UTF8),
+        XML(FeedParams.DataFormat.XML_UTF8),
+        BINARY(FeedParams.DataFormat.BINARY);
+
+        private final FeedParams.DataFormat dataFormat;
+
+        Format(FeedParams.DataFormat dataFormat) {
+            this.dataFormat = dataFormat;
+        }
+
+        /** Returns the data format to send data of this format with */
+        public FeedParams.DataFormat dataFormat() {
+            return dataFormat;
+        }
     }
 
 }
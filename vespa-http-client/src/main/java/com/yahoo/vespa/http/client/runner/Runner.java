@@ -4,6 +4,7 @@ package com.yahoo.vespa.http.client.runner;
 import com.yahoo.vespa.http.client.FeedClient;
 import com.yahoo.vespa.http.client.FeedClientFactory;
 import com.yahoo.vespa.http.client.SimpleLoggerResultCallback;
+import com.yahoo.vespa.http.client.core.BinaryReader;
 import com.yahoo.vespa.http.client.core.JsonReader;
 import com.yahoo.vespa.http.client.core.XmlFeedReader;
 
@@ -30,13 +31,30 @@ public class Runner {
      */
     public static long send(
             FeedClient feedClient, InputStream inputStream, boolean isJson, AtomicInteger numSent, boolean verbose) {
+        return send(feedClient, inputStream, isJson ? FormatInputStream.Format.JSON : FormatInputStream.Format.XML,
+                    numSent, verbose);
+    }
+
+    /**
+     * Feed data from inputFile to session.
+     * @param feedClient where to send data to
+     * @param inputStream source of data
+     * @param format the format of the data in the input stream
+     * @param numSent is updated while sending by this method
+     * @param verbose if true will print some information to stderr
+     * @return send time in ms, not including validating
+     */
+    public static long send(FeedClient feedClient, InputStream inputStream, FormatInputStream.Format format,
+                            AtomicInteger numSent, boolean verbose) {
 
         if (verbose) {
             System.err.println("Now sending data.");
         }
         long sendStartTime = System.currentTimeMillis();
-        if (isJson) {
+        if (format == FormatInputStream.Format.JSON) {
             JsonReader.read(inputStream, feedClient, numSent);
+        } else if (format == FormatInputStream.Format.BINARY) {
+            BinaryReader.read(inputStream, feedClient, numSent);
         } else {
             try {
                 XmlFeedReader.read(inputStream, feedClient, numSent);
@@ -77,11 +95,11 @@ public class Runner {
         SimpleLoggerResultCallback callback = new SimpleLoggerResultCallback(numSent, intervalOfLogging);
 
         FeedClient feedClient = FeedClientFactory.create(
-                commandLineArgs.createSessionParams(formatInputStream.getFormat()== FormatInputStream.Format.JSON), callback);
+                commandLineArgs.createSessionParams(formatInputStream.getFormat().dataFormat()), callback);
 
         long sendTotalTimeMs = send(
                 feedClient, formatInputStream.getInputStream(),
-                formatInputStream.getFormat() == FormatInputStream.Format.JSON, numSent, commandLineArgs.getVerbose());
+                formatInputStream.getFormat(), numSent, commandLineArgs.getVerbose());
 
         if (commandLineArgs.getVerbose()) {
             System.err.println(feedClient.getStatsAsJson());
@@ -55,6 +55,8 @@ public class FeedClientTest {
         while (resultsReceived.get() == 0) {Thread.sleep(3); }
         String stats = feedClient.getStatsAsJson();
         assertTrue(stats.contains("\"dryRun\":true"));
+        assertTrue(stats.contains("\"throttler\":{\"maxInFlight\":"));
+        assertTrue(stats.contains("\"overloadBackOffs\":0"));
         feedClient.close();
     }
 
@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.http.client.config;
 
+import com.yahoo.compress.CompressionType;
 import org.junit.Test;
 
 import javax.net.ssl.SSLContext;
@@ -26,6 +27,8 @@ public class ConnectionParamsTest {
 
         assertThat(params.getHeaders().isEmpty(), is(true));
         assertThat(params.getNumPersistentConnectionsPerEndpoint(), is(8));
+        assertThat(params.getNumIoThreads(), is(0));
+        assertThat(params.getBatchCompression(), is(CompressionType.NONE));
         assertThat(params.getSslContext(), nullValue());
     }
 
@@ -36,10 +39,14 @@ public class ConnectionParamsTest {
                 .addHeader("Foo", "Baz")
                 .addHeader("Banana", "Apple")
                 .setNumPersistentConnectionsPerEndpoint(2)
+                .setNumIoThreads(3)
+                .setBatchCompression(CompressionType.LZ4)
                 .setSslContext(SSLContext.getDefault())
                 .build();
 
         assertThat(params.getNumPersistentConnectionsPerEndpoint(), is(2));
+        assertThat(params.getNumIoThreads(), is(3));
+        assertThat(params.getBatchCompression(), is(CompressionType.LZ4));
 
         assertThat(params.getHeaders().isEmpty(), is(false));
         assertThat(params.getHeaders().size(), is(3));
@@ -56,6 +63,11 @@ public class ConnectionParamsTest {
         assertThat(header3.getValue(), equalTo("Apple"));
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedBatchCompression() {
+        new ConnectionParams.Builder().setBatchCompression(CompressionType.INCOMPRESSIBLE);
+    }
+
     @Test
     public void header_providers_are_registered() {
         ConnectionParams.HeaderProvider dummyProvider1 = () -> "fooValue";
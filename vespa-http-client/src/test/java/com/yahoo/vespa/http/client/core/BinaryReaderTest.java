@@ -0,0 +1,153 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core;
+
+import com.yahoo.vespa.http.client.FeedClient;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryReaderTest {
+
+    private static final byte[] header = { 'V', 'B', 'F', 1 };
+
+    /** A serialized document: version, length, id, content bits and type, where only the id matters here */
+    private static final byte[] document = bytes(new byte[] { 0, 8, 0, 0, 0, 30 }, utf8("id:ns:music::1"),
+                                                 new byte[] { 0, 1 }, utf8("music"), new byte[] { 0, 0, 0 });
+    private static final byte[] update = bytes(utf8("id:ns:music::2"), new byte[] { 0 }, utf8("music"),
+                                               new byte[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 });
+
+    @Test
+    public void requireThatEachOperationIsSentAsBinaryFeedOfItself() {
+        TestFeedClient client = new TestFeedClient();
+        AtomicInteger numSent = new AtomicInteger(0);
+        byte[] put = entry(1, document);
+        byte[] conditionalUpdate = bytes(entry(6, utf8("music.year > 2000")), entry(5, update));
+        byte[] remove = entry(2, utf8("id:ns:music::3"));
+
+        BinaryReader.read(new ByteArrayInputStream(bytes(header, put, conditionalUpdate, remove)), client, numSent);
+
+        assertEquals(3, numSent.get());
+        assertEquals(Arrays.asList("id:ns:music::1", "id:ns:music::2", "id:ns:music::3"), client.documentIds);
+        assertArrayEquals(bytes(header, put), client.datas.get(0));
+        assertArrayEquals(bytes(header, conditionalUpdate), client.datas.get(1));
+        assertArrayEquals(bytes(header, remove), client.datas.get(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requireThatDictionaryCompressedDocumentsAreRejected() {
+        byte[] dictionary = entry(3, new byte[] { 0, 0, 0, 0, 'x' });
+        BinaryReader.read(new ByteArrayInputStream(bytes(header, dictionary)), new TestFeedClient(), new AtomicInteger());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requireThatOtherVersionsAreRejected() {
+        BinaryReader.read(new ByteArrayInputStream(new byte[] { 'V', 'B', 'F', 2 }), new TestFeedClient(), new AtomicInteger());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requireThatTruncatedOperationFails() {
+        byte[] feed = bytes(header, entry(2, utf8("id:ns:music::3")));
+        BinaryReader.read(new ByteArrayInputStream(Arrays.copyOf(feed, feed.length - 1)), new TestFeedClient(),
+                          new AtomicInteger());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requireThatNegativeEntryLengthFails() {
+        BinaryReader.read(new ByteArrayInputStream(bytes(header, new byte[] { 2, -1, -1, -1, -1 })), new TestFeedClient(),
+                          new AtomicInteger());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requireThatTooLargeEntryLengthFails() {
+        BinaryReader.read(new ByteArrayInputStream(bytes(header, new byte[] { 2, 0x7f, -1, -1, -1 })), new TestFeedClient(),
+                          new AtomicInteger());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requireThatConditionFollowedByConditionFails() {
+        byte[] condition = entry(6, utf8("music.year > 2000"));
+        BinaryReader.read(new ByteArrayInputStream(bytes(header, condition, condition)), new TestFeedClient(),
+                          new AtomicInteger());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requireThatFeedEndingWithConditionFails() {
+        BinaryReader.read(new ByteArrayInputStream(bytes(header, entry(6, utf8("music.year > 2000")))),
+                          new TestFeedClient(), new AtomicInteger());
+    }
+
+    @Test
+    public void requireThatBinaryFeedIsRecognized() {
+        assertTrue(BinaryReader.isBinaryFeed(header));
+        assertFalse(BinaryReader.isBinaryFeed(utf8("[{\"put\": \"id:ns:music::1\"}]")));
+        assertFalse(BinaryReader.isBinaryFeed(new byte[] { 'V', 'B' }));
+    }
+
+    private static byte[] entry(int type, byte[] payload) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeByte(type);
+            out.writeInt(payload.length);
+            out.write(payload);
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static byte[] bytes(byte[] ... parts) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            buffer.write(part, 0, part.length);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class TestFeedClient implements FeedClient {
+
+        final List<String> documentIds = new ArrayList<>();
+        final List<byte[]> datas = new ArrayList<>();
+
+        @Override
+        public void stream(String documentId, CharSequence documentData) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void stream(String documentId, CharSequence documentData, Object context) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void stream(String documentId, byte[] documentData, Object context) {
+            documentIds.add(documentId);
+            datas.add(documentData);
+        }
+
+        @Override
+        public void close() { }
+
+        @Override
+        public String getStatsAsJson() { return null; }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core;
+
+import com.yahoo.compress.CompressionType;
+import com.yahoo.compress.Compressor;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BlockCompressionTest {
+
+    private final Compressor compressor = new Compressor(CompressionType.LZ4, 1, 0.95, 0);
+
+    @Test
+    public void requireThatCompressibleDataOfManyBlocksIsDecompressedAsItWas() throws IOException {
+        StringBuilder operations = new StringBuilder();
+        for (int i = 0; operations.length() < 3 * BlockCompression.BLOCK_SIZE; i++) {
+            operations.append("{\"put\": \"id:ns:music::").append(i).append("\", \"fields\": {\"title\": \"foo\"}},\n");
+        }
+        byte[] data = operations.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = BlockCompression.compress(new ByteArrayInputStream(data), compressor);
+
+        assertTrue(compressed.length < data.length / 5);
+        assertEquals(CompressionType.LZ4.getCode(), compressed[0]);
+        assertArrayEquals(data, readAll(BlockCompression.decompress(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void requireThatIncompressibleDataIsStoredAsIs() throws IOException {
+        byte[] data = new byte[1000];
+        new Random(42).nextBytes(data);
+        byte[] compressed = BlockCompression.compress(new ByteArrayInputStream(data), compressor);
+
+        assertEquals(1 + 4 + 4 + data.length, compressed.length);
+        assertEquals(CompressionType.INCOMPRESSIBLE.getCode(), compressed[0]);
+        assertArrayEquals(data, readAll(BlockCompression.decompress(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void requireThatSingleBytesCanBeRead() throws IOException {
+        byte[] compressed = BlockCompression.compress(new ByteArrayInputStream(new byte[] { 1, 2 }), compressor);
+        InputStream in = BlockCompression.decompress(new ByteArrayInputStream(compressed));
+        assertEquals(1, in.read());
+        assertEquals(2, in.read());
+        assertEquals(-1, in.read());
+        assertEquals(0, BlockCompression.compress(new ByteArrayInputStream(new byte[0]), compressor).length);
+    }
+
+    @Test
+    public void requireThatTruncatedDataFails() throws IOException {
+        byte[] data = new byte[1000];
+        byte[] compressed = BlockCompression.compress(new ByteArrayInputStream(data), compressor);
+        try {
+            readAll(BlockCompression.decompress(new ByteArrayInputStream(Arrays.copyOf(compressed, compressed.length - 1))));
+            fail("Expected exception");
+        } catch (IOException e) {
+            assertEquals("Compressed data ended in the middle of a block", e.getMessage());
+        }
+    }
+
+    @Test
+    public void requireThatMalformedBlocksFail() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream block = new DataOutputStream(buffer);
+        block.writeByte(CompressionType.LZ4.getCode());
+        block.writeInt(BlockCompression.BLOCK_SIZE);
+        block.writeInt(4);
+        block.write(new byte[] { (byte) 0xf0, 0, 0, 0 });
+        try {
+            readAll(BlockCompression.decompress(new ByteArrayInputStream(buffer.toByteArray())));
+            fail("Expected exception");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Could not decompress block"));
+        }
+    }
+
+    @Test
+    public void requireThatFirstSupportedCompressionIsSelected() {
+        assertEquals(Optional.of(CompressionType.LZ4), BlockCompression.select("ZSTD, LZ4"));
+        assertEquals(Optional.of(CompressionType.LZ4), BlockCompression.select("LZ4"));
+        assertEquals(Optional.empty(), BlockCompression.select("NONE,INCOMPRESSIBLE"));
+        assertEquals(Optional.empty(), BlockCompression.select(null));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+}
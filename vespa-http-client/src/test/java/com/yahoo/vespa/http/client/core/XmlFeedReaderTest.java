@@ -215,6 +215,11 @@ public class XmlFeedReaderTest {
             contexts.add(context);
         }
 
+        @Override
+        public void stream(String documentId, byte[] documentData, Object context) {
+            throw new AssertionError("Only text operations are expected");
+        }
+
 
         @Override
         public void close() { }
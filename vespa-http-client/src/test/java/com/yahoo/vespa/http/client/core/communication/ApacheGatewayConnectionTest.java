@@ -1,10 +1,12 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.http.client.core.communication;
 
+import com.yahoo.compress.CompressionType;
 import com.yahoo.vespa.http.client.TestUtils;
 import com.yahoo.vespa.http.client.config.ConnectionParams;
 import com.yahoo.vespa.http.client.config.Endpoint;
 import com.yahoo.vespa.http.client.config.FeedParams;
+import com.yahoo.vespa.http.client.core.BlockCompression;
 import com.yahoo.vespa.http.client.core.Document;
 import com.yahoo.vespa.http.client.core.Headers;
 import com.yahoo.vespa.http.client.core.ServerResponseException;
@@ -36,6 +38,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.stub;
@@ -240,6 +243,105 @@ public class ApacheGatewayConnectionTest {
         apacheGatewayConnection.writeOperations(documents);
     }
 
+    @Test
+    public void testBatchCompressionWhenAcceptedByServer() throws Exception {
+        final Document doc = createDoc("42", "Hello, I am the document data.", false);
+        final AtomicInteger compressedRequests = new AtomicInteger(0);
+        ApacheGatewayConnection.HttpClientFactory mockFactory = mockHttpClientFactory(post -> {
+            final Header header = post.getFirstHeader(Headers.COMPRESSION);
+            assertEquals("LZ4", header.getValue());
+            if (post.getFirstHeader(Headers.DATA_FORMAT) == null) { // The handshake
+                HttpResponse response = httpResponse("clientId", "3");
+                addMockedHeader(response, Headers.COMPRESSION, "LZ4", null);
+                return response;
+            }
+            final String rawContent = TestUtils.streamToString(BlockCompression.decompress(post.getEntity().getContent()));
+            assertThat(rawContent, is(doc.getOperationId() + " 38\n<vespafeed>\nHello, I am the document data.\n</vespafeed>\n"));
+            compressedRequests.incrementAndGet();
+            return httpResponse("clientId", "3");
+        });
+
+        ApacheGatewayConnection apacheGatewayConnection =
+                new ApacheGatewayConnection(
+                        Endpoint.create("hostname", 666, false),
+                        new FeedParams.Builder().build(),
+                        "",
+                        new ConnectionParams.Builder().setBatchCompression(CompressionType.LZ4).build(),
+                        mockFactory,
+                        "clientId");
+        apacheGatewayConnection.connect();
+        apacheGatewayConnection.handshake();
+        apacheGatewayConnection.writeOperations(Collections.singletonList(doc));
+        assertEquals(1, compressedRequests.get());
+    }
+
+    @Test
+    public void testBinaryDataFormatWhenAcceptedByServer() throws Exception {
+        final AtomicInteger requests = new AtomicInteger(0);
+        ApacheGatewayConnection.HttpClientFactory mockFactory = mockHttpClientFactory(post -> {
+            HttpResponse response = httpResponse("clientId", "3");
+            if (post.getFirstHeader(Headers.DATA_FORMAT) == null) { // The handshake
+                assertEquals("true", post.getFirstHeader(Headers.BINARY_DATA_FORMAT).getValue());
+                addMockedHeader(response, Headers.BINARY_DATA_FORMAT, "true", null);
+            } else {
+                assertEquals("BINARY", post.getFirstHeader(Headers.DATA_FORMAT).getValue());
+                requests.incrementAndGet();
+            }
+            return response;
+        });
+
+        ApacheGatewayConnection apacheGatewayConnection = createBinaryFormatConnection(mockFactory);
+        apacheGatewayConnection.connect();
+        apacheGatewayConnection.handshake();
+        apacheGatewayConnection.writeOperations(Collections.singletonList(createDoc("42", "content", false)));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testBinaryDataFormatFailsHandshakeWhenNotAcceptedByServer() throws Exception {
+        ApacheGatewayConnection apacheGatewayConnection =
+                createBinaryFormatConnection(mockHttpClientFactory(post -> httpResponse("clientId", "3")));
+        apacheGatewayConnection.connect();
+        expectedException.expect(ServerResponseException.class);
+        expectedException.expectMessage("does not accept operations in the BINARY data format");
+        apacheGatewayConnection.handshake();
+    }
+
+    private static ApacheGatewayConnection createBinaryFormatConnection(ApacheGatewayConnection.HttpClientFactory factory) {
+        return new ApacheGatewayConnection(
+                Endpoint.create("hostname", 666, false),
+                new FeedParams.Builder().setDataFormat(FeedParams.DataFormat.BINARY).build(),
+                "",
+                new ConnectionParams.Builder().build(),
+                factory,
+                "clientId");
+    }
+
+    @Test
+    public void testNoBatchCompressionWhenNotAcceptedByServer() throws Exception {
+        final AtomicInteger requests = new AtomicInteger(0);
+        ApacheGatewayConnection.HttpClientFactory mockFactory = mockHttpClientFactory(post -> {
+            if (post.getFirstHeader(Headers.DATA_FORMAT) != null) {
+                assertNull(post.getFirstHeader(Headers.COMPRESSION));
+                requests.incrementAndGet();
+            }
+            return httpResponse("clientId", "3");
+        });
+
+        ApacheGatewayConnection apacheGatewayConnection =
+                new ApacheGatewayConnection(
+                        Endpoint.create("hostname", 666, false),
+                        new FeedParams.Builder().build(),
+                        "",
+                        new ConnectionParams.Builder().setBatchCompression(CompressionType.LZ4).build(),
+                        mockFactory,
+                        "clientId");
+        apacheGatewayConnection.connect();
+        apacheGatewayConnection.handshake();
+        apacheGatewayConnection.writeOperations(Collections.singletonList(createDoc("42", "content", false)));
+        assertEquals(1, requests.get());
+    }
+
     @Test
     public void dynamic_headers_are_added_to_the_response() throws IOException, ServerResponseException, InterruptedException {
         ConnectionParams.HeaderProvider headerProvider = mock(ConnectionParams.HeaderProvider.class);
@@ -53,4 +53,24 @@ public class GatewayThrottlerTest {
         }
         assertTrue(x < 5000);
     }
+
+    @Test
+    public void overloadDoublesSleepTime() {
+        long sleepTime1 = gatewayThrottler.backOffOverloaded();
+        long sleepTime2 = gatewayThrottler.backOffOverloaded();
+        assertTrue(sleepTime1 > 0);
+        assertTrue(sleepTime2 >= Math.min(900, 2 * sleepTime1));
+        for (int x = 0; x < 10; x++) {
+            gatewayThrottler.backOffOverloaded();
+        }
+        assertThat(gatewayThrottler.backOffOverloaded(), is(900L));
+        assertTrue(gatewayThrottler.backOff(0) < 900);
+    }
+
+    @Test
+    public void overloadResponseCodes() {
+        assertTrue(GatewayThrottler.isOverloaded(429));
+        assertTrue(GatewayThrottler.isOverloaded(503));
+        assertFalse(GatewayThrottler.isOverloaded(500));
+    }
 }
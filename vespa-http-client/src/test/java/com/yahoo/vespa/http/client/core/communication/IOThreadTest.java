@@ -21,6 +21,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -95,6 +96,44 @@ public class IOThreadTest {
         }
     }
 
+    @Test
+    public void singleDocumentSuccessOnSharedExecutor() throws Exception {
+        when(apacheGatewayConnection.connect()).thenReturn(true);
+        InputStream serverResponse = new ByteArrayInputStream(
+                (docId1 + " OK Doc{20}fed").getBytes(StandardCharsets.UTF_8));
+        when(apacheGatewayConnection.writeOperations(anyObject())).thenReturn(serverResponse);
+        setupEndpointResultQueueMock( "nope", docId1, true, exceptionMessage);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        try (IOThread ioThread = new IOThread(null, endpointResultQueue, apacheGatewayConnection, 0, 0, 10000, 10000L, documentQueue, 0, executor)) {
+            ioThread.post(doc1);
+            assert (latch.await(120, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void requireThatIdleConnectionDoesNotOccupySharedExecutor() throws Exception {
+        when(apacheGatewayConnection.connect()).thenReturn(true);
+        doAnswer(invocation -> { latch.countDown(); return null; }).when(apacheGatewayConnection).handshake();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        IOThread ioThread = new IOThread(null, endpointResultQueue, apacheGatewayConnection, 0, 0, 10000, 10000L, documentQueue, 0, executor);
+        try {
+            assert (latch.await(120, TimeUnit.SECONDS));
+            long deadline = System.currentTimeMillis() + 120000;
+            while (executor.getActiveCount() + executor.getQueue().size() > 0) {
+                assertTrue("Connection went idle", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+            assertThat(executor.getQueue().size(), is(0));
+            verify(apacheGatewayConnection, never()).writeOperations(anyObject());
+        } finally {
+            ioThread.close();
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void requireThatSingleDocumentWriteErrorIsHandledProperly() throws Exception {
         when(apacheGatewayConnection.connect()).thenReturn(true);
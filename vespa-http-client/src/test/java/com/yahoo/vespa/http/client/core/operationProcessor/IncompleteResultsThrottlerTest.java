@@ -261,6 +261,61 @@ public class IncompleteResultsThrottlerTest {
                 is(MAX_SIZE));
     }
 
+    @Test
+    public void requireThatOverloadReducesMaxInFlightOncePerInterval() {
+        final AtomicLong timeMs = new AtomicLong(0);
+        IncompleteResultsThrottler throttler =
+                new IncompleteResultsThrottler(10, 1000, ()->timeMs.get(), new ThrottlePolicy());
+        assertThat(throttler.getMaxInFlight(), is(IncompleteResultsThrottler.INITIAL_MAX_IN_FLIGHT_VALUE));
+
+        throttler.overloadDetected();
+        assertThat(throttler.getMaxInFlight(), is(140));
+        assertThat(throttler.availableCapacity(), is(140));
+        throttler.overloadDetected();
+        assertThat(throttler.getMaxInFlight(), is(140));
+
+        timeMs.addAndGet(IncompleteResultsThrottler.MIN_OVERLOAD_BACK_OFF_INTERVAL_MS);
+        throttler.overloadDetected();
+        assertThat(throttler.getMaxInFlight(), is(98));
+        assertThat(throttler.getOverloadBackOffCount(), is(2));
+        assertTrue(throttler.getDebugMessage().contains("overloaded"));
+
+        for (int i = 0; i < 20; i++) {
+            timeMs.addAndGet(IncompleteResultsThrottler.MIN_OVERLOAD_BACK_OFF_INTERVAL_MS);
+            throttler.overloadDetected();
+        }
+        assertThat(throttler.getMaxInFlight(), is(10));
+    }
+
+    @Test
+    public void requireThatOverloadIsIgnoredWithStaticThrottling() {
+        IncompleteResultsThrottler throttler = new IncompleteResultsThrottler(200, 200, null, null);
+        throttler.overloadDetected();
+        assertThat(throttler.getMaxInFlight(), is(200));
+        assertThat(throttler.getOverloadBackOffCount(), is(0));
+    }
+
+    @Test
+    public void requireThatThroughputAndLatencyOfLastPhaseAreMeasured() {
+        final AtomicLong timeMs = new AtomicLong(0);
+        IncompleteResultsThrottler throttler =
+                new IncompleteResultsThrottler(10, 1000, ()->timeMs.get(), new ThrottlePolicy());
+        assertThat(throttler.getThroughput(), is(0.0));
+        assertThat(throttler.getAverageLatencyMs(), is(0.0));
+
+        for (int i = 0; i < 20; i++) {
+            throttler.operationStart();
+        }
+        // 20, 19, ... 1 operations in flight when each result arrives, 10.5 on average.
+        postSuccesses(20, throttler);
+        timeMs.addAndGet(throttler.phaseSizeMs);
+        throttler.operationStart();
+        throttler.resultReady(true);
+
+        assertEquals(20 * 1000.0 / throttler.phaseSizeMs, throttler.getThroughput(), 1e-9);
+        assertEquals(10.5 * throttler.phaseSizeMs / 20, throttler.getAverageLatencyMs(), 1e-9);
+    }
+
     private long inversesU(int size, int sweetSpot) {
         // Peak performance at sweetSPot.
         int distance = Math.abs(sweetSpot - size);
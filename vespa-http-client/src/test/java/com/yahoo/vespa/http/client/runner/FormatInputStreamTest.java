@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.http.client.runner;
 
+import com.yahoo.vespa.http.client.config.FeedParams;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
@@ -8,6 +9,8 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -96,6 +99,26 @@ public class FormatInputStreamTest {
         assertThat(formatInputStream.getFormat(), is(FormatInputStream.Format.XML));
     }
 
+    @Test
+    public void testBinaryFeedInputStream() throws IOException {
+        byte[] feed = { 'V', 'B', 'F', 1, 2, 0, 0, 0, 1, 'x' };
+        FormatInputStream formatInputStream = new FormatInputStream(new ByteArrayInputStream(feed), Optional.empty(), false);
+
+        assertThat(formatInputStream.getFormat(), is(FormatInputStream.Format.BINARY));
+        assertThat(new String(feed, StandardCharsets.ISO_8859_1), is(convertStreamToString(formatInputStream.getInputStream())));
+    }
+
+    @Test
+    public void testBinaryFeedFile() throws IOException {
+        File file = File.createTempFile("feeddata", "bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[] { 'V', 'B', 'F', 1 });
+
+        FormatInputStream formatInputStream = new FormatInputStream(null, Optional.of(file.getAbsolutePath()), false);
+        assertThat(formatInputStream.getFormat(), is(FormatInputStream.Format.BINARY));
+        assertThat(formatInputStream.getFormat().dataFormat(), is(FeedParams.DataFormat.BINARY));
+    }
+
     private static String convertStreamToString(InputStream inputStream) throws IOException {
         StringBuilder builder = new StringBuilder();
         while (true) {
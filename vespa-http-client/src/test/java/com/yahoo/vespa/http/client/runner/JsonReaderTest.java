@@ -90,6 +90,11 @@ public class JsonReaderTest {
             contexts.add(context);
         }
 
+        @Override
+        public void stream(String documentId, byte[] documentData, Object context) {
+            throw new AssertionError("Only text operations are expected");
+        }
+
         @Override
         public void close() { }
 
@@ -133,7 +133,8 @@ class ClientFeederV3 {
                 return new ErrorHttpResponse(getOverloadReturnCode(request), "Gateway overloaded");
             }
 
-            InputStream inputStream = StreamReaderV3.unzipStreamIfNeeded(request);
+            InputStream inputStream = StreamReaderV3.decompressStreamIfNeeded(
+                    StreamReaderV3.unzipStreamIfNeeded(request), request);
             BlockingQueue<OperationStatus> replies = new LinkedBlockingQueue<>();
             try {
                 feed(feederSettings, inputStream, replies, threadsAvailableForFeeding);
@@ -152,7 +153,14 @@ class ClientFeederV3 {
             } finally {
                 replies.add(createOperationStatus("-", "-", ErrorCode.END_OF_FEED, false, null));
             }
-            return new FeedResponse(200, replies, 3 /* protocol version */, clientId, outstandingOperations.get(), hostName);
+            FeedResponse response =
+                    new FeedResponse(200, replies, 3 /* protocol version */, clientId, outstandingOperations.get(), hostName);
+            StreamReaderV3.acceptedCompression(request)
+                    .ifPresent(compression -> response.headers().add(Headers.COMPRESSION, compression.name()));
+            if (StreamReaderV3.isBinaryDataFormatHandshake(request)) {
+                response.headers().add(Headers.BINARY_DATA_FORMAT, "true");
+            }
+            return response;
         } finally {
             ongoingRequests.decrementAndGet();
             threadsAvailableForFeeding.incrementAndGet();
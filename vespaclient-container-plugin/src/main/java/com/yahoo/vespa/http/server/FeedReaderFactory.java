@@ -3,6 +3,7 @@ package com.yahoo.vespa.http.server;
 
 import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.document.json.JsonFeedReader;
+import com.yahoo.document.serialization.BinaryFeedReader;
 import com.yahoo.vespa.http.client.config.FeedParams;
 import com.yahoo.vespaxmlparser.FeedReader;
 import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
@@ -35,6 +36,8 @@ public class FeedReaderFactory {
                 }
             case JSON_UTF8:
                 return new JsonFeedReader(inputStream, docTypeManager);
+            case BINARY:
+                return new BinaryFeedReader(inputStream, docTypeManager, false); // each operation is a feed of its own
             default:
                 throw new IllegalStateException("Can not create feed reader for format: " + dataFormat);
         }
@@ -2,8 +2,11 @@
 package com.yahoo.vespa.http.server;
 
 import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.compress.CompressionType;
 import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.vespa.http.client.core.BlockCompression;
 import com.yahoo.vespa.http.client.core.Encoder;
+import com.yahoo.vespa.http.client.core.Headers;
 import com.yahoo.vespa.http.server.util.ByteLimitedInputStream;
 import com.yahoo.vespaxmlparser.FeedReader;
 import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
@@ -83,4 +86,39 @@ public class StreamReaderV3 {
         }
     }
 
+    /**
+     * Returns a stream which decompresses the operations in the given request data as they are read,
+     * if the client compressed them in blocks, and otherwise the given stream.
+     *
+     * @throws IOException if the operations are compressed in a way which is not supported
+     */
+    public static InputStream decompressStreamIfNeeded(InputStream inputStream, HttpRequest httpRequest)
+            throws IOException {
+        String compression = httpRequest.getHeader(Headers.COMPRESSION);
+        // In a handshake, which has no operations, the header lists the compression types the client can use
+        if (compression == null || httpRequest.getHeader(Headers.DATA_FORMAT) == null) {
+            return inputStream;
+        }
+        CompressionType type = BlockCompression.select(compression)
+                .orElseThrow(() -> new IOException("Unsupported compression of operations: " + compression));
+        if ( ! type.name().equals(compression.trim())) {
+            throw new IOException("Expected a single compression type, but got " + compression);
+        }
+        return BlockCompression.decompress(inputStream);
+    }
+
+    /** Returns whether the given request is a handshake of a client which will send operations in the binary format */
+    public static boolean isBinaryDataFormatHandshake(HttpRequest httpRequest) {
+        return httpRequest.getHeader(Headers.DATA_FORMAT) == null
+               && Boolean.parseBoolean(httpRequest.getHeader(Headers.BINARY_DATA_FORMAT));
+    }
+
+    /** Returns the compression type to use for operations, from those the client offers in a handshake */
+    public static Optional<CompressionType> acceptedCompression(HttpRequest httpRequest) {
+        if (httpRequest.getHeader(Headers.DATA_FORMAT) != null) {
+            return Optional.empty();
+        }
+        return BlockCompression.select(httpRequest.getHeader(Headers.COMPRESSION));
+    }
+
 }
@@ -70,7 +70,7 @@ public class VespaFeedHandlerTestCase {
         context = new FeedContext(new MessagePropertyProcessor(new FeederConfig(new FeederConfig.Builder()), loadTypeCfg), factory, docMan, new ClusterList(), new NullFeedMetric(true));
 
         Executor threadPool = Executors.newCachedThreadPool();
-        feedHandler = new VespaFeedHandler(context, threadPool);
+        feedHandler = new VespaFeedHandler(context, threadPool, false);
         removeHandler = new VespaFeedHandlerRemove(context, threadPool);
         statusHandler = new VespaFeedHandlerStatus(context, false, false, threadPool);
         removeLocationHandler = new VespaFeedHandlerRemoveLocation(context, threadPool);
@@ -1,13 +1,18 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.http.server;
 
+import com.yahoo.compress.CompressionType;
+import com.yahoo.compress.Compressor;
 import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.vespa.http.client.core.BlockCompression;
+import com.yahoo.vespa.http.client.core.Headers;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Optional;
 import java.util.zip.GZIPOutputStream;
 
 import static org.hamcrest.core.Is.is;
@@ -67,4 +72,53 @@ public class FeedHandlerCompressionTest {
         assertThat(processedInput.toString(), is(testData));
     }
 
+    @Test
+    public void testDecompressBlocksIfNeeded() throws Exception {
+        final String testData = "foo bar";
+        byte[] compressed = BlockCompression.compress(new ByteArrayInputStream(testData.getBytes()),
+                                                      new Compressor(CompressionType.LZ4));
+        HttpRequest httpRequest = mock(HttpRequest.class);
+        when(httpRequest.getHeader(Headers.DATA_FORMAT)).thenReturn("JSON_UTF8");
+        when(httpRequest.getHeader(Headers.COMPRESSION)).thenReturn("LZ4");
+        InputStream decompressedStream =
+                StreamReaderV3.decompressStreamIfNeeded(new ByteArrayInputStream(compressed), httpRequest);
+        final StringBuilder processedInput = new StringBuilder();
+        int readValue;
+        while ((readValue = decompressedStream.read()) >= 0) {
+            processedInput.append((char)readValue);
+        }
+        assertThat(processedInput.toString(), is(testData));
+        assertThat(StreamReaderV3.acceptedCompression(httpRequest), is(Optional.empty()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupportedBlockCompressionFails() throws Exception {
+        HttpRequest httpRequest = mock(HttpRequest.class);
+        when(httpRequest.getHeader(Headers.DATA_FORMAT)).thenReturn("JSON_UTF8");
+        when(httpRequest.getHeader(Headers.COMPRESSION)).thenReturn("ZSTD");
+        StreamReaderV3.decompressStreamIfNeeded(new ByteArrayInputStream(new byte[0]), httpRequest);
+    }
+
+    @Test
+    public void testCompressionIsAcceptedInHandshake() throws Exception {
+        HttpRequest httpRequest = mock(HttpRequest.class);
+        when(httpRequest.getHeader(Headers.COMPRESSION)).thenReturn("ZSTD,LZ4");
+        assertThat(StreamReaderV3.acceptedCompression(httpRequest), is(Optional.of(CompressionType.LZ4)));
+        InputStream inputStream = new ByteArrayInputStream(new byte[0]);
+        assertSame(inputStream, StreamReaderV3.decompressStreamIfNeeded(inputStream, httpRequest));
+
+        when(httpRequest.getHeader(Headers.COMPRESSION)).thenReturn(null);
+        assertThat(StreamReaderV3.acceptedCompression(httpRequest), is(Optional.empty()));
+    }
+
+    @Test
+    public void testBinaryDataFormatIsAcceptedInHandshake() {
+        HttpRequest httpRequest = mock(HttpRequest.class);
+        assertFalse(StreamReaderV3.isBinaryDataFormatHandshake(httpRequest));
+        when(httpRequest.getHeader(Headers.BINARY_DATA_FORMAT)).thenReturn("true");
+        assertTrue(StreamReaderV3.isBinaryDataFormatHandshake(httpRequest));
+        when(httpRequest.getHeader(Headers.DATA_FORMAT)).thenReturn("BINARY");
+        assertFalse(StreamReaderV3.isBinaryDataFormatHandshake(httpRequest));
+    }
+
 }
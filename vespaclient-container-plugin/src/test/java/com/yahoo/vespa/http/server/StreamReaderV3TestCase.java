@@ -0,0 +1,90 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.server;
+
+import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.serialization.BinaryFeedWriter;
+import com.yahoo.document.serialization.DeserializationException;
+import com.yahoo.vespa.http.client.config.FeedParams;
+import com.yahoo.vespa.http.client.core.Headers;
+import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StreamReaderV3TestCase {
+
+    @Test
+    public void requireThatOperationsInTheBinaryFeedFormatAreRead() throws Exception {
+        DocumentTypeManager manager = new DocumentTypeManager();
+        DocumentType type = new DocumentType("music");
+        type.addField("title", DataType.STRING);
+        manager.registerDocumentType(type);
+        Document document = new Document(type, "id:ns:music::1");
+        document.setFieldValue("title", new StringFieldValue("Blue"));
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        appendOperation(data, "id:ns:music::1", binaryPut(document));
+        appendOperation(data, "id:ns:music::2", binaryRemove(new DocumentId("id:ns:music::2")));
+
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getHeader(Headers.DATA_FORMAT)).thenReturn(FeedParams.DataFormat.BINARY.name());
+        FeederSettings settings = new FeederSettings(request);
+        StreamReaderV3 reader = new StreamReaderV3(new FeedReaderFactory(), manager);
+        InputStream in = new ByteArrayInputStream(data.toByteArray());
+
+        assertEquals("id:ns:music::1", reader.getNextOperationId(in).get());
+        assertEquals(document, reader.getNextOperation(in, settings).getDocument());
+        assertEquals("id:ns:music::2", reader.getNextOperationId(in).get());
+        VespaXMLFeedReader.Operation remove = reader.getNextOperation(in, settings);
+        assertEquals(new DocumentId("id:ns:music::2"), remove.getRemove());
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void requireThatDictionariesAreRejectedInOperationsInTheBinaryFeedFormat() throws Exception {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        appendOperation(data, "id:ns:music::1", new byte[] { 'V', 'B', 'F', 1, 3, 0, 0, 0, 5, 0, 0, 0, 0, 'x' });
+
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getHeader(Headers.DATA_FORMAT)).thenReturn(FeedParams.DataFormat.BINARY.name());
+        StreamReaderV3 reader = new StreamReaderV3(new FeedReaderFactory(), new DocumentTypeManager());
+        InputStream in = new ByteArrayInputStream(data.toByteArray());
+        reader.getNextOperationId(in);
+        reader.getNextOperation(in, new FeederSettings(request));
+    }
+
+    private static byte[] binaryPut(Document document) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinaryFeedWriter writer = new BinaryFeedWriter(out)) {
+            writer.writePut(document);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] binaryRemove(DocumentId id) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinaryFeedWriter writer = new BinaryFeedWriter(out)) {
+            writer.writeRemove(id);
+        }
+        return out.toByteArray();
+    }
+
+    /** Appends an operation as the client sends it: operation id, length in hex and the data */
+    private static void appendOperation(ByteArrayOutputStream out, String operationId, byte[] operation) throws Exception {
+        out.write((operationId + " " + Integer.toHexString(operation.length) + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(operation);
+    }
+
+}
@@ -0,0 +1,34 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.feedapi;
+
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.serialization.BinaryFeedReader;
+import com.yahoo.vespaxmlparser.FeedReader;
+
+import java.io.InputStream;
+
+/**
+ * Unpack document operations in the binary feed format and push to a feed access point.
+ */
+public class BinaryFeeder extends Feeder {
+
+    private final boolean trustedInput;
+
+    public BinaryFeeder(DocumentTypeManager docMan, SimpleFeedAccess sender, InputStream stream) {
+        this(docMan, sender, stream, false);
+    }
+
+    /**
+     * @param trustedInput whether the stream is from a trusted source, such that the fields of its documents
+     *                     may be decoded lazily instead of validated when read
+     */
+    public BinaryFeeder(DocumentTypeManager docMan, SimpleFeedAccess sender, InputStream stream, boolean trustedInput) {
+        super(docMan, new VespaFeedSender(sender), stream);
+        this.trustedInput = trustedInput;
+    }
+
+    @Override
+    protected FeedReader createReader() {
+        return new BinaryFeedReader(stream, docMan, true, trustedInput);
+    }
+}
@@ -10,6 +10,7 @@ import com.yahoo.container.jdisc.HttpRequest;
 import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.container.protect.Error;
 import com.yahoo.document.config.DocumentmanagerConfig;
+import com.yahoo.feedapi.BinaryFeeder;
 import com.yahoo.feedapi.DocprocMessageProcessor;
 import com.yahoo.feedapi.FeedContext;
 import com.yahoo.feedapi.Feeder;
@@ -36,10 +37,14 @@ import java.util.concurrent.atomic.AtomicInteger;
 public final class VespaFeedHandler extends VespaFeedHandlerBase {
 
     public static final String JSON_INPUT = "jsonInput";
+    public static final String BINARY_INPUT = "binaryInput";
 
     private final AtomicInteger busyThreads = new AtomicInteger(0);
     private final int maxBusyThreads;
 
+    /** Whether binary feeds are from a trusted source, which is only the case for local feeds */
+    private final boolean trustedBinaryInput;
+
     @SuppressWarnings("unused")
     @Inject
     public VespaFeedHandler(FeederConfig feederConfig,
@@ -51,15 +56,25 @@ public final class VespaFeedHandler extends VespaFeedHandlerBase {
                             Metric metric)  {
         super(feederConfig, loadTypeConfig, documentmanagerConfig, slobroksConfig, clusterListConfig, executor, metric);
         this.maxBusyThreads = feederConfig.maxbusythreads();
+        this.trustedBinaryInput = false;
     }
 
-    VespaFeedHandler(FeedContext context, Executor executor) {
+    VespaFeedHandler(FeedContext context, Executor executor, boolean trustedBinaryInput) {
         super(context, executor);
         this.maxBusyThreads = 32;
+        this.trustedBinaryInput = trustedBinaryInput;
     }
 
     public static VespaFeedHandler createFromContext(FeedContext context, Executor executor) {
-        return new VespaFeedHandler(context, executor);
+        return createFromContext(context, executor, false);
+    }
+
+    /**
+     * @param trustedBinaryInput whether binary feeds given to the handler are from a trusted source, like the local
+     *                           files of vespa-feeder, such that their documents need not be validated when read
+     */
+    public static VespaFeedHandler createFromContext(FeedContext context, Executor executor, boolean trustedBinaryInput) {
+        return new VespaFeedHandler(context, executor, trustedBinaryInput);
     }
 
     @Override
@@ -120,7 +135,9 @@ public final class VespaFeedHandler extends VespaFeedHandlerBase {
 
     private Feeder createFeeder(SimpleFeedAccess sender, HttpRequest request) {
         String contentType = request.getHeader("Content-Type");
-        if (Boolean.valueOf(request.getProperty(JSON_INPUT)) || (contentType != null && contentType.startsWith("application/json"))) {
+        if (Boolean.valueOf(request.getProperty(BINARY_INPUT))) {
+            return new BinaryFeeder(getDocumentTypeManager(), sender, getRequestInputStream(request), trustedBinaryInput);
+        } else if (Boolean.valueOf(request.getProperty(JSON_INPUT)) || (contentType != null && contentType.startsWith("application/json"))) {
             return new JsonFeeder(getDocumentTypeManager(), sender, getRequestInputStream(request));
         } else {
             return new XMLFeeder(getDocumentTypeManager(), sender, getRequestInputStream(request));
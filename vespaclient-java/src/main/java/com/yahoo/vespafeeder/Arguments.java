@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespafeeder;
 
+import com.yahoo.document.serialization.BinaryFeedWriter;
 import com.yahoo.vespa.config.content.LoadTypeConfig;
 import com.yahoo.feedapi.DummySessionFactory;
 import com.yahoo.feedapi.MessageBusSessionFactory;
@@ -41,6 +42,8 @@ public class Arguments {
     private FeederConfig.Builder feederConfigBuilder = new FeederConfig.Builder();
     private List<String> files = new ArrayList<>();
     private String dumpDocumentsFile = null;
+    private String binaryOutputFile = null;
+    private int dictionarySamples = 0;
     private String mode = "standard";
     private boolean validateOnly = false;
     private boolean verbose = false;
@@ -54,7 +57,7 @@ public class Arguments {
     }
 
     public void help() {
-        out.println("This is a tool for feeding xml (deprecated) or json data to a Vespa application.\n" +
+        out.println("This is a tool for feeding xml (deprecated), json or binary feed data to a Vespa application.\n" +
                 "\n" +
                 "The options are:\n" +
                 "  --abortondataerror arg (true) Whether or not to abort if the xml input has \n" +
@@ -83,6 +86,11 @@ public class Arguments {
                 "  --validate                    Run validation tool on input files instead of \n" +
                 "                                feeding them.\n" +
                 "  --dumpDocuments <filename>    Specify a file where documents in the put are serialized.\n" +
+                "  --binaryoutput <filename>     Convert the input files to the binary feed format, written to the given file,\n" +
+                "                                instead of feeding them. Binary feed files are detected and fed without parsing.\n" +
+                "  --dictionarysamples arg (=0)  With --binaryoutput, compress the documents of each document type with a\n" +
+                "                                dictionary trained from the first arg documents of that type,\n" +
+                "                                at most " + BinaryFeedWriter.MAX_DICTIONARY_SAMPLES + ".\n" +
                 "  --priority arg                Specify priority of sent messages (see documentation for priority values)\n" +
                 "  --numthreads arg              Specify how many threads to use for sending. Default is 1.\n" +
                 "  --create-if-non-existent      Enable setting of create-if-non-existent to true on all document updates in the given xml feed.\n" +
@@ -146,6 +154,10 @@ public class Arguments {
                 validateOnly = true;
             } else if ("--dumpDocuments".equals(arg)) {
                 dumpDocumentsFile = getParam(args, arg);
+            } else if ("--binaryoutput".equals(arg)) {
+                binaryOutputFile = getParam(args, arg);
+            } else if ("--dictionarysamples".equals(arg)) {
+                dictionarySamples = Integer.parseInt(getParam(args, arg));
             } else if ("--maxfeedrate".equals(arg)) {
                 feederConfigBuilder.maxfeedrate(Double.parseDouble(getParam(args, arg)));
             } else if ("--create-if-non-existent".equals(arg)) {
@@ -161,6 +173,14 @@ public class Arguments {
             }
         }
 
+        if (dictionarySamples < 0 || dictionarySamples > BinaryFeedWriter.MAX_DICTIONARY_SAMPLES) {
+            throw new IllegalArgumentException("Number of dictionary samples must be in [0, " +
+                                               BinaryFeedWriter.MAX_DICTIONARY_SAMPLES + "]");
+        }
+        if (dictionarySamples > 0 && binaryOutputFile == null) {
+            throw new IllegalArgumentException("--dictionarysamples requires --binaryoutput");
+        }
+
         propertyProcessor = new MessagePropertyProcessor(getFeederConfig(), new LoadTypeConfig(new LoadTypeConfig.Builder()));
     }
 
@@ -183,6 +203,16 @@ public class Arguments {
         }
     }
 
+    /** Returns the file to write the input converted to the binary feed format to, or null to feed the input */
+    public String getBinaryOutputFile() {
+        return binaryOutputFile;
+    }
+
+    /** Returns the number of documents of each document type to train a dictionary from, or 0 to not compress */
+    public int getDictionarySamples() {
+        return dictionarySamples;
+    }
+
     public String getPriority() {
         return priority;
     }
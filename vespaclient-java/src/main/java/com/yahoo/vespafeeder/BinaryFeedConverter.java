@@ -0,0 +1,74 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespafeeder;
+
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.json.JsonFeedReader;
+import com.yahoo.document.serialization.BinaryFeedReader;
+import com.yahoo.document.serialization.BinaryFeedWriter;
+import com.yahoo.vespaxmlparser.FeedReader;
+import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Converts a feed in the JSON or XML format to the binary feed format, so it can be fed repeatedly without
+ * parsing the text of the feed each time. A feed which is already in the binary format is copied.
+ */
+class BinaryFeedConverter {
+
+    private final DocumentTypeManager manager;
+    private final boolean createIfNonExistent;
+
+    BinaryFeedConverter(DocumentTypeManager manager, boolean createIfNonExistent) {
+        this.manager = manager;
+        this.createIfNonExistent = createIfNonExistent;
+    }
+
+    /** Writes all the operations of the given feed to the given writer, and returns the number of operations written */
+    int convert(BufferedInputStream input, BinaryFeedWriter writer) throws Exception {
+        FeedReader reader = createReader(input);
+        int count = 0;
+        while (true) {
+            VespaXMLFeedReader.Operation operation = new VespaXMLFeedReader.Operation();
+            reader.read(operation);
+            if (operation.getType() == VespaXMLFeedReader.OperationType.INVALID) {
+                return count;
+            }
+            if (createIfNonExistent && operation.getDocumentUpdate() != null) {
+                operation.getDocumentUpdate().setCreateIfNonExistent(true);
+            }
+            writer.write(operation);
+            ++count;
+        }
+    }
+
+    private FeedReader createReader(BufferedInputStream input) throws Exception {
+        if (isBinaryFeed(input)) {
+            return new BinaryFeedReader(input, manager, true, true); // local feeds are trusted
+        }
+        input.mark(1);
+        int b = input.read();
+        input.reset();
+        // A valid JSON feed will always start with '['
+        if (b == '[') {
+            return new JsonFeedReader(input, manager);
+        }
+        return new VespaXMLFeedReader(input, manager);
+    }
+
+    /** Returns whether the given input is in the binary feed format, without consuming any of it */
+    static boolean isBinaryFeed(BufferedInputStream input) throws IOException {
+        byte[] start = new byte[4];
+        input.mark(start.length);
+        int length = 0;
+        int read;
+        while (length < start.length && (read = input.read(start, length, start.length - length)) > 0) {
+            length += read;
+        }
+        input.reset();
+        return BinaryFeedReader.isBinaryFeed(Arrays.copyOf(start, length));
+    }
+
+}
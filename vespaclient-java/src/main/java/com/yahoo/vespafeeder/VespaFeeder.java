@@ -5,6 +5,7 @@ import com.yahoo.clientmetrics.RouteMetricSet;
 import com.yahoo.concurrent.ThreadFactoryFactory;
 import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.document.DocumentTypeManagerConfigurer;
+import com.yahoo.document.serialization.BinaryFeedWriter;
 import com.yahoo.feedapi.FeedContext;
 import com.yahoo.feedhandler.FeedResponse;
 import com.yahoo.feedhandler.NullFeedMetric;
@@ -14,9 +15,11 @@ import com.yahoo.concurrent.SystemTimer;
 import com.yahoo.vespaclient.ClusterList;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
@@ -83,7 +86,11 @@ public class VespaFeeder {
                 new ClusterList(), new NullFeedMetric(true));
 
         final BufferedInputStream input = new BufferedInputStream(stdin);
-        VespaFeedHandler handler = VespaFeedHandler.createFromContext(context, threadPool);
+        if (args.getBinaryOutputFile() != null) {
+            convertFiles(input, output);
+            return;
+        }
+        VespaFeedHandler handler = VespaFeedHandler.createFromContext(context, threadPool, true); // local feeds are trusted
 
         if (args.getFiles().isEmpty()) {
             InputStreamRequest req = new InputStreamRequest(input);
@@ -114,11 +121,30 @@ public class VespaFeeder {
         }
     }
 
+    private void convertFiles(BufferedInputStream stdin, PrintStream output) throws Exception {
+        BinaryFeedConverter converter = new BinaryFeedConverter(manager, args.getFeederConfig().createifnonexistent());
+        int count = 0;
+        try (BinaryFeedWriter writer = new BinaryFeedWriter(new BufferedOutputStream(new FileOutputStream(args.getBinaryOutputFile())),
+                                                              args.getDictionarySamples())) {
+            if (args.getFiles().isEmpty()) {
+                count += converter.convert(stdin, writer);
+            } else {
+                for (String fileName : args.getFiles()) {
+                    try (BufferedInputStream input = new BufferedInputStream(new FileInputStream(fileName))) {
+                        count += converter.convert(input, writer);
+                    }
+                }
+            }
+        }
+        output.println("Wrote " + count + " operations to '" + args.getBinaryOutputFile() + "' in the binary feed format.");
+    }
+
     // use BufferedInputStream to enforce the input.markSupported() == true
     private void setProperties(InputStreamRequest req, BufferedInputStream input) throws IOException {
         setPriority(req);
         setCreateIfNonExistent(req);
         setJsonInput(req, input);
+        setBinaryInput(req, input);
         req.setProperty("totaltimeout", "-1");
     }
 
@@ -147,6 +173,11 @@ public class VespaFeeder {
         }
     }
 
+    // package access for easy testing
+    static void setBinaryInput(InputStreamRequest req, BufferedInputStream input) throws IOException {
+        req.setProperty(VespaFeedHandler.BINARY_INPUT, Boolean.toString(BinaryFeedConverter.isBinaryFeed(input)));
+    }
+
     public static void main(String[] args) {
         LogSetup.initVespaLogging("vespa-feeder");
 
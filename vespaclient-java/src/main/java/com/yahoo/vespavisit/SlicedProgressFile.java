@@ -0,0 +1,99 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespavisit;
+
+import com.yahoo.documentapi.ProgressToken;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The progress of visiting each slice of the bucket space in a session of its own, kept in one progress file.
+ * The format is a header line, the number of slices, and then the progress file of each slice in order:
+ * <pre>
+ *   VDS sliced bucket progress file (n% completed)\n
+ *   number of slices\n
+ *   ... progress file of each slice, see {@link ProgressToken#toString()} ...
+ * </pre>
+ *
+ * The header does not start like that of a progress file of a single session, so neither kind of file
+ * is mistaken for the other.
+ */
+final class SlicedProgressFile {
+
+    private static final String HEADER = "VDS sliced bucket progress file";
+    private static final String SLICE_HEADER = "VDS bucket progress file";
+
+    private SlicedProgressFile() {}
+
+    /** Returns whether the given progress file contents is the progress of sliced visiting */
+    static boolean isSliced(String contents) {
+        return contents.startsWith(HEADER);
+    }
+
+    /**
+     * Returns the progress of each slice in the given progress file contents.
+     *
+     * @throws IllegalArgumentException if the contents is malformed, or the progress of another number of slices
+     */
+    static List<ProgressToken> parse(String contents, int slices) {
+        String[] lines = contents.split("\\n");
+        if (lines.length < 2 || ! isSliced(contents)) {
+            throw new IllegalArgumentException("Progress file is not the progress of visiting slices in parallel; " +
+                                               "expected first line to start with '" + HEADER + "'");
+        }
+        if (Integer.parseInt(lines[1]) != slices) {
+            throw new IllegalArgumentException("Progress file contains the progress of " + lines[1] +
+                                               " slices, but " + slices + " slices were requested");
+        }
+
+        List<ProgressToken> progress = new ArrayList<>(slices);
+        StringBuilder slice = null;
+        for (int i = 2; i < lines.length; ++i) {
+            if (lines[i].startsWith(SLICE_HEADER)) {
+                if (slice != null) {
+                    progress.add(new ProgressToken(slice.toString()));
+                }
+                slice = new StringBuilder();
+            } else if (slice == null) {
+                throw new IllegalArgumentException("Progress file contained malformed line");
+            }
+            slice.append(lines[i]).append('\n');
+        }
+        if (slice != null) {
+            progress.add(new ProgressToken(slice.toString()));
+        }
+        if (progress.size() != slices) {
+            throw new IllegalArgumentException("Progress file contains the progress of " + progress.size() +
+                                               " of " + slices + " slices");
+        }
+        return progress;
+    }
+
+    /** Returns the progress file contents of the given progress of each slice */
+    static String toString(List<ProgressToken> progress) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(HEADER).append(" (").append(percentFinished(progress)).append("% completed)\n");
+        sb.append(progress.size()).append('\n');
+        progress.forEach(sb::append);
+        return sb.toString();
+    }
+
+    /**
+     * Returns an estimate of how far visiting of all the slices has come, in the range [0, 100].
+     * A slice counts all buckets outside of it as finished, so what is unfinished for all the slices
+     * is the sum of what is unfinished for each. A slice which has not started has all of its own
+     * part of the bucket space unfinished.
+     */
+    static double percentFinished(List<ProgressToken> progress) {
+        double unfinished = 0;
+        for (ProgressToken token : progress) {
+            if (token.getTotalBucketCount() == 0) {
+                unfinished += 100.0 / progress.size();
+            } else {
+                unfinished += 100.0 - token.percentFinished();
+            }
+        }
+        return Math.max(0, 100.0 - unfinished);
+    }
+
+}
@@ -5,20 +5,29 @@ import com.yahoo.document.BucketId;
 import com.yahoo.document.Document;
 import com.yahoo.document.DocumentId;
 import com.yahoo.document.json.JsonWriter;
+import com.yahoo.document.serialization.BinaryFeedWriter;
 import com.yahoo.document.serialization.XmlStream;
 import com.yahoo.documentapi.AckToken;
 import com.yahoo.documentapi.DumpVisitorDataHandler;
+import com.yahoo.documentapi.ProgressToken;
 import com.yahoo.documentapi.VisitorDataHandler;
 import com.yahoo.documentapi.messagebus.protocol.DocumentListEntry;
 import com.yahoo.documentapi.messagebus.protocol.DocumentListMessage;
 import com.yahoo.documentapi.messagebus.protocol.EmptyBucketsMessage;
 import com.yahoo.documentapi.messagebus.protocol.MapVisitorMessage;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
+import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.log.LogLevel;
 import com.yahoo.messagebus.Message;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,19 +49,43 @@ public class StdOutVisitorHandler extends VdsVisitHandler {
     private int processTimeMilliSecs;
     private PrintStream out;
     private final boolean jsonOutput;
+    /** Writes documents in the binary feed format, or null if documents are written as text */
+    private final BinaryFeedWriter binaryWriter;
+    private final boolean doStatistics;
+    private final StatisticsMap statisticsMap = new StatisticsMap(10000);
+    /** Whether no documents are written yet, guarded by the print lock */
+    private boolean first = true;
+    /** The number of data handlers not yet done, guarded by the print lock */
+    private int unfinishedDataHandlers = 1;
 
     private VisitorDataHandler dataHandler;
+    private final List<VisitorDataHandler> sliceDataHandlers = new ArrayList<>();
 
     public StdOutVisitorHandler(boolean printIds, boolean indentXml,
                                 boolean showProgress, boolean showStatistics, boolean doStatistics,
-                                boolean abortOnClusterDown, int processtime, boolean jsonOutput)
+                                boolean abortOnClusterDown, int processtime, boolean jsonOutput, boolean binaryOutput)
     {
-        this(printIds, indentXml, showProgress, showStatistics, doStatistics, abortOnClusterDown, processtime, jsonOutput, createStdOutPrintStream());
+        this(printIds, indentXml, showProgress, showStatistics, doStatistics, abortOnClusterDown, processtime,
+             jsonOutput, binaryOutput, 0);
+    }
+
+    /**
+     * @param dictionarySamples the number of documents of each document type to train a compression dictionary
+     *                          from when writing the binary feed format, or 0 to not compress documents
+     */
+    public StdOutVisitorHandler(boolean printIds, boolean indentXml,
+                                boolean showProgress, boolean showStatistics, boolean doStatistics,
+                                boolean abortOnClusterDown, int processtime, boolean jsonOutput, boolean binaryOutput,
+                                int dictionarySamples)
+    {
+        this(printIds, indentXml, showProgress, showStatistics, doStatistics, abortOnClusterDown, processtime,
+             jsonOutput, binaryOutput, dictionarySamples, createStdOutPrintStream());
     }
 
     StdOutVisitorHandler(boolean printIds, boolean indentXml,
                          boolean showProgress, boolean showStatistics, boolean doStatistics,
-                         boolean abortOnClusterDown, int processtime, boolean jsonOutput, PrintStream out)
+                         boolean abortOnClusterDown, int processtime, boolean jsonOutput, boolean binaryOutput,
+                         int dictionarySamples, PrintStream out)
     {
         super(showProgress, showStatistics, abortOnClusterDown);
         this.printIds = printIds;
@@ -60,7 +93,17 @@ public class StdOutVisitorHandler extends VdsVisitHandler {
         this.processTimeMilliSecs = processtime;
         this.jsonOutput = jsonOutput;
         this.out = out;
-        this.dataHandler = new DataHandler(doStatistics);
+        this.doStatistics = doStatistics;
+        this.binaryWriter = binaryOutput && !printIds ? createBinaryFeedWriter(out, dictionarySamples) : null;
+        this.dataHandler = new DataHandler();
+    }
+
+    private static BinaryFeedWriter createBinaryFeedWriter(PrintStream out, int dictionarySamples) {
+        try {
+            return new BinaryFeedWriter(new BufferedOutputStream(out), dictionarySamples);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     private static PrintStream createStdOutPrintStream() {
@@ -77,6 +120,21 @@ public class StdOutVisitorHandler extends VdsVisitHandler {
 
     public VisitorDataHandler getDataHandler() { return dataHandler; }
 
+    @Override
+    public void setSlices(List<ProgressToken> resumeProgress) {
+        super.setSlices(resumeProgress);
+        synchronized (printLock) {
+            for (int i = 0; i < resumeProgress.size(); ++i) {
+                sliceDataHandlers.add(new DataHandler());
+            }
+            unfinishedDataHandlers = resumeProgress.size();
+        }
+    }
+
+    /** Returns the data handler of the given slice. These all write to the same output. */
+    @Override
+    public VisitorDataHandler getDataHandler(int sliceId) { return sliceDataHandlers.get(sliceId); }
+
     class StatisticsMap extends LinkedHashMap<String, Integer> {
         int maxSize;
 
@@ -107,14 +165,12 @@ public class StdOutVisitorHandler extends VdsVisitHandler {
         }
     }
 
-    class DataHandler extends DumpVisitorDataHandler {
-        boolean doStatistics;
-        StatisticsMap statisticsMap = new StatisticsMap(10000);
-        private volatile boolean first = true;
+    /** An operation rendered in the output format, which is written under the print lock */
+    private interface Output {
+        void write() throws IOException;
+    }
 
-        public DataHandler(boolean doStatistics) {
-            this.doStatistics = doStatistics;
-        }
+    class DataHandler extends DumpVisitorDataHandler {
 
         @Override
         public void onMessage(Message m, AckToken token) {
@@ -124,86 +180,111 @@ public class StdOutVisitorHandler extends VdsVisitHandler {
                 } catch (InterruptedException e) {}
             }
 
-            synchronized (printLock) {
-                if (m instanceof MapVisitorMessage) {
+            // Messages are decoded and rendered concurrently, and only written to the output under the print lock
+            if (m instanceof MapVisitorMessage) {
+                synchronized (printLock) {
                     onMapVisitorData(((MapVisitorMessage)m).getData());
-                    ack(token);
-                } else if (m instanceof DocumentListMessage) {
-                    DocumentListMessage dlm = (DocumentListMessage)m;
-                    onDocumentList(dlm.getBucketId(), dlm.getDocuments());
-                    ack(token);
-                } else if (m instanceof EmptyBucketsMessage) {
-                    onEmptyBuckets(((EmptyBucketsMessage)m).getBucketIds());
-                    ack(token);
-                } else {
-                    super.onMessage(m, token);
                 }
+                ack(token);
+            } else if (m instanceof DocumentListMessage) {
+                DocumentListMessage dlm = (DocumentListMessage)m;
+                onDocumentList(dlm.getBucketId(), dlm.getDocuments());
+                ack(token);
+            } else if (m instanceof EmptyBucketsMessage) {
+                onEmptyBuckets(((EmptyBucketsMessage)m).getBucketIds());
+                ack(token);
+            } else if (m instanceof PutDocumentMessage && binaryWriter != null) {
+                onSerializedDocument((PutDocumentMessage)m);
+                ack(token);
+            } else {
+                super.onMessage(m, token);
+            }
+        }
+
+        /** Writes the document of the given message as it was received, unless the message is already decoded */
+        private void onSerializedDocument(PutDocumentMessage message) {
+            ByteBuffer serializedDocument = message.getSerializedDocument();
+            if (serializedDocument == null) {
+                onDocument(message.getDocumentPut().getDocument(), message.getTimestamp());
+                return;
             }
+            output(Collections.singletonList(() -> binaryWriter.writePut(serializedDocument)));
         }
 
         @Override
         public void onDocument(Document doc, long timestamp) {
             try {
-                if (lastLineIsProgress) {
-                    System.err.print('\r');
-                }
-
-                if (printIds) {
-                    out.print(doc.getId());
-                    out.print(" (Last modified at ");
-                    out.println(timestamp + ")");
-                } else {
-                    if (jsonOutput) {
-                        writeJsonDocument(doc);
-                    } else {
-                        out.print(doc.toXML(
-                                indentXml ? "  " : ""));
-                    }
-                }
+                output(Collections.singletonList(render(doc, timestamp)));
             } catch (Exception e) {
                 System.err.println("Failed to output document: "
                         + e.getMessage());
-                getControlHandler().abort();
+                abortVisiting();
             }
         }
 
-        private void writeJsonDocument(Document doc) throws IOException {
-            writeFeedStartOrRecordSeparator();
-            out.write(JsonWriter.toByteArray(doc));
+        /** Returns the given document rendered in the output format, ready to be written */
+        private Output render(Document doc, long timestamp) {
+            if (binaryWriter != null) {
+                GrowableByteBuffer buf = new GrowableByteBuffer();
+                doc.serialize(buf);
+                buf.flip();
+                ByteBuffer serializedDocument = buf.getByteBuffer();
+                return () -> binaryWriter.writePut(serializedDocument);
+            } else if (printIds) {
+                String line = doc.getId() + " (Last modified at " + timestamp + ")";
+                return () -> out.println(line);
+            } else if (jsonOutput) {
+                byte[] json = JsonWriter.toByteArray(doc);
+                return () -> writeJson(json);
+            } else {
+                String xml = doc.toXML(indentXml ? "  " : "");
+                return () -> out.print(xml);
+            }
         }
 
         @Override
         public void onRemove(DocumentId docId) {
-            try {
-                if (lastLineIsProgress) {
-                    System.err.print('\r');
-                }
+            Output remove;
+            if (binaryWriter != null) {
+                remove = () -> binaryWriter.writeRemove(docId);
+            } else if (printIds) {
+                remove = () -> out.println(docId + " (Removed)");
+            } else if (jsonOutput) {
+                byte[] json = JsonWriter.documentRemove(docId);
+                remove = () -> writeJson(json);
+            } else {
+                XmlStream stream = new XmlStream();
+                stream.beginTag("remove");
+                stream.addAttribute("documentid", docId);
+                stream.endTag();
+                assert(stream.isFinalized());
+                String xml = stream.toString();
+                remove = () -> out.print(xml);
+            }
+            output(Collections.singletonList(remove));
+        }
 
-                if (printIds) {
-                    out.println(docId + " (Removed)");
-                } else {
-                    if (jsonOutput) {
-                        writeJsonDocumentRemove(docId);
-                    } else {
-                        XmlStream stream = new XmlStream();
-                        stream.beginTag("remove");
-                        stream.addAttribute("documentid", docId);
-                        stream.endTag();
-                        assert(stream.isFinalized());
-                        out.print(stream);
+        /** Writes the given rendered operations in one piece, and aborts visiting if this fails */
+        private void output(List<Output> outputs) {
+            try {
+                synchronized (printLock) {
+                    if (lastLineIsProgress) {
+                        System.err.print('\r');
+                    }
+                    for (Output output : outputs) {
+                        output.write();
                     }
                 }
             } catch (Exception e) {
                 System.err.println("Failed to output document: "
                         + e.getMessage());
-                getControlHandler().abort();
+                abortVisiting();
             }
         }
 
-        private void writeJsonDocumentRemove(DocumentId docId)
-                throws IOException {
+        private void writeJson(byte[] json) {
             writeFeedStartOrRecordSeparator();
-            out.write(JsonWriter.documentRemove(docId));
+            out.write(json, 0, json.length);
         }
 
         private void writeFeedStartOrRecordSeparator() {
@@ -231,11 +312,23 @@ public class StdOutVisitorHandler extends VdsVisitHandler {
         }
 
         private void onDocumentList(BucketId bucketId, List<DocumentListEntry> documents) {
-            out.println("Got document list of bucket " + bucketId.toString());
-            for (DocumentListEntry entry : documents) {
-                entry.getDocument().setLastModified(entry.getTimestamp());
-                onDocument(entry.getDocument(), entry.getTimestamp());
+            List<Output> outputs = new ArrayList<>();
+            if (binaryWriter == null) {
+                String line = "Got document list of bucket " + bucketId.toString();
+                outputs.add(() -> out.println(line));
             }
+            try {
+                for (DocumentListEntry entry : documents) {
+                    entry.getDocument().setLastModified(entry.getTimestamp());
+                    outputs.add(render(entry.getDocument(), entry.getTimestamp()));
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to output document: "
+                        + e.getMessage());
+                abortVisiting();
+                return;
+            }
+            output(outputs);
         }
 
         private void onEmptyBuckets(List<BucketId> bucketIds) {
@@ -248,14 +341,24 @@ public class StdOutVisitorHandler extends VdsVisitHandler {
         }
 
         @Override
-        public synchronized void onDone() {
-            if (jsonOutput && !printIds) {
-                if (first) {
-                    out.print('[');
+        public void onDone() {
+            synchronized (printLock) {
+                if (--unfinishedDataHandlers > 0) return; // output is completed by the last one
+                if (jsonOutput && !printIds) {
+                    if (first) {
+                        out.print('[');
+                    }
+                    out.println("]");
+                }
+                if (binaryWriter != null) {
+                    try {
+                        binaryWriter.flush();
+                    } catch (IOException e) {
+                        System.err.println("Failed to output documents: " + e.getMessage());
+                    }
                 }
-                out.println("]");
+                statisticsMap.dumpAll();
             }
-            statisticsMap.dumpAll();
             super.onDone();
         }
     }
@@ -3,6 +3,7 @@ package com.yahoo.vespavisit;
 
 import com.yahoo.document.FixedBucketSpaces;
 import com.yahoo.document.select.parser.ParseException;
+import com.yahoo.document.serialization.BinaryFeedWriter;
 import com.yahoo.documentapi.ProgressToken;
 import com.yahoo.documentapi.VisitorControlHandler;
 import com.yahoo.documentapi.VisitorParameters;
@@ -14,6 +15,7 @@ import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
 import com.yahoo.log.LogSetup;
 import com.yahoo.document.select.OrderingSpecification;
 import com.yahoo.messagebus.StaticThrottlePolicy;
+import com.yahoo.messagebus.ThrottlePolicy;
 import com.yahoo.vespaclient.ClusterDef;
 import com.yahoo.vespaclient.ClusterList;
 import org.apache.commons.cli.CommandLine;
@@ -25,7 +27,11 @@ import org.apache.commons.cli.Options;
 
 import java.io.*;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Client using visiting, used by the vespa-visit command line tool.
@@ -36,7 +42,7 @@ public class VdsVisit {
 
     private VdsVisitParameters params;
     private MessageBusParams mbparams = new MessageBusParams(new LoadTypeSet());
-    private VisitorSession session;
+    private final List<VisitorSession> sessions = new CopyOnWriteArrayList<>();
 
     private final VisitorSessionAccessorFactory sessionAccessorFactory;
     private VisitorSessionAccessor sessionAccessor;
@@ -355,6 +361,32 @@ public class VdsVisit {
               .hasArg(false)
               .build());
 
+        options.addOption(Option.builder()
+                .longOpt("binaryoutput")
+                .desc("Output documents in the binary feed format, as serialized by the content nodes. " +
+                      "This is faster than the text formats, as the documents are not deserialized.")
+                .hasArg(false)
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("dictionarysamples")
+                .hasArg(true)
+                .argName("num")
+                .desc("With --binaryoutput, compress the documents of each document type with a dictionary trained " +
+                      "from the first num documents of that type, at most " + BinaryFeedWriter.MAX_DICTIONARY_SAMPLES + ". " +
+                      "This makes small documents much smaller. " +
+                      "Default is 0, which does not compress documents.")
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("slices")
+                .hasArg(true)
+                .argName("num")
+                .desc("Visit the bucket space in this many slices in parallel, each in a session of its own. " +
+                      "Must be a power of two. A progress file must be resumed with the same number of slices.")
+                .type(Number.class)
+                .build());
 
         options.addOption(Option.builder()
                 .longOpt("bucketspace")
@@ -379,6 +411,9 @@ public class VdsVisit {
         private int processTime = 0;
         private int fullTimeout = 7 * 24 * 60 * 60 * 1000;
         private boolean jsonOutput = false;
+        private boolean binaryOutput = false;
+        private int dictionarySamples = 0;
+        private int slices = 1;
 
         public VisitorParameters getVisitorParameters() {
             return visitorParameters;
@@ -447,6 +482,26 @@ public class VdsVisit {
         public void setJsonOutput(boolean jsonOutput) {
             this.jsonOutput = jsonOutput;
         }
+
+        public void setBinaryOutput(boolean binaryOutput) {
+            this.binaryOutput = binaryOutput;
+        }
+
+        public int getDictionarySamples() {
+            return dictionarySamples;
+        }
+
+        public void setDictionarySamples(int dictionarySamples) {
+            this.dictionarySamples = dictionarySamples;
+        }
+
+        public int getSlices() {
+            return slices;
+        }
+
+        public void setSlices(int slices) {
+            this.slices = slices;
+        }
     }
 
     protected static class ArgumentParser {
@@ -575,6 +630,13 @@ public class VdsVisit {
             if (line.hasOption("skipbucketsonfatalerrors")) {
                 params.skipBucketsOnFatalErrors(true);
             }
+            if (line.hasOption("slices")) {
+                int slices = ((Number)line.getParsedOptionValue("slices")).intValue();
+                if (slices < 1 || Integer.bitCount(slices) != 1) {
+                    throw new IllegalArgumentException("Number of slices must be a positive power of two");
+                }
+                allParams.setSlices(slices);
+            }
             if (line.hasOption("maxpendingsuperbuckets")) {
                 StaticThrottlePolicy throttlePolicy = new StaticThrottlePolicy();
                 throttlePolicy.setMaxPendingCount(((Number)line.getParsedOptionValue("maxpendingsuperbuckets")).intValue());
@@ -583,10 +645,26 @@ public class VdsVisit {
 
             boolean jsonOutput = line.hasOption("jsonoutput");
             boolean xmlOutput = line.hasOption("xmloutput");
+            boolean binaryOutput = line.hasOption("binaryoutput");
             if (jsonOutput && xmlOutput) {
                 throw new IllegalArgumentException("Cannot combine both xml and json output");
             }
+            if (binaryOutput && (jsonOutput || xmlOutput)) {
+                throw new IllegalArgumentException("Cannot combine binary output with xml or json output");
+            }
             allParams.setJsonOutput((!jsonOutput && !xmlOutput) ? false : jsonOutput); // TODO Vespa 7 Change default to JSON
+            allParams.setBinaryOutput(binaryOutput);
+            if (line.hasOption("dictionarysamples")) {
+                long dictionarySamples = ((Number)line.getParsedOptionValue("dictionarysamples")).longValue();
+                if ( ! binaryOutput) {
+                    throw new IllegalArgumentException("Dictionary compression requires binary output");
+                }
+                if (dictionarySamples < 0 || dictionarySamples > BinaryFeedWriter.MAX_DICTIONARY_SAMPLES) {
+                    throw new IllegalArgumentException("Number of dictionary samples must be in [0, " +
+                                                       BinaryFeedWriter.MAX_DICTIONARY_SAMPLES + "]");
+                }
+                allParams.setDictionarySamples((int)dictionarySamples);
+            }
 
             allParams.setVisitorParameters(params);
             return allParams;
@@ -689,6 +767,9 @@ public class VdsVisit {
         if (params.skipBucketsOnFatalErrors()) {
             out.println("Skip visiting super buckets with fatal errors.");
         }
+        if (vdsParams.getSlices() > 1) {
+            out.println("Visiting " + vdsParams.getSlices() + " slices of the bucket space in parallel.");
+        }
     }
 
     private void onDocumentSelectionException(Exception e) {
@@ -709,6 +790,7 @@ public class VdsVisit {
 
     protected int doRun() {
         VisitorParameters visitorParameters = params.getVisitorParameters();
+        List<ProgressToken> sliceProgress = Collections.nCopies(params.getSlices(), null);
         // If progress file already exists, create resume token from it
         if (visitorParameters.getResumeFileName() != null &&
             !"".equals(visitorParameters.getResumeFileName()))
@@ -725,11 +807,17 @@ public class VdsVisit {
                     builder.append(new String(b, 0, length));
                 }
                 fos.close();
-                visitorParameters.setResumeToken(new ProgressToken(builder.toString()));
+                double percentFinished;
+                if (params.getSlices() > 1) {
+                    sliceProgress = SlicedProgressFile.parse(builder.toString(), params.getSlices());
+                    percentFinished = SlicedProgressFile.percentFinished(sliceProgress);
+                } else {
+                    visitorParameters.setResumeToken(new ProgressToken(builder.toString()));
+                    percentFinished = visitorParameters.getResumeToken().percentFinished();
+                }
 
                 if (params.isVerbose()) {
-                    System.err.format("Resuming visitor already %.1f %% finished.\n",
-                            visitorParameters.getResumeToken().percentFinished());
+                    System.err.format("Resuming visitor already %.1f %% finished.\n", percentFinished);
                 }
             } catch (FileNotFoundException e) {
                 // Ignore; file has not been created yet but will be shortly.
@@ -737,6 +825,11 @@ public class VdsVisit {
                 System.err.println("Could not open progress file: " + visitorParameters.getResumeFileName());
                 e.printStackTrace(System.err);
                 return 1;
+            } catch (IllegalArgumentException e) {
+                if (params.getSlices() == 1) throw e;
+                System.err.println("Could not resume from progress file " + visitorParameters.getResumeFileName() +
+                                   ": " + e.getMessage());
+                return 1;
             }
         }
 
@@ -753,7 +846,9 @@ public class VdsVisit {
                 params.getStatisticsParts() != null,
                 params.getAbortOnClusterDown(),
                 params.getProcessTime(),
-                params.jsonOutput);
+                params.jsonOutput,
+                params.binaryOutput,
+                params.dictionarySamples);
 
         if (visitorParameters.getResumeFileName() != null) {
             handler.setProgressFileName(visitorParameters.getResumeFileName());
@@ -771,16 +866,38 @@ public class VdsVisit {
             }
         }
 
+        List<VisitorControlHandler> controlHandlers = new ArrayList<>();
         try {
-            session = sessionAccessor.createVisitorSession(visitorParameters);
-            while (true) {
-                try {
-                    if (session.waitUntilDone(params.getFullTimeout())) break;
-                } catch (InterruptedException e) {}
+            if (params.getSlices() > 1) {
+                List<ProgressToken> resumeProgress = new ArrayList<>();
+                sliceProgress.forEach(progress -> resumeProgress.add(progress != null ? progress : new ProgressToken()));
+                handler.setSlices(resumeProgress);
+                for (int sliceId = 0; sliceId < params.getSlices() && ! handler.isAborted(); ++sliceId) {
+                    VisitorParameters sliceParameters = createSliceParameters(visitorParameters, handler, sliceId,
+                                                                              resumeProgress.get(sliceId));
+                    controlHandlers.add(sliceParameters.getControlHandler());
+                    VisitorSession session = sessionAccessor.createVisitorSession(sliceParameters);
+                    sessions.add(session);
+                    if (handler.isAborted()) { // aborted while this session was created
+                        session.abort();
+                    }
+                }
+            } else {
+                controlHandlers.add(visitorParameters.getControlHandler());
+                sessions.add(sessionAccessor.createVisitorSession(visitorParameters));
+            }
+            for (VisitorSession session : sessions) {
+                while (true) {
+                    try {
+                        if (session.waitUntilDone(params.getFullTimeout())) break;
+                    } catch (InterruptedException e) {}
+                }
             }
 
             if (visitorParameters.getTraceLevel() > 0) {
-                System.out.println(session.getTrace().toString());
+                for (VisitorSession session : sessions) {
+                    System.out.println(session.getTrace().toString());
+                }
             }
         } catch (ParseException e) {
             onDocumentSelectionException(e);
@@ -792,13 +909,31 @@ public class VdsVisit {
             e.printStackTrace(System.err);
             return 1;
         }
-        if (visitorParameters.getControlHandler().getResult().code
-                == VisitorControlHandler.CompletionCode.SUCCESS)
-        {
-            return 0;
-        } else {
-            return 1;
+        for (VisitorControlHandler controlHandler : controlHandlers) {
+            if (controlHandler.getResult().code != VisitorControlHandler.CompletionCode.SUCCESS) {
+                return 1;
+            }
         }
+        return 0;
+    }
+
+    /** Returns parameters for visiting the given slice of what is visited with the given parameters */
+    private VisitorParameters createSliceParameters(VisitorParameters visitorParameters, VdsVisitHandler handler,
+                                                    int sliceId, ProgressToken resumeProgress) {
+        VisitorParameters sliceParameters = new VisitorParameters(visitorParameters);
+        sliceParameters.slice(params.getSlices(), sliceId);
+        sliceParameters.setResumeToken(resumeProgress);
+        sliceParameters.setControlHandler(handler.getControlHandler(sliceId));
+        if (visitorParameters.getRemoteDataHandler() == null) {
+            sliceParameters.setLocalDataHandler(handler.getDataHandler(sliceId));
+        }
+        ThrottlePolicy throttlePolicy = visitorParameters.getThrottlePolicy();
+        if (throttlePolicy instanceof StaticThrottlePolicy) { // the given max pending applies to all the slices together
+            int maxPending = ((StaticThrottlePolicy)throttlePolicy).getMaxPendingCount();
+            sliceParameters.setThrottlePolicy(new StaticThrottlePolicy().setMaxPendingCount(
+                    Math.max(1, maxPending / params.getSlices())));
+        }
+        return sliceParameters;
     }
 
     private void initShutdownHook() {
@@ -807,12 +942,12 @@ public class VdsVisit {
 
     class CleanUpThread extends Thread {
         public void run() {
-            try {
-                if (session != null) {
+            for (VisitorSession session : sessions) {
+                try {
                     session.destroy();
+                } catch (IllegalStateException ise) {
+                    //ignore this
                 }
-            } catch (IllegalStateException ise) {
-                //ignore this
             }
             try {
                 if (sessionAccessor != null) {
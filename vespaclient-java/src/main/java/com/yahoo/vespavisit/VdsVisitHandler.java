@@ -3,6 +3,7 @@ package com.yahoo.vespavisit;
 
 import com.yahoo.documentapi.ProgressToken;
 import com.yahoo.documentapi.VisitorControlHandler;
+import com.yahoo.documentapi.VisitorControlSession;
 import com.yahoo.documentapi.VisitorDataHandler;
 import com.yahoo.vdslib.VisitorStatistics;
 
@@ -10,7 +11,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
@@ -33,6 +36,12 @@ public abstract class VdsVisitHandler {
 
     final VisitorControlHandler controlHandler = new ControlHandler();
 
+    /** A copy of the latest progress of each slice when visiting slices in parallel, or null if visiting in one session */
+    private List<ProgressToken> sliceProgress = null;
+    private final List<ControlHandler> sliceControlHandlers = new ArrayList<>();
+    private int unfinishedSlices = 0;
+    private volatile boolean aborted = false;
+
     public VdsVisitHandler(boolean showProgress, boolean showStatistics, boolean abortOnClusterDown)
     {
         this.showProgress = showProgress;
@@ -86,16 +95,100 @@ public abstract class VdsVisitHandler {
     public VisitorControlHandler getControlHandler() { return controlHandler; }
     public abstract VisitorDataHandler getDataHandler();
 
+    /**
+     * Prepares this to handle a session visiting each of the given number of slices of the bucket space,
+     * where the progress of all the slices is written to the one progress file of this.
+     *
+     * @param resumeProgress the progress each slice is resumed from, or an empty token for a slice which is not
+     */
+    public void setSlices(List<ProgressToken> resumeProgress) {
+        sliceProgress = new ArrayList<>();
+        for (ProgressToken progress : resumeProgress) {
+            sliceProgress.add(new ProgressToken(progress.toString()));
+        }
+        unfinishedSlices = resumeProgress.size();
+        for (int i = 0; i < resumeProgress.size(); ++i) {
+            sliceControlHandlers.add(new ControlHandler(i));
+        }
+    }
+
+    /** Returns the number of slices visited in parallel, or 0 if this visits in one session */
+    public int getSlices() {
+        return sliceControlHandlers.size();
+    }
+
+    /**
+     * Aborts visiting. When visiting slices in parallel, this aborts the sessions of all slices which are started,
+     * and slices which are not started must not be started, see {@link #isAborted}.
+     */
+    public void abortVisiting() {
+        aborted = true;
+        if (sliceControlHandlers.isEmpty()) {
+            controlHandler.abort();
+            return;
+        }
+        for (ControlHandler handler : sliceControlHandlers) {
+            if (handler.hasSession() && ! handler.isDone()) {
+                handler.abort();
+            }
+        }
+    }
+
+    /** Returns whether visiting is aborted by {@link #abortVisiting} */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /** Returns the control handler of the session visiting the given slice */
+    public VisitorControlHandler getControlHandler(int sliceId) { return sliceControlHandlers.get(sliceId); }
+
+    /**
+     * Returns the data handler of the session visiting the given slice. Handlers which support visiting
+     * slices in parallel must override this.
+     */
+    public VisitorDataHandler getDataHandler(int sliceId) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support visiting slices in parallel");
+    }
+
     class ControlHandler extends VisitorControlHandler {
         VisitorStatistics statistics;
+        /** The slice visited by the session of this, or -1 if visiting in one session */
+        private final int sliceId;
+        private volatile boolean hasSession = false;
+
+        ControlHandler() {
+            this(-1);
+        }
+
+        ControlHandler(int sliceId) {
+            this.sliceId = sliceId;
+        }
+
+        @Override
+        public void setSession(VisitorControlSession session) {
+            super.setSession(session);
+            hasSession = session != null;
+        }
+
+        /** Returns whether a session is attached to this, such that it can be aborted */
+        boolean hasSession() {
+            return hasSession;
+        }
 
         public void onProgress(ProgressToken token) {
+            if (sliceId >= 0) {
+                // Keep a copy, as the session of each slice locks its own token while calling this
+                ProgressToken copy = new ProgressToken(token.toString());
+                synchronized (sliceProgress) {
+                    sliceProgress.set(sliceId, copy);
+                }
+            }
             if (progressFileName.length() > 0) {
                  try {
-                     synchronized (token) {
+                     synchronized (sliceId >= 0 ? sliceProgress : token) {
                          File file = new File(progressFileName + ".tmp");
                          FileOutputStream fos = new FileOutputStream(file);
-                         fos.write(token.toString().getBytes());
+                         fos.write(progressFileContents(token).getBytes());
                          fos.close();
                          file.renameTo(new File(progressFileName));
                      }
@@ -107,7 +200,7 @@ public abstract class VdsVisitHandler {
             if (showProgress) {
                 synchronized (printLock) {
                     DecimalFormat df = new DecimalFormat("#.#");
-                    String percentage = df.format(token.percentFinished());
+                    String percentage = df.format(percentFinished(token));
                     if (!percentage.equals(lastPercentage)) {
                         if (lastLineIsProgress) {
                             System.err.print('\r');
@@ -148,11 +241,28 @@ public abstract class VdsVisitHandler {
                      message.lastIndexOf("don't allow external load")>=0)) {
                     System.err.println("Aborting visitor as " +
                                        "--abortonclusterdown flag is set.");
-                    abort();
+                    abortVisiting();
                 }
             }
         }
+
+        private String progressFileContents(ProgressToken token) {
+            if (sliceId < 0) return token.toString();
+            return SlicedProgressFile.toString(sliceProgress);
+        }
+
+        private double percentFinished(ProgressToken token) {
+            if (sliceId < 0) return token.percentFinished();
+            synchronized (sliceProgress) {
+                return SlicedProgressFile.percentFinished(sliceProgress);
+            }
+        }
+
         public void onDone(CompletionCode code, String message) {
+            if (sliceId >= 0) {
+                onSliceDone(code, message);
+                return;
+            }
             if (lastLineIsProgress) {
                 System.err.print('\n');
                 lastLineIsProgress = false;
@@ -177,5 +287,42 @@ public abstract class VdsVisitHandler {
             }
             super.onDone(code, message);
         }
+
+        /** Reports the completion of a slice, and reports on all the slices once the last one completes */
+        private void onSliceDone(CompletionCode code, String message) {
+            super.onDone(code, message);
+            synchronized (printLock) {
+                if (lastLineIsProgress) {
+                    System.err.print('\n');
+                    lastLineIsProgress = false;
+                }
+                if (code != CompletionCode.SUCCESS) {
+                    System.err.println("Visiting of slice " + sliceId + " did not complete (" + code + "): " + message);
+                }
+                if (--unfinishedSlices == 0 && allSlicesSucceededWith(code)) {
+                    if (showProgress) {
+                        System.err.println("Completed visiting.");
+                    }
+                    if (showStatistics) {
+                        VisitorStatistics total = null;
+                        for (ControlHandler handler : sliceControlHandlers) {
+                            if (handler.statistics == null) continue;
+                            if (total == null) total = new VisitorStatistics();
+                            total.add(handler.statistics);
+                        }
+                        System.err.println("*** Visitor statistics");
+                        System.err.println(total == null ? "Nothing visited" : total.toString());
+                    }
+                }
+            }
+        }
+
+        private boolean allSlicesSucceededWith(CompletionCode code) {
+            if (code != CompletionCode.SUCCESS) return false;
+            for (ControlHandler handler : sliceControlHandlers) {
+                if (handler.getResult().getCode() != CompletionCode.SUCCESS) return false;
+            }
+            return true;
+        }
     }
 }
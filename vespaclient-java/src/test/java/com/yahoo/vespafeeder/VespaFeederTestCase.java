@@ -6,9 +6,11 @@ import static org.junit.Assert.*;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -16,6 +18,7 @@ import com.yahoo.clientmetrics.RouteMetricSet;
 import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.document.DocumentTypeManagerConfigurer;
 import com.yahoo.document.DocumentUpdate;
+import com.yahoo.document.serialization.BinaryFeedWriter;
 import com.yahoo.documentapi.messagebus.protocol.*;
 import com.yahoo.feedapi.DummySessionFactory;
 import com.yahoo.feedhandler.VespaFeedHandler;
@@ -26,12 +29,16 @@ import com.yahoo.vespafeeder.Arguments.HelpShownException;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 public class VespaFeederTestCase {
 
     @Rule
     public ExpectedException exception = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testParseArgs() throws Exception {
         String argsS="--abortondataerror false --abortonsenderror false --file foo.xml --maxpending 10" +
@@ -103,6 +110,21 @@ public class VespaFeederTestCase {
             VespaFeeder.setJsonInput(r, b);
             assertEquals("false", r.getProperty(VespaFeedHandler.JSON_INPUT));
         }
+        {
+            BufferedInputStream b = new BufferedInputStream(
+                    new ByteArrayInputStream(new byte[] { 'V', 'B', 'F', 1 }));
+            InputStreamRequest r = new InputStreamRequest(b);
+            VespaFeeder.setBinaryInput(r, b);
+            assertEquals("true", r.getProperty(VespaFeedHandler.BINARY_INPUT));
+            assertEquals('V', b.read());
+        }
+        {
+            BufferedInputStream b = new BufferedInputStream(
+                    new ByteArrayInputStream(Utf8.toBytes("[]")));
+            InputStreamRequest r = new InputStreamRequest(b);
+            VespaFeeder.setBinaryInput(r, b);
+            assertEquals("false", r.getProperty(VespaFeedHandler.BINARY_INPUT));
+        }
     }
 
     public void assertRenderErrorOutput(String expected, String[] errors) {
@@ -185,6 +207,67 @@ public class VespaFeederTestCase {
         assertTrue(feedFixture.outputStream.toString().contains("Messages sent to vespa"));
     }
 
+    @Test
+    public void feedJsonConvertedToBinary() throws Exception {
+        File binaryFeed = temporaryFolder.newFile("myfeed.bin");
+        FeedFixture converting = new FeedFixture();
+        Arguments arguments = new Arguments(("--file src/test/files/myfeed.json --binaryoutput " + binaryFeed).split(" "),
+                                            converting.sessionFactory);
+        new VespaFeeder(arguments, converting.typeManager).parseFiles(System.in, converting.printStream);
+        assertEquals(0, converting.sessionFactory.messages.size());
+        assertTrue(converting.outputStream.toString().contains("Wrote 3 operations"));
+
+        assertJsonFeedState(feed(binaryFeed.getPath(), true));
+    }
+
+    @Test
+    public void feedJsonConvertedToBinaryWithDictionaryCompression() throws Exception {
+        File jsonFeed = temporaryFolder.newFile("news.json");
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 50; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"put\": \"id:test:news::").append(i).append("\", \"fields\": {")
+                .append("\"url\": \"http://news.example.com/2018/world/article-").append(i).append(".html\", ")
+                .append("\"title\": \"Breaking news from the world desk of the example newsroom, story ").append(i)
+                .append("\"}}");
+        }
+        Files.write(jsonFeed.toPath(), Utf8.toBytes(json.append("]").toString()));
+
+        File plain = convertToBinary(jsonFeed, temporaryFolder.newFile("plain.bin"), 0);
+        File compressed = convertToBinary(jsonFeed, temporaryFolder.newFile("compressed.bin"), 10);
+        assertTrue("Compressed feed of " + compressed.length() + " bytes should be smaller than " + plain.length(),
+                   compressed.length() < plain.length());
+
+        FeedFixture fromPlain = feed(plain.getPath(), true);
+        FeedFixture fromCompressed = feed(compressed.getPath(), true);
+        assertEquals(50, fromCompressed.sessionFactory.messages.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(((PutDocumentMessage) fromPlain.sessionFactory.messages.get(i)).getDocumentPut().getDocument(),
+                         ((PutDocumentMessage) fromCompressed.sessionFactory.messages.get(i)).getDocumentPut().getDocument());
+        }
+    }
+
+    private File convertToBinary(File input, File output, int dictionarySamples) throws Exception {
+        FeedFixture converting = new FeedFixture();
+        Arguments arguments = new Arguments(("--file " + input + " --binaryoutput " + output +
+                                             " --dictionarysamples " + dictionarySamples).split(" "),
+                                            converting.sessionFactory);
+        new VespaFeeder(arguments, converting.typeManager).parseFiles(System.in, converting.printStream);
+        return output;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requireThatDictionarySamplesRequireBinaryOutput() throws Exception {
+        new Arguments("--file src/test/files/myfeed.json --dictionarysamples 10".split(" "),
+                      DummySessionFactory.createWithAutoReply());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requireThatDictionarySamplesAreLimited() throws Exception {
+        new Arguments(("--file src/test/files/myfeed.json --binaryoutput out.bin --dictionarysamples " +
+                       (BinaryFeedWriter.MAX_DICTIONARY_SAMPLES + 1)).split(" "),
+                      DummySessionFactory.createWithAutoReply());
+    }
+
     @Test
     public void requireThatCreateIfNonExistentArgumentIsUsed() throws Exception {
         FeedFixture f = new FeedFixture();
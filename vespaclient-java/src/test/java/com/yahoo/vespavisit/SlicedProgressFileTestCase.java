@@ -0,0 +1,48 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespavisit;
+
+import com.yahoo.documentapi.ProgressToken;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SlicedProgressFileTestCase {
+
+    private static final String SLICE_PROGRESS = "VDS bucket progress file (87.5% completed)\n" +
+                                                 "3\n" +
+                                                 "8\n" +
+                                                 "7\n" +
+                                                 "8\n" +
+                                                 "c000000000000002:0\n";
+
+    @Test
+    public void requireThatProgressOfEachSliceIsWrittenAndParsed() {
+        List<ProgressToken> progress = Arrays.asList(new ProgressToken(SLICE_PROGRESS), new ProgressToken());
+        String contents = SlicedProgressFile.toString(progress);
+        assertTrue(SlicedProgressFile.isSliced(contents));
+        assertTrue(contents.startsWith("VDS sliced bucket progress file (37.5% completed)\n2\n"));
+
+        List<ProgressToken> parsed = SlicedProgressFile.parse(contents, 2);
+        assertEquals(2, parsed.size());
+        assertEquals(SLICE_PROGRESS, parsed.get(0).toString());
+        assertEquals(0, parsed.get(1).getTotalBucketCount());
+        assertEquals(contents, SlicedProgressFile.toString(parsed));
+    }
+
+    @Test
+    public void requireThatProgressOfOneSessionIsNotSliced() {
+        assertFalse(SlicedProgressFile.isSliced(SLICE_PROGRESS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requireThatNumberOfSlicesMustMatch() {
+        String contents = SlicedProgressFile.toString(Arrays.asList(new ProgressToken(), new ProgressToken()));
+        SlicedProgressFile.parse(contents, 4);
+    }
+
+}
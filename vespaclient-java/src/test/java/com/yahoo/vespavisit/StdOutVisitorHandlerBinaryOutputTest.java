@@ -0,0 +1,135 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespavisit;
+
+import com.yahoo.component.Version;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.serialization.BinaryFeedReader;
+import com.yahoo.documentapi.AckToken;
+import com.yahoo.documentapi.VisitorControlSession;
+import com.yahoo.documentapi.VisitorDataHandler;
+import com.yahoo.documentapi.VisitorResponse;
+import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
+import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
+import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests visited documents written in the binary feed format.
+ */
+public class StdOutVisitorHandlerBinaryOutputTest {
+
+    private final DocumentTypeManager manager = new DocumentTypeManager();
+    private final DocumentType docType = new DocumentType("music");
+    private final DocumentProtocol protocol;
+
+    public StdOutVisitorHandlerBinaryOutputTest() {
+        docType.addField("title", DataType.STRING);
+        manager.registerDocumentType(docType);
+        protocol = new DocumentProtocol(manager);
+    }
+
+    @Test
+    public void requireThatVisitedOperationsAreWrittenInTheBinaryFeedFormat() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StdOutVisitorHandler visitorHandler =
+                new StdOutVisitorHandler(false, false, false, false, false, false, 0, false, true, 0, new PrintStream(out, true));
+        VisitorDataHandler dataHandler = visitorHandler.getDataHandler();
+        dataHandler.setSession(new AckingSession());
+
+        Document received = createDocument("id:ns:music::1");
+        PutDocumentMessage serialized = (PutDocumentMessage)encodeAndDecode(new PutDocumentMessage(new DocumentPut(received)));
+        assertNotNull(serialized.getSerializedDocument());
+        dataHandler.onMessage(serialized, new AckToken(null));
+        Document decoded = createDocument("id:ns:music::2");
+        dataHandler.onMessage(new PutDocumentMessage(new DocumentPut(decoded)), new AckToken(null));
+        dataHandler.onMessage(new RemoveDocumentMessage(new DocumentId("id:ns:music::3")), new AckToken(null));
+        dataHandler.onDone();
+
+        BinaryFeedReader reader = new BinaryFeedReader(new ByteArrayInputStream(out.toByteArray()), manager);
+        assertEquals(received, read(reader).getDocument());
+        assertEquals(decoded, read(reader).getDocument());
+        assertEquals(new DocumentId("id:ns:music::3"), read(reader).getRemove());
+        assertEquals(VespaXMLFeedReader.OperationType.INVALID, read(reader).getType());
+    }
+
+    @Test
+    public void requireThatVisitedDocumentsAreCompressedWithDictionary() throws Exception {
+        byte[] uncompressed = visitSerialized(0);
+        byte[] compressed = visitSerialized(10);
+        assertTrue("Compressed output of " + compressed.length + " bytes should be smaller than " + uncompressed.length,
+                   compressed.length < uncompressed.length);
+
+        BinaryFeedReader reader = new BinaryFeedReader(new ByteArrayInputStream(compressed), manager);
+        for (int i = 0; i < 100; i++)
+            assertEquals(createDocument("id:ns:music::" + i), read(reader).getDocument());
+        assertEquals(VespaXMLFeedReader.OperationType.INVALID, read(reader).getType());
+    }
+
+    /** Returns the output of visiting 100 documents, as received from a content node, in the binary feed format */
+    private byte[] visitSerialized(int dictionarySamples) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StdOutVisitorHandler visitorHandler =
+                new StdOutVisitorHandler(false, false, false, false, false, false, 0, false, true, dictionarySamples,
+                                         new PrintStream(out, true));
+        VisitorDataHandler dataHandler = visitorHandler.getDataHandler();
+        dataHandler.setSession(new AckingSession());
+        for (int i = 0; i < 100; i++) {
+            PutDocumentMessage put = new PutDocumentMessage(new DocumentPut(createDocument("id:ns:music::" + i)));
+            dataHandler.onMessage((PutDocumentMessage)encodeAndDecode(put), new AckToken(null));
+        }
+        dataHandler.onDone();
+        return out.toByteArray();
+    }
+
+    private Document createDocument(String id) {
+        Document document = new Document(docType, id);
+        document.setFieldValue("title", new StringFieldValue("Ride the lightning"));
+        return document;
+    }
+
+    private Object encodeAndDecode(PutDocumentMessage message) {
+        Version version = new Version(6, 221);
+        return protocol.decode(version, protocol.encode(version, message));
+    }
+
+    private static VespaXMLFeedReader.Operation read(BinaryFeedReader reader) throws Exception {
+        VespaXMLFeedReader.Operation operation = new VespaXMLFeedReader.Operation();
+        reader.read(operation);
+        return operation;
+    }
+
+    private static class AckingSession implements VisitorControlSession {
+
+        @Override
+        public void ack(AckToken token) { }
+
+        @Override
+        public void abort() { }
+
+        @Override
+        public VisitorResponse getNext() { return null; }
+
+        @Override
+        public VisitorResponse getNext(int timeoutMilliseconds) { return null; }
+
+        @Override
+        public void destroy() { }
+
+    }
+
+}
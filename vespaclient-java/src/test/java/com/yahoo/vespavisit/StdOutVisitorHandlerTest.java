@@ -1,6 +1,14 @@
 // Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespavisit;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.documentapi.DumpVisitorDataHandler;
+import com.yahoo.documentapi.ProgressToken;
 import com.yahoo.documentapi.VisitorDataHandler;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -8,8 +16,14 @@ import org.junit.runners.Parameterized;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author bjorncs
@@ -31,7 +45,7 @@ public class StdOutVisitorHandlerTest {
     public void printing_ids_for_zero_documents_produces_empty_output() {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         StdOutVisitorHandler visitorHandler =
-                new StdOutVisitorHandler(/*printIds*/true, false, false, false, false, false, 0, jsonOutput, new PrintStream(out, true));
+                new StdOutVisitorHandler(/*printIds*/true, false, false, false, false, false, 0, jsonOutput, false, 0, new PrintStream(out, true));
         VisitorDataHandler dataHandler = visitorHandler.getDataHandler();
         dataHandler.onDone();
         String output = out.toString();
@@ -42,11 +56,52 @@ public class StdOutVisitorHandlerTest {
     public void printing_zero_documents_produces_empty_output() {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         StdOutVisitorHandler visitorHandler =
-                new StdOutVisitorHandler(/*printIds*/false, false, false, false, false, false, 0, jsonOutput, new PrintStream(out, true));
+                new StdOutVisitorHandler(/*printIds*/false, false, false, false, false, false, 0, jsonOutput, false, 0, new PrintStream(out, true));
         VisitorDataHandler dataHandler = visitorHandler.getDataHandler();
         dataHandler.onDone();
         String expectedOutput = jsonOutput ? "[]" : "";
         String output = out.toString().trim();
         assertEquals(expectedOutput, output);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void documents_of_slices_are_written_whole_when_visited_concurrently() throws Exception {
+        DocumentType type = new DocumentType("music");
+        type.addField("title", DataType.STRING);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StdOutVisitorHandler visitorHandler =
+                new StdOutVisitorHandler(false, false, false, false, false, false, 0, jsonOutput, false, 0, new PrintStream(out, true));
+        visitorHandler.setSlices(Arrays.asList(new ProgressToken(), new ProgressToken()));
+
+        List<Thread> threads = new ArrayList<>();
+        for (int slice = 0; slice < 2; ++slice) {
+            DumpVisitorDataHandler dataHandler = (DumpVisitorDataHandler) visitorHandler.getDataHandler(slice);
+            int sliceId = slice;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 200; ++i) {
+                    Document doc = new Document(type, "id:ns:music::" + sliceId + "-" + i);
+                    doc.setFieldValue("title", new StringFieldValue("title " + i));
+                    dataHandler.onDocument(doc, i);
+                }
+                dataHandler.onDone();
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+
+        Set<String> ids = new HashSet<>();
+        if (jsonOutput) {
+            for (JsonNode document : new ObjectMapper().readTree(out.toByteArray()))
+                ids.add(document.get("id").asText());
+        } else {
+            String[] documents = out.toString().split("</document>\n");
+            assertEquals(400, documents.length);
+            for (String document : documents) {
+                assertTrue(document.startsWith("<document "));
+                ids.add(document.substring(document.indexOf("documentid=\"") + 12, document.indexOf("\">")));
+            }
+        }
+        assertEquals(400, ids.size());
+    }
+
+}
@@ -131,7 +131,8 @@ public class VdsVisitTestCase {
                 "--skipbucketsonfatalerrors",
                 "--abortonclusterdown",
                 "--visitremoves",
-                "--bucketspace", "outerspace"
+                "--bucketspace", "outerspace",
+                "--slices", "4"
         };
         VdsVisit.ArgumentParser parser = createMockArgumentParser();
         VdsVisit.VdsVisitParameters allParams = parser.parse(args);
@@ -168,6 +169,7 @@ public class VdsVisitTestCase {
         assertEquals(OrderingSpecification.ASCENDING, params.getVisitorOrdering());
         assertTrue(allParams.getAbortOnClusterDown());
         assertTrue(params.visitRemoves());
+        assertEquals(4, allParams.getSlices());
 
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         PrintStream printStream = new PrintStream(outputStream);
@@ -190,7 +192,8 @@ public class VdsVisitTestCase {
                         "Adding the following library specific parameters:" + nl +
                         "  asdf = rargh" + nl +
                         "Visitor priority NORMAL_1" + nl +
-                        "Skip visiting super buckets with fatal errors." + nl,
+                        "Skip visiting super buckets with fatal errors." + nl +
+                        "Visiting 4 slices of the bucket space in parallel." + nl,
                 outputStream.toString("utf-8"));
 
         args = new String[] {
@@ -203,6 +206,34 @@ public class VdsVisitTestCase {
 
     private static String[] emptyArgList() { return new String[]{}; }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testBinaryOutputCannotBeCombinedWithJsonOutput() throws Exception {
+        createMockArgumentParser().parse(new String[] { "--binaryoutput", "--jsonoutput" });
+    }
+
+    @Test
+    public void testDictionarySamplesCanBeParsed() throws Exception {
+        VdsVisit.VdsVisitParameters allParams =
+                createMockArgumentParser().parse(new String[] { "--binaryoutput", "--dictionarysamples", "100" });
+        assertEquals(100, allParams.getDictionarySamples());
+        assertEquals(0, createMockArgumentParser().parse(new String[] { "--binaryoutput" }).getDictionarySamples());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDictionarySamplesRequireBinaryOutput() throws Exception {
+        createMockArgumentParser().parse(new String[] { "--jsonoutput", "--dictionarysamples", "100" });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDictionarySamplesAreLimited() throws Exception {
+        createMockArgumentParser().parse(new String[] { "--binaryoutput", "--dictionarysamples", "10000000000" });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSlicesMustBePowerOfTwo() throws Exception {
+        createMockArgumentParser().parse(new String[] { "--slices", "3" });
+    }
+
     @Test
     public void visitor_priority_is_low1_by_default() throws Exception {
         VdsVisit.VdsVisitParameters allParams = createMockArgumentParser().parse(emptyArgList());
@@ -379,8 +410,10 @@ public class VdsVisitTestCase {
 
     private static class MockVisitorSessionAccessor implements VdsVisit.VisitorSessionAccessor {
         boolean shutdown = false;
+        final List<VisitorParameters> sessionParameters = new ArrayList<>();
         @Override
         public VisitorSession createVisitorSession(VisitorParameters params) throws ParseException {
+            sessionParameters.add(params);
             return new MockVisitorSession(params);
         }
 
@@ -474,4 +507,73 @@ public class VdsVisitTestCase {
         assertNotNull(accessorFactory.getLastCreatedAccessor());
         assertTrue(accessorFactory.getLastCreatedAccessor().isShutdown());
     }
+
+    @Test
+    public void testVdsVisitRunLogicWithSlices() {
+        MockVisitorSessionAccessorFactory accessorFactory = new MockVisitorSessionAccessorFactory();
+        VdsVisit vdsVisit = new VdsVisit(accessorFactory, new MockShutdownHookRegistrar());
+
+        VdsVisit.VdsVisitParameters params = new VdsVisit.VdsVisitParameters();
+        VisitorParameters visitorParameters = new VisitorParameters("");
+        visitorParameters.setThrottlePolicy(new StaticThrottlePolicy().setMaxPendingCount(8));
+        params.setVisitorParameters(visitorParameters);
+        params.setSlices(4);
+        vdsVisit.setVdsVisitParameters(params);
+
+        assertEquals(0, vdsVisit.doRun());
+
+        List<VisitorParameters> sessionParameters = accessorFactory.getLastCreatedAccessor().sessionParameters;
+        assertEquals(4, sessionParameters.size());
+        for (int sliceId = 0; sliceId < 4; ++sliceId) {
+            VisitorParameters slice = sessionParameters.get(sliceId);
+            assertEquals(4, slice.getSlices());
+            assertEquals(sliceId, slice.getSliceId());
+            assertTrue(slice.getControlHandler().isDone());
+            assertEquals(2, ((StaticThrottlePolicy)slice.getThrottlePolicy()).getMaxPendingCount());
+            for (int other = 0; other < sliceId; ++other) {
+                assertNotSame(sessionParameters.get(other).getControlHandler(), slice.getControlHandler());
+                assertNotSame(sessionParameters.get(other).getLocalDataHandler(), slice.getLocalDataHandler());
+            }
+        }
+    }
+
+    private static class MockControlSession implements VisitorControlSession {
+        boolean aborted = false;
+        @Override public void ack(AckToken token) {}
+        @Override public void abort() { aborted = true; }
+        @Override public VisitorResponse getNext() { return null; }
+        @Override public VisitorResponse getNext(int timeoutMilliseconds) { return null; }
+        @Override public void destroy() {}
+    }
+
+    @Test
+    public void testAbortVisitingAbortsTheStartedSlices() {
+        StdOutVisitorHandler handler = new StdOutVisitorHandler(false, false, false, false, false, false, 0, false, false);
+        handler.setSlices(Arrays.asList(new ProgressToken(), new ProgressToken(), new ProgressToken()));
+        MockControlSession first = new MockControlSession();
+        MockControlSession second = new MockControlSession();
+        handler.getControlHandler(0).setSession(first);
+        handler.getControlHandler(1).setSession(second);
+        handler.getControlHandler(1).onDone(VisitorControlHandler.CompletionCode.SUCCESS, "done");
+
+        assertFalse(handler.isAborted());
+        handler.abortVisiting(); // The third slice is not started, and has no session to abort
+        assertTrue(handler.isAborted());
+        assertTrue(first.aborted);
+        assertFalse(second.aborted);
+    }
+
+    @Test
+    public void testVdsVisitWithSlicesFailsOnProgressFileOfOneSession() {
+        VdsVisit vdsVisit = new VdsVisit(new MockVisitorSessionAccessorFactory(), new MockShutdownHookRegistrar());
+
+        VdsVisit.VdsVisitParameters params = new VdsVisit.VdsVisitParameters();
+        VisitorParameters visitorParameters = new VisitorParameters("");
+        visitorParameters.setResumeFileName("src/test/files/progress.txt");
+        params.setVisitorParameters(visitorParameters);
+        params.setSlices(2);
+        vdsVisit.setVdsVisitParameters(params);
+
+        assertEquals(1, vdsVisit.doRun());
+    }
 }
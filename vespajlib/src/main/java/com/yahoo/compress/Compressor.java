@@ -2,6 +2,7 @@
 package com.yahoo.compress;
 
 import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
 import net.jpountz.lz4.LZ4Factory;
 import java.util.Arrays;
 import java.util.Optional;
@@ -18,6 +19,7 @@ public class Compressor {
     private final int level;
     private final double compressionThresholdFactor;
     private final int compressMinSizeBytes;
+    private final ZstdDictionary dictionary;
 
     private final LZ4Factory factory = LZ4Factory.fastestInstance();
 
@@ -35,22 +37,37 @@ public class Compressor {
      * Creates a compressor.
      *
      * @param type the type of compression to use to compress data
-     * @param level a number between 0 and 9 where a higher value means more compression
+     * @param level a number where a higher value means more compression. With LZ4, levels up to 6 use
+     *              fast compression, while higher levels, up to 17, use high compression at that level,
+     *              as in the C++ compressor. With ZSTD, levels go from 1 to 22.
      * @param compressionThresholdFactor the compression factor we need to achieve to return the compressed data
      *                                   instead of raw data
      * @param compressMinSizeBytes the minimal input data size to perform compression
      */
     public Compressor(CompressionType type, int level, double compressionThresholdFactor, int compressMinSizeBytes) {
+        this(type, level, compressionThresholdFactor, compressMinSizeBytes, null);
+    }
+
+    /**
+     * Creates a compressor which compresses and decompresses ZSTD data with a dictionary.
+     *
+     * @param dictionary the dictionary to use with ZSTD, or null to use none. Data compressed with a dictionary
+     *                   can only be decompressed with the same dictionary.
+     * @see #Compressor(CompressionType, int, double, int)
+     */
+    public Compressor(CompressionType type, int level, double compressionThresholdFactor, int compressMinSizeBytes,
+                      ZstdDictionary dictionary) {
         this.type = type;
         this.level = level;
         this.compressionThresholdFactor = compressionThresholdFactor;
         this.compressMinSizeBytes = compressMinSizeBytes;
+        this.dictionary = dictionary;
     }
 
     /** Returns the default compression type used by this */
     public CompressionType type() { return type; }
 
-    /** Returns the compression level this will use - a number between 0 and 9 where higher means more compression  */
+    /** Returns the compression level this will use - a number where higher means more compression  */
     public int level() { return level; }
 
     /** Returns the compression factor we need to achieve to return compressed rather than raw data */
@@ -59,11 +76,13 @@ public class Compressor {
     /** Returns the minimal data size required to perform compression */
     public int compressMinSizeBytes() { return compressMinSizeBytes; }
 
+    /** Returns the dictionary this uses with ZSTD, if any */
+    public Optional<ZstdDictionary> dictionary() { return Optional.ofNullable(dictionary); }
+
     /**
      * Compresses some data
      *
      * @param requestedCompression the desired compression type, which will be used if the data is deemed suitable.
-     *                             Not all the existing types are actually supported.
      * @param data the data to compress. This array is only read by this method.
      * @param uncompressedSize uncompressedSize the size in bytes of the data array. If this is not present, it is
      *                         assumed that the size is the same as the data array size, i.e that it is completely
@@ -79,11 +98,18 @@ public class Compressor {
             case LZ4:
                 int dataSize = uncompressedSize.isPresent() ? uncompressedSize.get() : data.length;
                 if (dataSize < compressMinSizeBytes) return new Compression(CompressionType.INCOMPRESSIBLE, dataSize, data);
-                LZ4Compressor compressor = level < 7 ? factory.fastCompressor() : factory.highCompressor();
+                LZ4Compressor compressor = level < 7 ? factory.fastCompressor() : factory.highCompressor(level);
                 byte[] compressedData = compressor.compress(data, 0, dataSize);
                 if (compressedData.length + 8 >= dataSize * compressionThresholdFactor)
                     return new Compression(CompressionType.INCOMPRESSIBLE, dataSize, data);
                 return new Compression(CompressionType.LZ4, dataSize, compressedData);
+            case ZSTD:
+                int zstdDataSize = uncompressedSize.isPresent() ? uncompressedSize.get() : data.length;
+                if (zstdDataSize < compressMinSizeBytes) return new Compression(CompressionType.INCOMPRESSIBLE, zstdDataSize, data);
+                byte[] zstdCompressedData = new ZstdCompressor(level, dictionary).compress(data, 0, zstdDataSize);
+                if (zstdCompressedData.length + 8 >= zstdDataSize * compressionThresholdFactor)
+                    return new Compression(CompressionType.INCOMPRESSIBLE, zstdDataSize, data);
+                return new Compression(CompressionType.ZSTD, zstdDataSize, zstdCompressedData);
             default:
                 throw new IllegalArgumentException(requestedCompression + " is not supported");
         }
@@ -103,8 +129,11 @@ public class Compressor {
      * @param compressedDataOffset the offset in the compressed data at which to start decompression
      * @param expectedUncompressedSize the uncompressed size in bytes of this data
      * @param expectedCompressedSize the expected compressed size of the data in bytes, optionally for validation with LZ4.
+     *                               With ZSTD, this is the size of the frames to decompress, which otherwise
+     *                               extend to the end of the compressed data.
      * @return the uncompressed data, of the given size
-     * @throws IllegalArgumentException if the compression type is not supported
+     * @throws IllegalArgumentException if the compression type is not supported, or the ZSTD data is invalid
+     *                                  or does not decompress to the expected size
      * @throws IllegalStateException if the expected compressed size is non-empty and specifies a different size than the actual size
      */
     public byte[] decompress(CompressionType compression, byte[] compressedData, int compressedDataOffset,
@@ -120,10 +149,64 @@ public class Compressor {
                 if (expectedCompressedSize.isPresent() && compressedSize != expectedCompressedSize.get())
                     throw new IllegalStateException("Compressed size mismatch. Expected " + compressedSize + ". Got " + expectedCompressedSize.get());
                 return uncompressedLZ4Data;
+            case ZSTD:
+                byte[] uncompressedZstdData = new byte[expectedUncompressedSize];
+                int end = expectedCompressedSize.isPresent() ? compressedDataOffset + expectedCompressedSize.get() : compressedData.length;
+                int uncompressedZstdSize = new ZstdDecompressor(dictionary).decompress(compressedData, compressedDataOffset, end,
+                                                                                      uncompressedZstdData, 0, expectedUncompressedSize);
+                if (uncompressedZstdSize != expectedUncompressedSize)
+                    throw new IllegalArgumentException("Uncompressed size mismatch. Expected " + expectedUncompressedSize +
+                                                       ". Got " + uncompressedZstdSize);
+                return uncompressedZstdData;
             default:
                 throw new IllegalArgumentException(compression + " is not supported");
         }
     }
+
+    /**
+     * Decompresses some data which may be malformed, such as data received from the network. Unlike
+     * {@link #decompress(CompressionType, byte[], int, int, Optional)}, this never reads outside the given
+     * compressed data, and LZ4 data is decompressed by a decompressor which validates its input.
+     *
+     * @param compression the compression type used
+     * @param compressedData the compressed data. This array is only read by this method.
+     * @param compressedDataOffset the offset in the compressed data at which to start decompression
+     * @param compressedSize the size in bytes of the compressed data to decompress
+     * @param expectedUncompressedSize the uncompressed size in bytes of this data
+     * @return the uncompressed data, of the given size
+     * @throws IllegalArgumentException if the compression type is not supported, or the data is malformed
+     *                                  or does not decompress to the expected size
+     */
+    public byte[] decompressUntrusted(CompressionType compression, byte[] compressedData, int compressedDataOffset,
+                                      int compressedSize, int expectedUncompressedSize) {
+        if (compressedDataOffset < 0 || compressedSize < 0 || compressedSize > compressedData.length - compressedDataOffset)
+            throw new IllegalArgumentException("Compressed size " + compressedSize + " at offset " + compressedDataOffset +
+                                               " is outside the " + compressedData.length + " bytes of compressed data");
+        switch (compression) {
+            case NONE: case INCOMPRESSIBLE:
+                if (compressedSize != expectedUncompressedSize)
+                    throw new IllegalArgumentException("Uncompressed size mismatch. Expected " + expectedUncompressedSize +
+                                                       ". Got " + compressedSize);
+                return Arrays.copyOfRange(compressedData, compressedDataOffset, compressedDataOffset + compressedSize);
+            case LZ4:
+                byte[] uncompressedLZ4Data = new byte[expectedUncompressedSize];
+                int uncompressedLZ4Size;
+                try {
+                    uncompressedLZ4Size = factory.safeDecompressor().decompress(compressedData, compressedDataOffset, compressedSize,
+                                                                                uncompressedLZ4Data, 0, expectedUncompressedSize);
+                } catch (LZ4Exception e) {
+                    throw new IllegalArgumentException("Malformed LZ4 data: " + e.getMessage(), e);
+                }
+                if (uncompressedLZ4Size != expectedUncompressedSize)
+                    throw new IllegalArgumentException("Uncompressed size mismatch. Expected " + expectedUncompressedSize +
+                                                       ". Got " + uncompressedLZ4Size);
+                return uncompressedLZ4Data;
+            default:
+                return decompress(compression, compressedData, compressedDataOffset, expectedUncompressedSize,
+                                  Optional.of(compressedSize));
+        }
+    }
+
     /** Decompresses some data */
     public byte[] decompress(byte[] compressedData, CompressionType compressionType, int uncompressedSize) {
         return decompress(compressionType, compressedData, 0, uncompressedSize, Optional.empty());
@@ -0,0 +1,264 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import java.util.Arrays;
+
+/**
+ * Constants and bit streams of the Zstandard format, as specified in RFC 8878.
+ */
+final class Zstd {
+
+    static final int FRAME_MAGIC = 0xFD2FB528;
+    static final int SKIPPABLE_FRAME_MAGIC = 0x184D2A50;
+    static final int SKIPPABLE_FRAME_MAGIC_MASK = 0xFFFFFFF0;
+    static final int DICTIONARY_MAGIC = 0xEC30A437;
+
+    static final int MAX_BLOCK_SIZE = 128 * 1024;
+    static final int MIN_WINDOW_LOG = 10;
+
+    static final int BLOCK_RAW = 0;
+    static final int BLOCK_RLE = 1;
+    static final int BLOCK_COMPRESSED = 2;
+
+    static final int LITERALS_RAW = 0;
+    static final int LITERALS_RLE = 1;
+    static final int LITERALS_COMPRESSED = 2;
+    static final int LITERALS_TREELESS = 3;
+
+    static final int MODE_PREDEFINED = 0;
+    static final int MODE_RLE = 1;
+    static final int MODE_COMPRESSED = 2;
+    static final int MODE_REPEAT = 3;
+
+    static final int MAX_LITERAL_LENGTH_CODE = 35;
+    static final int MAX_MATCH_LENGTH_CODE = 52;
+    static final int MAX_OFFSET_CODE = 31;
+
+    static final int MAX_LITERAL_LENGTH_LOG = 9;
+    static final int MAX_MATCH_LENGTH_LOG = 9;
+    static final int MAX_OFFSET_LOG = 8;
+
+    static final int MIN_MATCH = 3;
+    static final int REPEAT_OFFSET_COUNT = 3;
+    static final int[] INITIAL_REPEAT_OFFSETS = { 1, 4, 8 };
+
+    static final int[] LITERAL_LENGTH_BASE = {
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+            16, 18, 20, 22, 24, 28, 32, 40, 48, 64, 128, 256, 512, 1024, 2048, 4096,
+            8192, 16384, 32768, 65536 };
+    static final int[] LITERAL_LENGTH_BITS = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 1, 1, 1, 2, 2, 3, 3, 4, 6, 7, 8, 9, 10, 11, 12,
+            13, 14, 15, 16 };
+    static final int[] MATCH_LENGTH_BASE = {
+            3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18,
+            19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34,
+            35, 37, 39, 41, 43, 47, 51, 59, 67, 83, 99, 131, 259, 515, 1027, 2051,
+            4099, 8195, 16387, 32771, 65539 };
+    static final int[] MATCH_LENGTH_BITS = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 7, 8, 9, 10, 11,
+            12, 13, 14, 15, 16 };
+
+    static final short[] DEFAULT_LITERAL_LENGTH_DISTRIBUTION = {
+            4, 3, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 1, 1, 1,
+            2, 2, 2, 2, 2, 2, 2, 2, 2, 3, 2, 1, 1, 1, 1, 1,
+            -1, -1, -1, -1 };
+    static final int DEFAULT_LITERAL_LENGTH_LOG = 6;
+    static final short[] DEFAULT_MATCH_LENGTH_DISTRIBUTION = {
+            1, 4, 3, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1,
+            1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
+            1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1,
+            -1, -1, -1, -1, -1 };
+    static final int DEFAULT_MATCH_LENGTH_LOG = 6;
+    static final short[] DEFAULT_OFFSET_DISTRIBUTION = {
+            1, 1, 1, 1, 1, 1, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1,
+            1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1 };
+    static final int DEFAULT_OFFSET_LOG = 5;
+
+    private static final byte[] literalLengthCodes = new byte[64];
+    private static final byte[] matchLengthCodes = new byte[128];
+    static {
+        for (int code = 0; code < LITERAL_LENGTH_BASE.length && LITERAL_LENGTH_BASE[code] < 64; code++)
+            Arrays.fill(literalLengthCodes, LITERAL_LENGTH_BASE[code],
+                        Math.min(64, LITERAL_LENGTH_BASE[code] + (1 << LITERAL_LENGTH_BITS[code])), (byte) code);
+        for (int code = 0; code < MATCH_LENGTH_BASE.length && MATCH_LENGTH_BASE[code] - MIN_MATCH < 128; code++)
+            Arrays.fill(matchLengthCodes, MATCH_LENGTH_BASE[code] - MIN_MATCH,
+                        Math.min(128, MATCH_LENGTH_BASE[code] - MIN_MATCH + (1 << MATCH_LENGTH_BITS[code])), (byte) code);
+    }
+
+    private Zstd() {}
+
+    /** Returns the literal length code of the given literal length */
+    static int literalLengthCode(int literalLength) {
+        return literalLength < 64 ? literalLengthCodes[literalLength] : highestBit(literalLength) + 19;
+    }
+
+    /** Returns the match length code of the given match length */
+    static int matchLengthCode(int matchLength) {
+        int value = matchLength - MIN_MATCH;
+        return value < 128 ? matchLengthCodes[value] : highestBit(value) + 36;
+    }
+
+    /** Returns the position of the highest set bit of the given positive value */
+    static int highestBit(int value) {
+        return 31 - Integer.numberOfLeadingZeros(value);
+    }
+
+    static int getInt(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8 |
+               (data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
+    }
+
+    static long getLong(byte[] data, int offset) {
+        return (getInt(data, offset) & 0xFFFFFFFFL) | (long) getInt(data, offset + 4) << 32;
+    }
+
+    /** Returns the little endian value of the given number of bytes, which must be at most 8 */
+    static long getBytes(byte[] data, int offset, int count) {
+        long value = 0;
+        for (int i = count - 1; i >= 0; i--)
+            value = value << 8 | (data[offset + i] & 0xFF);
+        return value;
+    }
+
+    static IllegalArgumentException corrupt(String message) {
+        return new IllegalArgumentException("Invalid zstd data: " + message);
+    }
+
+    /**
+     * Reads a bit stream written backwards, from its last to its first byte. The highest set bit of the last byte
+     * marks the end of the stream. Reading past the start of the stream gives zero bits, and is reported
+     * by {@link #isOverflowed()}.
+     */
+    static final class BackwardBitReader {
+
+        private final byte[] data;
+        private final int start;
+        private int position;
+        private long container;
+        private int bitsConsumed;
+
+        BackwardBitReader(byte[] data, int start, int end) {
+            if (end <= start) throw corrupt("empty bit stream");
+            int lastByte = data[end - 1] & 0xFF;
+            if (lastByte == 0) throw corrupt("bit stream without an end mark");
+            this.data = data;
+            this.start = start;
+            if (end - start >= 8) {
+                position = end - 8;
+                container = getLong(data, position);
+                bitsConsumed = 8 - highestBit(lastByte);
+            } else {
+                position = start;
+                container = getBytes(data, start, end - start);
+                bitsConsumed = 8 - highestBit(lastByte) + (8 - (end - start)) * 8;
+            }
+        }
+
+        /** Returns the next given number of bits, at most 56, without consuming them */
+        long peek(int count) {
+            if (count == 0 || bitsConsumed >= 64) return 0;
+            return (container << bitsConsumed) >>> (64 - count);
+        }
+
+        void skip(int count) { bitsConsumed += count; }
+
+        /** Reloads if less than the given number of bits, at most 56, are left in the container */
+        void ensure(int count) {
+            if (bitsConsumed + count > 64) reload();
+        }
+
+        /** Reads the given number of bits, at most 56 */
+        long read(int count) {
+            if (bitsConsumed + count > 64) reload();
+            long value = peek(count);
+            bitsConsumed += count;
+            return value;
+        }
+
+        int readInt(int count) { return (int) read(count); }
+
+        /** Loads more bits into the container, such that at least 56 can be read unless the start is reached */
+        void reload() {
+            if (bitsConsumed > 64) return;
+            if (position >= start + 8) {
+                position -= bitsConsumed >>> 3;
+                bitsConsumed &= 7;
+            } else if (position == start) {
+                return;
+            } else {
+                int byteCount = Math.min(bitsConsumed >>> 3, position - start);
+                position -= byteCount;
+                bitsConsumed -= byteCount * 8;
+            }
+            container = getLong(data, position);
+        }
+
+        /** Returns whether more bits are read than there are in this stream */
+        boolean isOverflowed() { return bitsConsumed > 64; }
+
+        /** Returns whether all bits of this stream are read, and no more */
+        boolean isFinished() { return position == start && bitsConsumed == 64; }
+
+    }
+
+    /** Writes a bit stream which is read back to front by a {@link BackwardBitReader} */
+    static final class BitWriter {
+
+        private byte[] buffer;
+        private int size;
+        private long container;
+        private int bitCount;
+
+        BitWriter(int initialCapacity) {
+            buffer = new byte[Math.max(16, initialCapacity)];
+        }
+
+        /** Adds the given number, at most 32, of the lowest bits of the given value */
+        void write(long value, int count) {
+            container |= (value & ((1L << count) - 1)) << bitCount;
+            bitCount += count;
+            if (bitCount >= 32) flush();
+        }
+
+        private void flush() {
+            ensureCapacity(8);
+            while (bitCount >= 8) {
+                buffer[size++] = (byte) container;
+                container >>>= 8;
+                bitCount -= 8;
+            }
+        }
+
+        /** Writes the end mark, and pads the last byte with zeros */
+        void close() {
+            write(1, 1);
+            alignToByte();
+        }
+
+        /** Pads the last byte with zeros */
+        void alignToByte() {
+            flush();
+            if (bitCount > 0) {
+                ensureCapacity(1);
+                buffer[size++] = (byte) container;
+                container = 0;
+                bitCount = 0;
+            }
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buffer.length)
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+
+        /** Returns the number of complete bytes written */
+        int size() { return size; }
+
+        byte[] buffer() { return buffer; }
+
+    }
+
+}
@@ -0,0 +1,712 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import java.util.Arrays;
+
+import static com.yahoo.compress.Zstd.getInt;
+import static com.yahoo.compress.Zstd.getLong;
+import static com.yahoo.compress.Zstd.highestBit;
+
+/**
+ * Compresses data to single zstd frames, which can be decompressed by any zstd implementation.
+ * Matches are found with hash chains, searched deeper and with more lazy evaluation at higher levels.
+ *
+ * This is not thread safe. Instances are cheap, so create one per task.
+ */
+final class ZstdCompressor {
+
+    static final int MIN_LEVEL = 1;
+    static final int MAX_LEVEL = 22;
+
+    /** The min length of the matches this finds */
+    private static final int MIN_MATCH = 4;
+    /** The min number of literals to try Huffman compression of */
+    private static final int MIN_HUFFMAN_LITERALS = 32;
+
+    /** The search parameters of each level: the log of the max match distance, the max number of candidates
+     *  to try at a position, the number of positions to try before settling on a match, and a match length
+     *  which is considered good enough to stop searching */
+    private static final int[][] levels = {
+            // windowLog, searchDepth, lazy, niceLength
+            { 19, 1, 0, 16 },
+            { 19, 2, 0, 16 },
+            { 20, 4, 0, 32 },
+            { 20, 6, 0, 32 },
+            { 21, 8, 1, 48 },
+            { 21, 12, 1, 64 },
+            { 21, 16, 2, 64 },
+            { 22, 24, 2, 96 },
+            { 22, 32, 2, 128 },
+            { 22, 48, 2, 128 },
+            { 22, 64, 2, 192 },
+            { 23, 96, 2, 256 },
+            { 23, 128, 2, 256 },
+            { 23, 192, 2, 384 },
+            { 23, 256, 2, 384 },
+            { 24, 384, 2, 512 },
+            { 24, 512, 2, 512 },
+            { 25, 768, 2, 768 },
+            { 25, 1024, 2, 999 },
+            { 26, 1536, 2, 999 },
+            { 26, 2048, 2, 999 },
+            { 27, 4096, 2, 999 }
+    };
+
+    private static final ZstdFse.Distribution defaultLiteralLengths =
+            new ZstdFse.Distribution(Zstd.DEFAULT_LITERAL_LENGTH_DISTRIBUTION, Zstd.DEFAULT_LITERAL_LENGTH_LOG);
+    private static final ZstdFse.Distribution defaultOffsets =
+            new ZstdFse.Distribution(Zstd.DEFAULT_OFFSET_DISTRIBUTION, Zstd.DEFAULT_OFFSET_LOG);
+    private static final ZstdFse.Distribution defaultMatchLengths =
+            new ZstdFse.Distribution(Zstd.DEFAULT_MATCH_LENGTH_DISTRIBUTION, Zstd.DEFAULT_MATCH_LENGTH_LOG);
+    private static final ZstdFse.EncodingTable defaultLiteralLengthsTable = new ZstdFse.EncodingTable(defaultLiteralLengths);
+    private static final ZstdFse.EncodingTable defaultOffsetsTable = new ZstdFse.EncodingTable(defaultOffsets);
+    private static final ZstdFse.EncodingTable defaultMatchLengthsTable = new ZstdFse.EncodingTable(defaultMatchLengths);
+
+    private final int maxDistance;
+    private final int searchDepth;
+    private final int lazy;
+    private final int niceLength;
+    private final ZstdDictionary dictionary;
+
+    // The state of the compression of one frame
+    /** The dictionary content followed by the data to compress */
+    private byte[] window;
+    private int[] hashHeads;
+    private int hashShift;
+    private int[] chain;
+    private int chainMask;
+    private int nextToInsert;
+    private final int[] repeatOffsets = new int[Zstd.REPEAT_OFFSET_COUNT];
+    private final EntropyState entropy = new EntropyState();
+
+    // The sequences of the current block
+    private int sequenceCount;
+    private int[] literalLengths = new int[64];
+    private int[] matchLengths = new int[64];
+    private int[] offsetValues = new int[64];
+    private byte[] literals = new byte[64];
+    private int literalCount;
+
+    // The best match found by the last search
+    private int matchLength;
+    private int matchOffsetValue;
+
+    /**
+     * Creates a compressor
+     *
+     * @param level the compression level, where levels below 1 are 1, and levels above 22 are 22
+     * @param dictionary the dictionary to compress with, or null to compress without one
+     */
+    ZstdCompressor(int level, ZstdDictionary dictionary) {
+        int[] parameters = levels[Math.max(MIN_LEVEL, Math.min(MAX_LEVEL, level)) - 1];
+        this.maxDistance = 1 << parameters[0];
+        this.searchDepth = parameters[1];
+        this.lazy = parameters[2];
+        this.niceLength = parameters[3];
+        this.dictionary = dictionary;
+    }
+
+    /** Returns the max size of a frame of the given number of bytes */
+    static int maxCompressedLength(int size) {
+        int blockCount = Math.max(1, (size + Zstd.MAX_BLOCK_SIZE - 1) / Zstd.MAX_BLOCK_SIZE);
+        return 4 + 1 + 4 + 8 + 3 * blockCount + size;
+    }
+
+    /** Returns the given range of data compressed to a single frame */
+    byte[] compress(byte[] data, int offset, int length) {
+        int blockStart = startFrame(data, offset, length);
+        byte[] out = new byte[maxCompressedLength(length)];
+        int position = writeFrameHeader(length, out);
+        do {
+            int blockEnd = Math.min(window.length, blockStart + Zstd.MAX_BLOCK_SIZE);
+            position = writeBlock(blockStart, blockEnd, blockEnd == window.length, out, position);
+            blockStart = blockEnd;
+        } while (blockStart < window.length);
+        endFrame();
+        return Arrays.copyOf(out, position);
+    }
+
+    /**
+     * Adds the number of occurrences of each literal, and of each literal length, offset and match length code,
+     * in the sequences this finds in the given data. This is used to train the entropy tables of dictionaries.
+     */
+    void addHistograms(byte[] data, int[] literalHistogram, int[] literalLengthHistogram,
+                       int[] offsetHistogram, int[] matchLengthHistogram) {
+        for (int blockStart = startFrame(data, 0, data.length); blockStart < window.length; blockStart += Zstd.MAX_BLOCK_SIZE) {
+            findSequences(blockStart, Math.min(window.length, blockStart + Zstd.MAX_BLOCK_SIZE));
+            for (int i = 0; i < literalCount; i++)
+                literalHistogram[literals[i] & 0xFF]++;
+            for (int i = 0; i < sequenceCount; i++) {
+                literalLengthHistogram[Zstd.literalLengthCode(literalLengths[i])]++;
+                offsetHistogram[highestBit(offsetValues[i])]++;
+                matchLengthHistogram[Zstd.matchLengthCode(matchLengths[i])]++;
+            }
+        }
+        endFrame();
+    }
+
+    /** Prepares compressing the given range of data, and returns the window position it starts at */
+    private int startFrame(byte[] data, int offset, int length) {
+        int dictionaryLength = dictionary == null ? 0 : dictionary.content.length;
+        window = new byte[dictionaryLength + length];
+        if (dictionary != null) System.arraycopy(dictionary.content, 0, window, 0, dictionaryLength);
+        System.arraycopy(data, offset, window, dictionaryLength, length);
+
+        // Data which is no larger than the dictionary starts from hash chains of the dictionary made once,
+        // with room for as much data as there is dictionary content
+        boolean reuseDictionaryChains = dictionaryLength >= MIN_MATCH && length <= dictionaryLength;
+        int contentLog = highestBit(Math.max(1, (reuseDictionaryChains ? 2 * dictionaryLength : window.length) - 1)) + 1;
+        int hashLog = Math.max(8, Math.min(contentLog + 1, searchDepth > 16 ? 18 : 16));
+        int chainLog = Math.max(8, Math.min(contentLog, highestBit(maxDistance)));
+        hashShift = 32 - hashLog;
+        chainMask = (1 << chainLog) - 1;
+        MatchTables dictionaryChains = reuseDictionaryChains ? dictionary.matchTables : null;
+        if (dictionaryChains != null && dictionaryChains.hashHeads.length == 1 << hashLog && dictionaryChains.chain.length == 1 << chainLog) {
+            hashHeads = dictionaryChains.hashHeads.clone();
+            chain = dictionaryChains.chain.clone();
+            nextToInsert = dictionaryLength - MIN_MATCH + 1;
+        } else {
+            hashHeads = new int[1 << hashLog];
+            Arrays.fill(hashHeads, -1);
+            chain = new int[1 << chainLog];
+            nextToInsert = 0;
+            if (reuseDictionaryChains) {
+                insertUpTo(dictionaryLength - MIN_MATCH + 1); // the positions which only hash dictionary content
+                dictionary.matchTables = new MatchTables(hashHeads.clone(), chain.clone());
+            }
+        }
+        insertUpTo(dictionaryLength);
+        if (dictionary != null) {
+            System.arraycopy(dictionary.repeatOffsets, 0, repeatOffsets, 0, Zstd.REPEAT_OFFSET_COUNT);
+            entropy.set(dictionary);
+        } else {
+            System.arraycopy(Zstd.INITIAL_REPEAT_OFFSETS, 0, repeatOffsets, 0, Zstd.REPEAT_OFFSET_COUNT);
+            entropy.clear();
+        }
+        return dictionaryLength;
+    }
+
+    private void endFrame() {
+        window = null;
+        hashHeads = chain = null;
+    }
+
+    private int writeFrameHeader(int contentSize, byte[] out) {
+        int dictionaryId = dictionary == null ? 0 : dictionary.id();
+        int dictionaryIdFlag = dictionaryId == 0 ? 0 : (dictionaryId & 0xFFFFFF00) == 0 ? 1 : (dictionaryId & 0xFFFF0000) == 0 ? 2 : 3;
+        int contentSizeFlag = contentSize < 256 ? 0 : contentSize < 65536 + 256 ? 1 : 2;
+        putBytes(Zstd.FRAME_MAGIC, 4, out, 0);
+        out[4] = (byte) (contentSizeFlag << 6 | 0x20 | dictionaryIdFlag); // single segment, no checksum
+        int position = 5;
+        int dictionaryIdSize = dictionaryIdFlag == 3 ? 4 : dictionaryIdFlag;
+        putBytes(dictionaryId, dictionaryIdSize, out, position);
+        position += dictionaryIdSize;
+        int contentSizeSize = 1 << contentSizeFlag;
+        putBytes(contentSizeFlag == 1 ? contentSize - 256 : contentSize, contentSizeSize, out, position);
+        return position + contentSizeSize;
+    }
+
+    /** Writes the block of the given window range, and returns the position after it */
+    private int writeBlock(int start, int end, boolean last, byte[] out, int position) {
+        int size = end - start;
+        if (size > 0 && isRun(window, start, end)) {
+            putBytes((last ? 1 : 0) | Zstd.BLOCK_RLE << 1 | size << 3, 3, out, position);
+            out[position + 3] = window[start];
+            insertUpTo(end);
+            return position + 4;
+        }
+
+        int[] savedRepeatOffsets = repeatOffsets.clone();
+        EntropyState savedEntropy = entropy.copy();
+        findSequences(start, end);
+        int compressedSize = size < MIN_MATCH * 2 ? -1 : writeCompressedBlock(out, position + 3, size);
+        if (compressedSize > 0) {
+            putBytes((last ? 1 : 0) | Zstd.BLOCK_COMPRESSED << 1 | compressedSize << 3, 3, out, position);
+            return position + 3 + compressedSize;
+        }
+        // The decoder sees none of this block's sequences or tables
+        System.arraycopy(savedRepeatOffsets, 0, repeatOffsets, 0, Zstd.REPEAT_OFFSET_COUNT);
+        entropy.set(savedEntropy);
+        putBytes((last ? 1 : 0) | Zstd.BLOCK_RAW << 1 | size << 3, 3, out, position);
+        System.arraycopy(window, start, out, position + 3, size);
+        return position + 3 + size;
+    }
+
+    private static boolean isRun(byte[] data, int start, int end) {
+        for (int i = start + 1; i < end; i++)
+            if (data[i] != data[start]) return false;
+        return true;
+    }
+
+    // ---------------------------------------- Match finding
+
+    private int hash(int position) {
+        return (getInt(window, position) * 0x9E3779B1) >>> hashShift;
+    }
+
+    /** Inserts all positions before the given one, which can start a match, in the hash chains */
+    private void insertUpTo(int end) {
+        int last = Math.min(end, window.length - MIN_MATCH + 1);
+        for (int position = nextToInsert; position < last; position++) {
+            int hash = hash(position);
+            chain[position & chainMask] = hashHeads[hash];
+            hashHeads[hash] = position;
+        }
+        nextToInsert = Math.max(nextToInsert, last);
+    }
+
+    /** Returns the length of the match of the bytes at the two positions, which is at most end - position */
+    private int matchLength(int candidate, int position, int end) {
+        int length = 0;
+        while (position + length + 8 <= end) {
+            long difference = getLong(window, candidate + length) ^ getLong(window, position + length);
+            if (difference != 0) return length + (Long.numberOfTrailingZeros(difference) >>> 3);
+            length += 8;
+        }
+        while (position + length < end && window[candidate + length] == window[position + length])
+            length++;
+        return length;
+    }
+
+    /** Returns the offset value which encodes the given offset after the given number of literals */
+    private int offsetValue(int offset, int literalLength) {
+        if (literalLength > 0) {
+            if (offset == repeatOffsets[0]) return 1;
+            if (offset == repeatOffsets[1]) return 2;
+            if (offset == repeatOffsets[2]) return 3;
+        } else {
+            if (offset == repeatOffsets[1]) return 1;
+            if (offset == repeatOffsets[2]) return 2;
+            if (offset == repeatOffsets[0] - 1) return 3;
+        }
+        return offset + Zstd.REPEAT_OFFSET_COUNT;
+    }
+
+    /** Returns an estimate of how much better a match is the longer it is, and the cheaper its offset is to encode */
+    private static int gain(int length, int offsetValue) {
+        return length * 4 - highestBit(offsetValue);
+    }
+
+    /**
+     * Finds the best match starting at the given position after the given number of literals, and sets it in
+     * matchLength and matchOffsetValue. Returns whether a match was found.
+     */
+    private boolean findMatch(int position, int literalLength, int end) {
+        matchLength = 0;
+        if (end - position < MIN_MATCH) return false;
+        int windowStart = Math.max(0, position - maxDistance);
+        int bestGain = 0;
+
+        for (int i = 0; i < Zstd.REPEAT_OFFSET_COUNT; i++) {
+            int offset = literalLength > 0 ? repeatOffsets[i] : i < 2 ? repeatOffsets[i + 1] : repeatOffsets[0] - 1;
+            if (offset <= 0 || position - offset < windowStart) continue;
+            if (getInt(window, position - offset) != getInt(window, position)) continue;
+            int length = matchLength(position - offset, position, end);
+            if (length >= MIN_MATCH && gain(length, i + 1) > bestGain) {
+                bestGain = gain(length, i + 1);
+                matchLength = length;
+                matchOffsetValue = i + 1;
+            }
+        }
+        if (matchLength >= niceLength || position + matchLength == end) return true;
+
+        insertUpTo(position); // searches are at increasing positions, so this is not inserted yet
+        int hash = hash(position);
+        int candidate = hashHeads[hash];
+        chain[position & chainMask] = candidate;
+        hashHeads[hash] = position;
+        nextToInsert = position + 1;
+        int chainStart = position - chain.length;
+        int prefix = getInt(window, position);
+        for (int depth = searchDepth; depth > 0 && candidate >= windowStart; depth--) {
+            int offset = position - candidate;
+            if (window[candidate + matchLength] == window[position + matchLength] && getInt(window, candidate) == prefix) {
+                int length = matchLength(candidate, position, end);
+                if (length >= MIN_MATCH) {
+                    int offsetValue = offsetValue(offset, literalLength);
+                    if (gain(length, offsetValue) > bestGain) {
+                        bestGain = gain(length, offsetValue);
+                        matchLength = length;
+                        matchOffsetValue = offsetValue;
+                        if (length >= niceLength || position + length == end) break;
+                    }
+                }
+            }
+            if (candidate <= chainStart) break; // older chain entries are overwritten
+            int next = chain[candidate & chainMask];
+            if (next >= candidate) break;
+            candidate = next;
+        }
+        return matchLength > 0;
+    }
+
+    /** Finds the sequences of a block, which are a number of literals followed by a match, and its last literals */
+    private void findSequences(int start, int end) {
+        sequenceCount = 0;
+        literalCount = 0;
+        int anchor = start;
+        int position = start;
+        while (position < end - MIN_MATCH) {
+            if ( ! findMatch(position, position - anchor, end)) {
+                position += 1 + ((position - anchor) >>> (searchDepth < 4 ? 6 : 8)); // skip faster when nothing matches
+                continue;
+            }
+            for (int step = 1; step <= lazy && matchLength < niceLength; ) {
+                int length = matchLength;
+                int offsetValue = matchOffsetValue;
+                int gain = gain(length, offsetValue) + (step == 1 ? 4 : 7);
+                if (findMatch(position + step, position + step - anchor, end) && gain(matchLength, matchOffsetValue) > gain) {
+                    position += step;
+                    step = 1; // a better match is found later: try improving on that in turn
+                } else {
+                    matchLength = length;
+                    matchOffsetValue = offsetValue;
+                    step++;
+                }
+            }
+            addSequence(anchor, position - anchor, matchLength, matchOffsetValue);
+            position += matchLength;
+            anchor = position;
+        }
+        addLiterals(anchor, end - anchor);
+        insertUpTo(end);
+    }
+
+    private void addSequence(int literalStart, int literalLength, int matchLength, int offsetValue) {
+        if (sequenceCount == literalLengths.length) {
+            literalLengths = Arrays.copyOf(literalLengths, 2 * sequenceCount);
+            matchLengths = Arrays.copyOf(matchLengths, 2 * sequenceCount);
+            offsetValues = Arrays.copyOf(offsetValues, 2 * sequenceCount);
+        }
+        literalLengths[sequenceCount] = literalLength;
+        matchLengths[sequenceCount] = matchLength;
+        offsetValues[sequenceCount] = offsetValue;
+        sequenceCount++;
+        addLiterals(literalStart, literalLength);
+        updateRepeatOffsets(offsetValue, literalLength);
+    }
+
+    private void addLiterals(int start, int length) {
+        if (literalCount + length > literals.length)
+            literals = Arrays.copyOf(literals, Math.max(literalCount + length, 2 * literals.length));
+        System.arraycopy(window, start, literals, literalCount, length);
+        literalCount += length;
+    }
+
+    /** Updates the repeat offsets as the decoder does */
+    private void updateRepeatOffsets(int offsetValue, int literalLength) {
+        if (offsetValue > Zstd.REPEAT_OFFSET_COUNT) {
+            repeatOffsets[2] = repeatOffsets[1];
+            repeatOffsets[1] = repeatOffsets[0];
+            repeatOffsets[0] = offsetValue - Zstd.REPEAT_OFFSET_COUNT;
+            return;
+        }
+        int index = offsetValue - 1 + (literalLength == 0 ? 1 : 0);
+        if (index == 0) return;
+        int offset = index == 3 ? repeatOffsets[0] - 1 : repeatOffsets[index];
+        if (index != 1) repeatOffsets[2] = repeatOffsets[1];
+        repeatOffsets[1] = repeatOffsets[0];
+        repeatOffsets[0] = offset;
+    }
+
+    // ---------------------------------------- Block encoding
+
+    /** Writes the sequences of the current block, and returns its size, or -1 if it is not smaller than the given size */
+    private int writeCompressedBlock(byte[] out, int offset, int size) {
+        int limit = Math.min(size - 1, out.length - offset);
+        int position = offset;
+        byte[] literalsSection = literalsSection();
+        if (literalsSection.length >= limit) return -1;
+        System.arraycopy(literalsSection, 0, out, position, literalsSection.length);
+        position += literalsSection.length;
+
+        byte[] sequencesSection = sequencesSection();
+        if (position - offset + sequencesSection.length >= limit) return -1;
+        System.arraycopy(sequencesSection, 0, out, position, sequencesSection.length);
+        position += sequencesSection.length;
+        return position - offset;
+    }
+
+    private byte[] literalsSection() {
+        int count = literalCount;
+        byte[] raw = new byte[literalsHeaderSize(count) + count];
+        writeLiteralsHeader(Zstd.LITERALS_RAW, count, raw);
+        System.arraycopy(literals, 0, raw, raw.length - count, count);
+        if (count == 0) return raw;
+
+        int[] histogram = new int[256];
+        int maxSymbol = 0;
+        int symbolCount = 0;
+        for (int i = 0; i < count; i++) {
+            int symbol = literals[i] & 0xFF;
+            if (histogram[symbol]++ == 0) symbolCount++;
+            maxSymbol = Math.max(maxSymbol, symbol);
+        }
+        if (symbolCount == 1 && count > 1) {
+            byte[] rle = new byte[literalsHeaderSize(count) + 1];
+            writeLiteralsHeader(Zstd.LITERALS_RLE, count, rle);
+            rle[rle.length - 1] = literals[0];
+            return rle;
+        }
+        if (count < MIN_HUFFMAN_LITERALS) return raw;
+
+        ZstdHuffman.Table table = null;
+        byte[] description = null;
+        long bits = Long.MAX_VALUE;
+        if (entropy.literalsTable != null && entropy.literalsTable.canEncode(histogram, maxSymbol)) {
+            table = entropy.literalsTable;
+            bits = table.cost(histogram, maxSymbol);
+        }
+        if (symbolCount > 1) {
+            ZstdHuffman.Table newTable = ZstdHuffman.build(histogram, maxSymbol);
+            byte[] newDescription = newTable.write();
+            if (newDescription != null) {
+                long newBits = newTable.cost(histogram, maxSymbol) + 8L * newDescription.length;
+                if (newBits < bits) {
+                    table = newTable;
+                    description = newDescription;
+                    bits = newBits;
+                }
+            }
+        }
+        if (table == null || bits / 8 + 16 >= count) return raw;
+
+        boolean fourStreams = count >= 256;
+        byte[] streams = new byte[(description == null ? 0 : description.length) +
+                                  count * ZstdHuffman.MAX_BITS / 8 + 6 + 4 * 8];
+        int descriptionSize = 0;
+        if (description != null) {
+            System.arraycopy(description, 0, streams, 0, description.length);
+            descriptionSize = description.length;
+        }
+        int streamsSize = table.encode(literals, 0, count, fourStreams, streams, descriptionSize);
+        if (streamsSize < 0) return raw;
+        int compressedSize = descriptionSize + streamsSize;
+        int largest = Math.max(count, compressedSize);
+        int sizeFormat = ! fourStreams ? 0 : largest < 1024 ? 1 : largest < 16384 ? 2 : 3;
+        int headerSize = sizeFormat <= 1 ? 3 : sizeFormat + 2;
+        if (headerSize + compressedSize >= raw.length) return raw;
+
+        int sizeBits = sizeFormat <= 1 ? 10 : 4 * sizeFormat + 6;
+        byte[] section = new byte[headerSize + compressedSize];
+        long header = (description == null ? Zstd.LITERALS_TREELESS : Zstd.LITERALS_COMPRESSED) | sizeFormat << 2 |
+                      (long) count << 4 | (long) compressedSize << (4 + sizeBits);
+        putBytes(header, headerSize, section, 0);
+        System.arraycopy(streams, 0, section, headerSize, compressedSize);
+        entropy.literalsTable = table;
+        return section;
+    }
+
+    private static int literalsHeaderSize(int count) {
+        return count < 32 ? 1 : count < 4096 ? 2 : 3;
+    }
+
+    /** Writes the header of raw or RLE literals */
+    private static void writeLiteralsHeader(int type, int count, byte[] out) {
+        int headerSize = literalsHeaderSize(count);
+        if (headerSize == 1)
+            out[0] = (byte) (type | count << 3);
+        else
+            putBytes(type | (headerSize == 2 ? 1 : 3) << 2 | count << 4, headerSize, out, 0);
+    }
+
+    private byte[] sequencesSection() {
+        int count = sequenceCount;
+        Zstd.BitWriter header = new Zstd.BitWriter(64);
+        if (count < 128) {
+            header.write(count, 8);
+        } else if (count < 0x7F00) {
+            header.write((count >>> 8) + 128, 8);
+            header.write(count & 0xFF, 8);
+        } else {
+            header.write(255, 8);
+            header.write(count - 0x7F00, 16);
+        }
+        if (count == 0) {
+            header.alignToByte();
+            return Arrays.copyOf(header.buffer(), header.size());
+        }
+
+        int[] literalLengthCodes = new int[count];
+        int[] offsetCodes = new int[count];
+        int[] matchLengthCodes = new int[count];
+        int[] literalLengthHistogram = new int[Zstd.MAX_LITERAL_LENGTH_CODE + 1];
+        int[] offsetHistogram = new int[Zstd.MAX_OFFSET_CODE + 1];
+        int[] matchLengthHistogram = new int[Zstd.MAX_MATCH_LENGTH_CODE + 1];
+        for (int i = 0; i < count; i++) {
+            literalLengthHistogram[literalLengthCodes[i] = Zstd.literalLengthCode(literalLengths[i])]++;
+            offsetHistogram[offsetCodes[i] = highestBit(offsetValues[i])]++;
+            matchLengthHistogram[matchLengthCodes[i] = Zstd.matchLengthCode(matchLengths[i])]++;
+        }
+
+        Zstd.BitWriter descriptions = new Zstd.BitWriter(256);
+        SymbolEncoding literalLengthEncoding = encoding(literalLengthHistogram, count, Zstd.MAX_LITERAL_LENGTH_LOG,
+                                                        defaultLiteralLengths, defaultLiteralLengthsTable,
+                                                        entropy.literalLengths, entropy.literalLengthsTable, descriptions);
+        SymbolEncoding offsetEncoding = encoding(offsetHistogram, count, Zstd.MAX_OFFSET_LOG,
+                                                 defaultOffsets, defaultOffsetsTable,
+                                                 entropy.offsets, entropy.offsetsTable, descriptions);
+        SymbolEncoding matchLengthEncoding = encoding(matchLengthHistogram, count, Zstd.MAX_MATCH_LENGTH_LOG,
+                                                      defaultMatchLengths, defaultMatchLengthsTable,
+                                                      entropy.matchLengths, entropy.matchLengthsTable, descriptions);
+        descriptions.alignToByte();
+        header.write(literalLengthEncoding.mode << 6 | offsetEncoding.mode << 4 | matchLengthEncoding.mode << 2, 8);
+        header.alignToByte();
+        entropy.literalLengths = literalLengthEncoding.distribution;
+        entropy.literalLengthsTable = literalLengthEncoding.table;
+        entropy.offsets = offsetEncoding.distribution;
+        entropy.offsetsTable = offsetEncoding.table;
+        entropy.matchLengths = matchLengthEncoding.distribution;
+        entropy.matchLengthsTable = matchLengthEncoding.table;
+
+        ZstdFse.EncodingTable literalLengthTable = literalLengthEncoding.table;
+        ZstdFse.EncodingTable offsetTable = offsetEncoding.table;
+        ZstdFse.EncodingTable matchLengthTable = matchLengthEncoding.table;
+        Zstd.BitWriter stream = new Zstd.BitWriter(count * 8);
+        int last = count - 1;
+        int matchLengthState = matchLengthTable == null ? 0 : matchLengthTable.initialState(matchLengthCodes[last]);
+        int offsetState = offsetTable == null ? 0 : offsetTable.initialState(offsetCodes[last]);
+        int literalLengthState = literalLengthTable == null ? 0 : literalLengthTable.initialState(literalLengthCodes[last]);
+        writeExtraBits(last, literalLengthCodes[last], offsetCodes[last], matchLengthCodes[last], stream);
+        for (int i = last - 1; i >= 0; i--) {
+            if (offsetTable != null) offsetState = offsetTable.encode(offsetState, offsetCodes[i], stream);
+            if (matchLengthTable != null) matchLengthState = matchLengthTable.encode(matchLengthState, matchLengthCodes[i], stream);
+            if (literalLengthTable != null) literalLengthState = literalLengthTable.encode(literalLengthState, literalLengthCodes[i], stream);
+            writeExtraBits(i, literalLengthCodes[i], offsetCodes[i], matchLengthCodes[i], stream);
+        }
+        if (matchLengthTable != null) matchLengthTable.finish(matchLengthState, stream);
+        if (offsetTable != null) offsetTable.finish(offsetState, stream);
+        if (literalLengthTable != null) literalLengthTable.finish(literalLengthState, stream);
+        stream.close();
+
+        byte[] section = Arrays.copyOf(header.buffer(), header.size() + descriptions.size() + stream.size());
+        System.arraycopy(descriptions.buffer(), 0, section, header.size(), descriptions.size());
+        System.arraycopy(stream.buffer(), 0, section, header.size() + descriptions.size(), stream.size());
+        return section;
+    }
+
+    private void writeExtraBits(int sequence, int literalLengthCode, int offsetCode, int matchLengthCode, Zstd.BitWriter out) {
+        out.write(literalLengths[sequence] - Zstd.LITERAL_LENGTH_BASE[literalLengthCode], Zstd.LITERAL_LENGTH_BITS[literalLengthCode]);
+        out.write(matchLengths[sequence] - Zstd.MATCH_LENGTH_BASE[matchLengthCode], Zstd.MATCH_LENGTH_BITS[matchLengthCode]);
+        out.write(offsetValues[sequence] - (1 << offsetCode), offsetCode);
+    }
+
+    /**
+     * Returns the cheapest way to encode the symbols of the given histogram, and writes the description
+     * of its table, if any, to the given writer.
+     */
+    private static SymbolEncoding encoding(int[] histogram, int count, int maxAccuracyLog,
+                                           ZstdFse.Distribution defaultDistribution, ZstdFse.EncodingTable defaultTable,
+                                           ZstdFse.Distribution previous, ZstdFse.EncodingTable previousTable,
+                                           Zstd.BitWriter descriptions) {
+        int maxSymbol = histogram.length - 1;
+        while (histogram[maxSymbol] == 0) maxSymbol--;
+        if (histogram[maxSymbol] == count) {
+            descriptions.write(maxSymbol, 8);
+            return new SymbolEncoding(Zstd.MODE_RLE, null, null);
+        }
+
+        SymbolEncoding best = null;
+        double bestBits = Double.MAX_VALUE;
+        if (defaultDistribution.canEncode(histogram, maxSymbol)) {
+            best = new SymbolEncoding(Zstd.MODE_PREDEFINED, defaultDistribution, defaultTable);
+            bestBits = defaultDistribution.cost(histogram, maxSymbol);
+        }
+        if (previous != null && previous != defaultDistribution && previous.canEncode(histogram, maxSymbol)) {
+            double bits = previous.cost(histogram, maxSymbol);
+            if (bits < bestBits) {
+                best = new SymbolEncoding(Zstd.MODE_REPEAT, previous, previousTable);
+                bestBits = bits;
+            }
+        }
+        int accuracyLog = ZstdFse.accuracyLog(count, maxSymbol, maxAccuracyLog);
+        ZstdFse.Distribution distribution = ZstdFse.normalize(histogram, maxSymbol, accuracyLog);
+        Zstd.BitWriter description = new Zstd.BitWriter(64);
+        ZstdFse.writeDistribution(distribution, maxSymbol, description);
+        if (best == null || distribution.cost(histogram, maxSymbol) + 8 * description.size() < bestBits) {
+            descriptions.alignToByte();
+            for (int i = 0; i < description.size(); i++)
+                descriptions.write(description.buffer()[i], 8);
+            return new SymbolEncoding(Zstd.MODE_COMPRESSED, distribution, new ZstdFse.EncodingTable(distribution));
+        }
+        return best;
+    }
+
+    private static void putBytes(long value, int count, byte[] out, int offset) {
+        for (int i = 0; i < count; i++)
+            out[offset + i] = (byte) (value >>> (8 * i));
+    }
+
+    /** The hash chains of a dictionary */
+    static final class MatchTables {
+
+        private final int[] hashHeads;
+        private final int[] chain;
+
+        private MatchTables(int[] hashHeads, int[] chain) {
+            this.hashHeads = hashHeads;
+            this.chain = chain;
+        }
+
+    }
+
+    /** A mode of encoding a type of symbols, where a null table means each symbol is the single RLE symbol */
+    private static final class SymbolEncoding {
+
+        final int mode;
+        final ZstdFse.Distribution distribution;
+        final ZstdFse.EncodingTable table;
+
+        SymbolEncoding(int mode, ZstdFse.Distribution distribution, ZstdFse.EncodingTable table) {
+            this.mode = mode;
+            this.distribution = distribution;
+            this.table = table;
+        }
+
+    }
+
+    /**
+     * The tables used in the previous block, which the next may repeat. The distributions are null when
+     * they cannot be repeated.
+     */
+    private static final class EntropyState {
+
+        ZstdHuffman.Table literalsTable;
+        ZstdFse.Distribution literalLengths, offsets, matchLengths;
+        ZstdFse.EncodingTable literalLengthsTable, offsetsTable, matchLengthsTable;
+
+        void clear() {
+            literalsTable = null;
+            literalLengths = offsets = matchLengths = null;
+            literalLengthsTable = offsetsTable = matchLengthsTable = null;
+        }
+
+        void set(ZstdDictionary dictionary) {
+            literalsTable = dictionary.literalsTable;
+            literalLengths = dictionary.literalLengths;
+            offsets = dictionary.offsets;
+            matchLengths = dictionary.matchLengths;
+            literalLengthsTable = dictionary.literalLengthsEncodingTable;
+            offsetsTable = dictionary.offsetsEncodingTable;
+            matchLengthsTable = dictionary.matchLengthsEncodingTable;
+        }
+
+        void set(EntropyState other) {
+            literalsTable = other.literalsTable;
+            literalLengths = other.literalLengths;
+            offsets = other.offsets;
+            matchLengths = other.matchLengths;
+            literalLengthsTable = other.literalLengthsTable;
+            offsetsTable = other.offsetsTable;
+            matchLengthsTable = other.matchLengthsTable;
+        }
+
+        EntropyState copy() {
+            EntropyState copy = new EntropyState();
+            copy.set(this);
+            return copy;
+        }
+
+    }
+
+}
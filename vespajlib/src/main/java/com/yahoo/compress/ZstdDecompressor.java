@@ -0,0 +1,390 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.util.Arrays;
+
+import static com.yahoo.compress.Zstd.corrupt;
+import static com.yahoo.compress.Zstd.getBytes;
+import static com.yahoo.compress.Zstd.getInt;
+
+/**
+ * Decompresses data in the zstd format. Malformed or truncated data causes an IllegalArgumentException,
+ * and never reads or writes outside the given arrays.
+ *
+ * This is not thread safe. Instances are cheap, so create one per task.
+ */
+final class ZstdDecompressor {
+
+    private static final XXHash64 checksum = XXHashFactory.fastestInstance().hash64();
+
+    private static final ZstdFse.DecodingTable defaultLiteralLengthsTable =
+            new ZstdFse.DecodingTable(new ZstdFse.Distribution(Zstd.DEFAULT_LITERAL_LENGTH_DISTRIBUTION, Zstd.DEFAULT_LITERAL_LENGTH_LOG));
+    private static final ZstdFse.DecodingTable defaultOffsetsTable =
+            new ZstdFse.DecodingTable(new ZstdFse.Distribution(Zstd.DEFAULT_OFFSET_DISTRIBUTION, Zstd.DEFAULT_OFFSET_LOG));
+    private static final ZstdFse.DecodingTable defaultMatchLengthsTable =
+            new ZstdFse.DecodingTable(new ZstdFse.Distribution(Zstd.DEFAULT_MATCH_LENGTH_DISTRIBUTION, Zstd.DEFAULT_MATCH_LENGTH_LOG));
+
+    /** The dictionary to decompress with, or null to only accept frames without one */
+    private final ZstdDictionary dictionary;
+
+    /** The dictionary of the current frame, or null if it does not use one */
+    private ZstdDictionary frameDictionary;
+
+    private byte[] out;
+    private int frameStart;
+    private int outPosition;
+    private int outEnd;
+
+    private final int[] repeatOffsets = new int[Zstd.REPEAT_OFFSET_COUNT];
+    private ZstdHuffman.Table literalsTable;
+    private ZstdFse.DecodingTable literalLengthsTable;
+    private ZstdFse.DecodingTable offsetsTable;
+    private ZstdFse.DecodingTable matchLengthsTable;
+
+    /** The literals of the current block, which are either in the input or in the literal buffer */
+    private byte[] literals;
+    private int literalsPosition;
+    private int literalsEnd;
+    private byte[] literalBuffer = new byte[0];
+
+    ZstdDecompressor(ZstdDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Decompresses all the frames in the given range of data into the given array.
+     *
+     * @return the decompressed size
+     * @throws IllegalArgumentException if the data is malformed, or the decompressed data does not fit in the array
+     */
+    int decompress(byte[] data, int offset, int end, byte[] out, int outOffset, int outEnd) {
+        if (offset < 0 || end > data.length || offset > end) throw new IllegalArgumentException("Invalid data range");
+        this.out = out;
+        this.outPosition = outOffset;
+        this.outEnd = outEnd;
+        int position = offset;
+        do {
+            position = decompressFrame(data, position, end);
+        } while (position < end);
+        return outPosition - outOffset;
+    }
+
+    /** Decompresses the frame at the given position, and returns the position after it */
+    private int decompressFrame(byte[] data, int position, int end) {
+        if (end - position < 4) throw corrupt("truncated frame");
+        int magic = getInt(data, position);
+        if ((magic & Zstd.SKIPPABLE_FRAME_MAGIC_MASK) == Zstd.SKIPPABLE_FRAME_MAGIC) {
+            if (end - position < 8) throw corrupt("truncated skippable frame");
+            long size = getInt(data, position + 4) & 0xFFFFFFFFL;
+            if (size > end - position - 8) throw corrupt("truncated skippable frame");
+            return position + 8 + (int) size;
+        }
+        if (magic != Zstd.FRAME_MAGIC) throw corrupt("unknown frame magic " + Integer.toHexString(magic));
+        position += 4;
+
+        if (position >= end) throw corrupt("truncated frame header");
+        int descriptor = data[position++] & 0xFF;
+        int contentSizeFlag = descriptor >>> 6;
+        boolean singleSegment = (descriptor & 0x20) != 0;
+        boolean hasChecksum = (descriptor & 0x04) != 0;
+        int dictionaryIdFlag = descriptor & 0x03;
+        if ((descriptor & 0x08) != 0) throw corrupt("reserved frame header bit is set");
+        int dictionaryIdSize = dictionaryIdFlag == 3 ? 4 : dictionaryIdFlag;
+        int contentSizeSize = contentSizeFlag == 0 ? (singleSegment ? 1 : 0) : 1 << contentSizeFlag;
+        if (end - position < (singleSegment ? 0 : 1) + dictionaryIdSize + contentSizeSize) throw corrupt("truncated frame header");
+        if ( ! singleSegment) {
+            int windowLog = Zstd.MIN_WINDOW_LOG + ((data[position++] & 0xFF) >>> 3);
+            if (windowLog > 31) throw corrupt("window log " + windowLog + " is too large");
+        }
+        int dictionaryId = (int) getBytes(data, position, dictionaryIdSize);
+        position += dictionaryIdSize;
+        long contentSize = -1;
+        if (contentSizeSize > 0) {
+            contentSize = getBytes(data, position, contentSizeSize) + (contentSizeSize == 2 ? 256 : 0);
+            position += contentSizeSize;
+            if (contentSize < 0 || contentSize > outEnd - outPosition)
+                throw new IllegalArgumentException("Decompressed size " + Long.toUnsignedString(contentSize) +
+                                                   " is larger than the " + (outEnd - outPosition) + " bytes available");
+        }
+        if (dictionaryId != 0 && (dictionary == null || dictionary.id() != dictionaryId))
+            throw new IllegalArgumentException("Data is compressed with dictionary " + Integer.toUnsignedString(dictionaryId) +
+                                               (dictionary == null ? ", but no dictionary is given"
+                                                                   : ", but dictionary " + dictionary.id() + " is given"));
+        // A frame without a dictionary id only uses a raw dictionary, as a trained one has its own id
+        startFrame(dictionaryId != 0 || (dictionary != null && dictionary.id() == 0) ? dictionary : null);
+
+        boolean lastBlock;
+        do {
+            if (end - position < 3) throw corrupt("truncated block header");
+            int header = (int) getBytes(data, position, 3);
+            position += 3;
+            lastBlock = (header & 1) != 0;
+            int type = (header >>> 1) & 3;
+            int size = header >>> 3;
+            if (size > Zstd.MAX_BLOCK_SIZE) throw corrupt("block size " + size + " is too large");
+            switch (type) {
+                case Zstd.BLOCK_RAW:
+                    if (end - position < size) throw corrupt("truncated block");
+                    requireOutput(size);
+                    System.arraycopy(data, position, out, outPosition, size);
+                    outPosition += size;
+                    position += size;
+                    break;
+                case Zstd.BLOCK_RLE:
+                    if (end - position < 1) throw corrupt("truncated block");
+                    requireOutput(size);
+                    Arrays.fill(out, outPosition, outPosition + size, data[position]);
+                    outPosition += size;
+                    position += 1;
+                    break;
+                case Zstd.BLOCK_COMPRESSED:
+                    if (end - position < size) throw corrupt("truncated block");
+                    decompressBlock(data, position, position + size);
+                    position += size;
+                    break;
+                default:
+                    throw corrupt("reserved block type");
+            }
+        } while ( ! lastBlock);
+
+        if (contentSize >= 0 && contentSize != outPosition - frameStart)
+            throw corrupt("frame content size is " + contentSize + ", but " + (outPosition - frameStart) + " bytes were decompressed");
+        if (hasChecksum) {
+            if (end - position < 4) throw corrupt("truncated checksum");
+            int expected = getInt(data, position);
+            position += 4;
+            if ((int) checksum.hash(out, frameStart, outPosition - frameStart, 0) != expected)
+                throw corrupt("checksum mismatch");
+        }
+        return position;
+    }
+
+    private void startFrame(ZstdDictionary dictionary) {
+        frameStart = outPosition;
+        frameDictionary = dictionary;
+        if (dictionary != null) {
+            System.arraycopy(dictionary.repeatOffsets, 0, repeatOffsets, 0, Zstd.REPEAT_OFFSET_COUNT);
+            literalsTable = dictionary.literalsTable;
+            literalLengthsTable = dictionary.literalLengthsDecodingTable;
+            offsetsTable = dictionary.offsetsDecodingTable;
+            matchLengthsTable = dictionary.matchLengthsDecodingTable;
+        } else {
+            System.arraycopy(Zstd.INITIAL_REPEAT_OFFSETS, 0, repeatOffsets, 0, Zstd.REPEAT_OFFSET_COUNT);
+            literalsTable = null;
+            literalLengthsTable = offsetsTable = matchLengthsTable = null;
+        }
+    }
+
+    private void requireOutput(int size) {
+        if (size > outEnd - outPosition) throw new IllegalArgumentException("Decompressed data is larger than the " +
+                                                                            (outEnd - frameStart) + " bytes available");
+    }
+
+    private void decompressBlock(byte[] data, int start, int end) {
+        int position = start + decodeLiterals(data, start, end);
+
+        if (position >= end) throw corrupt("missing sequences section");
+        int sequenceCount = data[position++] & 0xFF;
+        if (sequenceCount >= 128) {
+            if (sequenceCount == 255) {
+                if (end - position < 2) throw corrupt("truncated sequences section");
+                sequenceCount = (int) getBytes(data, position, 2) + 0x7F00;
+                position += 2;
+            } else {
+                if (end - position < 1) throw corrupt("truncated sequences section");
+                sequenceCount = ((sequenceCount - 128) << 8) + (data[position++] & 0xFF);
+            }
+        }
+        if (sequenceCount == 0) {
+            if (position != end) throw corrupt("data after an empty sequences section");
+            copyLiterals(literalsEnd - literalsPosition);
+            return;
+        }
+
+        if (position >= end) throw corrupt("truncated sequences section");
+        int modes = data[position++] & 0xFF;
+        if ((modes & 3) != 0) throw corrupt("reserved sequence compression mode bits are set");
+        ZstdFse.DecodingTable[] table = new ZstdFse.DecodingTable[1];
+        position += decodingTable(modes >>> 6, data, position, end, Zstd.MAX_LITERAL_LENGTH_CODE, Zstd.MAX_LITERAL_LENGTH_LOG,
+                                  defaultLiteralLengthsTable, literalLengthsTable, table);
+        literalLengthsTable = table[0];
+        position += decodingTable((modes >>> 4) & 3, data, position, end, Zstd.MAX_OFFSET_CODE, Zstd.MAX_OFFSET_LOG,
+                                  defaultOffsetsTable, offsetsTable, table);
+        offsetsTable = table[0];
+        position += decodingTable((modes >>> 2) & 3, data, position, end, Zstd.MAX_MATCH_LENGTH_CODE, Zstd.MAX_MATCH_LENGTH_LOG,
+                                  defaultMatchLengthsTable, matchLengthsTable, table);
+        matchLengthsTable = table[0];
+
+        decodeSequences(sequenceCount, new Zstd.BackwardBitReader(data, position, end));
+        copyLiterals(literalsEnd - literalsPosition);
+    }
+
+    /** Decodes the literals section at the given position, and returns its size */
+    private int decodeLiterals(byte[] data, int start, int end) {
+        int header = data[start] & 0xFF;
+        int type = header & 3;
+        int sizeFormat = (header >>> 2) & 3;
+        if (type == Zstd.LITERALS_RAW || type == Zstd.LITERALS_RLE) {
+            int headerSize = sizeFormat == 1 ? 2 : sizeFormat == 3 ? 3 : 1;
+            if (end - start < headerSize) throw corrupt("truncated literals section");
+            int size = headerSize == 1 ? header >>> 3 : (int) (getBytes(data, start, headerSize) >>> 4);
+            if (size > Zstd.MAX_BLOCK_SIZE) throw corrupt("too many literals");
+            if (type == Zstd.LITERALS_RAW) {
+                if (end - start - headerSize < size) throw corrupt("truncated literals");
+                setLiterals(data, start + headerSize, size);
+                return headerSize + size;
+            }
+            if (end - start - headerSize < 1) throw corrupt("truncated literals");
+            byte[] buffer = literalBuffer(size);
+            Arrays.fill(buffer, 0, size, data[start + headerSize]);
+            setLiterals(buffer, 0, size);
+            return headerSize + 1;
+        }
+
+        int headerSize = sizeFormat <= 1 ? 3 : sizeFormat + 2;
+        int sizeBits = sizeFormat <= 1 ? 10 : 4 * sizeFormat + 6;
+        if (end - start < headerSize) throw corrupt("truncated literals section");
+        long sizes = getBytes(data, start, headerSize);
+        int size = (int) ((sizes >>> 4) & ((1 << sizeBits) - 1));
+        int compressedSize = (int) ((sizes >>> (4 + sizeBits)) & ((1 << sizeBits) - 1));
+        if (size > Zstd.MAX_BLOCK_SIZE) throw corrupt("too many literals");
+        if (end - start - headerSize < compressedSize) throw corrupt("truncated literals");
+        int position = start + headerSize;
+        int streamsEnd = position + compressedSize;
+        if (type == Zstd.LITERALS_COMPRESSED) {
+            ZstdHuffman.Table[] table = new ZstdHuffman.Table[1];
+            position += ZstdHuffman.readTable(data, position, streamsEnd, table);
+            literalsTable = table[0];
+        } else if (literalsTable == null) {
+            throw corrupt("literals reference a missing Huffman table");
+        }
+        byte[] buffer = literalBuffer(size);
+        literalsTable.decode(data, position, streamsEnd, sizeFormat != 0, buffer, 0, size);
+        setLiterals(buffer, 0, size);
+        return headerSize + compressedSize;
+    }
+
+    private byte[] literalBuffer(int size) {
+        if (literalBuffer.length < size)
+            literalBuffer = new byte[Math.max(size, Math.min(2 * literalBuffer.length, Zstd.MAX_BLOCK_SIZE))];
+        return literalBuffer;
+    }
+
+    private void setLiterals(byte[] literals, int offset, int size) {
+        this.literals = literals;
+        this.literalsPosition = offset;
+        this.literalsEnd = offset + size;
+    }
+
+    /**
+     * Sets the decoding table given by a sequence compression mode in the given target array, and returns
+     * the size of its description.
+     */
+    private static int decodingTable(int mode, byte[] data, int position, int end, int maxSymbol, int maxAccuracyLog,
+                                     ZstdFse.DecodingTable defaultTable, ZstdFse.DecodingTable previousTable,
+                                     ZstdFse.DecodingTable[] target) {
+        switch (mode) {
+            case Zstd.MODE_PREDEFINED:
+                target[0] = defaultTable;
+                return 0;
+            case Zstd.MODE_RLE:
+                if (position >= end) throw corrupt("truncated sequences section");
+                int symbol = data[position] & 0xFF;
+                if (symbol > maxSymbol) throw corrupt("symbol " + symbol + " is out of range");
+                target[0] = new ZstdFse.DecodingTable(symbol);
+                return 1;
+            case Zstd.MODE_COMPRESSED:
+                ZstdFse.Distribution[] distribution = new ZstdFse.Distribution[1];
+                int size = ZstdFse.readDistribution(data, position, end, maxSymbol, maxAccuracyLog, distribution);
+                target[0] = new ZstdFse.DecodingTable(distribution[0]);
+                return size;
+            default:
+                if (previousTable == null) throw corrupt("sequences reference a missing table");
+                target[0] = previousTable;
+                return 0;
+        }
+    }
+
+    private void decodeSequences(int count, Zstd.BackwardBitReader in) {
+        ZstdFse.DecodingTable literalLengths = literalLengthsTable;
+        ZstdFse.DecodingTable offsets = offsetsTable;
+        ZstdFse.DecodingTable matchLengths = matchLengthsTable;
+        int literalLengthState = in.readInt(literalLengths.accuracyLog);
+        int offsetState = in.readInt(offsets.accuracyLog);
+        int matchLengthState = in.readInt(matchLengths.accuracyLog);
+
+        for (int i = 0; i < count; i++) {
+            int literalLengthCode = literalLengths.symbols[literalLengthState];
+            int offsetCode = offsets.symbols[offsetState];
+            int matchLengthCode = matchLengths.symbols[matchLengthState];
+
+            long offsetValue = (1L << offsetCode) + in.read(offsetCode);
+            int matchLength = Zstd.MATCH_LENGTH_BASE[matchLengthCode] + in.readInt(Zstd.MATCH_LENGTH_BITS[matchLengthCode]);
+            int literalLength = Zstd.LITERAL_LENGTH_BASE[literalLengthCode] + in.readInt(Zstd.LITERAL_LENGTH_BITS[literalLengthCode]);
+
+            int offset;
+            if (offsetValue > Zstd.REPEAT_OFFSET_COUNT) {
+                if (offsetValue - Zstd.REPEAT_OFFSET_COUNT > Integer.MAX_VALUE) throw corrupt("offset is too large");
+                offset = (int) (offsetValue - Zstd.REPEAT_OFFSET_COUNT);
+                repeatOffsets[2] = repeatOffsets[1];
+                repeatOffsets[1] = repeatOffsets[0];
+                repeatOffsets[0] = offset;
+            } else {
+                int index = (int) offsetValue - 1 + (literalLength == 0 ? 1 : 0);
+                if (index == 0) {
+                    offset = repeatOffsets[0];
+                } else {
+                    offset = index == 3 ? repeatOffsets[0] - 1 : repeatOffsets[index];
+                    if (offset == 0) throw corrupt("repeat offset is 0");
+                    if (index != 1) repeatOffsets[2] = repeatOffsets[1];
+                    repeatOffsets[1] = repeatOffsets[0];
+                    repeatOffsets[0] = offset;
+                }
+            }
+
+            if (i < count - 1) {
+                literalLengthState = literalLengths.baselines[literalLengthState] + in.readInt(literalLengths.bitCounts[literalLengthState]);
+                matchLengthState = matchLengths.baselines[matchLengthState] + in.readInt(matchLengths.bitCounts[matchLengthState]);
+                offsetState = offsets.baselines[offsetState] + in.readInt(offsets.bitCounts[offsetState]);
+            }
+            copyLiterals(literalLength);
+            copyMatch(offset, matchLength);
+        }
+        if ( ! in.isFinished() && ! in.isOverflowed()) throw corrupt("sequences section size does not match its content");
+    }
+
+    private void copyLiterals(int length) {
+        if (length > literalsEnd - literalsPosition) throw corrupt("sequences use more literals than there are");
+        requireOutput(length);
+        System.arraycopy(literals, literalsPosition, out, outPosition, length);
+        literalsPosition += length;
+        outPosition += length;
+    }
+
+    private void copyMatch(int offset, int length) {
+        requireOutput(length);
+        int source = outPosition - offset;
+        if (source < frameStart) {
+            int dictionaryDistance = frameStart - source;
+            if (frameDictionary == null || dictionaryDistance > frameDictionary.content.length)
+                throw corrupt("offset " + offset + " is outside the window");
+            int dictionaryLength = Math.min(length, dictionaryDistance);
+            System.arraycopy(frameDictionary.content, frameDictionary.content.length - dictionaryDistance,
+                             out, outPosition, dictionaryLength);
+            outPosition += dictionaryLength;
+            length -= dictionaryLength;
+            source = frameStart;
+        }
+        if (outPosition - source >= length) {
+            System.arraycopy(out, source, out, outPosition, length);
+            outPosition += length;
+        } else {
+            for (int end = outPosition + length; outPosition < end; )
+                out[outPosition++] = out[source++];
+        }
+    }
+
+}
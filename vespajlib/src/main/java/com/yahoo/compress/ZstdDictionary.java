@@ -0,0 +1,289 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.yahoo.compress.Zstd.corrupt;
+import static com.yahoo.compress.Zstd.getInt;
+
+/**
+ * A zstd dictionary, which improves the compression of small payloads similar to the content it is trained on,
+ * such as documents of one document type. Data compressed with a dictionary can only be decompressed with the
+ * same dictionary. This is immutable.
+ *
+ * Dictionaries are in the format of the reference implementation: either the raw content to reference, or the
+ * content preceded by a magic number, the id of the dictionary, entropy tables and repeat offsets.
+ */
+public final class ZstdDictionary {
+
+    private final byte[] bytes;
+    private final int id;
+    final byte[] content;
+    final int[] repeatOffsets;
+
+    /** The entropy tables of this, which are null if this is raw content */
+    final ZstdHuffman.Table literalsTable;
+    final ZstdFse.Distribution literalLengths;
+    final ZstdFse.Distribution offsets;
+    final ZstdFse.Distribution matchLengths;
+    final ZstdFse.DecodingTable literalLengthsDecodingTable;
+    final ZstdFse.DecodingTable offsetsDecodingTable;
+    final ZstdFse.DecodingTable matchLengthsDecodingTable;
+    final ZstdFse.EncodingTable literalLengthsEncodingTable;
+    final ZstdFse.EncodingTable offsetsEncodingTable;
+    final ZstdFse.EncodingTable matchLengthsEncodingTable;
+
+    /** The hash chains of the content, which are made by the first compressor needing them */
+    volatile ZstdCompressor.MatchTables matchTables;
+
+    /**
+     * Creates a dictionary from its serialized form, as returned by {@link #asBytes}.
+     *
+     * @throws IllegalArgumentException if the given dictionary is invalid
+     */
+    public ZstdDictionary(byte[] bytes) {
+        this.bytes = bytes.clone();
+        if (bytes.length < 8 || getInt(bytes, 0) != Zstd.DICTIONARY_MAGIC) { // raw content
+            id = 0;
+            content = this.bytes;
+            repeatOffsets = Zstd.INITIAL_REPEAT_OFFSETS;
+            literalsTable = null;
+            literalLengths = offsets = matchLengths = null;
+            literalLengthsDecodingTable = offsetsDecodingTable = matchLengthsDecodingTable = null;
+            literalLengthsEncodingTable = offsetsEncodingTable = matchLengthsEncodingTable = null;
+            return;
+        }
+
+        id = getInt(bytes, 4);
+        int position = 8;
+        ZstdHuffman.Table[] table = new ZstdHuffman.Table[1];
+        position += ZstdHuffman.readTable(bytes, position, bytes.length, table);
+        literalsTable = table[0];
+        ZstdFse.Distribution[] distribution = new ZstdFse.Distribution[1];
+        position += ZstdFse.readDistribution(bytes, position, bytes.length, Zstd.MAX_OFFSET_CODE, Zstd.MAX_OFFSET_LOG, distribution);
+        offsets = distribution[0];
+        position += ZstdFse.readDistribution(bytes, position, bytes.length, Zstd.MAX_MATCH_LENGTH_CODE, Zstd.MAX_MATCH_LENGTH_LOG, distribution);
+        matchLengths = distribution[0];
+        position += ZstdFse.readDistribution(bytes, position, bytes.length, Zstd.MAX_LITERAL_LENGTH_CODE, Zstd.MAX_LITERAL_LENGTH_LOG, distribution);
+        literalLengths = distribution[0];
+        if (position + 4 * Zstd.REPEAT_OFFSET_COUNT > bytes.length) throw corrupt("dictionary is truncated");
+        content = Arrays.copyOfRange(bytes, position + 4 * Zstd.REPEAT_OFFSET_COUNT, bytes.length);
+        repeatOffsets = new int[Zstd.REPEAT_OFFSET_COUNT];
+        for (int i = 0; i < Zstd.REPEAT_OFFSET_COUNT; i++) {
+            repeatOffsets[i] = getInt(bytes, position + 4 * i);
+            if (repeatOffsets[i] <= 0 || repeatOffsets[i] > content.length)
+                throw corrupt("dictionary repeat offset " + repeatOffsets[i] + " is outside its content");
+        }
+        literalLengthsDecodingTable = new ZstdFse.DecodingTable(literalLengths);
+        offsetsDecodingTable = new ZstdFse.DecodingTable(offsets);
+        matchLengthsDecodingTable = new ZstdFse.DecodingTable(matchLengths);
+        literalLengthsEncodingTable = new ZstdFse.EncodingTable(literalLengths);
+        offsetsEncodingTable = new ZstdFse.EncodingTable(offsets);
+        matchLengthsEncodingTable = new ZstdFse.EncodingTable(matchLengths);
+    }
+
+    /** Creates a dictionary of raw content */
+    private ZstdDictionary(int id, byte[] content) {
+        this.bytes = content;
+        this.id = id;
+        this.content = content;
+        this.repeatOffsets = Zstd.INITIAL_REPEAT_OFFSETS;
+        this.literalsTable = null;
+        this.literalLengths = offsets = matchLengths = null;
+        this.literalLengthsDecodingTable = offsetsDecodingTable = matchLengthsDecodingTable = null;
+        this.literalLengthsEncodingTable = offsetsEncodingTable = matchLengthsEncodingTable = null;
+    }
+
+    /** Returns the id of this dictionary, which is written to the data compressed with it, or 0 if it has none */
+    public int id() { return id; }
+
+    /** Returns the serialized form of this dictionary */
+    public byte[] asBytes() { return bytes.clone(); }
+
+    /** Returns whether this dictionary has entropy tables, in addition to content */
+    boolean hasEntropyTables() { return literalsTable != null; }
+
+    /** The length of the byte sequences whose frequency in the samples decides which content to select */
+    private static final int GRAM_LENGTH = 8;
+    /** The length of the segments of samples which are selected as content */
+    private static final int SEGMENT_LENGTH = 256;
+    private static final int GRAM_HASH_BITS = 20;
+
+    /**
+     * Trains a dictionary for compressing data similar to the given samples, in the format of the reference
+     * implementation: the segments of the samples with the most byte sequences in common with other samples
+     * are selected as content, and the entropy tables are those of compressing the samples with that content.
+     *
+     * @param id the id of the dictionary, which should be unique among the dictionaries used to compress
+     *           the same kind of data, and not 0
+     * @param samples the samples to train on, whose total size should be some multiple of the dictionary size
+     * @param maxSize the max size of the dictionary
+     * @throws IllegalArgumentException if the samples or max size are too small to make a dictionary
+     */
+    public static ZstdDictionary train(int id, List<byte[]> samples, int maxSize) {
+        if (id == 0) throw new IllegalArgumentException("A dictionary id cannot be 0");
+        byte[] content = selectContent(samples, maxSize);
+
+        int[] literalHistogram = new int[256];
+        int[] literalLengthHistogram = new int[Zstd.MAX_LITERAL_LENGTH_CODE + 1];
+        int[] offsetHistogram = new int[Zstd.MAX_OFFSET_CODE];
+        int[] matchLengthHistogram = new int[Zstd.MAX_MATCH_LENGTH_CODE + 1];
+        ZstdCompressor compressor = new ZstdCompressor(3, new ZstdDictionary(0, content));
+        for (byte[] sample : samples)
+            compressor.addHistograms(sample, literalHistogram, literalLengthHistogram, offsetHistogram, matchLengthHistogram);
+
+        Zstd.BitWriter header = new Zstd.BitWriter(1024);
+        header.write(Zstd.DICTIONARY_MAGIC, 32);
+        header.write(id, 32);
+        header.alignToByte();
+        byte[] literalsTable = literalsTableDescription(literalHistogram);
+        for (byte b : literalsTable)
+            header.write(b, 8);
+        writeDistribution(offsetHistogram, Zstd.MAX_OFFSET_LOG, header);
+        writeDistribution(matchLengthHistogram, Zstd.MAX_MATCH_LENGTH_LOG, header);
+        writeDistribution(literalLengthHistogram, Zstd.MAX_LITERAL_LENGTH_LOG, header);
+        for (int repeatOffset : Zstd.INITIAL_REPEAT_OFFSETS)
+            header.write(repeatOffset, 32);
+        header.alignToByte();
+
+        int contentLength = Math.min(content.length, maxSize - header.size());
+        if (contentLength < GRAM_LENGTH)
+            throw new IllegalArgumentException("A dictionary of at most " + maxSize + " bytes has no room for content");
+        byte[] bytes = Arrays.copyOf(header.buffer(), header.size() + contentLength);
+        System.arraycopy(content, content.length - contentLength, bytes, header.size(), contentLength); // the least valuable content is first
+        return new ZstdDictionary(bytes);
+    }
+
+    /**
+     * Returns the segments of the samples which contain the most byte sequences which occur in other samples,
+     * but not in the segments already selected, with the most valuable last, such that it has the smallest offsets.
+     */
+    private static byte[] selectContent(List<byte[]> samples, int maxSize) {
+        int[] frequencies = new int[1 << GRAM_HASH_BITS];
+        int[] lastSample = new int[1 << GRAM_HASH_BITS];
+        Arrays.fill(lastSample, -1);
+        long sampleBytes = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            byte[] sample = samples.get(i);
+            sampleBytes += sample.length;
+            for (int position = 0; position + GRAM_LENGTH <= sample.length; position++) {
+                int hash = gramHash(sample, position);
+                if (lastSample[hash] == i) continue;
+                lastSample[hash] = i;
+                frequencies[hash]++;
+            }
+        }
+        if (sampleBytes < GRAM_LENGTH) throw new IllegalArgumentException("Too few sample bytes to train a dictionary");
+        for (int hash = 0; hash < frequencies.length; hash++)
+            frequencies[hash] = Math.max(0, frequencies[hash] - 1); // only occurrences in other samples make it valuable
+
+        PriorityQueue<Segment> candidates = new PriorityQueue<>();
+        int[] segmentMarks = new int[1 << GRAM_HASH_BITS];
+        int marker = 0;
+        for (byte[] sample : samples)
+            for (int start = 0; start + GRAM_LENGTH <= sample.length; start += SEGMENT_LENGTH / 2) {
+                Segment segment = new Segment(sample, start, Math.min(sample.length, start + SEGMENT_LENGTH));
+                segment.score(frequencies, segmentMarks, ++marker);
+                if (segment.score > 0) candidates.add(segment);
+            }
+
+        List<Segment> selected = new ArrayList<>();
+        int size = 0;
+        while (size < maxSize && ! candidates.isEmpty()) {
+            Segment best = candidates.poll();
+            best.score(frequencies, segmentMarks, ++marker); // the score is lower if some of it is selected since it was scored
+            if (best.score == 0) continue;
+            if ( ! candidates.isEmpty() && best.score < candidates.peek().score) {
+                candidates.add(best);
+                continue;
+            }
+            for (int position = best.start; position + GRAM_LENGTH <= best.end; position++)
+                frequencies[gramHash(best.sample, position)] = 0;
+            selected.add(best);
+            size += best.end - best.start;
+        }
+
+        if (size < GRAM_LENGTH) { // nothing in common: use the end of the samples
+            byte[] content = new byte[(int) Math.min(maxSize, sampleBytes)];
+            int end = content.length;
+            for (int i = samples.size() - 1; i >= 0 && end > 0; i--) {
+                byte[] sample = samples.get(i);
+                int length = Math.min(end, sample.length);
+                System.arraycopy(sample, sample.length - length, content, end - length, length);
+                end -= length;
+            }
+            return content;
+        }
+        byte[] content = new byte[Math.min(size, maxSize)];
+        int end = content.length;
+        for (Segment segment : selected) {
+            int length = Math.min(end, segment.end - segment.start);
+            System.arraycopy(segment.sample, segment.start, content, end - length, length);
+            end -= length;
+        }
+        return content;
+    }
+
+    private static int gramHash(byte[] data, int position) {
+        return (int) ((Zstd.getLong(data, position) * 0x9E3779B97F4A7C15L) >>> (64 - GRAM_HASH_BITS));
+    }
+
+    /** Returns the description of a Huffman table of the given histogram, where every byte has a code */
+    private static byte[] literalsTableDescription(int[] histogram) {
+        int[] counts = new int[256];
+        for (int symbol = 0; symbol < 256; symbol++)
+            counts[symbol] = histogram[symbol] + 1;
+        for (int symbol = 0; ; symbol = (symbol + 1) % 256) {
+            byte[] description = ZstdHuffman.build(counts, 255).write();
+            if (description != null) return description;
+            counts[symbol] *= 2; // the weights are too uniform to be written: make them less so
+        }
+    }
+
+    /** Writes a distribution of the given histogram, where every symbol has a count */
+    private static void writeDistribution(int[] histogram, int accuracyLog, Zstd.BitWriter out) {
+        int[] counts = new int[histogram.length];
+        for (int symbol = 0; symbol < histogram.length; symbol++)
+            counts[symbol] = histogram[symbol] + 1;
+        ZstdFse.writeDistribution(ZstdFse.normalize(counts, counts.length - 1, accuracyLog), counts.length - 1, out);
+    }
+
+    /** A range of a sample, which is ordered by decreasing score */
+    private static final class Segment implements Comparable<Segment> {
+
+        final byte[] sample;
+        final int start;
+        final int end;
+        long score;
+
+        Segment(byte[] sample, int start, int end) {
+            this.sample = sample;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Sets the score of this to the sum of the frequencies of the distinct byte sequences in it
+         *
+         * @param marks the marker last set for each byte sequence
+         * @param marker a marker which is not set for any byte sequence
+         */
+        void score(int[] frequencies, int[] marks, int marker) {
+            score = 0;
+            for (int position = start; position + GRAM_LENGTH <= end; position++) {
+                int hash = gramHash(sample, position);
+                if (marks[hash] == marker) continue;
+                marks[hash] = marker;
+                score += frequencies[hash];
+            }
+        }
+
+        @Override
+        public int compareTo(Segment other) { return Long.compare(other.score, score); }
+
+    }
+
+}
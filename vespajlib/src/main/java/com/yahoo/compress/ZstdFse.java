@@ -0,0 +1,336 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import static com.yahoo.compress.Zstd.corrupt;
+import static com.yahoo.compress.Zstd.highestBit;
+
+/**
+ * Finite state entropy tables of the Zstandard format. A table is given by a normalized distribution of its
+ * symbols: the counts of all symbols add up to 2^accuracyLog, and a count of -1 means "less than 1".
+ */
+final class ZstdFse {
+
+    static final int MIN_ACCURACY_LOG = 5;
+
+    /** The base 2 logarithm of each count in a table of the max size */
+    private static final double[] log2 = new double[(1 << Zstd.MAX_LITERAL_LENGTH_LOG) + 1];
+    static {
+        for (int count = 1; count < log2.length; count++)
+            log2[count] = Math.log(count) / Math.log(2);
+    }
+
+    private ZstdFse() {}
+
+    /** A normalized distribution, of which decoding and encoding tables are built */
+    static final class Distribution {
+
+        final short[] counts;
+        final int accuracyLog;
+
+        Distribution(short[] counts, int accuracyLog) {
+            this.counts = counts;
+            this.accuracyLog = accuracyLog;
+        }
+
+        /** Returns whether all the symbols with a count in the given histogram can be encoded with this */
+        boolean canEncode(int[] histogram, int maxSymbol) {
+            if (maxSymbol >= counts.length) return false;
+            for (int symbol = 0; symbol <= maxSymbol; symbol++)
+                if (histogram[symbol] > 0 && counts[symbol] == 0) return false;
+            return true;
+        }
+
+        /** Returns the approximate number of bits needed to encode the given histogram with this */
+        double cost(int[] histogram, int maxSymbol) {
+            double bits = 0;
+            for (int symbol = 0; symbol <= maxSymbol; symbol++) {
+                if (histogram[symbol] == 0) continue;
+                int count = counts[symbol] == -1 ? 1 : counts[symbol];
+                bits += histogram[symbol] * (accuracyLog - log2[count]);
+            }
+            return bits;
+        }
+
+    }
+
+    /**
+     * Reads a distribution from the given data, and returns the number of bytes read.
+     *
+     * @param target the single element array the distribution is returned in
+     */
+    static int readDistribution(byte[] data, int offset, int end, int maxSymbol, int maxAccuracyLog,
+                                Distribution[] target) {
+        ForwardBitReader in = new ForwardBitReader(data, offset, end);
+        int accuracyLog = in.read(4) + MIN_ACCURACY_LOG;
+        if (accuracyLog > maxAccuracyLog) throw corrupt("accuracy log " + accuracyLog + " is too large");
+        short[] counts = new short[maxSymbol + 1];
+        int remaining = (1 << accuracyLog) + 1;
+        int threshold = 1 << accuracyLog;
+        int bitCount = accuracyLog + 1;
+        int symbol = 0;
+        boolean previousIsZero = false;
+        while (remaining > 1 && symbol <= maxSymbol) {
+            if (previousIsZero) {
+                int zeros = symbol;
+                int repeat;
+                while ((repeat = in.read(2)) == 3) {
+                    zeros += 3;
+                    if (in.isOverrun()) throw corrupt("truncated distribution");
+                }
+                zeros += repeat;
+                if (zeros > maxSymbol) throw corrupt("distribution has too many symbols");
+                symbol = zeros;
+            }
+            int max = (2 * threshold - 1) - remaining;
+            int count;
+            if ((in.peek(bitCount) & (threshold - 1)) < max) {
+                count = in.read(bitCount - 1);
+            } else {
+                count = in.read(bitCount);
+                if (count >= threshold) count -= max;
+            }
+            count--; // -1 means less than 1
+            remaining -= Math.abs(count);
+            counts[symbol++] = (short) count;
+            previousIsZero = count == 0;
+            while (remaining < threshold) {
+                bitCount--;
+                threshold >>= 1;
+            }
+        }
+        if (remaining != 1 || in.isOverrun()) throw corrupt("invalid distribution");
+        target[0] = new Distribution(counts, accuracyLog);
+        return in.bytesRead();
+    }
+
+    /** Writes the given distribution of the symbols up to the given one */
+    static void writeDistribution(Distribution distribution, int maxSymbol, Zstd.BitWriter out) {
+        short[] counts = distribution.counts;
+        int tableSize = 1 << distribution.accuracyLog;
+        out.write(distribution.accuracyLog - MIN_ACCURACY_LOG, 4);
+        int remaining = tableSize + 1;
+        int threshold = tableSize;
+        int bitCount = distribution.accuracyLog + 1;
+        int symbol = 0;
+        boolean previousIsZero = false;
+        while (symbol <= maxSymbol && remaining > 1) {
+            if (previousIsZero) {
+                int start = symbol;
+                while (symbol <= maxSymbol && counts[symbol] == 0) symbol++;
+                if (symbol > maxSymbol) throw new IllegalStateException("Incomplete distribution");
+                for (; symbol >= start + 3; start += 3)
+                    out.write(3, 2);
+                out.write(symbol - start, 2);
+            }
+            int count = counts[symbol++];
+            int max = (2 * threshold - 1) - remaining;
+            remaining -= Math.abs(count);
+            count++;
+            if (count >= threshold) count += max;
+            out.write(count, count < max ? bitCount - 1 : bitCount);
+            previousIsZero = count == 1;
+            while (remaining < threshold) {
+                bitCount--;
+                threshold >>= 1;
+            }
+        }
+        if (remaining != 1) throw new IllegalStateException("Incomplete distribution");
+        out.alignToByte();
+    }
+
+    /**
+     * Returns a distribution of the given histogram, with the given accuracy. Every symbol which occurs gets
+     * a count of at least 1, so there must be at most 2^accuracyLog symbols.
+     */
+    static Distribution normalize(int[] histogram, int maxSymbol, int accuracyLog) {
+        int tableSize = 1 << accuracyLog;
+        long total = 0;
+        for (int symbol = 0; symbol <= maxSymbol; symbol++)
+            total += histogram[symbol];
+        short[] counts = new short[maxSymbol + 1];
+        int sum = 0;
+        int largest = 0;
+        for (int symbol = 0; symbol <= maxSymbol; symbol++) {
+            if (histogram[symbol] == 0) continue;
+            counts[symbol] = (short) Math.max(1, (long) histogram[symbol] * tableSize / total);
+            sum += counts[symbol];
+            if (histogram[symbol] > histogram[largest]) largest = symbol;
+        }
+        counts[largest] += tableSize - sum;
+        while (counts[largest] < 1) { // too many symbols were rounded up to 1: take back from the largest counts
+            int donor = 0;
+            for (int symbol = 0; symbol <= maxSymbol; symbol++)
+                if (counts[symbol] > counts[donor]) donor = symbol;
+            counts[donor]--;
+            counts[largest]++;
+        }
+        return new Distribution(counts, accuracyLog);
+    }
+
+    /**
+     * Returns the accuracy log to use for a distribution of the given number of values with the given
+     * max symbol, which is the max accuracy unless there are few values.
+     */
+    static int accuracyLog(int valueCount, int maxSymbol, int maxAccuracyLog) {
+        int accuracyLog = Math.min(maxAccuracyLog, highestBit(Math.max(1, valueCount - 1)) - 2);
+        int minAccuracyLog = Math.min(highestBit(Math.max(1, valueCount)) + 1, highestBit(Math.max(1, maxSymbol)) + 2);
+        return Math.min(maxAccuracyLog, Math.max(MIN_ACCURACY_LOG, Math.max(accuracyLog, minAccuracyLog)));
+    }
+
+    /** Returns the symbol of each state, in the order given by the format */
+    private static int[] spreadSymbols(Distribution distribution) {
+        short[] counts = distribution.counts;
+        int tableSize = 1 << distribution.accuracyLog;
+        int[] symbols = new int[tableSize];
+        int highThreshold = tableSize - 1;
+        for (int symbol = 0; symbol < counts.length; symbol++)
+            if (counts[symbol] == -1)
+                symbols[highThreshold--] = symbol;
+        int mask = tableSize - 1;
+        int step = (tableSize >>> 1) + (tableSize >>> 3) + 3;
+        int position = 0;
+        for (int symbol = 0; symbol < counts.length; symbol++) {
+            for (int i = 0; i < counts[symbol]; i++) {
+                symbols[position] = symbol;
+                do {
+                    position = (position + step) & mask;
+                } while (position > highThreshold);
+            }
+        }
+        if (position != 0) throw corrupt("invalid distribution");
+        return symbols;
+    }
+
+    /** A table for decoding symbols */
+    static final class DecodingTable {
+
+        final int accuracyLog;
+        final int[] symbols;
+        final byte[] bitCounts;
+        final int[] baselines;
+
+        /** Creates a table which decodes the given symbol from all states, without reading any bits */
+        DecodingTable(int symbol) {
+            accuracyLog = 0;
+            symbols = new int[] { symbol };
+            bitCounts = new byte[1];
+            baselines = new int[1];
+        }
+
+        DecodingTable(Distribution distribution) {
+            accuracyLog = distribution.accuracyLog;
+            int tableSize = 1 << accuracyLog;
+            symbols = spreadSymbols(distribution);
+            bitCounts = new byte[tableSize];
+            baselines = new int[tableSize];
+            int[] next = new int[distribution.counts.length];
+            for (int symbol = 0; symbol < next.length; symbol++)
+                next[symbol] = distribution.counts[symbol] == -1 ? 1 : distribution.counts[symbol];
+            for (int state = 0; state < tableSize; state++) {
+                int nextState = next[symbols[state]]++;
+                int bitCount = accuracyLog - highestBit(nextState);
+                bitCounts[state] = (byte) bitCount;
+                baselines[state] = (nextState << bitCount) - tableSize;
+            }
+        }
+
+    }
+
+    /** A table for encoding symbols. The state of an encoder is in [2^accuracyLog, 2^(accuracyLog+1)). */
+    static final class EncodingTable {
+
+        final int accuracyLog;
+        private final int[] stateTable;
+        private final int[] deltaBitCounts;
+        private final int[] deltaFindStates;
+
+        EncodingTable(Distribution distribution) {
+            short[] counts = distribution.counts;
+            accuracyLog = distribution.accuracyLog;
+            int tableSize = 1 << accuracyLog;
+            int[] symbols = spreadSymbols(distribution);
+            int[] cumulative = new int[counts.length + 1];
+            for (int symbol = 0; symbol < counts.length; symbol++)
+                cumulative[symbol + 1] = cumulative[symbol] + (counts[symbol] == -1 ? 1 : counts[symbol]);
+            stateTable = new int[tableSize];
+            for (int state = 0; state < tableSize; state++)
+                stateTable[cumulative[symbols[state]]++] = tableSize + state;
+
+            deltaBitCounts = new int[counts.length];
+            deltaFindStates = new int[counts.length];
+            int total = 0;
+            for (int symbol = 0; symbol < counts.length; symbol++) {
+                int count = counts[symbol];
+                if (count == 0) continue;
+                if (count == -1 || count == 1) {
+                    deltaBitCounts[symbol] = (accuracyLog << 16) - tableSize;
+                    deltaFindStates[symbol] = total - 1;
+                    total++;
+                } else {
+                    int maxBitsOut = accuracyLog - highestBit(count - 1);
+                    int minStatePlus = count << maxBitsOut;
+                    deltaBitCounts[symbol] = (maxBitsOut << 16) - minStatePlus;
+                    deltaFindStates[symbol] = total - count;
+                    total += count;
+                }
+            }
+        }
+
+        /** Returns the initial state of an encoder which encodes the given symbol last */
+        int initialState(int symbol) {
+            int bitCount = (deltaBitCounts[symbol] + (1 << 15)) >>> 16;
+            int value = (bitCount << 16) - deltaBitCounts[symbol];
+            return stateTable[(value >> bitCount) + deltaFindStates[symbol]];
+        }
+
+        /** Writes the transition to the given symbol from the given state, and returns the new state */
+        int encode(int state, int symbol, Zstd.BitWriter out) {
+            int bitCount = (state + deltaBitCounts[symbol]) >>> 16;
+            out.write(state, bitCount);
+            return stateTable[(state >> bitCount) + deltaFindStates[symbol]];
+        }
+
+        /** Writes the final state, which the decoder reads first */
+        void finish(int state, Zstd.BitWriter out) {
+            out.write(state, accuracyLog);
+        }
+
+    }
+
+    /** Reads the bits of a distribution from the front of a stream */
+    private static final class ForwardBitReader {
+
+        private final byte[] data;
+        private final int start;
+        private final int end;
+        private long bitPosition;
+
+        ForwardBitReader(byte[] data, int start, int end) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+            this.bitPosition = (long) start * 8;
+        }
+
+        /** Returns the given number of bits, at most 16, where bits past the end are zero */
+        int peek(int count) {
+            int value = 0;
+            int index = (int) (bitPosition >>> 3);
+            for (int i = 2; i >= 0; i--)
+                value = value << 8 | (index + i < end ? data[index + i] & 0xFF : 0);
+            return (value >>> (bitPosition & 7)) & ((1 << count) - 1);
+        }
+
+        int read(int count) {
+            int value = peek(count);
+            bitPosition += count;
+            return value;
+        }
+
+        boolean isOverrun() { return bitPosition > (long) end * 8; }
+
+        int bytesRead() { return (int) ((bitPosition + 7) / 8) - start; }
+
+    }
+
+}
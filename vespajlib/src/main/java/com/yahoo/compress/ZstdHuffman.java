@@ -0,0 +1,377 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import java.util.Arrays;
+
+import static com.yahoo.compress.Zstd.corrupt;
+import static com.yahoo.compress.Zstd.highestBit;
+
+/**
+ * Huffman coding of literals in the Zstandard format.
+ */
+final class ZstdHuffman {
+
+    /** The max length of a code written by this */
+    static final int MAX_BITS = 11;
+    /** The max length of a code read by this, which is also accepted by the reference decoder */
+    private static final int MAX_READ_BITS = 12;
+    private static final int MAX_WEIGHTS_ACCURACY_LOG = 6;
+    private static final int MAX_WEIGHT_COUNT = 255;
+
+    private ZstdHuffman() {}
+
+    /** A prefix code of the byte values, given by the code length of each */
+    static final class Table {
+
+        final int maxBits;
+        /** The code length of each symbol, or 0 if it has no code */
+        final byte[] bitCounts;
+
+        private final int[] codes;
+        /** The symbol and code length of each code prefixed to the max length, or null if this is only for encoding */
+        private final byte[] decodingSymbols;
+        private final byte[] decodingBitCounts;
+
+        private Table(byte[] bitCounts, boolean decoding) {
+            this.bitCounts = bitCounts;
+            int maxBits = 0;
+            for (byte bitCount : bitCounts)
+                maxBits = Math.max(maxBits, bitCount);
+            this.maxBits = maxBits;
+            this.codes = codes(bitCounts, maxBits);
+            if (decoding) {
+                decodingSymbols = new byte[1 << maxBits];
+                decodingBitCounts = new byte[1 << maxBits];
+                for (int symbol = 0; symbol < bitCounts.length; symbol++) {
+                    int bitCount = bitCounts[symbol];
+                    if (bitCount == 0) continue;
+                    int start = codes[symbol] << (maxBits - bitCount);
+                    int end = start + (1 << (maxBits - bitCount));
+                    Arrays.fill(decodingSymbols, start, end, (byte) symbol);
+                    Arrays.fill(decodingBitCounts, start, end, (byte) bitCount);
+                }
+            } else {
+                decodingSymbols = null;
+                decodingBitCounts = null;
+            }
+        }
+
+        /** Returns whether all the symbols with a count in the given histogram have a code */
+        boolean canEncode(int[] histogram, int maxSymbol) {
+            if (maxSymbol >= bitCounts.length) return false;
+            for (int symbol = 0; symbol <= maxSymbol; symbol++)
+                if (histogram[symbol] > 0 && bitCounts[symbol] == 0) return false;
+            return true;
+        }
+
+        /** Returns the number of bits needed to encode the given histogram with this */
+        long cost(int[] histogram, int maxSymbol) {
+            long bits = 0;
+            for (int symbol = 0; symbol <= maxSymbol; symbol++)
+                bits += (long) histogram[symbol] * bitCounts[symbol];
+            return bits;
+        }
+
+        /** Returns the code of each symbol, where longer codes have lower values, as given by the format */
+        private static int[] codes(byte[] bitCounts, int maxBits) {
+            int[] countPerLength = new int[maxBits + 2];
+            for (byte bitCount : bitCounts)
+                countPerLength[bitCount]++;
+            int[] nextCode = new int[maxBits + 2];
+            int min = 0;
+            for (int length = maxBits; length > 0; length--) {
+                nextCode[length] = min;
+                min += countPerLength[length];
+                min >>= 1;
+            }
+            int[] codes = new int[bitCounts.length];
+            for (int symbol = 0; symbol < bitCounts.length; symbol++)
+                if (bitCounts[symbol] > 0)
+                    codes[symbol] = nextCode[bitCounts[symbol]]++;
+            return codes;
+        }
+
+        /** Returns the weight of each symbol except the last one, which is implied by the others */
+        private byte[] weights() {
+            int lastSymbol = bitCounts.length - 1;
+            while (bitCounts[lastSymbol] == 0) lastSymbol--;
+            byte[] weights = new byte[lastSymbol];
+            for (int symbol = 0; symbol < lastSymbol; symbol++)
+                weights[symbol] = (byte) (bitCounts[symbol] == 0 ? 0 : maxBits + 1 - bitCounts[symbol]);
+            return weights;
+        }
+
+        /** Returns the description of this table written in the format, or null if it cannot be written */
+        byte[] write() {
+            byte[] weights = weights();
+            byte[] compressed = compressWeights(weights);
+            if (compressed != null && compressed.length < weights.length / 2 && decodesTo(compressed)) return compressed;
+            if (weights.length > 128) return null;
+            byte[] direct = new byte[1 + (weights.length + 1) / 2];
+            direct[0] = (byte) (127 + weights.length);
+            for (int i = 0; i < weights.length; i++)
+                direct[1 + i / 2] |= (i % 2 == 0) ? weights[i] << 4 : weights[i];
+            return direct;
+        }
+
+        private boolean decodesTo(byte[] description) {
+            try {
+                Table[] table = new Table[1];
+                readTable(description, 0, description.length, table, false);
+                return Arrays.equals(bitCounts, table[0].bitCounts);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Encodes the given literals in one or four streams. Returns the number of bytes written to the given
+         * array, which must have room for the literals with a code of the max length, or -1 if the streams
+         * are too large for the jump table.
+         */
+        int encode(byte[] literals, int offset, int length, boolean fourStreams, byte[] out, int outOffset) {
+            if ( ! fourStreams)
+                return encodeStream(literals, offset, offset + length, out, outOffset);
+            int segmentSize = (length + 3) / 4;
+            int position = outOffset + 6;
+            for (int i = 0; i < 4; i++) {
+                int start = offset + Math.min(length, i * segmentSize);
+                int end = i == 3 ? offset + length : offset + Math.min(length, (i + 1) * segmentSize);
+                int streamSize = encodeStream(literals, start, end, out, position);
+                if (i < 3) {
+                    if (streamSize > 0xFFFF) return -1;
+                    out[outOffset + 2 * i] = (byte) streamSize;
+                    out[outOffset + 2 * i + 1] = (byte) (streamSize >>> 8);
+                }
+                position += streamSize;
+            }
+            return position - outOffset;
+        }
+
+        private int encodeStream(byte[] literals, int start, int end, byte[] out, int outOffset) {
+            Zstd.BitWriter writer = new Zstd.BitWriter((end - start) * maxBits / 8 + 8);
+            for (int i = end - 1; i >= start; i--) {
+                int symbol = literals[i] & 0xFF;
+                writer.write(codes[symbol], bitCounts[symbol]);
+            }
+            writer.close();
+            System.arraycopy(writer.buffer(), 0, out, outOffset, writer.size());
+            return writer.size();
+        }
+
+        /** Decodes the given number of literals from one or four streams in the given range of data */
+        void decode(byte[] data, int start, int end, boolean fourStreams, byte[] out, int outOffset, int length) {
+            if ( ! fourStreams) {
+                decodeStream(data, start, end, out, outOffset, outOffset + length);
+                return;
+            }
+            if (end - start < 10) throw corrupt("literal streams are truncated");
+            int segmentSize = (length + 3) / 4;
+            if (3 * segmentSize > length) throw corrupt("too few literals for four streams");
+            int position = start + 6;
+            for (int i = 0; i < 4; i++) {
+                int streamEnd = i == 3 ? end : position + ((data[start + 2 * i] & 0xFF) | (data[start + 2 * i + 1] & 0xFF) << 8);
+                if (streamEnd > end) throw corrupt("literal stream is truncated");
+                int outEnd = i == 3 ? outOffset + length : outOffset + (i + 1) * segmentSize;
+                decodeStream(data, position, streamEnd, out, outOffset + i * segmentSize, outEnd);
+                position = streamEnd;
+            }
+        }
+
+        private void decodeStream(byte[] data, int start, int end, byte[] out, int outStart, int outEnd) {
+            Zstd.BackwardBitReader in = new Zstd.BackwardBitReader(data, start, end);
+            byte[] symbols = decodingSymbols;
+            byte[] bitCounts = decodingBitCounts;
+            int maxBits = this.maxBits;
+            for (int i = outStart; i < outEnd; i++) {
+                in.ensure(maxBits);
+                int index = (int) in.peek(maxBits);
+                out[i] = symbols[index];
+                in.skip(bitCounts[index]);
+            }
+            if ( ! in.isFinished()) throw corrupt("literal stream size does not match its content");
+        }
+
+    }
+
+    /**
+     * Returns an optimal table for the symbols of the given histogram, with codes of at most MAX_BITS.
+     * There must be at least two symbols with a count.
+     */
+    static Table build(int[] histogram, int maxSymbol) {
+        int[] counts = Arrays.copyOf(histogram, maxSymbol + 1);
+        while (true) {
+            byte[] bitCounts = codeLengths(counts);
+            int maxBits = 0;
+            for (byte bitCount : bitCounts)
+                maxBits = Math.max(maxBits, bitCount);
+            if (maxBits <= MAX_BITS) return new Table(bitCounts, false);
+            for (int symbol = 0; symbol < counts.length; symbol++) // flatten the distribution until codes are short enough
+                if (counts[symbol] > 0)
+                    counts[symbol] = (counts[symbol] + 1) / 2;
+        }
+    }
+
+    /**
+     * Returns the code lengths of a Huffman tree of the given counts. The leaves are sorted by count,
+     * such that the nodes are made in order of increasing count, and the two with the lowest count are
+     * always first in either the leaves or the nodes.
+     */
+    private static byte[] codeLengths(int[] counts) {
+        long[] leaves = new long[counts.length];
+        int leafCount = 0;
+        for (int symbol = 0; symbol < counts.length; symbol++)
+            if (counts[symbol] > 0)
+                leaves[leafCount++] = (long) counts[symbol] << 8 | symbol;
+        Arrays.sort(leaves, 0, leafCount);
+
+        // Nodes 0 to leafCount - 1 are the leaves, and the rest are made by joining the two with the lowest counts
+        long[] nodeCounts = new long[2 * leafCount - 1];
+        int[] parents = new int[2 * leafCount - 1];
+        for (int leaf = 0; leaf < leafCount; leaf++)
+            nodeCounts[leaf] = leaves[leaf] >>> 8;
+        int nextLeaf = 0;
+        int nextNode = leafCount;
+        for (int node = leafCount; node < nodeCounts.length; node++) {
+            for (int child = 0; child < 2; child++) {
+                int lowest = nextLeaf < leafCount && (nextNode == node || nodeCounts[nextLeaf] <= nodeCounts[nextNode])
+                             ? nextLeaf++ : nextNode++;
+                nodeCounts[node] += nodeCounts[lowest];
+                parents[lowest] = node;
+            }
+        }
+        int[] depths = new int[nodeCounts.length];
+        for (int node = nodeCounts.length - 2; node >= 0; node--)
+            depths[node] = depths[parents[node]] + 1;
+        byte[] bitCounts = new byte[counts.length];
+        for (int leaf = 0; leaf < leafCount; leaf++)
+            bitCounts[(int) (leaves[leaf] & 0xFF)] = (byte) depths[leaf];
+        return bitCounts;
+    }
+
+    /** Returns the given weights compressed with two interleaved FSE states, or null if they are not compressible */
+    private static byte[] compressWeights(byte[] weights) {
+        if (weights.length <= 1) return null;
+        int[] histogram = new int[MAX_READ_BITS + 1];
+        int maxWeight = 0;
+        int maxCount = 0;
+        for (byte weight : weights) {
+            maxCount = Math.max(maxCount, ++histogram[weight]);
+            maxWeight = Math.max(maxWeight, weight);
+        }
+        if (maxCount == weights.length || maxCount == 1) return null;
+        int accuracyLog = ZstdFse.accuracyLog(weights.length, maxWeight, MAX_WEIGHTS_ACCURACY_LOG);
+        ZstdFse.Distribution distribution = ZstdFse.normalize(histogram, maxWeight, accuracyLog);
+        ZstdFse.EncodingTable table = new ZstdFse.EncodingTable(distribution);
+        Zstd.BitWriter out = new Zstd.BitWriter(weights.length + 16);
+        out.write(0, 8); // the size, which is known when done
+        ZstdFse.writeDistribution(distribution, maxWeight, out);
+
+        Zstd.BitWriter stream = new Zstd.BitWriter(weights.length);
+        int i = weights.length;
+        int state1, state2;
+        if ((i & 1) != 0) {
+            state1 = table.initialState(weights[--i]);
+            state2 = table.initialState(weights[--i]);
+            state1 = table.encode(state1, weights[--i], stream);
+        } else {
+            state2 = table.initialState(weights[--i]);
+            state1 = table.initialState(weights[--i]);
+        }
+        while (i > 0) {
+            state2 = table.encode(state2, weights[--i], stream);
+            state1 = table.encode(state1, weights[--i], stream);
+        }
+        table.finish(state2, stream);
+        table.finish(state1, stream);
+        stream.close();
+
+        int size = out.size() - 1 + stream.size();
+        if (size <= 1 || size >= 128) return null;
+        byte[] result = Arrays.copyOf(out.buffer(), out.size() + stream.size());
+        System.arraycopy(stream.buffer(), 0, result, out.size(), stream.size());
+        result[0] = (byte) size;
+        return result;
+    }
+
+    /**
+     * Reads a table description from the given data, and returns the number of bytes read.
+     *
+     * @param target the single element array the table is returned in
+     */
+    static int readTable(byte[] data, int offset, int end, Table[] target) {
+        return readTable(data, offset, end, target, true);
+    }
+
+    private static int readTable(byte[] data, int offset, int end, Table[] target, boolean decoding) {
+        if (offset >= end) throw corrupt("missing Huffman table");
+        int header = data[offset] & 0xFF;
+        int[] weights = new int[MAX_WEIGHT_COUNT + 1];
+        int weightCount;
+        int size;
+        if (header >= 128) {
+            weightCount = header - 127;
+            size = 1 + (weightCount + 1) / 2;
+            if (offset + size > end) throw corrupt("Huffman table is truncated");
+            for (int i = 0; i < weightCount; i++) {
+                int packed = data[offset + 1 + i / 2] & 0xFF;
+                weights[i] = i % 2 == 0 ? packed >>> 4 : packed & 0xF;
+            }
+        } else {
+            size = 1 + header;
+            if (offset + size > end) throw corrupt("Huffman table is truncated");
+            weightCount = decompressWeights(data, offset + 1, offset + size, weights);
+        }
+
+        int[] weightCounts = new int[MAX_READ_BITS + 1];
+        int total = 0;
+        for (int i = 0; i < weightCount; i++) {
+            if (weights[i] > MAX_READ_BITS) throw corrupt("Huffman weight " + weights[i] + " is too large");
+            weightCounts[weights[i]]++;
+            total += (1 << weights[i]) >> 1;
+        }
+        if (total == 0) throw corrupt("Huffman table without weights");
+        int maxBits = highestBit(total) + 1;
+        if (maxBits > MAX_READ_BITS) throw corrupt("Huffman codes are too long");
+        int rest = (1 << maxBits) - total;
+        if (Integer.bitCount(rest) != 1) throw corrupt("Huffman weights do not form a complete tree");
+        int lastWeight = highestBit(rest) + 1;
+        weights[weightCount] = lastWeight;
+        weightCounts[lastWeight]++;
+        if (weightCounts[1] < 2 || (weightCounts[1] & 1) != 0) throw corrupt("invalid Huffman weights");
+
+        byte[] bitCounts = new byte[weightCount + 1];
+        for (int symbol = 0; symbol <= weightCount; symbol++)
+            bitCounts[symbol] = (byte) (weights[symbol] == 0 ? 0 : maxBits + 1 - weights[symbol]);
+        target[0] = new Table(bitCounts, decoding);
+        return size;
+    }
+
+    private static int decompressWeights(byte[] data, int start, int end, int[] weights) {
+        ZstdFse.Distribution[] distribution = new ZstdFse.Distribution[1];
+        int position = start + ZstdFse.readDistribution(data, start, end, MAX_WEIGHT_COUNT, MAX_WEIGHTS_ACCURACY_LOG,
+                                                        distribution);
+        ZstdFse.DecodingTable table = new ZstdFse.DecodingTable(distribution[0]);
+        Zstd.BackwardBitReader in = new Zstd.BackwardBitReader(data, position, end);
+        int state1 = in.readInt(table.accuracyLog);
+        int state2 = in.readInt(table.accuracyLog);
+        int count = 0;
+        while (true) {
+            if (count > MAX_WEIGHT_COUNT - 2) throw corrupt("too many Huffman weights");
+            weights[count++] = table.symbols[state1];
+            state1 = table.baselines[state1] + in.readInt(table.bitCounts[state1]);
+            if (in.isOverflowed()) {
+                weights[count++] = table.symbols[state2];
+                return count;
+            }
+            if (count > MAX_WEIGHT_COUNT - 2) throw corrupt("too many Huffman weights");
+            weights[count++] = table.symbols[state2];
+            state2 = table.baselines[state2] + in.readInt(table.bitCounts[state2]);
+            if (in.isOverflowed()) {
+                weights[count++] = table.symbols[state1];
+                return count;
+            }
+        }
+    }
+
+}
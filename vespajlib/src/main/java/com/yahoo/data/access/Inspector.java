@@ -2,6 +2,9 @@
 package com.yahoo.data.access;
 
 
+import com.yahoo.text.AbstractUtf8Array;
+import com.yahoo.text.Utf8Array;
+
 import java.util.Map;
 
 /**
@@ -51,6 +54,13 @@ public interface Inspector extends Inspectable {
      */
     byte[] asUtf8();
 
+    /**
+     * Access the inspector's value (in utf-8 representation) if it's
+     * a STRING, without copying it if the underlying data is already
+     * utf-8; otherwise throws exception
+     */
+    default AbstractUtf8Array asUtf8Array() { return new Utf8Array(asUtf8()); }
+
     /** Access the inspector's value if it's DATA; otherwise throws exception */
     byte[] asData();
 
@@ -2,6 +2,8 @@
 package com.yahoo.data.access.slime;
 
 
+import com.yahoo.text.AbstractUtf8Array;
+
 import java.util.Map;
 import java.util.AbstractMap;
 import java.util.List;
@@ -83,6 +85,12 @@ public final class SlimeAdapter implements com.yahoo.data.access.Inspector {
         }
         return inspector.asUtf8();
     }
+    public AbstractUtf8Array asUtf8Array() {
+        if (!verify(com.yahoo.slime.Type.NIX, com.yahoo.slime.Type.STRING)) {
+            throw new IllegalStateException("invalid data extraction!");
+        }
+        return inspector.asUtf8Array();
+    }
     public byte[] asData() {
         if (!verify(com.yahoo.slime.Type.NIX, com.yahoo.slime.Type.DATA)) {
             throw new IllegalStateException("invalid data extraction!");
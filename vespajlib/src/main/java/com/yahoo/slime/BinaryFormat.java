@@ -85,4 +85,35 @@ public class BinaryFormat {
         BinaryDecoder decoder = new BinaryDecoder();
         return decoder.decode(data, offset, length);
     }
+
+    /**
+     * Take binary data and return an Inspector for the root value in it,
+     * without decoding the data up front. Values are located and decoded
+     * in the given array as they are accessed, which is cheaper than
+     * {@link #decode(byte[])} when only parts of the data are inspected
+     * or strings are passed on as UTF-8. The array must not be modified
+     * while the returned Inspector is in use.
+     *
+     * If the binary data is malformed, the parts which can not be
+     * located are invalid, and no error information is available.
+     *
+     * @param data the data to be inspected.
+     * @return an Inspector for the root value of the data.
+     **/
+    public static Inspector inspect(byte[] data) {
+        return BinaryView.inspect(data, 0, data.length);
+    }
+
+    /**
+     * Take binary data and return an Inspector for the root value in it,
+     * without decoding the data up front. See {@link #inspect(byte[])}.
+     *
+     * @param data array containing the data to be inspected.
+     * @param offset where in the array the data starts.
+     * @param length how many bytes the data may span.
+     * @return an Inspector for the root value of the data.
+     **/
+    public static Inspector inspect(byte[] data, int offset, int length) {
+        return BinaryView.inspect(data, offset, length);
+    }
 }
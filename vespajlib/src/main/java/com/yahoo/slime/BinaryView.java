@@ -0,0 +1,438 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import com.yahoo.text.AbstractUtf8Array;
+import com.yahoo.text.Utf8PartialArray;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static com.yahoo.slime.BinaryFormat.decode_double;
+import static com.yahoo.slime.BinaryFormat.decode_meta;
+import static com.yahoo.slime.BinaryFormat.decode_type;
+import static com.yahoo.slime.BinaryFormat.decode_zigzag;
+
+/**
+ * A read-only view of a value in a buffer of binary encoded Slime. Values are located in the buffer when they are
+ * accessed, and are only decoded as far as needed: Strings and data are decoded on request, and the children of
+ * arrays and objects are located (but not decoded) the first time they are accessed. Strings can be accessed as
+ * UTF-8 without copying using {@link #asUtf8Array()}.
+ * <p>
+ * Malformed input never causes an exception: a value which can not be located in the buffer is invalid, and
+ * the children of a container are truncated at the first child which can not be located. Use
+ * {@link BinaryFormat#decode} to get the error information of malformed input.
+ * <p>
+ * The buffer must not be modified while it is viewed. Views may be read concurrently.
+ */
+final class BinaryView implements Inspector {
+
+    private static final String emptyString = "";
+    private static final byte[] emptyData = new byte[0];
+    private static final int[] emptyIndex = new int[0];
+
+    private final Buffer buffer;
+    private final int position; // of the value, after the type and meta byte
+    private final Type type;
+    private final int meta;
+
+    /** The children of this container, located on first access */
+    private Index index = null;
+
+    private BinaryView(Buffer buffer, int position, Type type, int meta) {
+        this.buffer = buffer;
+        this.position = position;
+        this.type = type;
+        this.meta = meta;
+    }
+
+    /**
+     * Returns a view of the root value of the given binary Slime, or an invalid inspector if the symbol table
+     * or the root value can not be located.
+     */
+    static Inspector inspect(byte[] bytes, int offset, int length) {
+        Buffer buffer = new Buffer(bytes, offset + length);
+        Scan scan = new Scan(buffer, offset);
+        long numSymbols = scan.readCmprLong();
+        for (long i = 0; i < numSymbols && ! scan.failed; ++i) {
+            long size = scan.readCmprLong();
+            int start = scan.position;
+            scan.skip(size);
+            if (scan.failed) break;
+            if (buffer.names.insert(Utf8Codec.decode(bytes, start, (int)size)) != i) {
+                return NixValue.invalid(); // duplicate symbols
+            }
+        }
+        return view(buffer, scan);
+    }
+
+    private static Inspector view(Buffer buffer, Scan scan) {
+        if (scan.failed || scan.position >= buffer.end) return NixValue.invalid();
+
+        byte typeAndMeta = buffer.bytes[scan.position];
+        return new BinaryView(buffer, scan.position + 1, decode_type(typeAndMeta), decode_meta(typeAndMeta));
+    }
+
+    private static Inspector view(Buffer buffer, int position) {
+        byte typeAndMeta = buffer.bytes[position];
+        return new BinaryView(buffer, position + 1, decode_type(typeAndMeta), decode_meta(typeAndMeta));
+    }
+
+    @Override
+    public boolean valid() { return true; }
+
+    @Override
+    public Type type() { return type; }
+
+    @Override
+    public int children() {
+        return (type == Type.ARRAY || type == Type.OBJECT) ? index().positions.length : 0;
+    }
+
+    @Override
+    public int entries() {
+        return (type == Type.ARRAY) ? index().positions.length : 0;
+    }
+
+    @Override
+    public int fields() {
+        return (type == Type.OBJECT) ? index().positions.length : 0;
+    }
+
+    @Override
+    public boolean asBool() {
+        return (type == Type.BOOL) && meta != 0;
+    }
+
+    @Override
+    public long asLong() {
+        switch (type) {
+            case LONG: return decode_zigzag(new Scan(buffer, position).readBytesLittleEndian(meta));
+            case DOUBLE: return (long)decodeDouble();
+            default: return 0;
+        }
+    }
+
+    @Override
+    public double asDouble() {
+        switch (type) {
+            case LONG: return (double)decode_zigzag(new Scan(buffer, position).readBytesLittleEndian(meta));
+            case DOUBLE: return decodeDouble();
+            default: return 0.0;
+        }
+    }
+
+    private double decodeDouble() {
+        return decode_double(new Scan(buffer, position).readBytesBigEndian(meta));
+    }
+
+    @Override
+    public String asString() {
+        if (type != Type.STRING) return emptyString;
+
+        Scan scan = new Scan(buffer, position);
+        long size = scan.readSizeLong(meta);
+        if ( ! scan.canSkip(size)) return emptyString;
+        return Utf8Codec.decode(buffer.bytes, scan.position, (int)size);
+    }
+
+    @Override
+    public byte[] asUtf8() {
+        return (type == Type.STRING) ? copyBytes() : emptyData;
+    }
+
+    /** Returns the UTF-8 bytes of this string as a view into the underlying buffer, without copying them */
+    @Override
+    public AbstractUtf8Array asUtf8Array() {
+        if (type != Type.STRING) return new Utf8PartialArray(emptyData, 0, 0);
+
+        Scan scan = new Scan(buffer, position);
+        long size = scan.readSizeLong(meta);
+        if ( ! scan.canSkip(size)) return new Utf8PartialArray(emptyData, 0, 0);
+        return new Utf8PartialArray(buffer.bytes, scan.position, (int)size);
+    }
+
+    @Override
+    public byte[] asData() {
+        return (type == Type.DATA) ? copyBytes() : emptyData;
+    }
+
+    private byte[] copyBytes() {
+        Scan scan = new Scan(buffer, position);
+        long size = scan.readSizeLong(meta);
+        if ( ! scan.canSkip(size)) return emptyData;
+
+        byte[] ret = new byte[(int)size];
+        System.arraycopy(buffer.bytes, scan.position, ret, 0, (int)size);
+        return ret;
+    }
+
+    @Override
+    public void accept(Visitor v) {
+        switch (type) {
+            case NIX: v.visitNix(); break;
+            case BOOL: v.visitBool(asBool()); break;
+            case LONG: v.visitLong(asLong()); break;
+            case DOUBLE: v.visitDouble(asDouble()); break;
+            case STRING: v.visitString(asUtf8()); break;
+            case DATA: v.visitData(asData()); break;
+            case ARRAY: v.visitArray(this); break;
+            case OBJECT: v.visitObject(this); break;
+        }
+    }
+
+    @Override
+    public void traverse(ArrayTraverser at) {
+        if (type != Type.ARRAY) return;
+
+        int[] positions = index().positions;
+        for (int i = 0; i < positions.length; i++) {
+            at.entry(i, view(buffer, positions[i]));
+        }
+    }
+
+    @Override
+    public void traverse(ObjectSymbolTraverser ot) {
+        if (type != Type.OBJECT) return;
+
+        Index index = index();
+        for (int i = 0; i < index.positions.length; i++) {
+            ot.field(index.symbols[i], view(buffer, index.positions[i]));
+        }
+    }
+
+    @Override
+    public void traverse(ObjectTraverser ot) {
+        if (type != Type.OBJECT) return;
+
+        Index index = index();
+        for (int i = 0; i < index.positions.length; i++) {
+            ot.field(buffer.names.inspect(index.symbols[i]), view(buffer, index.positions[i]));
+        }
+    }
+
+    @Override
+    public Inspector entry(int idx) {
+        if (type != Type.ARRAY) return NixValue.invalid();
+
+        int[] positions = index().positions;
+        return (idx >= 0 && idx < positions.length) ? view(buffer, positions[idx]) : NixValue.invalid();
+    }
+
+    @Override
+    public Inspector field(int sym) {
+        if (type != Type.OBJECT) return NixValue.invalid();
+
+        Index index = index();
+        for (int i = 0; i < index.positions.length; i++) {
+            if (index.symbols[i] == sym) {
+                return view(buffer, index.positions[i]);
+            }
+        }
+        return NixValue.invalid();
+    }
+
+    @Override
+    public Inspector field(String name) {
+        if (type != Type.OBJECT) return NixValue.invalid();
+
+        int sym = buffer.names.lookup(name);
+        return (sym == SymbolTable.INVALID) ? NixValue.invalid() : field(sym);
+    }
+
+    /** Locates the children of this container, without decoding them */
+    private Index index() {
+        Index index = this.index;
+        if (index == null) {
+            index = new Index(buffer, position, meta, type == Type.OBJECT);
+            this.index = index;
+        }
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        try {
+            ByteArrayOutputStream a = new ByteArrayOutputStream();
+            new JsonFormat(true).encode(a, this);
+            byte[] utf8 = a.toByteArray();
+            return Utf8Codec.decode(utf8, 0, utf8.length);
+        } catch (Exception e) {
+            return "null";
+        }
+    }
+
+    /** The positions, and symbols if an object, of the children of a container */
+    private static final class Index {
+
+        final int[] positions;
+        final int[] symbols;
+
+        Index(Buffer buffer, int position, int meta, boolean isObject) {
+            Scan scan = new Scan(buffer, position);
+            long size = scan.readSizeLong(meta);
+            // each child takes at least one byte, which bounds the size of a well-formed container
+            int capacity = (int)Math.min(size, Math.max(0, buffer.end - scan.position));
+            int[] positions = (capacity == 0) ? emptyIndex : new int[capacity];
+            int[] symbols = isObject ? positions.clone() : null;
+            int count = 0;
+            while (count < capacity) {
+                int symbol = 0;
+                if (isObject) {
+                    long l = scan.readCmprLong();
+                    if (l < 0 || l >= buffer.names.symbols()) break;
+                    symbol = (int)l;
+                }
+                int start = scan.position;
+                scan.skipValue();
+                if (scan.failed) break;
+                if (isObject) {
+                    symbols[count] = symbol;
+                }
+                positions[count++] = start;
+            }
+            this.positions = (count < capacity) ? Arrays.copyOf(positions, count) : positions;
+            this.symbols = (isObject && count < capacity) ? Arrays.copyOf(symbols, count) : symbols;
+        }
+    }
+
+    /** The state shared by all views of the same buffer */
+    private static final class Buffer {
+
+        final byte[] bytes;
+        final int end;
+        final SymbolTable names = new SymbolTable();
+
+        Buffer(byte[] bytes, int end) {
+            this.bytes = bytes;
+            this.end = Math.min(end, bytes.length);
+        }
+    }
+
+    /** A bounds checked read position in a buffer */
+    private static final class Scan {
+
+        final byte[] bytes;
+        final int end;
+        int position;
+        boolean failed = false;
+
+        Scan(Buffer buffer, int position) {
+            this.bytes = buffer.bytes;
+            this.end = buffer.end;
+            this.position = position;
+        }
+
+        int getByte() {
+            if (position >= end) {
+                failed = true;
+                return 0;
+            }
+            return bytes[position++] & 0xff;
+        }
+
+        long readCmprLong() {
+            long next = getByte();
+            long value = (next & 0x7f);
+            int shift = 7;
+            while ((next & 0x80) != 0 && ! failed) {
+                next = getByte();
+                value |= ((next & 0x7f) << shift);
+                shift += 7;
+            }
+            return value;
+        }
+
+        long readSizeLong(int meta) {
+            return (meta == 0) ? readCmprLong() : (meta - 1);
+        }
+
+        long readBytesLittleEndian(int count) {
+            long value = 0;
+            int shift = 0;
+            for (int i = 0; i < count; ++i) {
+                long b = getByte();
+                value |= b << shift;
+                shift += 8;
+            }
+            return value;
+        }
+
+        long readBytesBigEndian(int count) {
+            long value = 0;
+            int shift = 56;
+            for (int i = 0; i < count; ++i) {
+                long b = getByte();
+                value |= b << shift;
+                shift -= 8;
+            }
+            return value;
+        }
+
+        boolean canSkip(long size) {
+            return ! failed && size >= 0 && size <= end - position;
+        }
+
+        void skip(long size) {
+            if (canSkip(size)) {
+                position += (int)size;
+            } else {
+                failed = true;
+            }
+        }
+
+        /**
+         * Skips the value at this position, including its type and meta byte.
+         * This is done without recursion, such that deeply nested input can not overflow the stack.
+         */
+        void skipValue() {
+            // the number of children left to skip of each container we are inside, and whether it is an object
+            long[] remaining = null;
+            boolean[] isObject = null;
+            int depth = 0;
+            do {
+                int typeAndMeta = getByte();
+                if (failed) return;
+
+                int meta = decode_meta((byte)typeAndMeta);
+                Type type = decode_type((byte)typeAndMeta);
+                switch (type) {
+                    case NIX:
+                    case BOOL:
+                        break;
+                    case LONG:
+                    case DOUBLE:
+                        skip(meta);
+                        break;
+                    case STRING:
+                    case DATA:
+                        skip(readSizeLong(meta));
+                        break;
+                    case ARRAY:
+                    case OBJECT:
+                        long size = readSizeLong(meta);
+                        if (size <= 0) break;
+                        if (remaining == null) {
+                            remaining = new long[8];
+                            isObject = new boolean[8];
+                        } else if (depth == remaining.length) {
+                            remaining = Arrays.copyOf(remaining, depth * 2);
+                            isObject = Arrays.copyOf(isObject, depth * 2);
+                        }
+                        remaining[depth] = size;
+                        isObject[depth++] = (type == Type.OBJECT);
+                        break;
+                }
+                while (depth > 0 && remaining[depth - 1] == 0) {
+                    --depth;
+                }
+                if (depth > 0) {
+                    --remaining[depth - 1];
+                    if (isObject[depth - 1]) {
+                        readCmprLong();
+                    }
+                }
+            } while (depth > 0 && ! failed);
+        }
+    }
+
+}
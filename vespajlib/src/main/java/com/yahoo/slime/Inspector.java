@@ -1,6 +1,9 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.slime;
 
+import com.yahoo.text.AbstractUtf8Array;
+import com.yahoo.text.Utf8Array;
+
 /**
  * Interface for read-only access to any value or object that is part
  * of a Slime. You can access meta-data such as validity and actual
@@ -56,6 +59,12 @@ public interface Inspector {
     /** the current value encoded into UTF-8 (for string values); default: empty array */
     byte[] asUtf8();
 
+    /**
+     * the current value encoded into UTF-8 (for string values), without copying
+     * it if the value is already available as UTF-8; default: empty array
+     */
+    default AbstractUtf8Array asUtf8Array() { return new Utf8Array(asUtf8()); }
+
     /** the current value (for data values); default: empty array */
     byte[] asData();
 
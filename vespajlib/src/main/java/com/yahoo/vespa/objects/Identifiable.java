@@ -207,6 +207,31 @@ public class Identifiable extends Selectable implements Cloneable {
         return obj;
     }
 
+    /**
+     * Creates an instance of the class identified in the given buffer and deserializes it, like {@link
+     * #create(Deserializer)}, but only if that class is the given type or a subclass of it. This is checked before the
+     * class is instantiated, so this is safe to use on untrusted input.
+     *
+     * @param buf  The buffer to deserialize from.
+     * @param type The type the instantiated object must have.
+     * @return The instantiated object.
+     * @throws IllegalArgumentException Thrown if the class contained in the buffer is unknown, or not of the given type.
+     */
+    public static <T extends Identifiable> T create(Deserializer buf, Class<T> type) {
+        int classId = buf.getInt(null);
+        Class<?> spec = registry.get(classId);
+        if (spec == null || ! type.isAssignableFrom(spec)) {
+            throw new IllegalArgumentException("Expected an instance of '" + type.getName() + "', got " +
+                                               (spec == null ? "unknown class id " + classId : "class '" + spec.getName() + "'") + ".");
+        }
+        Identifiable obj = createFromId(classId);
+        if (obj == null) {
+            throw new IllegalArgumentException("Failed creating class for classId " + classId);
+        }
+        obj.deserialize(buf);
+        return type.cast(obj);
+    }
+
     /**
      * Creates an instance of the class registered with the given identifier. If the indentifier is unknown, this method
      * returns null.
@@ -0,0 +1,104 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the compression ratio and throughput of the compression types and levels of {@link Compressor}
+ * on document payloads of various sizes, and of ZSTD with a dictionary trained on other documents of the same type.
+ */
+public class CompressorBenchmark {
+
+    private static final String[] words = {
+            "the", "vespa", "search", "engine", "document", "field", "title", "body", "music", "artist", "album",
+            "year", "rank", "query", "summary", "attribute", "index", "content", "cluster", "node", "bucket"
+    };
+
+    /** Returns a JSON document payload with the given number of fields of random words */
+    static byte[] documentPayload(int fieldCount, Random random) {
+        StringBuilder json = new StringBuilder("{\"put\": \"id:ns:music::").append(random.nextInt()).append("\", \"fields\": {");
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) json.append(", ");
+            json.append("\"field").append(i).append("\": \"");
+            for (int j = 0, wordCount = 1 + random.nextInt(50); j < wordCount; j++) {
+                if (j > 0) json.append(' ');
+                json.append(words[random.nextInt(words.length)]);
+            }
+            json.append("\"");
+        }
+        return json.append("}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void benchmark(CompressionType type, int level, byte[][] payloads, int iterations) {
+        benchmark(new Compressor(type, level, 1.0, 0), "", payloads, iterations);
+    }
+
+    private static void benchmark(Compressor compressor, String description, byte[][] payloads, int iterations) {
+        Compressor.Compression[] compressed = new Compressor.Compression[payloads.length];
+        compressAll(compressor, payloads, compressed, iterations / 10); // warmup
+        decompressAll(compressor, compressed, iterations / 10);
+
+        long start = System.nanoTime();
+        compressAll(compressor, payloads, compressed, iterations);
+        long compressNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        decompressAll(compressor, compressed, iterations);
+        long decompressNanos = System.nanoTime() - start;
+
+        long size = 0;
+        long compressedSize = 0;
+        for (int i = 0; i < payloads.length; i++) {
+            size += payloads[i].length;
+            compressedSize += compressed[i].data().length;
+        }
+        System.out.println(String.format("%-5s level %2d%s: ratio %5.2f, compress %7.1f MB/s, decompress %7.1f MB/s",
+                                         compressor.type(), compressor.level(), description, (double) size / compressedSize,
+                                         megabytesPerSecond(size * iterations, compressNanos),
+                                         megabytesPerSecond(size * iterations, decompressNanos)));
+    }
+
+    private static void compressAll(Compressor compressor, byte[][] payloads, Compressor.Compression[] compressed, int iterations) {
+        for (int i = 0; i < iterations; i++)
+            for (int j = 0; j < payloads.length; j++)
+                compressed[j] = compressor.compress(payloads[j]);
+    }
+
+    private static void decompressAll(Compressor compressor, Compressor.Compression[] compressed, int iterations) {
+        for (int i = 0; i < iterations; i++)
+            for (Compressor.Compression compression : compressed)
+                compressor.decompress(compression);
+    }
+
+    private static double megabytesPerSecond(long bytes, long nanos) {
+        return bytes / (1024.0 * 1024.0) / (nanos / 1.0e9);
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        for (int fieldCount : new int[] { 5, 50, 500 }) {
+            byte[][] payloads = new byte[100][];
+            for (int i = 0; i < payloads.length; i++)
+                payloads[i] = documentPayload(fieldCount, random);
+            int iterations = 20000 / fieldCount;
+            System.out.println("Documents of " + fieldCount + " fields, about " + payloads[0].length + " bytes:");
+            benchmark(CompressionType.LZ4, 0, payloads, iterations);
+            benchmark(CompressionType.LZ4, 7, payloads, iterations);
+            benchmark(CompressionType.LZ4, 9, payloads, iterations);
+            benchmark(CompressionType.LZ4, 17, payloads, iterations);
+            for (int level : new int[] { 1, 3, 9, 19 })
+                benchmark(CompressionType.ZSTD, level, payloads, iterations);
+
+            List<byte[]> samples = new ArrayList<>();
+            for (int i = 0; i < 1000; i++)
+                samples.add(documentPayload(fieldCount, random));
+            ZstdDictionary dictionary = ZstdDictionary.train(fieldCount, samples, 16 * 1024);
+            for (int level : new int[] { 1, 3, 9, 19 })
+                benchmark(new Compressor(CompressionType.ZSTD, level, 1.0, 0, dictionary),
+                          " with a dictionary of " + dictionary.asBytes().length + " bytes", payloads, iterations);
+        }
+    }
+
+}
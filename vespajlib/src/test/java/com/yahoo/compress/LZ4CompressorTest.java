@@ -8,6 +8,7 @@ import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class LZ4CompressorTest {
 
@@ -22,4 +23,46 @@ public class LZ4CompressorTest {
         assertTrue(Arrays.equals(decompressed, Arrays.copyOf(toCompress, compressBytes)));
     }
 
+    @Test
+    public void higher_levels_use_high_compression() {
+        byte[] toCompress = CompressorBenchmark.documentPayload(20, new java.util.Random(7));
+        int previousSize = Integer.MAX_VALUE;
+        for (int level : new int[] { 0, 7, 17 }) {
+            Compressor compressor = new Compressor(CompressionType.LZ4, level, 1.0, 0);
+            Compressor.Compression compressed = compressor.compress(toCompress);
+            assertEquals(CompressionType.LZ4, compressed.type());
+            assertTrue(compressed.data().length <= previousSize);
+            previousSize = compressed.data().length;
+            assertTrue(Arrays.equals(toCompress, compressor.decompress(compressed)));
+        }
+    }
+
+    @Test
+    public void untrusted_data_is_validated() {
+        byte[] toCompress = CompressorBenchmark.documentPayload(5, new java.util.Random(7));
+        Compressor compressor = new Compressor();
+        Compressor.Compression compressed = compressor.compress(CompressionType.LZ4, toCompress);
+        byte[] data = compressed.data();
+        assertTrue(Arrays.equals(toCompress, compressor.decompressUntrusted(CompressionType.LZ4, data, 0, data.length,
+                                                                            toCompress.length)));
+        assertIllegalArgument(() -> compressor.decompressUntrusted(CompressionType.LZ4, data, 0, data.length - 1,
+                                                                   toCompress.length));
+        assertIllegalArgument(() -> compressor.decompressUntrusted(CompressionType.LZ4, data, 0, data.length + 1,
+                                                                   toCompress.length));
+        assertIllegalArgument(() -> compressor.decompressUntrusted(CompressionType.LZ4, data, 0, data.length,
+                                                                   toCompress.length + 1));
+        assertIllegalArgument(() -> compressor.decompressUntrusted(CompressionType.LZ4, new byte[] { (byte) 0xf0, 0, 0, 0 },
+                                                                   0, 4, 1000));
+        assertIllegalArgument(() -> compressor.decompressUntrusted(CompressionType.INCOMPRESSIBLE, data, 0, data.length,
+                                                                   data.length + 1));
+    }
+
+    private static void assertIllegalArgument(Runnable task) {
+        try {
+            task.run();
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
 }
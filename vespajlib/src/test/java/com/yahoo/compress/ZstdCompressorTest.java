@@ -0,0 +1,264 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the zstd codec. The data in src/test/resources/zstd is compressed by the reference implementation,
+ * of the texts made by {@link #text}, which is also implemented in Python to make more such data.
+ */
+public class ZstdCompressorTest {
+
+    private static final String[] words = {
+            "the", "vespa", "search", "engine", "document", "field", "title", "body", "music", "artist", "album",
+            "year", "rank", "query", "summary", "attribute", "index", "content", "cluster", "node", "bucket"
+    };
+
+    @Test
+    public void zstd_is_known_by_its_code() {
+        assertEquals(CompressionType.ZSTD, CompressionType.valueOf((byte) 7));
+        assertTrue(CompressionType.ZSTD.isCompressed());
+    }
+
+    @Test
+    public void compresses_and_decompresses_at_all_levels() {
+        List<byte[]> inputs = Arrays.asList(new byte[0],
+                                            new byte[] { 42 },
+                                            new byte[1000],
+                                            "abcabcabcabcabcabcabcabcab".getBytes(StandardCharsets.UTF_8),
+                                            randomBytes(5000, new Random(1)),
+                                            text(1, 20000),
+                                            text(2, 300000));
+        for (int level = ZstdCompressor.MIN_LEVEL; level <= ZstdCompressor.MAX_LEVEL; level++) {
+            for (byte[] input : inputs) {
+                if (level > 9 && input.length > 100000) continue; // slow, and no different
+                byte[] compressed = new ZstdCompressor(level, null).compress(input, 0, input.length);
+                assertTrue(compressed.length <= ZstdCompressor.maxCompressedLength(input.length));
+                byte[] decompressed = new byte[input.length];
+                assertEquals(input.length, new ZstdDecompressor(null).decompress(compressed, 0, compressed.length,
+                                                                                 decompressed, 0, decompressed.length));
+                assertArrayEquals("Level " + level + ", " + input.length + " bytes", input, decompressed);
+            }
+        }
+    }
+
+    @Test
+    public void higher_levels_compress_more() {
+        byte[] input = text(3, 50000);
+        int level1 = new Compressor(CompressionType.ZSTD, 1, 1.0, 0).compress(input).data().length;
+        int level9 = new Compressor(CompressionType.ZSTD, 9, 1.0, 0).compress(input).data().length;
+        int level19 = new Compressor(CompressionType.ZSTD, 19, 1.0, 0).compress(input).data().length;
+        assertTrue(level1 + " > " + level9, level1 > level9);
+        assertTrue(level9 + " >= " + level19, level9 >= level19);
+        assertTrue(level1 < input.length / 3);
+    }
+
+    @Test
+    public void incompressible_data_is_not_compressed() {
+        byte[] input = randomBytes(1000, new Random(2));
+        Compressor.Compression compressed = new Compressor(CompressionType.ZSTD).compress(input);
+        assertEquals(CompressionType.INCOMPRESSIBLE, compressed.type());
+    }
+
+    @Test
+    public void can_compress_and_decompress_partial_buffer_range() {
+        byte[] input = text(4, 1000);
+        Compressor compressor = new Compressor(CompressionType.ZSTD, 3, 1.0, 0);
+        Compressor.Compression compressed = compressor.compress(input, 600);
+        assertEquals(600, compressed.uncompressedSize());
+        assertArrayEquals(Arrays.copyOf(input, 600), compressor.decompress(compressed));
+
+        byte[] padded = new byte[compressed.data().length + 20];
+        System.arraycopy(compressed.data(), 0, padded, 10, compressed.data().length);
+        assertArrayEquals(Arrays.copyOf(input, 600),
+                          compressor.decompress(CompressionType.ZSTD, padded, 10, 600, Optional.of(compressed.data().length)));
+    }
+
+    @Test
+    public void decompresses_data_compressed_by_the_reference_implementation() throws IOException {
+        Compressor compressor = new Compressor(CompressionType.ZSTD);
+        byte[] text = text(1, 20000);
+        for (int level : new int[] { 1, 3, 9, 19 })
+            assertArrayEquals(text, compressor.decompress(resource("text-level" + level + ".zst"), CompressionType.ZSTD, text.length));
+        byte[] multiblock = text(2, 400000);
+        assertArrayEquals(multiblock, compressor.decompress(resource("multiblock-checksum.zst"), CompressionType.ZSTD, multiblock.length));
+        byte[] streamed = text(3, 5000);
+        assertArrayEquals(streamed, compressor.decompress(resource("streaming.zst"), CompressionType.ZSTD, streamed.length));
+    }
+
+    @Test
+    public void decompresses_data_compressed_with_dictionaries_by_the_reference_implementation() throws IOException {
+        ZstdDictionary trained = new ZstdDictionary(resource("trained.dict"));
+        assertTrue(trained.hasEntropyTables());
+        byte[] document = document(new Generator(5), 10);
+        assertArrayEquals(document, new Compressor(CompressionType.ZSTD, 3, 1.0, 0, trained)
+                .decompress(resource("trained-dictionary.zst"), CompressionType.ZSTD, document.length));
+
+        ZstdDictionary raw = new ZstdDictionary(text(6, 2000));
+        assertEquals(0, raw.id());
+        byte[] text = text(7, 3000);
+        assertArrayEquals(text, new Compressor(CompressionType.ZSTD, 3, 1.0, 0, raw)
+                .decompress(resource("raw-dictionary.zst"), CompressionType.ZSTD, text.length));
+    }
+
+    @Test
+    public void dictionaries_improve_compression_of_small_documents() throws IOException {
+        Generator generator = new Generator(8);
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 300; i++)
+            samples.add(document(generator, 10));
+        ZstdDictionary dictionary = ZstdDictionary.train(17, samples, 4096);
+        assertEquals(17, dictionary.id());
+        assertTrue(dictionary.asBytes().length <= 4096);
+        assertEquals(dictionary.id(), new ZstdDictionary(dictionary.asBytes()).id());
+
+        ZstdDictionary referenceDictionary = new ZstdDictionary(resource("trained.dict"));
+        Compressor plain = new Compressor(CompressionType.ZSTD, 3, 1.0, 0);
+        Compressor withDictionary = new Compressor(CompressionType.ZSTD, 3, 1.0, 0, dictionary);
+        Compressor withReferenceDictionary = new Compressor(CompressionType.ZSTD, 3, 1.0, 0, referenceDictionary);
+        long size = 0, plainSize = 0, dictionarySize = 0;
+        for (int i = 0; i < 100; i++) {
+            byte[] document = document(generator, 10);
+            size += document.length;
+            plainSize += plain.compress(document).data().length;
+            Compressor.Compression compressed = withDictionary.compress(document);
+            dictionarySize += compressed.data().length;
+            assertArrayEquals(document, withDictionary.decompress(compressed));
+            assertArrayEquals(document, withReferenceDictionary.decompress(withReferenceDictionary.compress(document)));
+        }
+        assertTrue(plainSize + " < " + size, plainSize < size);
+        assertTrue(dictionarySize + " < " + plainSize * 0.85, dictionarySize < plainSize * 0.85);
+    }
+
+    @Test
+    public void data_compressed_with_a_dictionary_requires_that_dictionary() {
+        Generator generator = new Generator(9);
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            samples.add(document(generator, 10));
+        ZstdDictionary dictionary = ZstdDictionary.train(1, samples, 2048);
+        ZstdDictionary otherDictionary = ZstdDictionary.train(2, samples, 2048);
+        byte[] document = document(generator, 10);
+        Compressor.Compression compressed = new Compressor(CompressionType.ZSTD, 3, 1.0, 0, dictionary).compress(document);
+        assertDecompressionFails(new Compressor(CompressionType.ZSTD), compressed,
+                                 "Data is compressed with dictionary 1, but no dictionary is given");
+        assertDecompressionFails(new Compressor(CompressionType.ZSTD, 3, 1.0, 0, otherDictionary), compressed,
+                                 "Data is compressed with dictionary 1, but dictionary 2 is given");
+
+        Compressor.Compression plain = new Compressor(CompressionType.ZSTD, 3, 1.0, 0).compress(document);
+        assertArrayEquals(document, new Compressor(CompressionType.ZSTD, 3, 1.0, 0, dictionary).decompress(plain));
+    }
+
+    @Test
+    public void decompressing_into_too_little_space_fails() {
+        byte[] input = text(10, 5000);
+        Compressor compressor = new Compressor(CompressionType.ZSTD);
+        Compressor.Compression compressed = compressor.compress(input);
+        assertDecompressionFails(compressor, new Compressor.Compression(CompressionType.ZSTD, 4999, compressed.data()),
+                                 "Decompressed size 5000 is larger than the 4999 bytes available");
+        assertDecompressionFails(compressor, new Compressor.Compression(CompressionType.ZSTD, 5001, compressed.data()),
+                                 "Uncompressed size mismatch. Expected 5001. Got 5000");
+    }
+
+    @Test
+    public void corrupt_data_only_causes_illegal_argument_exceptions() throws IOException {
+        Random random = new Random(11);
+        List<byte[]> valid = Arrays.asList(resource("text-level3.zst"), resource("text-level19.zst"),
+                                           resource("streaming.zst"),
+                                           new Compressor(CompressionType.ZSTD, 9, 1.0, 0).compress(text(12, 3000)).data());
+        Compressor compressor = new Compressor(CompressionType.ZSTD);
+        for (int i = 0; i < 3000; i++) {
+            byte[] data = valid.get(i % valid.size()).clone();
+            if (i % 5 == 0) {
+                data = Arrays.copyOf(data, random.nextInt(data.length));
+            } else {
+                for (int j = 1 + random.nextInt(4); j > 0; j--)
+                    data[random.nextInt(data.length)] ^= 1 << random.nextInt(8);
+            }
+            try {
+                compressor.decompress(data, CompressionType.ZSTD, 30000);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    private static void assertDecompressionFails(Compressor compressor, Compressor.Compression compressed, String message) {
+        try {
+            compressor.decompress(compressed);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream in = ZstdCompressorTest.class.getResourceAsStream("/zstd/" + name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) > 0; )
+                out.write(buffer, 0, read);
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] randomBytes(int size, Random random) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /** Returns the given number of bytes of documents of 10 fields, made from the given seed */
+    private static byte[] text(long seed, int size) {
+        Generator generator = new Generator(seed);
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        while (text.size() < size) {
+            byte[] document = document(generator, 10);
+            text.write(document, 0, document.length);
+        }
+        return Arrays.copyOf(text.toByteArray(), size);
+    }
+
+    private static byte[] document(Generator generator, int fieldCount) {
+        StringBuilder json = new StringBuilder("{\"put\": \"id:ns:music::").append(generator.next(1000000)).append("\", \"fields\": {");
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) json.append(", ");
+            json.append("\"field").append(i).append("\": \"");
+            for (int j = 0, wordCount = 1 + generator.next(50); j < wordCount; j++) {
+                if (j > 0) json.append(' ');
+                json.append(words[generator.next(words.length)]);
+            }
+            json.append("\"");
+        }
+        return json.append("}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** A linear congruential generator, which is simple to implement the same way in other languages */
+    private static class Generator {
+
+        private long state;
+
+        Generator(long seed) { this.state = seed; }
+
+        int next(int bound) {
+            state = state * 6364136223846793005L + 1442695040888963407L;
+            return (int) ((state >>> 33) % bound);
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import com.yahoo.text.AbstractUtf8Array;
+import com.yahoo.text.Utf8;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryViewTestCase {
+
+    private static Slime createSlime() {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setNix("nix");
+        root.setBool("bool", true);
+        root.setLong("long", -123456789012L);
+        root.setDouble("double", 3.5);
+        root.setString("string", "blåbær");
+        root.setData("data", new byte[] { 1, 2, 3 });
+        Cursor array = root.setArray("array");
+        array.addLong(1);
+        array.addString("two");
+        array.addObject().setLong("three", 3);
+        root.setObject("empty");
+        return slime;
+    }
+
+    @Test
+    public void requireThatViewEqualsDecodedSlime() {
+        Slime slime = createSlime();
+        byte[] data = BinaryFormat.encode(slime);
+        Inspector view = BinaryFormat.inspect(data);
+        assertEquals(slime.get().toString(), view.toString());
+        assertEquals(BinaryFormat.decode(data).get().toString(), view.toString());
+    }
+
+    @Test
+    public void requireThatValuesCanBeAccessed() {
+        Inspector view = BinaryFormat.inspect(BinaryFormat.encode(createSlime()));
+        assertEquals(Type.OBJECT, view.type());
+        assertEquals(8, view.fields());
+        assertEquals(0, view.entries());
+        assertTrue(view.field("nix").valid());
+        assertEquals(Type.NIX, view.field("nix").type());
+        assertTrue(view.field("bool").asBool());
+        assertEquals(-123456789012L, view.field("long").asLong());
+        assertEquals(3.5, view.field("double").asDouble(), 0);
+        assertEquals(3, view.field("double").asLong());
+        assertEquals("blåbær", view.field("string").asString());
+        assertArrayEquals(Utf8.toBytes("blåbær"), view.field("string").asUtf8());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, view.field("data").asData());
+        assertEquals(3, view.field("array").entries());
+        assertEquals("two", view.field("array").entry(1).asString());
+        assertEquals(3, view.field("array").entry(2).field("three").asLong());
+        assertEquals(0, view.field("empty").fields());
+        assertFalse(view.field("missing").valid());
+        assertFalse(view.field("array").entry(3).valid());
+        assertFalse(view.field("string").field("foo").valid());
+    }
+
+    @Test
+    public void requireThatStringsCanBeAccessedWithoutCopying() {
+        byte[] data = BinaryFormat.encode(createSlime());
+        AbstractUtf8Array utf8 = BinaryFormat.inspect(data).field("string").asUtf8Array();
+        assertEquals("blåbær", utf8.toString());
+        assertSame(data, utf8.wrap().array());
+    }
+
+    @Test
+    public void requireThatContainersCanBeTraversed() {
+        Inspector view = BinaryFormat.inspect(BinaryFormat.encode(createSlime()));
+        List<String> names = new ArrayList<>();
+        view.traverse((ObjectTraverser)(name, inspector) -> names.add(name));
+        assertEquals(Arrays.asList("nix", "bool", "long", "double", "string", "data", "array", "empty"), names);
+
+        List<Type> types = new ArrayList<>();
+        view.field("array").traverse((ArrayTraverser)(idx, inspector) -> types.add(inspector.type()));
+        assertEquals(Arrays.asList(Type.LONG, Type.STRING, Type.OBJECT), types);
+    }
+
+    @Test
+    public void requireThatViewCanStartAtOffset() {
+        byte[] data = BinaryFormat.encode(createSlime());
+        byte[] padded = new byte[data.length + 10];
+        System.arraycopy(data, 0, padded, 5, data.length);
+        assertEquals(BinaryFormat.inspect(data).toString(), BinaryFormat.inspect(padded, 5, data.length).toString());
+    }
+
+    @Test
+    public void requireThatTruncatedInputDoesNotThrow() {
+        byte[] data = BinaryFormat.encode(createSlime());
+        for (int length = 0; length < data.length; ++length) {
+            Inspector view = BinaryFormat.inspect(data, 0, length);
+            view.toString();
+            assertTrue(view.fields() < 8);
+        }
+        assertFalse(BinaryFormat.inspect(new byte[0]).valid());
+    }
+
+    @Test
+    public void requireThatDeeplyNestedInputDoesNotOverflowTheStack() {
+        int depth = 1000000;
+        byte[] data = new byte[depth + 3];
+        data[0] = 0; // no symbols
+        data[1] = BinaryFormat.encode_type_and_meta(Type.ARRAY.ID, 3); // the outer array has two elements
+        for (int i = 2; i < depth + 1; ++i) {
+            data[i] = BinaryFormat.encode_type_and_meta(Type.ARRAY.ID, 2);
+        }
+        data[depth + 1] = BinaryFormat.encode_type_and_meta(Type.LONG.ID, 0);
+        data[depth + 2] = BinaryFormat.encode_type_and_meta(Type.BOOL.ID, 1);
+        Inspector view = BinaryFormat.inspect(data);
+        assertEquals(2, view.entries());
+        assertTrue(view.entry(1).asBool());
+        assertEquals(1, view.entry(0).entries());
+    }
+
+}
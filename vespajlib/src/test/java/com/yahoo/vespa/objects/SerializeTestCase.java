@@ -34,6 +34,26 @@ public class SerializeTestCase {
         assertThat((s2 instanceof SomeIdClass), is(true));
     }
 
+    @Test
+    public void testCreateOfType() {
+        BufferSerializer buf = new BufferSerializer(new GrowableByteBuffer());
+        new SomeIdClass().serializeWithId(buf);
+        buf.flip();
+        assertThat(Identifiable.create(buf, Identifiable.class) instanceof SomeIdClass, is(true));
+        for (int classId : new int[] { SomeIdClass.classId, 717273 }) {
+            buf = new BufferSerializer(new GrowableByteBuffer());
+            buf.putInt(null, classId);
+            buf.flip();
+            boolean caught = false;
+            try {
+                Identifiable.create(buf, BigIdClass.class);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            assertThat(caught, is(true));
+        }
+    }
+
     @Test
     public void testUnderflow() {
         BufferSerializer buf = new BufferSerializer(new GrowableByteBuffer());